@@ -0,0 +1,142 @@
+package com.example.S3App;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Download throughput per object size and copy strategy, against the in-process FakeS3Server:
+ *   - STREAM_LOOP: the original getAsFile loop, a 16 KB byte[] into a FileOutputStream
+ *   - POOLED_64K / POOLED_1M: getAsFile through BufferPool with that buffer size
+ *   - SDK_FILE: the SDK's own ResponseTransformer.toFile
+ *   - PARALLEL_RANGES: getAsFile as concurrent 1 MB ranged GETs
+ * The "bytes" secondary result is the download rate in bytes per second.
+ * verifyChecksums=true adds streaming checksum verification to the getAsFile strategies (MD5 of the ETag for the
+ * single-stream ones, which skip the HEAD; combined per-part CRC32C for PARALLEL_RANGES); compare against false
+ * for its overhead. Run with -prof gc to compare the bytes each strategy allocates per download.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=error")
+public class GetAsFileBenchmark {
+
+    public enum Strategy { STREAM_LOOP, POOLED_64K, POOLED_1M, SDK_FILE, PARALLEL_RANGES }
+
+    private static final String KEY = "bench/download/object.bin";
+
+    @Param({"65536", "4194304", "67108864"})
+    public int objectSize;
+
+    @Param
+    public Strategy strategy;
+
+    @Param({"true", "false"})
+    public boolean verifyChecksums;
+
+    private FakeS3Server fakeS3;
+    private S3Client client;
+    private S3ResourceService service;
+    private Resource resource;
+    private GetObjectRequest getRequest;
+    private Path output;
+
+    /**
+     * Bytes downloaded, reported per second next to the operation rate.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+        public long bytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        byte[] data = new byte[objectSize];
+        new Random(objectSize).nextBytes(data);
+        fakeS3 = new FakeS3Server().start();
+        fakeS3.put(KEY, data);
+        client = fakeS3.syncClient();
+
+        DownloadSettings settings = new DownloadSettings();
+        switch (strategy) {
+            case POOLED_64K -> settings.setBufferSize(64 * 1024);
+            case POOLED_1M -> settings.setBufferSize(1024 * 1024);
+            case PARALLEL_RANGES -> {
+                settings.setParallelThreshold(1);
+                settings.setPartSize(1024 * 1024);
+            }
+            default -> { }
+        }
+        settings.setVerifyChecksums(verifyChecksums);
+        if (strategy != Strategy.PARALLEL_RANGES) {
+            settings.setParallelThreshold(0); // single stream, no HEAD first
+        }
+        Path dir = Files.createTempDirectory("download-bench");
+        service = new S3ResourceService(client, "bench-bucket", dir.toString(), settings);
+        resource = S3Resources.file(KEY);
+        getRequest = GetObjectRequest.builder().bucket("bench-bucket").key(KEY).build();
+        output = dir.resolve(S3Resources.extractName(KEY));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(output);
+        client.close();
+        fakeS3.close();
+    }
+
+    @Benchmark
+    public void download(Bytes counter) throws IOException {
+        counter.bytes += switch (strategy) {
+            case STREAM_LOOP -> streamLoop();
+            case SDK_FILE -> sdkFile();
+            default -> service.getAsFile(resource).length();
+        };
+    }
+
+    private long streamLoop() throws IOException {
+        long written = 0;
+        try (ResponseInputStream<GetObjectResponse> in = client.getObject(getRequest, ResponseTransformer.toInputStream());
+             FileOutputStream out = new FileOutputStream(output.toFile())) {
+            byte[] buffer = new byte[16_384];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                written += read;
+            }
+        }
+        return written;
+    }
+
+    private long sdkFile() throws IOException {
+        // toFile refuses to overwrite, so the delete is part of this strategy's cost
+        Files.deleteIfExists(output);
+        return client.getObject(getRequest, ResponseTransformer.toFile(output)).contentLength();
+    }
+}
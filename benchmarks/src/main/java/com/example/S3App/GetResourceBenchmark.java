@@ -0,0 +1,76 @@
+package com.example.S3App;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * getResource against the in-process FakeS3Server, next to a bare headObject call so the service's own
+ * overhead (request building, mapping to Resource) can be told apart from the SDK and HTTP round trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=error")
+public class GetResourceBenchmark {
+
+    private static final String KEY = "bench/head/2024/10/17/part-00042-c000.snappy.parquet";
+
+    private FakeS3Server fakeS3;
+    private S3Client client;
+    private S3ResourceService service;
+    private HeadObjectRequest headRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        fakeS3 = new FakeS3Server().start();
+        fakeS3.put(KEY, new byte[1024]);
+        client = fakeS3.syncClient();
+        service = new S3ResourceService(client, "bench-bucket",
+                Files.createTempDirectory("head-bench").toString(), new DownloadSettings());
+        headRequest = HeadObjectRequest.builder().bucket("bench-bucket").key(KEY).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        fakeS3.close();
+    }
+
+    @Benchmark
+    public Resource getResource() {
+        return service.getResource(KEY);
+    }
+
+    @Benchmark
+    public HeadObjectResponse headObject() {
+        return client.headObject(headRequest);
+    }
+
+    // The not-found path: a 404 mapped to RuntimeException("Resource not found: ...")
+    @Benchmark
+    public Object getResourceMissing() {
+        try {
+            return service.getResource("bench/head/missing.bin");
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+}
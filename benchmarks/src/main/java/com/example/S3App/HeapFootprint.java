@@ -0,0 +1,85 @@
+package com.example.S3App;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Measures the retained heap of a large listing held as a ListResult of Resources versus a KeyBlock.
+ * Not a JMH benchmark: it builds each form once and compares used heap after full GCs, so run it with
+ * a collector that compacts fully and enough heap for the Resource form, e.g.
+ *   java -XX:+UseSerialGC -Xmx4g -cp target/benchmarks.jar com.example.S3App.HeapFootprint 1000000 10000000
+ */
+public class HeapFootprint {
+
+    public static void main(String[] args) {
+        String[] counts = args.length > 0 ? args : new String[] {"1000000", "10000000"};
+        System.out.printf("%12s %22s %22s %8s%n", "keys", "List<Resource> B/key", "KeyBlock B/key", "ratio");
+        for (String arg : counts) {
+            int n = Integer.parseInt(arg);
+            long block = measureKeyBlock(n);
+            long resources = measureResources(n);
+            System.out.printf("%12d %22s %22.1f %8s%n", n,
+                    resources < 0 ? "out of heap" : String.format("%.1f", (double) resources / n),
+                    (double) block / n,
+                    resources < 0 ? "-" : String.format("%.1fx", (double) resources / block));
+        }
+    }
+
+    private static long measureResources(int n) {
+        long before = usedHeapAfterGc();
+        try {
+            List<Resource> resources = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                resources.add(listedFile(i));
+            }
+            ListResult<Resource> listing = new ListResult<>();
+            listing.setResources(resources);
+            long used = usedHeapAfterGc() - before;
+            Reference.reachabilityFence(listing);
+            return used;
+        } catch (OutOfMemoryError e) {
+            return -1;
+        }
+    }
+
+    private static long measureKeyBlock(int n) {
+        long before = usedHeapAfterGc();
+        KeyBlock block = buildBlock(n);
+        long used = usedHeapAfterGc() - before;
+        Reference.reachabilityFence(block);
+        return used;
+    }
+
+    // The builder and its growth garbage are gone once this returns
+    private static KeyBlock buildBlock(int n) {
+        KeyBlock.Builder builder = new KeyBlock.Builder();
+        for (int i = 0; i < n; i++) {
+            builder.add(listedFile(i));
+        }
+        return builder.build();
+    }
+
+    // A listing of a typical partitioned data set: 4000 parts per hour, 24 hours per day
+    private static Resource listedFile(int i) {
+        Resource r = S3Resources.file(String.format("warehouse/events/dt=2024-%02d-%02d/hour=%02d/part-%05d-c000.snappy.parquet",
+                1 + i / 2_688_000 % 12, 1 + i / 96_000 % 28, i / 4_000 % 24, i % 4_000));
+        r.setSize(64L * 1024 * 1024 + i);
+        byte[] digest = new byte[16];
+        for (int b = 0; b < 16; b++) {
+            digest[b] = (byte) (i * 31 + b * 17);
+        }
+        r.setETag("\"" + HexFormat.of().formatHex(digest) + "\"");
+        r.setLastModified(1_700_000_000_000L + i * 1000L);
+        return r;
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
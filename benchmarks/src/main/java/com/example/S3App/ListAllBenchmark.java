@@ -0,0 +1,102 @@
+package com.example.S3App;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Listing a whole subtree against the in-process FakeS3Server, with listLatencyMs added to every LIST as a stand-in
+ * for S3's per-request latency:
+ *   - sequentialPaginator: the SDK's paginator, one page after another
+ *   - listAll: ParallelLister's concurrent StartAfter ranges, unordered
+ *   - computeStats: FolderStatsCollector over 32 child prefixes listed in parallel
+ * The tree is 10 folders of 500 keys plus 3000 keys in one flat folder, so both the seeded and the re-split ranges
+ * are exercised.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=error")
+public class ListAllBenchmark {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    @Param({"0", "50"})
+    public long listLatencyMs;
+
+    private FakeS3Server fakeS3;
+    private S3Client client;
+    private S3ResourceService service;
+    private ListObjectsV2Request treeRequest;
+    private Resource tree;
+    private Resource wide;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        fakeS3 = new FakeS3Server().start();
+        for (int f = 0; f < 10; f++) {
+            for (int i = 0; i < 500; i++) {
+                fakeS3.put(String.format("bench/tree/dir-%03d/obj-%05d", f, i), EMPTY);
+            }
+        }
+        for (int i = 0; i < 3000; i++) {
+            fakeS3.put(String.format("bench/tree/zz-flat/%06d", i), EMPTY);
+        }
+        for (int p = 0; p < 32; p++) {
+            fakeS3.put(String.format("bench/wide/p%02d/obj", p), new byte[10]);
+        }
+        fakeS3.setLatency(op -> op.equals("LIST") ? listLatencyMs : 0);
+        client = fakeS3.syncClient();
+        service = new S3ResourceService(client, "bench-bucket",
+                Files.createTempDirectory("list-all-bench").toString(), new DownloadSettings());
+        treeRequest = ListObjectsV2Request.builder().bucket("bench-bucket").prefix("bench/tree/").build();
+        tree = S3Resources.folder("bench/tree/");
+        wide = S3Resources.folder("bench/wide/");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        fakeS3.close();
+    }
+
+    @Benchmark
+    public int sequentialPaginator() {
+        int keys = 0;
+        for (ListObjectsV2Response page : client.listObjectsV2Paginator(treeRequest)) {
+            keys += page.contents().size();
+        }
+        return keys;
+    }
+
+    @Benchmark
+    public long listAll() {
+        try (Stream<Resource> stream = service.listAll(tree, false)) {
+            return stream.count();
+        }
+    }
+
+    @Benchmark
+    public FolderStats computeStats() {
+        return service.computeStats(wide);
+    }
+}
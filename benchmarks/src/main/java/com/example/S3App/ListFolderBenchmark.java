@@ -0,0 +1,124 @@
+package com.example.S3App;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * listFolder cost per page: the pure response-to-Resource mapping (extractName, ensureTrailingSlash included),
+ * the same page mapped into a KeyBlock, and the full round trip against the in-process FakeS3Server, which adds HTTP and XML parsing.
+ * One page in ten entries is a subfolder, the rest are files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=error")
+public class ListFolderBenchmark {
+
+    private static final String PREFIX = "bench/list/";
+
+    @Param({"10", "100", "1000"})
+    public int pageSize;
+
+    private FakeS3Server fakeS3;
+    private S3Client client;
+    private S3ResourceService service;
+    private Resource folder;
+    private ListObjectsV2Response page;
+    private String[] keys;
+    private String[] folderKeys;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        fakeS3 = new FakeS3Server().start();
+        client = fakeS3.syncClient();
+        service = new S3ResourceService(client, "bench-bucket",
+                Files.createTempDirectory("list-bench").toString(), new DownloadSettings());
+        folder = S3Resources.folder(PREFIX);
+
+        List<CommonPrefix> prefixes = new ArrayList<>();
+        List<S3Object> contents = new ArrayList<>();
+        keys = new String[pageSize];
+        folderKeys = new String[pageSize];
+        for (int i = 0; i < pageSize; i++) {
+            // Realistically long keys: the name is a small part of each
+            if (i % 10 == 0) {
+                String dir = String.format("%sdir-%05d/", PREFIX, i);
+                fakeS3.put(dir + "child.bin", new byte[0]);
+                prefixes.add(CommonPrefix.builder().prefix(dir).build());
+                keys[i] = dir;
+            } else {
+                String key = String.format("%s2024/10/17/part-%05d-c000.snappy.parquet", PREFIX, i);
+                fakeS3.put(key, new byte[i]);
+                contents.add(S3Object.builder().key(key).size((long) i)
+                        .eTag(FakeS3Server.eTagOf(new byte[i])).lastModified(Instant.now()).build());
+                keys[i] = key;
+            }
+            folderKeys[i] = keys[i].endsWith("/") ? keys[i].substring(0, keys[i].length() - 1) : keys[i];
+        }
+        // Each subfolder holds one object and is listed as a common prefix, so a page holds pageSize entries
+        page = ListObjectsV2Response.builder()
+                .commonPrefixes(prefixes)
+                .contents(contents)
+                .nextContinuationToken("next")
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        fakeS3.close();
+    }
+
+    @Benchmark
+    public ListResult<Resource> mapPage() {
+        return S3Resources.toListResult(page, PREFIX);
+    }
+
+    @Benchmark
+    public KeyBlock mapPageCompact() {
+        return S3Resources.toKeyBlock(page, PREFIX);
+    }
+
+    @Benchmark
+    public void extractName(Blackhole bh) {
+        for (String key : keys) {
+            bh.consume(S3Resources.extractName(key));
+        }
+    }
+
+    @Benchmark
+    public void ensureTrailingSlash(Blackhole bh) {
+        for (String key : folderKeys) {
+            bh.consume(S3Resources.ensureTrailingSlash(key));
+        }
+    }
+
+    @Benchmark
+    public ListResult<Resource> listFolder() {
+        return service.listFolder(folder, null, pageSize);
+    }
+}
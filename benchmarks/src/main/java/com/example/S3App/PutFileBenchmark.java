@@ -0,0 +1,88 @@
+package com.example.S3App;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * putFile of a 40 MB file as one PUT or as a multipart upload of 5 MB parts, against the in-process FakeS3Server.
+ * With simulateLink, every PUT and UploadPart costs 20 ms plus 10 ms per MB (about 100 MB/s per connection), which
+ * is what multipart uploads win back by sending parts concurrently; without it the difference is the local overhead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=error")
+public class PutFileBenchmark {
+
+    public enum Strategy { SINGLE_PUT, MULTIPART }
+
+    private static final int MB = 1024 * 1024;
+    private static final int FILE_SIZE = 40 * MB;
+    private static final String KEY = "bench/upload/object.bin";
+
+    @Param
+    public Strategy strategy;
+
+    @Param({"true", "false"})
+    public boolean simulateLink;
+
+    private FakeS3Server fakeS3;
+    private S3Client client;
+    private S3ResourceService service;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        fakeS3 = new FakeS3Server().start();
+        if (simulateLink) {
+            fakeS3.setLatency(op -> switch (op) {
+                case "PUT" -> 20 + FILE_SIZE / MB * 10;
+                case "UPLOAD_PART" -> 20 + 5 * 10;
+                default -> 0;
+            });
+        }
+        client = fakeS3.syncClient();
+
+        UploadSettings uploadSettings = new UploadSettings();
+        uploadSettings.setThreshold(strategy == Strategy.SINGLE_PUT ? 64L * MB : 8L * MB);
+        uploadSettings.setPartSize(5L * MB);
+        Path dir = Files.createTempDirectory("upload-bench");
+        service = new S3ResourceService(client, "bench-bucket", dir.toString(), new DownloadSettings(),
+                uploadSettings, new BulkSettings());
+        byte[] data = new byte[FILE_SIZE];
+        new Random(FILE_SIZE).nextBytes(data);
+        file = Files.write(dir.resolve("object.bin"), data);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        client.close();
+        fakeS3.close();
+    }
+
+    @Benchmark
+    public Resource putFile() {
+        return service.putFile(file, KEY);
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.S3App;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.core.FileTransformerConfiguration;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Non-blocking S3 service backed by {@link S3AsyncClient}:
+ *   - Lists folders/files in a bucket (paginated)
+ *   - Retrieves metadata for a single object
+ *   - Streams a file to disk through the SDK's async file transformer
+ *
+ * A handful of event-loop threads can keep thousands of these calls in flight.
+ * Concurrent identical calls share one request, and downloads to the same local file run one at a time
+ * (see {@link SingleFlight}).
+ * Failures are reported the same way as {@link S3ResourceService}: the future completes
+ * with a RuntimeException carrying the same message and the SDK exception as cause.
+ */
+public class AsyncS3ResourceService implements AsyncS3ResourceServiceInterface, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncS3ResourceService.class);
+
+    private final S3AsyncClient s3AsyncClient;
+    private final String bucketName;
+    private final String downloadPath;
+    private final boolean ownsClient;
+    private final SingleFlight<String> headFlights = new SingleFlight<>("HEAD");
+    private final SingleFlight<String> listFlights = new SingleFlight<>("LIST");
+    private final SingleFlight<String> downloadFlights = new SingleFlight<>("GET");
+    private final SingleFlight<Path> fileWrites = new SingleFlight<>("file");
+
+    /**
+     * @param credsProvider The AWS credentials (default chain or custom)
+     * @param region The AWS region
+     * @param bucketName The target S3 bucket name
+     * @param downloadPath Local directory to place downloaded files
+     */
+    public AsyncS3ResourceService(AwsCredentialsProvider credsProvider, Region region,
+                                  String bucketName, String downloadPath) {
+        this(S3AsyncClient.builder()
+                .region(region)
+                .credentialsProvider(credsProvider)
+                .build(), bucketName, downloadPath, true);
+    }
+
+    /**
+     * Uses an existing client, e.g. one pointed at a local S3-compatible endpoint.
+     * The caller keeps ownership of the client; {@link #close()} will not close it.
+     * @param s3AsyncClient The async client to issue requests with
+     * @param bucketName The target S3 bucket name
+     * @param downloadPath Local directory to place downloaded files
+     */
+    public AsyncS3ResourceService(S3AsyncClient s3AsyncClient, String bucketName, String downloadPath) {
+        this(s3AsyncClient, bucketName, downloadPath, false);
+    }
+
+    private AsyncS3ResourceService(S3AsyncClient s3AsyncClient, String bucketName, String downloadPath,
+                                   boolean ownsClient) {
+        this.s3AsyncClient = s3AsyncClient;
+        this.bucketName = bucketName;
+        this.downloadPath = downloadPath;
+        this.ownsClient = ownsClient;
+
+        LOGGER.info("AsyncS3ResourceService created. Bucket='{}', downloadPath='{}'", bucketName, downloadPath);
+    }
+
+    @Override
+    public CompletableFuture<ListResult<Resource>> listFolder(Resource parent, String cursor) {
+        String prefix = S3Resources.prefixOf(parent);
+
+        LOGGER.debug("Listing S3 folder (async). bucket={}, prefix={}, cursor={}", bucketName, prefix, cursor);
+
+        ListObjectsV2Request request = ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .prefix(prefix)
+                .delimiter("/")
+                .continuationToken(cursor)
+                .build();
+
+        return listFlights.shareAsync(prefix + '\n' + cursor, () -> s3AsyncClient.listObjectsV2(request))
+                .thenApply(response -> S3Resources.toListResult(response, prefix))
+                .exceptionally(t -> {
+                    Throwable cause = unwrap(t);
+                    LOGGER.error("Error listing objects. bucket={}, prefix={}, message={}",
+                            bucketName, prefix, cause.getMessage());
+                    throw new RuntimeException("Failed to list S3 objects: " + cause.getMessage(), cause);
+                });
+    }
+
+    @Override
+    public CompletableFuture<Resource> getResource(String id) {
+        if (id == null) {
+            throw new IllegalArgumentException("getResource: S3 key cannot be null");
+        }
+        LOGGER.debug("Retrieving metadata (async) for S3 key={}", id);
+
+        HeadObjectRequest headReq = HeadObjectRequest.builder()
+                .bucket(bucketName)
+                .key(id)
+                .build();
+
+        return headFlights.shareAsync(id, () -> s3AsyncClient.headObject(headReq))
+                .thenApply(head -> S3Resources.fromHead(id, head))
+                .exceptionally(t -> {
+                    Throwable cause = unwrap(t);
+                    if (cause instanceof NoSuchKeyException) {
+                        LOGGER.warn("S3 object not found: key={}", id);
+                        throw new RuntimeException("Resource not found: " + id, cause);
+                    }
+                    LOGGER.error("Error retrieving resource metadata. key={}, msg={}", id, cause.getMessage());
+                    throw new RuntimeException("Failed to retrieve S3 resource: " + id, cause);
+                });
+    }
+
+    @Override
+    public CompletableFuture<Path> getAsFile(Resource resource) {
+        if (resource == null || resource.getId() == null) {
+            throw new IllegalArgumentException("getAsFile: Resource or ID is null");
+        }
+        if (resource.getType() == 1) {
+            throw new IllegalArgumentException("Cannot download a folder as a file: " + resource.getId());
+        }
+
+        String key = resource.getId();
+        LOGGER.debug("Downloading S3 object (async). bucket={}, key={}", bucketName, key);
+
+        Path outputPath = Paths.get(downloadPath, S3Resources.extractName(key));
+        GetObjectRequest getReq = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build();
+
+        // The transformer writes body chunks to the file as they arrive and deletes it again on failure.
+        // Creating the parent directory blocks, so it runs on the common pool rather than the caller's thread.
+        Path target = outputPath.toAbsolutePath().normalize();
+        return downloadFlights.shareAsync(key, () -> fileWrites.exclusiveAsync(target,
+                        () -> CompletableFuture.runAsync(() -> createParentDirectories(outputPath))
+                                .thenCompose(v -> s3AsyncClient.getObject(getReq, AsyncResponseTransformer.toFile(
+                                        outputPath, FileTransformerConfiguration.defaultCreateOrReplaceExisting())))))
+                .thenApply(response -> {
+                    LOGGER.info("Downloaded S3 object: key={} => {}", key, outputPath);
+                    return outputPath;
+                })
+                .exceptionally(t -> {
+                    Throwable cause = unwrap(t);
+                    if (cause instanceof UncheckedIOException e) {
+                        cause = e.getCause();
+                    }
+                    if (cause instanceof IOException) {
+                        LOGGER.error("I/O error writing the S3 download. key={}", key, cause);
+                        throw new RuntimeException("I/O error while saving downloaded file: " + cause.getMessage(),
+                                cause);
+                    }
+                    if (cause instanceof SdkException) {
+                        LOGGER.error("AWS SDK error downloading file. key={}, msg={}", key, cause.getMessage());
+                    } else {
+                        LOGGER.error("Error downloading S3 object. key={}, msg={}", key, cause.getMessage());
+                    }
+                    throw new RuntimeException("Failed to download S3 file: " + key, cause);
+                });
+    }
+
+    private static void createParentDirectories(Path outputPath) {
+        try {
+            Files.createDirectories(outputPath.getParent());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Closes the underlying client if this service created it.
+     */
+    @Override
+    public void close() {
+        if (ownsClient) {
+            s3AsyncClient.close();
+        }
+    }
+
+    // CompletableFuture stages wrap the original failure; log and rethrow the SDK exception itself
+    private static Throwable unwrap(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.S3App;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link S3ResourceServiceInterface}.
+ * No method blocks the calling thread on network I/O; failures complete the returned future exceptionally.
+ */
+public interface AsyncS3ResourceServiceInterface {
+
+    /**
+     * Lists the contents of a parent folder in S3, with possible pagination.
+     * @param parent The parent resource (folder), or null for the bucket root.
+     * @param cursor A continuation token from a previous call, or null for the first page.
+     * @return A future ListResult containing discovered resources plus possibly a next cursor.
+     */
+    CompletableFuture<ListResult<Resource>> listFolder(Resource parent, String cursor);
+
+    /**
+     * Retrieves an S3 object's metadata by key. The future fails if it doesn't exist.
+     * @param id The S3 key
+     * @return A future Resource (type=0 => file, type=1 => folder)
+     */
+    CompletableFuture<Resource> getResource(String id);
+
+    /**
+     * Downloads the specified file resource to a local directory, preserving file name.
+     * @param resource Must be type=0 (file).
+     * @return A future Path of the downloaded content
+     */
+    CompletableFuture<Path> getAsFile(Resource resource);
+}
@@ -0,0 +1,54 @@
+package com.example.S3App;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket shared by every transfer of a {@link TransferManager}: tokens are bytes, refilled at bytesPerSecond
+ * up to burstBytes. A caller takes what it has just copied even if that overdraws the bucket, then sleeps until the
+ * debt would be repaid, so waiting callers are served in arrival order and the long-run rate never exceeds the cap.
+ */
+final class BandwidthLimiter {
+
+    private final double bytesPerNano;
+    private final double burstBytes;
+    private double tokens; // guarded by this
+    private long refilledAt; // guarded by this
+
+    /**
+     * @param bytesPerSecond The sustained rate
+     * @param burstBytes Bytes that may pass at once after an idle period
+     */
+    BandwidthLimiter(long bytesPerSecond, long burstBytes) {
+        if (bytesPerSecond <= 0 || burstBytes <= 0) {
+            throw new IllegalArgumentException("bytesPerSecond and burstBytes must be > 0: " + bytesPerSecond + ", " + burstBytes);
+        }
+        this.bytesPerNano = bytesPerSecond / 1e9;
+        this.burstBytes = burstBytes;
+        this.tokens = burstBytes;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * Takes count bytes from the bucket, blocking while it is in debt.
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    void acquire(long count) throws InterruptedIOException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            tokens = Math.min(burstBytes, tokens + (now - refilledAt) * bytesPerNano);
+            refilledAt = now;
+            tokens -= count;
+            waitNanos = tokens >= 0 ? 0 : (long) (-tokens / bytesPerNano);
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for transfer bandwidth");
+            }
+        }
+    }
+}
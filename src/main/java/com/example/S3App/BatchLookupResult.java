@@ -0,0 +1,28 @@
+package com.example.S3App;
+
+import java.util.Map;
+
+/**
+ * Outcome of {@link S3ResourceServiceInterface#getResources}.
+ * resources maps each key that exists to its Resource (with size, ETag and last-modified time);
+ * failures maps every other key to the exception getResource would have thrown for it
+ * (a missing key has a NoSuchKeyException as cause).
+ */
+public class BatchLookupResult {
+    private Map<String, Resource> resources;
+    private Map<String, RuntimeException> failures;
+
+    public Map<String, Resource> getResources() {
+        return resources;
+    }
+    public void setResources(Map<String, Resource> resources) {
+        this.resources = resources;
+    }
+
+    public Map<String, RuntimeException> getFailures() {
+        return failures;
+    }
+    public void setFailures(Map<String, RuntimeException> failures) {
+        this.failures = failures;
+    }
+}
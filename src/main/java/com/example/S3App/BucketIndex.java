@@ -0,0 +1,502 @@
+package com.example.S3App;
+
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Local, on-disk index of every key in a bucket with its size, ETag and last-modified time, for navigation and
+ * search without a round trip to S3. Built from a full listing by {@link S3ResourceService#buildIndex(Path)},
+ * extended with {@link S3ResourceService#refreshIndex(BucketIndex)} and reopened with {@link #open(Path)},
+ * which maps the file instead of parsing it, so loading is constant time whatever the bucket size.
+ *
+ * The file holds the keys in S3 order (UTF-8 byte order) in columns:
+ *   header | key offsets | ETag offsets | sizes | last-modified | key bytes | ETag bytes
+ * Lookups binary-search the key bytes in place: an exact key or the start of a prefix is O(log n), and a
+ * folder page skips each subfolder with one more search, like a delimiter listing does on S3.
+ *
+ * Refresh lists only the keys after the index's watermark (its last key) with StartAfter, which catches everything
+ * in buckets whose keys grow in order (dates, sequence numbers). Changes and deletions of older keys need a rebuild.
+ * The file is limited to 2 GB (about 25M keys of typical length), the size of one mapping.
+ */
+public final class BucketIndex {
+
+    private static final int MAGIC = 0x53334958; // "S3IX"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 40;
+    private static final String CURSOR_PREFIX = "idx1:";
+    private static final int DEFAULT_PAGE_SIZE = 1000;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path file;
+    private final ByteBuffer data;
+    private final String bucketName;
+    private final int count;
+    private final long builtAt;
+    private final long refreshedAt;
+    private final int keyOffsetsAt;
+    private final int eTagOffsetsAt;
+    private final int sizesAt;
+    private final int lastModifiedAt;
+    private final int keysAt;
+    private final int eTagsAt;
+
+    private BucketIndex(Path file, ByteBuffer data) throws IOException {
+        this.file = file;
+        this.data = data;
+        if (data.capacity() < HEADER_BYTES || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a bucket index: " + file);
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IOException("Unsupported bucket index version " + data.getInt(4) + ": " + file);
+        }
+        this.count = data.getInt(8);
+        int keyBytes = data.getInt(12);
+        int eTagBytes = data.getInt(16);
+        int bucketBytes = data.getInt(20);
+        this.builtAt = data.getLong(24);
+        this.refreshedAt = data.getLong(32);
+        this.bucketName = string(HEADER_BYTES, bucketBytes);
+        this.keyOffsetsAt = HEADER_BYTES + bucketBytes;
+        this.eTagOffsetsAt = keyOffsetsAt + 4 * (count + 1);
+        this.sizesAt = eTagOffsetsAt + 4 * (count + 1);
+        this.lastModifiedAt = sizesAt + 8 * count;
+        this.keysAt = lastModifiedAt + 8 * count;
+        this.eTagsAt = keysAt + keyBytes;
+        if (count < 0 || (long) eTagsAt + eTagBytes != data.capacity()) {
+            throw new IOException("Corrupt bucket index: " + file);
+        }
+    }
+
+    /**
+     * Maps an index file written earlier.
+     * @throws IOException if the file is missing, not an index or truncated
+     */
+    public static BucketIndex open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Bucket index larger than 2 GB: " + file);
+            }
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new BucketIndex(file, data);
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @return when the full listing behind this index was taken, in epoch millis
+     */
+    public long getBuiltAt() {
+        return builtAt;
+    }
+
+    /**
+     * @return when keys were last added by a refresh (or the build), in epoch millis
+     */
+    public long getRefreshedAt() {
+        return refreshedAt;
+    }
+
+    /**
+     * @return the last indexed key, where the next refresh starts listing; null for an empty index
+     */
+    public String watermark() {
+        return count == 0 ? null : key(count - 1);
+    }
+
+    /**
+     * @return the indexed resource with exactly this key, or null
+     */
+    public Resource get(String key) {
+        byte[] target = utf8(key);
+        int i = lowerBound(target);
+        return i < count && compareAt(i, target) == 0 ? resource(i) : null;
+    }
+
+    /**
+     * @return every indexed object whose key starts with prefix, in key order, including folder placeholders
+     */
+    public Stream<Resource> withPrefix(String prefix) {
+        byte[] p = utf8(prefix);
+        return range(lowerBound(p), endOfPrefix(p));
+    }
+
+    /**
+     * Keys matching a glob: {@code *} and {@code ?} stay within one path segment, {@code **} spans segments,
+     * {@code [abc]} is a character class. Only the keys under the pattern's literal leading part are scanned,
+     * so "logs/2024-05-&#42;/*.gz" reads the "logs/2024-05-" range, not the whole index.
+     */
+    public Stream<Resource> glob(String glob) {
+        Pattern pattern = globToRegex(glob);
+        return withPrefix(literalPrefix(glob)).filter(r -> pattern.matcher(r.getId()).matches());
+    }
+
+    /**
+     * @return every indexed object whose key contains a match of regex, e.g. a file name searched across the bucket
+     */
+    public Stream<Resource> search(Pattern regex) {
+        return range(0, count).filter(r -> regex.matcher(r.getId()).find());
+    }
+
+    /**
+     * One page of a folder, like {@link S3ResourceServiceInterface#listFolder(Resource, String, int)}: subfolders
+     * first, then files, without the folder's own placeholder. The cursor is an index cursor, not an S3
+     * continuation token; it names the last entry returned, so it stays valid across refreshes.
+     */
+    public ListResult<Resource> listFolder(Resource parent, String cursor, int maxKeys) {
+        String prefix = S3Resources.prefixOf(parent);
+        byte[] p = utf8(prefix);
+        int end = endOfPrefix(p);
+        int i = cursor == null ? lowerBound(p) : Math.max(lowerBound(p), resumeAfter(cursor));
+        int limit = maxKeys > 0 ? maxKeys : DEFAULT_PAGE_SIZE;
+
+        List<Resource> folders = new ArrayList<>();
+        List<Resource> files = new ArrayList<>();
+        String last = null;
+        while (i < end && folders.size() + files.size() < limit) {
+            String key = key(i);
+            int slash = key.indexOf('/', prefix.length());
+            if (key.equals(prefix)) {
+                i++; // the folder's own placeholder
+            } else if (slash >= 0) {
+                last = key.substring(0, slash + 1);
+                folders.add(S3Resources.folder(last));
+                i = endOfPrefix(utf8(last));
+            } else {
+                last = key;
+                files.add(resource(i));
+                i++;
+            }
+        }
+        folders.addAll(files);
+        ListResult<Resource> result = new ListResult<>();
+        result.setResources(folders);
+        result.setCursor(i < end && last != null ? CURSOR_PREFIX
+                + Base64.getUrlEncoder().withoutPadding().encodeToString(utf8(last)) : null);
+        return result;
+    }
+
+    // Files never end with "/" in a delimiter listing, so a cursor ending with "/" was a subfolder
+    private int resumeAfter(String cursor) {
+        if (!cursor.startsWith(CURSOR_PREFIX)) {
+            throw new IllegalArgumentException("Not a bucket index cursor: " + cursor);
+        }
+        byte[] last = Base64.getUrlDecoder().decode(cursor.substring(CURSOR_PREFIX.length()));
+        if (last.length > 0 && last[last.length - 1] == '/') {
+            return endOfPrefix(last);
+        }
+        int i = lowerBound(last);
+        return i < count && compareAt(i, last) == 0 ? i + 1 : i;
+    }
+
+    private Stream<Resource> range(int from, int to) {
+        return IntStream.range(from, to).mapToObj(this::resource);
+    }
+
+    Resource resource(int i) {
+        String key = key(i);
+        if (key.endsWith("/")) {
+            return S3Resources.folder(key);
+        }
+        Resource resource = S3Resources.file(key);
+        resource.setSize(data.getLong(sizesAt + 8 * i));
+        resource.setETag(eTag(i));
+        resource.setLastModified(data.getLong(lastModifiedAt + 8 * i));
+        return resource;
+    }
+
+    String key(int i) {
+        int start = data.getInt(keyOffsetsAt + 4 * i);
+        return string(keysAt + start, data.getInt(keyOffsetsAt + 4 * (i + 1)) - start);
+    }
+
+    long size(int i) {
+        return data.getLong(sizesAt + 8 * i);
+    }
+
+    long lastModified(int i) {
+        return data.getLong(lastModifiedAt + 8 * i);
+    }
+
+    String eTag(int i) {
+        int start = data.getInt(eTagOffsetsAt + 4 * i);
+        int length = data.getInt(eTagOffsetsAt + 4 * (i + 1)) - start;
+        return length == 0 ? null : string(eTagsAt + start, length);
+    }
+
+    /**
+     * @return the first index whose key is >= target
+     */
+    private int lowerBound(byte[] target) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareAt(mid, target) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * @return the first index after every key starting with prefix
+     */
+    private int endOfPrefix(byte[] prefix) {
+        int lo = lowerBound(prefix);
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (startsWithAt(mid, prefix)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // Unsigned byte order of UTF-8 is code point order, which is how S3 sorts keys
+    private int compareAt(int i, byte[] target) {
+        int start = keysAt + data.getInt(keyOffsetsAt + 4 * i);
+        int length = data.getInt(keyOffsetsAt + 4 * (i + 1)) - data.getInt(keyOffsetsAt + 4 * i);
+        int n = Math.min(length, target.length);
+        for (int k = 0; k < n; k++) {
+            int diff = Byte.toUnsignedInt(data.get(start + k)) - Byte.toUnsignedInt(target[k]);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return Integer.compare(length, target.length);
+    }
+
+    private boolean startsWithAt(int i, byte[] prefix) {
+        int start = keysAt + data.getInt(keyOffsetsAt + 4 * i);
+        int length = data.getInt(keyOffsetsAt + 4 * (i + 1)) - data.getInt(keyOffsetsAt + 4 * i);
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int k = 0; k < prefix.length; k++) {
+            if (data.get(start + k) != prefix[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String string(int at, int length) {
+        byte[] bytes = new byte[length];
+        data.get(at, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    static String literalPrefix(String glob) {
+        int end = 0;
+        while (end < glob.length() && "*?[\\".indexOf(glob.charAt(end)) < 0) {
+            end++;
+        }
+        return glob.substring(0, end);
+    }
+
+    static Pattern globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*' -> {
+                    if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                        regex.append(".*");
+                        i++;
+                    } else {
+                        regex.append("[^/]*");
+                    }
+                }
+                case '?' -> regex.append("[^/]");
+                case '[' -> {
+                    int close = glob.indexOf(']', i + 1);
+                    if (close < 0) {
+                        regex.append("\\[");
+                    } else {
+                        String members = glob.substring(i + 1, close);
+                        regex.append('[').append(members.startsWith("!") ? "^" + members.substring(1) : members).append(']');
+                        i = close;
+                    }
+                }
+                case '\\' -> {
+                    if (i + 1 < glob.length()) {
+                        regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+                    }
+                }
+                default -> regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    /**
+     * Collects entries in ascending key order and writes them as an index file (temp file + atomic rename).
+     */
+    static final class Writer {
+
+        private final byte[] bucketName;
+        private final long builtAt;
+        private byte[] keys = new byte[64 * 1024];
+        private int keyLength;
+        private byte[] eTags = new byte[64 * 1024];
+        private int eTagLength;
+        private int[] keyOffsets = new int[1025];
+        private int[] eTagOffsets = new int[1025];
+        private long[] sizes = new long[1024];
+        private long[] lastModified = new long[1024];
+        private int count;
+        private int lastKeyStart = -1;
+
+        /**
+         * @param builtAt when the full listing started; a refresh keeps the original index's time
+         */
+        Writer(String bucketName, long builtAt) {
+            this.bucketName = utf8(bucketName);
+            this.builtAt = builtAt;
+        }
+
+        Writer add(S3Object obj) {
+            return add(obj.key(), obj.size() == null ? 0 : obj.size(), obj.eTag(),
+                    obj.lastModified() == null ? 0 : obj.lastModified().toEpochMilli());
+        }
+
+        /**
+         * Copies every entry of an existing index, so a refresh can append after them.
+         */
+        Writer addAll(BucketIndex index) {
+            for (int i = 0; i < index.count(); i++) {
+                add(index.key(i), index.size(i), index.eTag(i), index.lastModified(i));
+            }
+            return this;
+        }
+
+        Writer add(String key, long size, String eTag, long lastModifiedMillis) {
+            byte[] k = utf8(key);
+            if (lastKeyStart >= 0 && Arrays.compareUnsigned(keys, lastKeyStart, keyLength, k, 0, k.length) >= 0) {
+                throw new IllegalArgumentException("Keys must be added in ascending order: " + key);
+            }
+            byte[] e = eTag == null ? new byte[0] : utf8(eTag);
+            // Fail while building rather than in open(), which maps the whole file
+            if (fileSize(bucketName.length, count + 1, (long) keyLength + k.length, (long) eTagLength + e.length)
+                    > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Bucket index larger than 2 GB");
+            }
+            if (count + 1 == sizes.length) {
+                int capacity = sizes.length * 2;
+                keyOffsets = Arrays.copyOf(keyOffsets, capacity + 1);
+                eTagOffsets = Arrays.copyOf(eTagOffsets, capacity + 1);
+                sizes = Arrays.copyOf(sizes, capacity);
+                lastModified = Arrays.copyOf(lastModified, capacity);
+            }
+            keys = ensure(keys, keyLength + k.length);
+            eTags = ensure(eTags, eTagLength + e.length);
+
+            lastKeyStart = keyLength;
+            System.arraycopy(k, 0, keys, keyLength, k.length);
+            keyLength += k.length;
+            System.arraycopy(e, 0, eTags, eTagLength, e.length);
+            eTagLength += e.length;
+            sizes[count] = size;
+            lastModified[count] = lastModifiedMillis;
+            count++;
+            keyOffsets[count] = keyLength;
+            eTagOffsets[count] = eTagLength;
+            return this;
+        }
+
+        int count() {
+            return count;
+        }
+
+        BucketIndex write(Path file) throws IOException {
+            Path dir = file.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            Path temp = Files.createTempFile(dir, file.getFileName().toString(), TEMP_SUFFIX);
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(temp), 1 << 16))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                    out.writeInt(count);
+                    out.writeInt(keyLength);
+                    out.writeInt(eTagLength);
+                    out.writeInt(bucketName.length);
+                    out.writeLong(builtAt);
+                    out.writeLong(System.currentTimeMillis());
+                    out.write(bucketName);
+                    for (int i = 0; i <= count; i++) {
+                        out.writeInt(keyOffsets[i]);
+                    }
+                    for (int i = 0; i <= count; i++) {
+                        out.writeInt(eTagOffsets[i]);
+                    }
+                    for (int i = 0; i < count; i++) {
+                        out.writeLong(sizes[i]);
+                    }
+                    for (int i = 0; i < count; i++) {
+                        out.writeLong(lastModified[i]);
+                    }
+                    out.write(keys, 0, keyLength);
+                    out.write(eTags, 0, eTagLength);
+                }
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            return open(file);
+        }
+
+        /**
+         * Size of the file write produces: header, bucket name, count + 1 key and ETag offsets, a size and a
+         * lastModified per entry, then the key and ETag bytes.
+         */
+        static long fileSize(int bucketBytes, int count, long keyBytes, long eTagBytes) {
+            return HEADER_BYTES + bucketBytes + 8L * (count + 1) + 16L * count + keyBytes + eTagBytes;
+        }
+
+        private static byte[] ensure(byte[] array, int needed) {
+            if (needed <= array.length) {
+                return array;
+            }
+            return Arrays.copyOf(array, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(needed, 2L * array.length)));
+        }
+    }
+}
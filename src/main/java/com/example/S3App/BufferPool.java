@@ -0,0 +1,145 @@
+package com.example.S3App;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reusable transfer buffers for copying response bodies into files.
+ *
+ * The blocking client only exposes the body as an InputStream, so bytes arrive in a heap array whatever we do.
+ * Each pooled buffer therefore pairs a heap read chunk (large enough that Apache reads straight from the socket
+ * instead of through its own 8 KB buffer) with a direct ByteBuffer that collects chunks and is written with
+ * positional FileChannel writes. Writing from a direct buffer skips the JDK's temporary direct copy, and
+ * fewer, larger writes mean fewer system calls. Buffers are allocated on demand and at most maxPooled are kept.
+ * A transfer can also feed each chunk to a checksum digest while it is still in the CPU cache, and report it to a
+ * {@link TransferControl} for progress, bandwidth pacing and cancellation.
+ */
+final class BufferPool {
+
+    // Chunk read from the stream per call
+    private static final int MAX_CHUNK = 64 * 1024;
+
+    /**
+     * A direct buffer and its read chunk, handed out together.
+     */
+    static final class Buffer {
+        final ByteBuffer direct;
+        final byte[] chunk;
+
+        private Buffer(int size) {
+            this.direct = ByteBuffer.allocateDirect(size);
+            this.chunk = new byte[Math.min(size, MAX_CHUNK)];
+        }
+    }
+
+    private final int bufferSize;
+    private final BlockingQueue<Buffer> pooled;
+    private final LongAdder allocations = new LongAdder();
+
+    /**
+     * @param bufferSize Bytes collected before each file write
+     * @param maxPooled Buffers kept for reuse; more may be in use at once, the extra ones are simply dropped
+     */
+    BufferPool(int bufferSize, int maxPooled) {
+        if (bufferSize <= 0 || maxPooled <= 0) {
+            throw new IllegalArgumentException("bufferSize and maxPooled must be > 0: " + bufferSize + ", " + maxPooled);
+        }
+        this.bufferSize = bufferSize;
+        this.pooled = new ArrayBlockingQueue<>(maxPooled);
+    }
+
+    Buffer acquire() {
+        Buffer buffer = pooled.poll();
+        if (buffer == null) {
+            allocations.increment();
+            buffer = new Buffer(bufferSize);
+        }
+        return buffer;
+    }
+
+    void release(Buffer buffer) {
+        buffer.direct.clear();
+        pooled.offer(buffer);
+    }
+
+    /**
+     * Copies the stream to end of stream into the channel, starting at position.
+     * @return the number of bytes written
+     */
+    long transfer(InputStream in, FileChannel out, long position) throws IOException {
+        return transfer(in, out, position, Long.MAX_VALUE);
+    }
+
+    /**
+     * Copies at most maxBytes of the stream into the channel, starting at position.
+     * @return the number of bytes written; less than maxBytes only at end of stream
+     */
+    long transfer(InputStream in, FileChannel out, long position, long maxBytes) throws IOException {
+        return transfer(in, out, position, maxBytes, null);
+    }
+
+    /**
+     * Copies at most maxBytes of the stream into the channel, starting at position, updating digest with every byte.
+     * @param digest The running checksum to update, or null for none
+     * @return the number of bytes written; less than maxBytes only at end of stream
+     */
+    long transfer(InputStream in, FileChannel out, long position, long maxBytes,
+                  ChecksumVerifier.Digest digest) throws IOException {
+        return transfer(in, out, position, maxBytes, digest, TransferControl.NONE);
+    }
+
+    /**
+     * Copies like {@link #transfer(InputStream, FileChannel, long, long, ChecksumVerifier.Digest)}, reporting every
+     * chunk to a scheduled transfer's control, which paces it and stops it when the transfer is cancelled.
+     * @param control The transfer's control, or {@link TransferControl#NONE}
+     * @return the number of bytes written; less than maxBytes only at end of stream
+     */
+    long transfer(InputStream in, FileChannel out, long position, long maxBytes,
+                  ChecksumVerifier.Digest digest, TransferControl control) throws IOException {
+        Buffer buffer = acquire();
+        try {
+            ByteBuffer direct = buffer.direct;
+            byte[] chunk = buffer.chunk;
+            long start = position;
+            long left = maxBytes;
+            int read;
+            while (left > 0
+                    && (read = in.read(chunk, 0, (int) Math.min(Math.min(chunk.length, direct.remaining()), left))) != -1) {
+                direct.put(chunk, 0, read);
+                if (digest != null) {
+                    digest.update(chunk, 0, read);
+                }
+                control.transferred(read);
+                left -= read;
+                if (!direct.hasRemaining()) {
+                    position = flush(direct, out, position);
+                }
+            }
+            position = flush(direct, out, position);
+            return position - start;
+        } finally {
+            release(buffer);
+        }
+    }
+
+    /**
+     * @return how many buffers were ever allocated (pool misses)
+     */
+    long allocationCount() {
+        return allocations.sum();
+    }
+
+    private static long flush(ByteBuffer direct, FileChannel out, long position) throws IOException {
+        direct.flip();
+        while (direct.hasRemaining()) {
+            position += out.write(direct, position);
+        }
+        direct.clear();
+        return position;
+    }
+}
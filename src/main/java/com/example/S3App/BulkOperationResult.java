@@ -0,0 +1,50 @@
+package com.example.S3App;
+
+import java.util.Map;
+
+/**
+ * Summary of a bulk delete, copy or move ({@link S3ResourceServiceInterface#deletePrefix},
+ * {@link S3ResourceServiceInterface#deleteAll}, {@link S3ResourceServiceInterface#copyFolder},
+ * {@link S3ResourceServiceInterface#moveFolder}).
+ * failures maps each S3 key (or the listed prefix) that could not be processed to its error message.
+ */
+public class BulkOperationResult {
+    private long objectCount;
+    private long bytes;
+    private long elapsedMillis;
+    private Map<String, String> failures;
+
+    /**
+     * @return the number of objects deleted, copied or moved
+     */
+    public long getObjectCount() {
+        return objectCount;
+    }
+    public void setObjectCount(long objectCount) {
+        this.objectCount = objectCount;
+    }
+
+    /**
+     * @return bytes copied server-side; 0 for deletes
+     */
+    public long getBytes() {
+        return bytes;
+    }
+    public void setBytes(long bytes) {
+        this.bytes = bytes;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public Map<String, String> getFailures() {
+        return failures;
+    }
+    public void setFailures(Map<String, String> failures) {
+        this.failures = failures;
+    }
+}
@@ -0,0 +1,370 @@
+package com.example.S3App;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.Delete;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.S3Error;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.model.UploadPartCopyRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Bulk deletes and server-side copies/moves, so no object bytes pass through this host.
+ *
+ * Deletes go out as DeleteObjects batches of up to 1000 keys, {@link BulkSettings} concurrency batches at a time; keys are
+ * taken from the listing (or the given collection) as batches free up, so memory does not grow with the key count.
+ * Copies run that many objects at a time: one CopyObject below the {@link UploadSettings} threshold, otherwise a
+ * multipart copy (UploadPartCopy of byte ranges, upload concurrency parts in flight) that keeps the source's
+ * content type and user metadata. Every copy is conditional on the listed ETag, so a source replaced mid-way fails
+ * instead of mixing versions. A move deletes its sources in those same batches as their copies complete, so deletes
+ * overlap the copying and only a few batches of keys are held. A failed key is reported and does not stop the others.
+ */
+final class BulkOperations {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkOperations.class);
+
+    // S3's limit per DeleteObjects request
+    static final int DELETE_BATCH = 1000;
+
+    private final S3Client s3Client;
+    private final String bucketName;
+    private final ParallelLister lister;
+    private final BulkSettings settings;
+    private final UploadSettings uploadSettings;
+
+    BulkOperations(S3Client s3Client, String bucketName, ParallelLister lister, BulkSettings settings,
+                   UploadSettings uploadSettings) {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.lister = lister;
+        this.settings = settings;
+        this.uploadSettings = uploadSettings;
+    }
+
+    /**
+     * Counters and failures of one bulk call, shared by its workers.
+     */
+    private static final class Tally {
+        final long startNanos = System.nanoTime();
+        final AtomicLong objects = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+        final Map<String, String> failures = new ConcurrentHashMap<>();
+
+        BulkOperationResult result() {
+            BulkOperationResult result = new BulkOperationResult();
+            result.setObjectCount(objects.get());
+            result.setBytes(bytes.get());
+            result.setElapsedMillis((System.nanoTime() - startNanos) / 1_000_000);
+            result.setFailures(new TreeMap<>(failures));
+            return result;
+        }
+    }
+
+    BulkOperationResult deletePrefix(Resource folder) {
+        String prefix = S3Resources.prefixOf(folder);
+        if (prefix.isEmpty()) {
+            throw new IllegalArgumentException("deletePrefix: a folder is required; the bucket root is never deleted this way");
+        }
+        Tally tally = new Tally();
+        try (Stream<S3Object> listed = lister.listObjects(folder, false)) {
+            delete(listed.map(S3Object::key).iterator(), prefix, tally);
+        }
+        BulkOperationResult result = tally.result();
+        LOGGER.info("Deleted S3 prefix. prefix={}, objects={}, elapsedMs={}, failures={}",
+                prefix, result.getObjectCount(), result.getElapsedMillis(), result.getFailures().size());
+        return result;
+    }
+
+    BulkOperationResult deleteAll(Collection<String> keys) {
+        if (keys == null) {
+            throw new IllegalArgumentException("deleteAll: keys cannot be null");
+        }
+        Tally tally = new Tally();
+        delete(new LinkedHashSet<>(keys).iterator(), null, tally);
+        BulkOperationResult result = tally.result();
+        LOGGER.info("Deleted S3 objects. requested={}, deleted={}, elapsedMs={}, failures={}",
+                keys.size(), result.getObjectCount(), result.getElapsedMillis(), result.getFailures().size());
+        return result;
+    }
+
+    BulkOperationResult copyFolder(Resource folder, String targetPrefix, boolean deleteSource) {
+        String sourcePrefix = S3Resources.prefixOf(folder);
+        String target = targetPrefix == null || targetPrefix.isEmpty() ? "" : S3Resources.ensureTrailingSlash(targetPrefix);
+        if (target.startsWith(sourcePrefix)) {
+            // The copies would show up in the listing being copied
+            throw new IllegalArgumentException("Target " + target + " lies within the source folder " + sourcePrefix);
+        }
+
+        Tally tally = new Tally();
+        Tally deleted = new Tally();
+        int concurrency = settings.getConcurrency();
+        Semaphore permits = new Semaphore(concurrency);
+        // Closed last, after the copy pool has drained, so it sends the final partial batch
+        try (DeleteBatcher sources = deleteSource ? new DeleteBatcher(deleted) : null;
+             ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+             Stream<S3Object> listed = lister.listObjects(folder, false)) {
+            Iterator<S3Object> objects = listed.iterator();
+            try {
+                while (objects.hasNext()) {
+                    S3Object obj = objects.next();
+                    String targetKey = target + obj.key().substring(sourcePrefix.length());
+                    permits.acquireUninterruptibly();
+                    pool.execute(() -> {
+                        try {
+                            copyObject(obj, targetKey);
+                            tally.objects.incrementAndGet();
+                            tally.bytes.addAndGet(obj.size());
+                            if (sources != null) {
+                                // Only what was copied; a failed copy keeps its source
+                                sources.add(obj.key());
+                            }
+                        } catch (RuntimeException e) {
+                            LOGGER.warn("Failed to copy S3 object. key={}, target={}, msg={}", obj.key(), targetKey, e.getMessage());
+                            tally.failures.put(obj.key(), e.getMessage());
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                }
+            } catch (RuntimeException e) {
+                LOGGER.error("Error listing folder to copy. prefix={}, msg={}", sourcePrefix, e.getMessage());
+                tally.failures.put(sourcePrefix, "Failed to list S3 objects: " + e.getMessage());
+            }
+        }
+
+        if (deleteSource) {
+            // A moved object whose source could not be deleted counts as a failure, not a move
+            tally.failures.putAll(deleted.failures);
+            tally.objects.addAndGet(-deleted.failures.size());
+        }
+        BulkOperationResult result = tally.result();
+        LOGGER.info("{} S3 folder. source={}, target={}, objects={}, bytes={}, elapsedMs={}, failures={}",
+                deleteSource ? "Moved" : "Copied", sourcePrefix, target, result.getObjectCount(), result.getBytes(),
+                result.getElapsedMillis(), result.getFailures().size());
+        return result;
+    }
+
+    private void delete(Iterator<String> keys, String listedPrefix, Tally tally) {
+        try (DeleteBatcher batcher = new DeleteBatcher(tally)) {
+            try {
+                while (keys.hasNext()) {
+                    batcher.add(keys.next());
+                }
+            } catch (RuntimeException e) {
+                LOGGER.error("Error listing keys to delete. prefix={}, msg={}", listedPrefix, e.getMessage());
+                tally.failures.put(String.valueOf(listedPrefix), "Failed to list S3 objects: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Groups keys into DeleteObjects batches and sends each one as soon as it is full, {@code concurrency}
+     * batches at a time. add blocks while that many are in flight, so at most that many batches plus the one
+     * being filled are held however many keys come in. close sends the last partial batch and waits for all.
+     */
+    private final class DeleteBatcher implements AutoCloseable {
+        private final Tally tally;
+        private final Semaphore permits;
+        private final ExecutorService pool;
+        private List<String> batch = new ArrayList<>(DELETE_BATCH);
+
+        DeleteBatcher(Tally tally) {
+            int concurrency = settings.getConcurrency();
+            this.tally = tally;
+            this.permits = new Semaphore(concurrency);
+            this.pool = Executors.newFixedThreadPool(concurrency);
+        }
+
+        synchronized void add(String key) {
+            batch.add(key);
+            if (batch.size() == DELETE_BATCH) {
+                send();
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (!batch.isEmpty()) {
+                    send();
+                }
+            }
+            pool.close();
+        }
+
+        private void send() {
+            List<String> full = batch;
+            batch = new ArrayList<>(DELETE_BATCH);
+            permits.acquireUninterruptibly();
+            pool.execute(() -> {
+                try {
+                    deleteBatch(full, tally);
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+    }
+
+    private void deleteBatch(List<String> keys, Tally tally) {
+        try {
+            DeleteObjectsResponse response = s3Client.deleteObjects(DeleteObjectsRequest.builder()
+                    .bucket(bucketName)
+                    .delete(Delete.builder()
+                            .quiet(true) // only errors come back
+                            .objects(keys.stream().map(k -> ObjectIdentifier.builder().key(k).build()).toList())
+                            .build())
+                    .build());
+            for (S3Error error : response.errors()) {
+                tally.failures.put(error.key(), error.code() + ": " + error.message());
+            }
+            tally.objects.addAndGet(keys.size() - response.errors().size());
+            LOGGER.debug("Deleted S3 batch. keys={}, errors={}", keys.size(), response.errors().size());
+        } catch (SdkException e) {
+            LOGGER.error("Error deleting S3 batch. keys={}, first={}, msg={}", keys.size(), keys.get(0), e.getMessage());
+            for (String key : keys) {
+                tally.failures.put(key, "Failed to delete S3 object: " + e.getMessage());
+            }
+        }
+    }
+
+    private void copyObject(S3Object obj, String targetKey) {
+        if (obj.size() >= uploadSettings.getThreshold() && obj.size() > 0) {
+            copyInParts(obj, targetKey);
+            return;
+        }
+        s3Client.copyObject(CopyObjectRequest.builder()
+                .sourceBucket(bucketName)
+                .sourceKey(obj.key())
+                .destinationBucket(bucketName)
+                .destinationKey(targetKey)
+                .copySourceIfMatch(obj.eTag())
+                .build());
+    }
+
+    private void copyInParts(S3Object obj, String targetKey) {
+        long size = obj.size();
+        // Grow the parts rather than exceed S3's part count limit
+        long partSize = Math.max(uploadSettings.getPartSize(), (size + FileUploader.MAX_PARTS - 1) / FileUploader.MAX_PARTS);
+        int partCount = (int) ((size + partSize - 1) / partSize);
+        int workers = Math.min(uploadSettings.getConcurrency(), partCount);
+
+        // A multipart upload starts without the source's metadata, unlike CopyObject
+        HeadObjectResponse head = s3Client.headObject(HeadObjectRequest.builder()
+                .bucket(bucketName)
+                .key(obj.key())
+                .ifMatch(obj.eTag())
+                .build());
+        String uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(targetKey)
+                .contentType(head.contentType())
+                .metadata(head.metadata())
+                .build()).uploadId();
+        LOGGER.debug("Multipart copy. key={}, target={}, size={}, parts={}, workers={}", obj.key(), targetKey,
+                size, partCount, workers);
+
+        CompletedPart[] completed = new CompletedPart[partCount];
+        AtomicInteger nextPart = new AtomicInteger();
+        AtomicBoolean failed = new AtomicBoolean();
+        try {
+            List<Future<Void>> futures = new ArrayList<>(workers);
+            try (ExecutorService pool = Executors.newFixedThreadPool(workers)) {
+                for (int i = 0; i < workers; i++) {
+                    futures.add(pool.submit(() -> {
+                        int part;
+                        while (!failed.get() && (part = nextPart.getAndIncrement()) < partCount) {
+                            long start = part * partSize;
+                            long end = Math.min(size, start + partSize) - 1;
+                            try {
+                                String eTag = s3Client.uploadPartCopy(UploadPartCopyRequest.builder()
+                                        .sourceBucket(bucketName)
+                                        .sourceKey(obj.key())
+                                        .destinationBucket(bucketName)
+                                        .destinationKey(targetKey)
+                                        .uploadId(uploadId)
+                                        .partNumber(part + 1)
+                                        .copySourceRange("bytes=" + start + "-" + end)
+                                        .copySourceIfMatch(obj.eTag())
+                                        .build()).copyPartResult().eTag();
+                                completed[part] = CompletedPart.builder().partNumber(part + 1).eTag(eTag).build();
+                            } catch (RuntimeException e) {
+                                failed.set(true);
+                                throw e;
+                            }
+                        }
+                        return null;
+                    }));
+                }
+            }
+            for (Future<Void> future : futures) {
+                awaitPart(future);
+            }
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(targetKey)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(Arrays.asList(completed)).build())
+                    .build());
+        } catch (RuntimeException e) {
+            abort(targetKey, uploadId);
+            throw e;
+        }
+    }
+
+    private void abort(String key, String uploadId) {
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build());
+        } catch (SdkException e) {
+            // Left for a bucket lifecycle rule to clean up
+            LOGGER.warn("Could not abort multipart copy. key={}, uploadId={}, msg={}", key, uploadId, e.getMessage());
+        }
+    }
+
+    private static void awaitPart(Future<Void> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while copying parts", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException runtime ? runtime : new RuntimeException(cause);
+        }
+    }
+}
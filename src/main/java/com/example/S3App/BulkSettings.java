@@ -0,0 +1,26 @@
+package com.example.S3App;
+
+/**
+ * Tuning knobs for the bulk operations of {@link S3ResourceService}: deletePrefix and deleteAll keep up to
+ * {@code concurrency} DeleteObjects batches in flight, copyFolder and moveFolder up to {@code concurrency}
+ * object copies. Multipart copies of large objects follow the service's {@link UploadSettings}.
+ */
+public class BulkSettings {
+
+    public static final int DEFAULT_CONCURRENCY = 8;
+
+    private int concurrency = DEFAULT_CONCURRENCY;
+
+    /**
+     * @return the number of DeleteObjects batches, or object copies, a bulk operation runs at once
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+    public void setConcurrency(int concurrency) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency must be > 0: " + concurrency);
+        }
+        this.concurrency = concurrency;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.S3App;
+
+/**
+ * Point-in-time counters of a {@link CachingS3ResourceService}, summed over HEAD and listing entries.
+ */
+public class CacheStats {
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long expirationCount;
+    private long negativeHitCount;
+    private int size;
+
+    public long getHitCount() {
+        return hitCount;
+    }
+    public void setHitCount(long hitCount) {
+        this.hitCount = hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+    public void setMissCount(long missCount) {
+        this.missCount = missCount;
+    }
+
+    /**
+     * @return entries dropped because their segment was full (LRU)
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+    public void setEvictionCount(long evictionCount) {
+        this.evictionCount = evictionCount;
+    }
+
+    /**
+     * @return entries dropped because their TTL had passed when read
+     */
+    public long getExpirationCount() {
+        return expirationCount;
+    }
+    public void setExpirationCount(long expirationCount) {
+        this.expirationCount = expirationCount;
+    }
+
+    /**
+     * @return hits that answered "not found" from a cached NoSuchKeyException
+     */
+    public long getNegativeHitCount() {
+        return negativeHitCount;
+    }
+    public void setNegativeHitCount(long negativeHitCount) {
+        this.negativeHitCount = negativeHitCount;
+    }
+
+    public int getSize() {
+        return size;
+    }
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount
+                + ", expirations=" + expirationCount + ", negativeHits=" + negativeHitCount + ", size=" + size + "}";
+    }
+}
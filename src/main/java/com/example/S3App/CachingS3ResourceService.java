@@ -0,0 +1,333 @@
+package com.example.S3App;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.io.File;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Caching decorator for any {@link S3ResourceServiceInterface}:
+ *   - getResource / getResources results (HEAD) are cached per key, including "not found" answers (negative caching)
+ *   - listFolder pages are cached per (prefix, cursor, page size)
+ *   - both caches are size-bounded LRUs with a per-entry TTL
+ *
+ * Recursive listings, folder statistics, downloads and syncs are passed straight through. Uploads, deletes, copies
+ * and moves through this service invalidate the keys and prefixes they wrote; callers that change objects behind the service's back can drop
+ * stale entries with {@link #invalidate(String)}. A lookup that was already under way when an invalidation ran does not
+ * put its (possibly stale) answer in the cache afterwards.
+ */
+public class CachingS3ResourceService implements S3ResourceServiceInterface {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachingS3ResourceService.class);
+
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+    public static final Duration DEFAULT_TTL = Duration.ofSeconds(30);
+    public static final Duration DEFAULT_NEGATIVE_TTL = Duration.ofSeconds(5);
+
+    // One listing page; a null cursor is the first page
+    private record ListingKey(String prefix, String cursor, int maxKeys) {
+    }
+
+    // A HEAD outcome: either the resource or the NoSuchKeyException it failed with
+    private record HeadResult(Resource resource, NoSuchKeyException notFound) {
+    }
+
+    private final S3ResourceServiceInterface delegate;
+    private final ExpiringLruCache<String, HeadResult> resources;
+    private final ExpiringLruCache<ListingKey, ListResult<Resource>> listings;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final LongAdder negativeHits = new LongAdder();
+    // Bumped by every invalidation; a lookup only caches its answer if this did not move while it ran
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Uses {@link #DEFAULT_MAX_ENTRIES}, {@link #DEFAULT_TTL} and {@link #DEFAULT_NEGATIVE_TTL}.
+     * @param delegate The service that actually talks to S3
+     */
+    public CachingS3ResourceService(S3ResourceServiceInterface delegate) {
+        this(delegate, DEFAULT_MAX_ENTRIES, DEFAULT_TTL, DEFAULT_NEGATIVE_TTL);
+    }
+
+    /**
+     * @param delegate The service that actually talks to S3
+     * @param maxEntries Maximum entries per cache (HEAD results and listing pages are bounded separately)
+     * @param ttl How long a found resource or listing page is served from the cache
+     * @param negativeTtl How long a "not found" answer is served from the cache
+     */
+    public CachingS3ResourceService(S3ResourceServiceInterface delegate, int maxEntries,
+                                    Duration ttl, Duration negativeTtl) {
+        this(delegate, maxEntries, ttl, negativeTtl, System::nanoTime);
+    }
+
+    // Visible for tests: lets a test drive expiry with a fake clock
+    CachingS3ResourceService(S3ResourceServiceInterface delegate, int maxEntries,
+                             Duration ttl, Duration negativeTtl, LongSupplier nanoClock) {
+        this.delegate = delegate;
+        this.resources = new ExpiringLruCache<>(maxEntries, nanoClock);
+        this.listings = new ExpiringLruCache<>(maxEntries, nanoClock);
+        this.ttlNanos = ttl.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+
+        LOGGER.info("CachingS3ResourceService created. maxEntries={}, ttl={}, negativeTtl={}",
+                maxEntries, ttl, negativeTtl);
+    }
+
+    @Override
+    public ListResult<Resource> listFolder(Resource parent, String cursor, int maxKeys) {
+        ListingKey cacheKey = new ListingKey(S3Resources.prefixOf(parent), cursor, maxKeys);
+        ListResult<Resource> page = listings.get(cacheKey);
+        if (page == null) {
+            long started = generation.get();
+            page = delegate.listFolder(parent, cursor, maxKeys);
+            putIfCurrent(listings, cacheKey, copyOf(page), ttlNanos, started);
+            return page;
+        }
+        LOGGER.debug("Listing served from cache. prefix={}, cursor={}", cacheKey.prefix(), cursor);
+        return copyOf(page);
+    }
+
+    @Override
+    public Resource getResource(String id) {
+        if (id == null) {
+            throw new IllegalArgumentException("getResource: S3 key cannot be null");
+        }
+
+        HeadResult cached = resources.get(id);
+        if (cached != null) {
+            if (cached.notFound() != null) {
+                negativeHits.increment();
+                throw new RuntimeException("Resource not found: " + id, cached.notFound());
+            }
+            return S3Resources.copyOf(cached.resource());
+        }
+
+        long started = generation.get();
+        Resource resource;
+        try {
+            resource = delegate.getResource(id);
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof NoSuchKeyException notFound) {
+                putIfCurrent(resources, id, new HeadResult(null, notFound), negativeTtlNanos, started);
+            }
+            throw e;
+        }
+        putIfCurrent(resources, id, new HeadResult(S3Resources.copyOf(resource), null), ttlNanos, started);
+        return resource;
+    }
+
+    @Override
+    public BatchLookupResult getResources(Collection<String> keys) {
+        if (keys == null) {
+            throw new IllegalArgumentException("getResources: keys cannot be null");
+        }
+
+        Map<String, Resource> found = new TreeMap<>();
+        Map<String, RuntimeException> failures = new TreeMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String key : keys) {
+            HeadResult cached = key == null ? null : resources.get(key);
+            if (cached == null) {
+                misses.add(key);
+            } else if (cached.notFound() != null) {
+                negativeHits.increment();
+                failures.put(key, new RuntimeException("Resource not found: " + key, cached.notFound()));
+            } else {
+                found.put(key, S3Resources.copyOf(cached.resource()));
+            }
+        }
+        if (misses.isEmpty()) {
+            return batchResult(found, failures);
+        }
+
+        // One batch for everything not cached, so the delegate can still pipeline or scan
+        long started = generation.get();
+        BatchLookupResult fetched = delegate.getResources(misses);
+        fetched.getResources().forEach((key, resource) -> {
+            putIfCurrent(resources, key, new HeadResult(S3Resources.copyOf(resource), null), ttlNanos, started);
+            found.put(key, resource);
+        });
+        fetched.getFailures().forEach((key, e) -> {
+            if (e.getCause() instanceof NoSuchKeyException notFound) {
+                putIfCurrent(resources, key, new HeadResult(null, notFound), negativeTtlNanos, started);
+            }
+            failures.put(key, e);
+        });
+        return batchResult(found, failures);
+    }
+
+    @Override
+    public Stream<Resource> listAll(Resource folder, boolean ordered) {
+        return delegate.listAll(folder, ordered);
+    }
+
+    @Override
+    public KeyBlock listAllCompact(Resource folder) {
+        return delegate.listAllCompact(folder);
+    }
+
+    @Override
+    public FolderStats computeStats(Resource folder, int depth) {
+        // A crawl would only flood the listing cache with pages nobody asks for again
+        return delegate.computeStats(folder, depth);
+    }
+
+    @Override
+    public File getAsFile(Resource resource) {
+        return delegate.getAsFile(resource);
+    }
+
+    @Override
+    public Resource putFile(Path local, String key) {
+        try {
+            return delegate.putFile(local, key);
+        } finally {
+            // Also on failure: a PutObject that timed out may still have replaced the object
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public FolderDownloadResult downloadFolder(Resource folder, Path target) {
+        return delegate.downloadFolder(folder, target);
+    }
+
+    @Override
+    public SeekableByteChannel openChannel(Resource resource) {
+        return delegate.openChannel(resource);
+    }
+
+    @Override
+    public SyncResult syncFolder(Resource folder, Path target, boolean deleteOrphans) {
+        return delegate.syncFolder(folder, target, deleteOrphans);
+    }
+
+    @Override
+    public BulkOperationResult deletePrefix(Resource folder) {
+        try {
+            return delegate.deletePrefix(folder);
+        } finally {
+            invalidatePrefix(S3Resources.prefixOf(folder));
+        }
+    }
+
+    @Override
+    public BulkOperationResult deleteAll(Collection<String> keys) {
+        try {
+            return delegate.deleteAll(keys);
+        } finally {
+            keys.forEach(this::invalidate);
+        }
+    }
+
+    @Override
+    public BulkOperationResult copyFolder(Resource folder, String targetPrefix) {
+        try {
+            return delegate.copyFolder(folder, targetPrefix);
+        } finally {
+            invalidatePrefix(targetPrefix == null ? "" : targetPrefix);
+        }
+    }
+
+    @Override
+    public BulkOperationResult moveFolder(Resource folder, String targetPrefix) {
+        try {
+            return delegate.moveFolder(folder, targetPrefix);
+        } finally {
+            invalidatePrefix(S3Resources.prefixOf(folder));
+            invalidatePrefix(targetPrefix == null ? "" : targetPrefix);
+        }
+    }
+
+    /**
+     * Drops the cached HEAD result for a key and every cached listing page that could contain it
+     * (the listings of all its ancestor prefixes, including the bucket root).
+     * @param key The S3 key that was written or deleted
+     */
+    public void invalidate(String key) {
+        generation.incrementAndGet();
+        resources.invalidate(key);
+        listings.invalidateIf(listing -> key.startsWith(listing.prefix()));
+    }
+
+    /**
+     * Drops the cached HEAD results of every key below a prefix, and every cached listing page that could
+     * contain one of them (listings of the prefix's ancestors and of the folders below it).
+     * @param prefix The key prefix that was written or deleted
+     */
+    public void invalidatePrefix(String prefix) {
+        generation.incrementAndGet();
+        resources.invalidateIf(key -> key.startsWith(prefix));
+        listings.invalidateIf(listing -> prefix.startsWith(listing.prefix()) || listing.prefix().startsWith(prefix));
+    }
+
+    /**
+     * Drops every cached entry.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        resources.clear();
+        listings.clear();
+    }
+
+    /**
+     * @return hit/miss/eviction counters summed over both caches
+     */
+    public CacheStats getStats() {
+        CacheStats stats = new CacheStats();
+        stats.setHitCount(resources.hitCount() + listings.hitCount());
+        stats.setMissCount(resources.missCount() + listings.missCount());
+        stats.setEvictionCount(resources.evictionCount() + listings.evictionCount());
+        stats.setExpirationCount(resources.expirationCount() + listings.expirationCount());
+        stats.setNegativeHitCount(negativeHits.sum());
+        stats.setSize(resources.size() + listings.size());
+        return stats;
+    }
+
+    /**
+     * Caches value unless an invalidation ran since started was read. Invalidations bump the generation before
+     * dropping entries, so checking again after the put catches one that raced with it.
+     */
+    private <K, V> void putIfCurrent(ExpiringLruCache<K, V> cache, K key, V value, long ttl, long started) {
+        if (generation.get() != started) {
+            LOGGER.debug("Not caching a lookup that overlapped an invalidation. key={}", key);
+            return;
+        }
+        cache.put(key, value, ttl);
+        if (generation.get() != started) {
+            cache.invalidate(key);
+        }
+    }
+
+    private static BatchLookupResult batchResult(Map<String, Resource> found, Map<String, RuntimeException> failures) {
+        BatchLookupResult result = new BatchLookupResult();
+        result.setResources(found);
+        result.setFailures(failures);
+        return result;
+    }
+
+    // Resource and ListResult are mutable beans; never hand out the instance that stays in the cache
+    private static ListResult<Resource> copyOf(ListResult<Resource> page) {
+        List<Resource> items = new ArrayList<>(page.getResources().size());
+        for (Resource r : page.getResources()) {
+            items.add(S3Resources.copyOf(r));
+        }
+        ListResult<Resource> copy = new ListResult<>();
+        copy.setResources(items);
+        copy.setCursor(page.getCursor());
+        return copy;
+    }
+}
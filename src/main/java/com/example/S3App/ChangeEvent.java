@@ -0,0 +1,57 @@
+package com.example.S3App;
+
+/**
+ * One change a {@link ChangeFeed} found below its prefix.
+ * ADDED and CHANGED carry the object's size, eTag and lastModified (epoch millis) as listed;
+ * REMOVED only has the key, with size -1.
+ */
+public class ChangeEvent {
+
+    public enum Type { ADDED, CHANGED, REMOVED }
+
+    private Type type;
+    private String key;
+    private long size;
+    private String eTag;
+    private long lastModified;
+
+    public Type getType() {
+        return type;
+    }
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public String getKey() {
+        return key;
+    }
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public long getSize() {
+        return size;
+    }
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+    public void setETag(String eTag) {
+        this.eTag = eTag;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+    public void setLastModified(long lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + key;
+    }
+}
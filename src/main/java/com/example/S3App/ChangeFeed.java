@@ -0,0 +1,313 @@
+package com.example.S3App;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Reports the keys added, changed and removed below a folder (or the whole bucket) between polls, without listing
+ * the whole prefix each time. The feed keeps a {@link ChangeSnapshot} file: every key with a fingerprint of its
+ * ETag and size, and the last key as a watermark.
+ *   - A poll lists only the keys after the watermark with StartAfter, so a prefix whose keys grow in order
+ *     (timestamped or sequential names) costs one request per poll however large it is.
+ *   - Once fullScanInterval has passed, a poll lists the whole prefix in parallel key ranges (see {@link ParallelLister})
+ *     and merges it with the snapshot in key order, which also finds changed and removed keys and keys added
+ *     before the watermark. {@link #rescan} forces one.
+ *   - The first poll without a snapshot file only records the current state and reports nothing.
+ * Events come out in key order within a poll. The snapshot is saved after a poll has handed out all its events,
+ * so a consumer that throws, or a crash, gets the same events again: delivery is at least once.
+ *
+ * Events can be pulled with {@link #poll()}, or pushed to subscribers of {@link #publisher()} by the background
+ * polling of {@link #start()}.
+ */
+public class ChangeFeed implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangeFeed.class);
+
+    private final S3ResourceService service;
+    private final Resource folder; // null for the whole bucket
+    private final String prefix;
+    private final Path snapshotFile;
+    private final ChangeFeedSettings settings;
+    // Subscribers are called on these threads, so a slow one never runs on the polling thread
+    private final ExecutorService delivery = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "s3-change-feed");
+        t.setDaemon(true);
+        return t;
+    });
+    private final SubmissionPublisher<ChangeEvent> publisher;
+    private ScheduledExecutorService poller; // created by start()
+    private ChangeSnapshot snapshot; // null until the first poll when there was no snapshot file
+    private boolean closed;
+
+    /**
+     * @param folder The folder to watch, or null for the whole bucket
+     * @param snapshotFile Where the feed keeps its state between polls and restarts
+     */
+    public ChangeFeed(S3ResourceService service, Resource folder, Path snapshotFile, ChangeFeedSettings settings) {
+        if (folder != null && folder.getType() != 1) {
+            throw new IllegalArgumentException("ChangeFeed: not a folder: " + folder.getId());
+        }
+        this.service = service;
+        this.folder = folder;
+        this.prefix = S3Resources.prefixOf(folder);
+        this.snapshotFile = snapshotFile;
+        this.settings = settings;
+        this.publisher = new SubmissionPublisher<>(delivery, settings.getMaxBufferedEvents());
+        this.snapshot = loadSnapshot();
+    }
+
+    /**
+     * Lists what changed since the last poll and hands each change to consumer, in key order.
+     * @return the number of events
+     * @throws RuntimeException if listing fails or consumer throws; the snapshot is then left as it was
+     */
+    public synchronized int poll(Consumer<? super ChangeEvent> consumer) {
+        long now = System.currentTimeMillis();
+        if (snapshot == null) {
+            fullScan(now, null);
+            return 0;
+        }
+        if (now - snapshot.getFullScanAt() >= settings.getFullScanInterval().toMillis()) {
+            return fullScan(now, consumer);
+        }
+        return tail(consumer);
+    }
+
+    /**
+     * @return the changes since the last poll, in key order
+     */
+    public List<ChangeEvent> poll() {
+        List<ChangeEvent> events = new ArrayList<>();
+        poll(events::add);
+        return events;
+    }
+
+    /**
+     * Lists the whole prefix now, whenever the last full scan was.
+     * @return the number of events
+     */
+    public synchronized int rescan(Consumer<? super ChangeEvent> consumer) {
+        return fullScan(System.currentTimeMillis(), snapshot == null ? null : consumer);
+    }
+
+    /**
+     * Events found by the background polling of {@link #start()}. Each subscriber gets the events submitted after
+     * it subscribed; one whose buffer is full holds up polling until it catches up.
+     */
+    public Flow.Publisher<ChangeEvent> publisher() {
+        return publisher;
+    }
+
+    /**
+     * Calls consumer with every event found by the background polling, until the feed is closed.
+     * @return completes when the feed is closed, or exceptionally if consumer throws
+     */
+    public CompletableFuture<Void> subscribe(Consumer<? super ChangeEvent> consumer) {
+        return publisher.consume(consumer);
+    }
+
+    /**
+     * Starts polling every pollInterval in the background, publishing what each poll finds.
+     * A failed poll is logged and retried at the next interval.
+     */
+    public synchronized void start() {
+        if (closed) {
+            throw new IllegalStateException("ChangeFeed is closed");
+        }
+        if (poller != null) {
+            return;
+        }
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "s3-change-poll");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = settings.getPollInterval().toMillis();
+        poller.scheduleWithFixedDelay(this::pollAndPublish, 0, interval, TimeUnit.MILLISECONDS);
+        LOGGER.info("Started change feed. bucket={}, prefix={}, pollIntervalMs={}", service.getBucketName(), prefix, interval);
+    }
+
+    /**
+     * @return the last key known to the feed, after which polls look for new keys; null before the first poll or
+     * when the prefix was empty
+     */
+    public synchronized String getWatermark() {
+        return snapshot == null ? null : snapshot.watermark();
+    }
+
+    /**
+     * @return the keys known to the feed
+     */
+    public synchronized int getKeyCount() {
+        return snapshot == null ? 0 : snapshot.count();
+    }
+
+    /**
+     * Stops background polling and completes every subscriber once it has received the events already published.
+     */
+    @Override
+    public void close() {
+        ScheduledExecutorService toStop;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            toStop = poller;
+        }
+        if (toStop != null) {
+            toStop.shutdownNow();
+        }
+        publisher.close();
+        delivery.shutdown();
+        LOGGER.info("Closed change feed. bucket={}, prefix={}", service.getBucketName(), prefix);
+    }
+
+    private void pollAndPublish() {
+        try {
+            poll(event -> {
+                if (!publisher.isClosed()) {
+                    publisher.submit(event);
+                }
+            });
+        } catch (RuntimeException e) {
+            LOGGER.warn("Change feed poll failed. bucket={}, prefix={}, msg={}", service.getBucketName(), prefix, e.getMessage());
+        }
+    }
+
+    // Lists keys after the watermark; consumer gets them as ADDED
+    private int tail(Consumer<? super ChangeEvent> consumer) {
+        String watermark = snapshot.watermark();
+        ChangeSnapshot.Writer writer = new ChangeSnapshot.Writer(service.getBucketName(), prefix, snapshot.getFullScanAt())
+                .addAll(snapshot);
+        service.listObjectsAfter(folder, watermark, object -> {
+            writer.add(object.key(), fingerprintOf(object));
+            consumer.accept(event(ChangeEvent.Type.ADDED, object));
+        });
+        int added = writer.count() - snapshot.count();
+        if (added == 0) {
+            LOGGER.debug("No new keys after watermark. bucket={}, prefix={}, watermark={}",
+                    service.getBucketName(), prefix, watermark);
+            return 0;
+        }
+        save(writer.build());
+        LOGGER.info("Found new keys after watermark. bucket={}, prefix={}, added={}, watermark={}",
+                service.getBucketName(), prefix, added, snapshot.watermark());
+        return added;
+    }
+
+    // Merges a full listing with the snapshot in key order; consumer is null for the silent first scan
+    private int fullScan(long start, Consumer<? super ChangeEvent> consumer) {
+        ChangeSnapshot.Writer writer = new ChangeSnapshot.Writer(service.getBucketName(), prefix, start);
+        ChangeSnapshot.Reader known = snapshot == null ? null : snapshot.reader();
+        boolean hasKnown = known != null && known.next();
+        int added = 0;
+        int changed = 0;
+        int removed = 0;
+        try (Stream<S3Object> objects = service.listObjects(folder)) {
+            Iterator<S3Object> it = objects.iterator();
+            while (it.hasNext()) {
+                S3Object object = it.next();
+                byte[] key = object.key().getBytes(StandardCharsets.UTF_8);
+                long fingerprint = fingerprintOf(object);
+                while (hasKnown && known.compareKey(key) < 0) {
+                    removed++;
+                    emit(consumer, removed(known.key()));
+                    hasKnown = known.next();
+                }
+                if (hasKnown && known.compareKey(key) == 0) {
+                    if (known.fingerprint() != fingerprint) {
+                        changed++;
+                        emit(consumer, event(ChangeEvent.Type.CHANGED, object));
+                    }
+                    hasKnown = known.next();
+                } else if (snapshot != null) {
+                    added++;
+                    emit(consumer, event(ChangeEvent.Type.ADDED, object));
+                }
+                writer.add(key, fingerprint);
+            }
+        }
+        while (hasKnown) {
+            removed++;
+            emit(consumer, removed(known.key()));
+            hasKnown = known.next();
+        }
+        save(writer.build());
+        LOGGER.info("Scanned prefix for changes. bucket={}, prefix={}, keys={}, added={}, changed={}, removed={}, elapsedMs={}",
+                service.getBucketName(), prefix, snapshot.count(), added, changed, removed,
+                System.currentTimeMillis() - start);
+        return added + changed + removed;
+    }
+
+    private static void emit(Consumer<? super ChangeEvent> consumer, ChangeEvent event) {
+        if (consumer != null) {
+            consumer.accept(event);
+        }
+    }
+
+    private void save(ChangeSnapshot updated) {
+        try {
+            updated.write(snapshotFile);
+        } catch (IOException e) {
+            LOGGER.error("I/O error writing the change feed snapshot. file={}", snapshotFile, e);
+            throw new RuntimeException("Failed to write change feed snapshot: " + e.getMessage(), e);
+        }
+        snapshot = updated;
+    }
+
+    // A snapshot of another bucket or prefix, or an unreadable one, is ignored: the first poll then starts afresh
+    private ChangeSnapshot loadSnapshot() {
+        try {
+            ChangeSnapshot loaded = ChangeSnapshot.load(snapshotFile);
+            if (loaded != null && !(loaded.getBucketName().equals(service.getBucketName()) && loaded.getPrefix().equals(prefix))) {
+                LOGGER.warn("Ignoring change feed snapshot of another prefix. file={}, bucket={}, prefix={}",
+                        snapshotFile, loaded.getBucketName(), loaded.getPrefix());
+                return null;
+            }
+            return loaded;
+        } catch (IOException e) {
+            LOGGER.warn("Ignoring unreadable change feed snapshot. file={}, msg={}", snapshotFile, e.getMessage());
+            return null;
+        }
+    }
+
+    private static long fingerprintOf(S3Object object) {
+        return ChangeSnapshot.fingerprint(object.eTag(), object.size() == null ? 0 : object.size());
+    }
+
+    private static ChangeEvent event(ChangeEvent.Type type, S3Object object) {
+        ChangeEvent event = new ChangeEvent();
+        event.setType(type);
+        event.setKey(object.key());
+        event.setSize(object.size() == null ? 0 : object.size());
+        event.setETag(object.eTag());
+        event.setLastModified(object.lastModified() == null ? 0 : object.lastModified().toEpochMilli());
+        return event;
+    }
+
+    private static ChangeEvent removed(String key) {
+        ChangeEvent event = new ChangeEvent();
+        event.setType(ChangeEvent.Type.REMOVED);
+        event.setKey(key);
+        event.setSize(-1);
+        return event;
+    }
+}
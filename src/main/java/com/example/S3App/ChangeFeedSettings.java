@@ -0,0 +1,56 @@
+package com.example.S3App;
+
+import java.time.Duration;
+import java.util.concurrent.Flow;
+
+/**
+ * Timing for a {@link ChangeFeed}.
+ * Every {@code pollInterval} the feed lists only the keys after its watermark (one StartAfter listing, usually a
+ * single request), and once {@code fullScanInterval} has passed since the last full scan it lists the whole prefix
+ * in parallel instead, to find changed and removed keys and keys added before the watermark.
+ * Each subscriber of its publisher buffers at most {@code maxBufferedEvents}; a full buffer holds up the poll
+ * rather than dropping events.
+ */
+public class ChangeFeedSettings {
+
+    public static final Duration DEFAULT_POLL_INTERVAL = Duration.ofMinutes(1);
+    public static final Duration DEFAULT_FULL_SCAN_INTERVAL = Duration.ofHours(1);
+    public static final int DEFAULT_MAX_BUFFERED_EVENTS = Flow.defaultBufferSize();
+
+    private Duration pollInterval = DEFAULT_POLL_INTERVAL;
+    private Duration fullScanInterval = DEFAULT_FULL_SCAN_INTERVAL;
+    private int maxBufferedEvents = DEFAULT_MAX_BUFFERED_EVENTS;
+
+    public Duration getPollInterval() {
+        return pollInterval;
+    }
+    public void setPollInterval(Duration pollInterval) {
+        if (pollInterval == null || pollInterval.isNegative() || pollInterval.isZero()) {
+            throw new IllegalArgumentException("pollInterval must be > 0: " + pollInterval);
+        }
+        this.pollInterval = pollInterval;
+    }
+
+    /**
+     * @return the longest time between full scans; 0 makes every poll a full scan
+     */
+    public Duration getFullScanInterval() {
+        return fullScanInterval;
+    }
+    public void setFullScanInterval(Duration fullScanInterval) {
+        if (fullScanInterval == null || fullScanInterval.isNegative()) {
+            throw new IllegalArgumentException("fullScanInterval must be >= 0: " + fullScanInterval);
+        }
+        this.fullScanInterval = fullScanInterval;
+    }
+
+    public int getMaxBufferedEvents() {
+        return maxBufferedEvents;
+    }
+    public void setMaxBufferedEvents(int maxBufferedEvents) {
+        if (maxBufferedEvents <= 0) {
+            throw new IllegalArgumentException("maxBufferedEvents must be > 0: " + maxBufferedEvents);
+        }
+        this.maxBufferedEvents = maxBufferedEvents;
+    }
+}
@@ -0,0 +1,308 @@
+package com.example.S3App;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * The state of a prefix that a {@link ChangeFeed} compares listings against: every key in S3 order with a 64-bit
+ * fingerprint of its ETag and size, plus the time of the last full scan. The last key is the watermark after which
+ * new keys are looked for with StartAfter.
+ *
+ * Entries are front-coded in one byte array, each as
+ *   varint shared-prefix length | varint suffix length | suffix bytes (UTF-8) | 8-byte fingerprint
+ * and only ever read forward, since a diff is a merge in key order. Keys under one prefix share most of their bytes,
+ * so a typical entry takes 15 to 25 bytes in memory and on disk. The file is rewritten atomically whenever keys change.
+ */
+final class ChangeSnapshot {
+
+    private static final int MAGIC = 0x53334346; // "S3CF"
+    private static final int VERSION = 1;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final String bucketName;
+    private final String prefix;
+    private final long fullScanAt;
+    private final int count;
+    private final byte[] entries;
+    private final int length;
+    private final byte[] lastKey; // null when empty
+
+    private ChangeSnapshot(String bucketName, String prefix, long fullScanAt, int count, byte[] entries, int length,
+                           byte[] lastKey) {
+        this.bucketName = bucketName;
+        this.prefix = prefix;
+        this.fullScanAt = fullScanAt;
+        this.count = count;
+        this.entries = entries;
+        this.length = length;
+        this.lastKey = lastKey;
+    }
+
+    /**
+     * @return the snapshot in file, or null if there is none
+     */
+    static ChangeSnapshot load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a change feed snapshot: " + file);
+            }
+            String bucketName = in.readUTF();
+            String prefix = in.readUTF();
+            long fullScanAt = in.readLong();
+            int count = in.readInt();
+            int length = in.readInt();
+            byte[] entries = new byte[length];
+            in.readFully(entries);
+            ChangeSnapshot snapshot = new ChangeSnapshot(bucketName, prefix, fullScanAt, count, entries, length, null);
+            // The watermark is the last entry's key; decoding every entry also checks the file is whole
+            Reader reader = snapshot.reader();
+            int decoded = 0;
+            try {
+                while (reader.next()) {
+                    decoded++;
+                }
+            } catch (ArrayIndexOutOfBoundsException e) {
+                decoded = -1;
+            }
+            if (decoded != count) {
+                throw new IOException("Corrupt change feed snapshot: " + file);
+            }
+            return new ChangeSnapshot(bucketName, prefix, fullScanAt, count, entries, length,
+                    count == 0 ? null : Arrays.copyOf(reader.key, reader.keyLength));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Replaces file with this snapshot: written next to it, then moved into place.
+     */
+    void write(Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path temp = Files.createTempFile(dir, file.getFileName().toString(), TEMP_SUFFIX);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(bucketName);
+                out.writeUTF(prefix);
+                out.writeLong(fullScanAt);
+                out.writeInt(count);
+                out.writeInt(length);
+                out.write(entries, 0, length);
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    String getBucketName() {
+        return bucketName;
+    }
+
+    String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * @return when the last full scan started, in epoch millis
+     */
+    long getFullScanAt() {
+        return fullScanAt;
+    }
+
+    int count() {
+        return count;
+    }
+
+    /**
+     * @return the last key, or null when the snapshot is empty
+     */
+    String watermark() {
+        return lastKey == null ? null : new String(lastKey, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return bytes the entries take
+     */
+    int footprintBytes() {
+        return length;
+    }
+
+    Reader reader() {
+        return new Reader();
+    }
+
+    /**
+     * 64-bit FNV-1a of the ETag and size: equal for an unchanged object, different for any rewrite with other content.
+     */
+    static long fingerprint(String eTag, long size) {
+        long hash = 0xcbf29ce484222325L;
+        if (eTag != null) {
+            for (int i = 0; i < eTag.length(); i++) {
+                hash = (hash ^ eTag.charAt(i)) * 0x100000001b3L;
+            }
+        }
+        for (int shift = 0; shift < 64; shift += 8) {
+            hash = (hash ^ ((size >>> shift) & 0xFF)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Decodes the entries forward. The current key is kept as UTF-8 bytes, so comparing it costs no allocation.
+     */
+    final class Reader {
+        private byte[] key = new byte[256];
+        private int keyLength;
+        private long fingerprint;
+        private int position;
+
+        /**
+         * @return false at the end
+         */
+        boolean next() {
+            if (position >= length) {
+                return false;
+            }
+            int shared = readVarint();
+            int suffix = readVarint();
+            if (shared + suffix > key.length) {
+                key = Arrays.copyOf(key, Math.max(key.length * 2, shared + suffix));
+            }
+            System.arraycopy(entries, position, key, shared, suffix);
+            position += suffix;
+            keyLength = shared + suffix;
+            long fp = 0;
+            for (int i = 0; i < 8; i++) {
+                fp = (fp << 8) | (entries[position++] & 0xFF);
+            }
+            fingerprint = fp;
+            return true;
+        }
+
+        String key() {
+            return new String(key, 0, keyLength, StandardCharsets.UTF_8);
+        }
+
+        long fingerprint() {
+            return fingerprint;
+        }
+
+        /**
+         * Compares the current key with other in S3 (UTF-8 byte) order.
+         */
+        int compareKey(byte[] other) {
+            return Arrays.compareUnsigned(key, 0, keyLength, other, 0, other.length);
+        }
+
+        private int readVarint() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = entries[position++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Encodes entries in ascending key order into a new snapshot.
+     */
+    static final class Writer {
+        private final String bucketName;
+        private final String prefix;
+        private final long fullScanAt;
+        private byte[] entries = new byte[64 * 1024];
+        private int length;
+        private byte[] lastKey;
+        private int count;
+
+        /**
+         * @param fullScanAt when the full scan this snapshot stems from started
+         */
+        Writer(String bucketName, String prefix, long fullScanAt) {
+            this.bucketName = bucketName;
+            this.prefix = prefix;
+            this.fullScanAt = fullScanAt;
+        }
+
+        /**
+         * Starts from a copy of an existing snapshot, so keys after its watermark can be appended.
+         */
+        Writer addAll(ChangeSnapshot snapshot) {
+            if (count > 0) {
+                throw new IllegalStateException("addAll must come first");
+            }
+            entries = Arrays.copyOf(snapshot.entries, Math.max(snapshot.length, 1024));
+            length = snapshot.length;
+            lastKey = snapshot.lastKey;
+            count = snapshot.count;
+            return this;
+        }
+
+        Writer add(String key, long fingerprint) {
+            return add(key.getBytes(StandardCharsets.UTF_8), fingerprint);
+        }
+
+        Writer add(byte[] key, long fingerprint) {
+            int shared = 0;
+            if (lastKey != null) {
+                if (Arrays.compareUnsigned(lastKey, key) >= 0) {
+                    throw new IllegalArgumentException("Keys must be added in ascending order: "
+                            + new String(key, StandardCharsets.UTF_8));
+                }
+                int max = Math.min(lastKey.length, key.length);
+                while (shared < max && lastKey[shared] == key[shared]) {
+                    shared++;
+                }
+            }
+            int suffix = key.length - shared;
+            if ((long) length + suffix + 18 > Integer.MAX_VALUE - 1024) {
+                throw new IllegalStateException("Change feed snapshot larger than 2 GB");
+            }
+            if (length + suffix + 18 > entries.length) {
+                entries = Arrays.copyOf(entries, Math.max(entries.length * 2, length + suffix + 18));
+            }
+            writeVarint(shared);
+            writeVarint(suffix);
+            System.arraycopy(key, shared, entries, length, suffix);
+            length += suffix;
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                entries[length++] = (byte) (fingerprint >>> shift);
+            }
+            lastKey = key;
+            count++;
+            return this;
+        }
+
+        int count() {
+            return count;
+        }
+
+        ChangeSnapshot build() {
+            return new ChangeSnapshot(bucketName, prefix, fullScanAt, count, entries, length, lastKey);
+        }
+
+        private void writeVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                entries[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            entries[length++] = (byte) value;
+        }
+    }
+}
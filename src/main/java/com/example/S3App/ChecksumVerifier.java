@@ -0,0 +1,457 @@
+package com.example.S3App;
+
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+
+/**
+ * The checksum a download is verified against, computed while the bytes are copied to disk rather than in a
+ * second pass over the file.
+ *
+ * Picked from what S3 stored for the object, strongest match first:
+ *   - a full-object CRC32C, CRC32 or SHA-256 (returned by HEAD with checksum mode enabled)
+ *   - the ETag, when it is the MD5 of the content: single-part uploads without SSE-KMS or SSE-C
+ * Composite checksums and multipart ETags are derived from the upload's part layout, which a download does not know,
+ * so those objects are not verified.
+ *
+ * CRCs can be combined: a ranged download computes one CRC per part and folds them in offset order at the end.
+ * SHA-256 and MD5 cannot, so they are only verified on single-stream downloads, hashed on a separate thread.
+ */
+final class ChecksumVerifier {
+
+    enum Algorithm {
+        CRC32C(0x82F63B78),
+        CRC32(0xEDB88320),
+        SHA256(0),
+        MD5(0);
+
+        // Reversed CRC polynomial, 0 for the message digests
+        private final int polynomial;
+
+        Algorithm(int polynomial) {
+            this.polynomial = polynomial;
+        }
+
+        boolean isCombinable() {
+            return polynomial != 0;
+        }
+    }
+
+    /**
+     * The downloaded bytes do not match the object's checksum.
+     */
+    static final class MismatchException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        MismatchException(String message) {
+            super(message);
+        }
+    }
+
+    private static final Pattern MD5_ETAG = Pattern.compile("\"?[0-9a-fA-F]{32}\"?");
+    private static final int READ_BACK_CHUNK = 1024 * 1024;
+
+    // Daemon threads, so an abandoned digest never keeps the JVM alive
+    private static final ExecutorService HASHERS = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "s3-download-digest");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final String key;
+    private final Algorithm algorithm;
+    private final byte[] expected;
+
+    private ChecksumVerifier(String key, Algorithm algorithm, byte[] expected) {
+        this.key = key;
+        this.algorithm = algorithm;
+        this.expected = expected;
+    }
+
+    /**
+     * @return the verifier for the object the HEAD describes, or null if nothing it returned can be verified
+     */
+    static ChecksumVerifier of(String key, HeadObjectResponse head) {
+        return select(key, head.checksumCRC32C(), head.checksumCRC32(), head.checksumSHA256(),
+                head.checksumTypeAsString(), head.eTag(), head.serverSideEncryptionAsString(),
+                head.sseCustomerAlgorithm());
+    }
+
+    /**
+     * @return the verifier for the object a GET returned, or null if nothing in the response can be verified
+     */
+    static ChecksumVerifier of(String key, GetObjectResponse response) {
+        return select(key, response.checksumCRC32C(), response.checksumCRC32(), response.checksumSHA256(),
+                response.checksumTypeAsString(), response.eTag(), response.serverSideEncryptionAsString(),
+                response.sseCustomerAlgorithm());
+    }
+
+    private static ChecksumVerifier select(String key, String crc32c, String crc32, String sha256, String type,
+                                           String eTag, String sse, String sseCustomerAlgorithm) {
+        if (!"COMPOSITE".equals(type)) {
+            byte[] value;
+            if ((value = decode(crc32c, 4)) != null) {
+                return new ChecksumVerifier(key, Algorithm.CRC32C, value);
+            }
+            if ((value = decode(crc32, 4)) != null) {
+                return new ChecksumVerifier(key, Algorithm.CRC32, value);
+            }
+            if ((value = decode(sha256, 32)) != null) {
+                return new ChecksumVerifier(key, Algorithm.SHA256, value);
+            }
+        }
+        // SSE-KMS and SSE-C ETags are not the MD5 of the content; multipart ones ("...-N") never match the pattern
+        boolean md5ETag = eTag != null && MD5_ETAG.matcher(eTag).matches()
+                && (sse == null || !sse.startsWith("aws:kms")) && sseCustomerAlgorithm == null;
+        if (md5ETag) {
+            return new ChecksumVerifier(key, Algorithm.MD5, HexFormat.of().parseHex(eTag.replace("\"", "")));
+        }
+        return null;
+    }
+
+    // A composite value carries a "-<parts>" suffix and does not decode to the plain length
+    private static byte[] decode(String base64, int length) {
+        if (base64 == null || base64.isEmpty() || base64.indexOf('-') >= 0) {
+            return null;
+        }
+        try {
+            byte[] value = Base64.getDecoder().decode(base64);
+            return value.length == length ? value : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * @return true if per-part values of a ranged download can be combined into the object's checksum
+     */
+    boolean isCombinable() {
+        return algorithm.isCombinable();
+    }
+
+    Digest newDigest() {
+        return new Digest(algorithm);
+    }
+
+    Parts newParts() {
+        if (!isCombinable()) {
+            throw new IllegalStateException(algorithm + " values cannot be combined from parts");
+        }
+        return new Parts();
+    }
+
+    /**
+     * @throws MismatchException if the finished digest differs from the object's checksum
+     * @throws IOException if waiting for the hashing thread was interrupted
+     */
+    void verify(Digest digest) throws IOException {
+        verify(digest.value());
+    }
+
+    private void verify(byte[] actual) throws MismatchException {
+        if (!Arrays.equals(expected, actual)) {
+            throw new MismatchException("Checksum mismatch for " + key + ": " + algorithm
+                    + " expected " + format(expected) + ", got " + format(actual));
+        }
+    }
+
+    private String format(byte[] value) {
+        return algorithm == Algorithm.MD5 ? HexFormat.of().formatHex(value) : Base64.getEncoder().encodeToString(value);
+    }
+
+    /**
+     * Running checksum of a byte sequence, fed with the chunks as they are copied. Close it if the copy is abandoned.
+     */
+    static final class Digest implements AutoCloseable {
+        private final Checksum checksum;
+        private final HashingPipeline pipeline;
+
+        private Digest(Algorithm algorithm) {
+            this.checksum = switch (algorithm) {
+                case CRC32C -> new CRC32C();
+                case CRC32 -> new CRC32();
+                default -> null;
+            };
+            this.pipeline = checksum != null ? null
+                    : new HashingPipeline(messageDigest(algorithm == Algorithm.SHA256 ? "SHA-256" : "MD5"));
+        }
+
+        void update(byte[] bytes, int offset, int length) throws IOException {
+            if (checksum != null) {
+                checksum.update(bytes, offset, length);
+            } else {
+                pipeline.update(bytes, offset, length);
+            }
+        }
+
+        /**
+         * Feeds bytes [start, end) of a file, for ranges an interrupted download already wrote.
+         */
+        void update(FileChannel channel, long start, long end) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(READ_BACK_CHUNK, Math.max(0, end - start)));
+            long position = start;
+            while (position < end) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("Partial file ends at " + position + ", expected " + end + " bytes");
+                }
+                update(buffer.array(), 0, read);
+                position += read;
+            }
+        }
+
+        long crc() {
+            return checksum.getValue();
+        }
+
+        private byte[] value() throws IOException {
+            if (checksum == null) {
+                return pipeline.digest();
+            }
+            long crc = checksum.getValue();
+            return new byte[] {(byte) (crc >>> 24), (byte) (crc >>> 16), (byte) (crc >>> 8), (byte) crc};
+        }
+
+        @Override
+        public void close() {
+            if (pipeline != null) {
+                pipeline.close();
+            }
+        }
+
+        private static MessageDigest messageDigest(String name) {
+            try {
+                return MessageDigest.getInstance(name);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Runs a MessageDigest on a thread of its own. MD5 and SHA-256 hash a few hundred MB/s per core, about the rate
+     * of one fast stream, so hashing inline would roughly halve a large download; here the copying thread only
+     * fills blocks for the hashing thread. The first MB is hashed inline, so small objects need no thread at all.
+     */
+    private static final class HashingPipeline {
+        private static final int INLINE_BYTES = 1024 * 1024;
+        private static final int BLOCK_SIZE = 256 * 1024;
+        private static final int MAX_BLOCKS = 8;
+
+        private record Block(byte[] data, int length) {
+        }
+
+        private static final Block END = new Block(null, 0);
+
+        private final MessageDigest message;
+        private final BlockingQueue<byte[]> free = new ArrayBlockingQueue<>(MAX_BLOCKS);
+        // Room for every block plus END, so ending never blocks
+        private final BlockingQueue<Block> filled = new ArrayBlockingQueue<>(MAX_BLOCKS + 1);
+        private long inlineBytes;
+        private int allocated;
+        private byte[] current;
+        private int length;
+        private Future<?> worker;
+        private boolean ended;
+
+        HashingPipeline(MessageDigest message) {
+            this.message = message;
+        }
+
+        void update(byte[] bytes, int offset, int count) throws IOException {
+            if (worker == null) {
+                message.update(bytes, offset, count);
+                inlineBytes += count;
+                if (inlineBytes >= INLINE_BYTES) {
+                    worker = HASHERS.submit(this::run);
+                }
+                return;
+            }
+            while (count > 0) {
+                if (current == null) {
+                    current = nextBlock();
+                }
+                int n = Math.min(count, BLOCK_SIZE - length);
+                System.arraycopy(bytes, offset, current, length, n);
+                length += n;
+                offset += n;
+                count -= n;
+                if (length == BLOCK_SIZE) {
+                    submit();
+                }
+            }
+        }
+
+        byte[] digest() throws IOException {
+            if (worker != null) {
+                if (length > 0) {
+                    submit();
+                }
+                close();
+                try {
+                    worker.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while hashing the download");
+                } catch (ExecutionException e) {
+                    throw new IOException("Hashing the download failed: " + e.getCause(), e.getCause());
+                }
+            }
+            return message.digest();
+        }
+
+        // Lets the hashing thread finish what it has and return
+        void close() {
+            if (worker != null && !ended) {
+                ended = true;
+                filled.offer(END);
+            }
+        }
+
+        private void run() {
+            try {
+                Block block;
+                while ((block = filled.take()) != END) {
+                    message.update(block.data(), 0, block.length());
+                    free.offer(block.data());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private byte[] nextBlock() throws InterruptedIOException {
+            byte[] block = free.poll();
+            if (block != null) {
+                return block;
+            }
+            if (allocated < MAX_BLOCKS) {
+                allocated++;
+                return new byte[BLOCK_SIZE];
+            }
+            try {
+                return free.take(); // hashing is behind; wait for it
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while hashing the download");
+            }
+        }
+
+        private void submit() {
+            // Never blocks: at most MAX_BLOCKS exist
+            filled.offer(new Block(current, length));
+            current = null;
+            length = 0;
+        }
+    }
+
+    /**
+     * Per-part CRCs of a ranged download, kept by offset and combined once every part is in.
+     */
+    final class Parts {
+        private final TreeMap<Long, long[]> parts = new TreeMap<>(); // start -> {end, crc}
+
+        synchronized void add(long start, long end, long crc) {
+            parts.put(start, new long[] {end, crc});
+        }
+
+        /**
+         * @throws MismatchException if the combined CRC differs from the object's checksum
+         */
+        synchronized void verify(long size) throws MismatchException {
+            long position = 0;
+            long crc = 0; // CRC of the empty sequence
+            for (Map.Entry<Long, long[]> part : parts.entrySet()) {
+                if (part.getKey() != position) {
+                    throw new IllegalStateException("Missing checksum for bytes " + position + "-" + part.getKey() + " of " + key);
+                }
+                long end = part.getValue()[0];
+                crc = combine(crc, part.getValue()[1], end - position, algorithm.polynomial);
+                position = end;
+            }
+            if (position != size) {
+                throw new IllegalStateException("Missing checksum for bytes " + position + "-" + size + " of " + key);
+            }
+            ChecksumVerifier.this.verify(new byte[] {(byte) (crc >>> 24), (byte) (crc >>> 16), (byte) (crc >>> 8), (byte) crc});
+        }
+    }
+
+    /**
+     * CRC of A followed by B from crc(A), crc(B) and B's length, in O(log length): appending length zero bytes to A
+     * is a linear map over GF(2), applied by repeated squaring (as zlib's crc32_combine).
+     */
+    static long combine(long crc1, long crc2, long length2, int polynomial) {
+        if (length2 <= 0) {
+            return crc1;
+        }
+        long[] even = new long[32];
+        long[] odd = new long[32];
+        odd[0] = polynomial & 0xFFFFFFFFL; // operator for one zero bit
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        square(even, odd); // two zero bits
+        square(odd, even); // four zero bits
+        do {
+            // One zero byte, then doubled each round
+            square(even, odd);
+            if ((length2 & 1) != 0) {
+                crc1 = times(even, crc1);
+            }
+            length2 >>= 1;
+            if (length2 == 0) {
+                break;
+            }
+            square(odd, even);
+            if ((length2 & 1) != 0) {
+                crc1 = times(odd, crc1);
+            }
+            length2 >>= 1;
+        } while (length2 != 0);
+        return (crc1 ^ crc2) & 0xFFFFFFFFL;
+    }
+
+    private static long times(long[] matrix, long vector) {
+        long sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void square(long[] square, long[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = times(matrix, matrix[n]);
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package com.example.S3App;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent local copy of downloaded objects, indexed by bucket/key.
+ * Each entry is a data file plus a small .properties sidecar holding the ETag, size and last-modified time,
+ * both named after a SHA-256 of bucket/key and a random version. Every commit writes a new version, so removing
+ * or replacing an entry only ever deletes that entry's own files. Files are written to a temp file in the same
+ * directory and renamed into place, so a reader only ever sees complete files.
+ *
+ * When the total size exceeds the quota, the least recently used entries are deleted. An object larger than the
+ * whole quota is not cached at all. The access time is kept as the data file's modification time, so LRU order
+ * survives a restart.
+ */
+public class DownloadCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DownloadCache.class);
+
+    private static final String DATA_SUFFIX = ".data";
+    private static final String META_SUFFIX = ".meta";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * One cached object. Immutable apart from the access time.
+     */
+    public static final class Entry {
+        private final String id;
+        private final String file; // name of its data and meta files, without the suffix
+        private final String bucket;
+        private final String key;
+        private final String eTag;
+        private final long size;
+        private final long lastModifiedMillis;
+        private final long validatedAtMillis;
+        private volatile long lastAccessMillis;
+
+        Entry(String id, String file, String bucket, String key, String eTag, long size,
+              long lastModifiedMillis, long validatedAtMillis, long lastAccessMillis) {
+            this.id = id;
+            this.file = file;
+            this.bucket = bucket;
+            this.key = key;
+            this.eTag = eTag;
+            this.size = size;
+            this.lastModifiedMillis = lastModifiedMillis;
+            this.validatedAtMillis = validatedAtMillis;
+            this.lastAccessMillis = lastAccessMillis;
+        }
+
+        public String getBucket() {
+            return bucket;
+        }
+        public String getKey() {
+            return key;
+        }
+        public String getETag() {
+            return eTag;
+        }
+        public long getSize() {
+            return size;
+        }
+        public long getLastModifiedMillis() {
+            return lastModifiedMillis;
+        }
+        /**
+         * @return when the content was last confirmed current by S3 (download or 304)
+         */
+        public long getValidatedAtMillis() {
+            return validatedAtMillis;
+        }
+    }
+
+    private final Path directory;
+    private final long maxBytes;
+    private final long freshnessMillis;
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final Object evictionLock = new Object();
+
+    /**
+     * Opens (or creates) a cache directory and loads its index from the sidecar files.
+     * @param directory Where cached files live
+     * @param maxBytes Disk quota; least recently used entries are evicted beyond it
+     * @param freshness How long after validation an entry is served without asking S3; zero always revalidates
+     */
+    public DownloadCache(Path directory, long maxBytes, Duration freshness) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be > 0: " + maxBytes);
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.freshnessMillis = freshness.toMillis();
+        try {
+            Files.createDirectories(directory);
+            load();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open download cache " + directory + ": " + e.getMessage(), e);
+        }
+        LOGGER.info("DownloadCache opened. directory='{}', entries={}, bytes={}, maxBytes={}, freshness={}",
+                directory, index.size(), totalBytes.get(), maxBytes, freshness);
+    }
+
+    /**
+     * @return the entry for bucket/key, or null if not cached. Counts as an access for LRU.
+     */
+    public Entry lookup(String bucket, String key) {
+        Entry entry = index.get(idOf(bucket, key));
+        if (entry != null) {
+            touch(entry);
+        }
+        return entry;
+    }
+
+    /**
+     * @return true if the entry was validated recently enough to skip the request to S3
+     */
+    public boolean isFresh(Entry entry) {
+        return freshnessMillis > 0 && System.currentTimeMillis() - entry.validatedAtMillis < freshnessMillis;
+    }
+
+    /**
+     * @return a new temp file inside the cache directory (same file system, so the final rename is atomic)
+     */
+    public Path newTempFile() throws IOException {
+        return Files.createTempFile(directory, "download-", TEMP_SUFFIX);
+    }
+
+    /**
+     * Streams content into a temp file and commits it as the entry for bucket/key.
+     * @return the entry, or null if content is larger than the quota
+     */
+    public Entry store(String bucket, String key, String eTag, long lastModifiedMillis, InputStream content)
+            throws IOException {
+        Path temp = newTempFile();
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                content.transferTo(out);
+            }
+            return commit(bucket, key, eTag, lastModifiedMillis, temp);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Moves a completely written temp file into place as the entry for bucket/key, replacing any older version.
+     * @return the new entry, or null if the file is larger than the quota: it is then left at temp, and an older
+     * version of bucket/key is dropped
+     */
+    public Entry commit(String bucket, String key, String eTag, long lastModifiedMillis, Path temp) throws IOException {
+        String id = idOf(bucket, key);
+        long size = Files.size(temp);
+        if (size > maxBytes) {
+            LOGGER.debug("Not caching download larger than the quota. bucket={}, key={}, size={}, maxBytes={}",
+                    bucket, key, size, maxBytes);
+            Entry stale = index.get(id);
+            if (stale != null) {
+                remove(stale);
+            }
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        String file = id + "-" + HexFormat.of().toHexDigits(ThreadLocalRandom.current().nextLong());
+        Entry entry = new Entry(id, file, bucket, key, eTag, size, lastModifiedMillis, now, now);
+
+        // Data first, then metadata: a crash in between leaves a data file without metadata, dropped on the next open
+        Files.move(temp, dataFile(entry), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        writeMeta(entry);
+
+        Entry previous = index.put(id, entry);
+        totalBytes.addAndGet(size - (previous == null ? 0 : previous.size));
+        if (previous != null) {
+            deleteFiles(previous);
+        }
+        evictIfNeeded(entry);
+        return entry;
+    }
+
+    /**
+     * Records that S3 confirmed the entry is still current (304 Not Modified).
+     */
+    public Entry markValidated(Entry entry) throws IOException {
+        long now = System.currentTimeMillis();
+        Entry validated = new Entry(entry.id, entry.file, entry.bucket, entry.key, entry.eTag, entry.size,
+                entry.lastModifiedMillis, now, now);
+        writeMeta(validated);
+        index.replace(entry.id, entry, validated);
+        return validated;
+    }
+
+    /**
+     * Copies the cached content to target via a temp file and rename, so target is never partially written.
+     * @return the number of bytes copied
+     * @throws NoSuchFileException if the entry was evicted or replaced in the meantime
+     */
+    public long copyTo(Entry entry, Path target) throws IOException {
+        copyFile(dataFile(entry), target);
+        return entry.size;
+    }
+
+    /**
+     * Copies source to target via a temp file next to target and a rename, so target is never partially written.
+     * @return the number of bytes copied
+     */
+    static long copyFile(Path source, Path target) throws IOException {
+        Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), target.getFileName().toString(), TEMP_SUFFIX);
+        try {
+            Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+            long bytes = Files.size(temp);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return bytes;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Drops an entry, e.g. after its data file turned out to be missing.
+     */
+    public void remove(Entry entry) {
+        if (index.remove(entry.id, entry)) {
+            totalBytes.addAndGet(-entry.size);
+            deleteFiles(entry);
+        }
+    }
+
+    public int getEntryCount() {
+        return index.size();
+    }
+
+    public long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    // The entry just committed is the newest, and is kept even if older ones do not make enough room
+    private void evictIfNeeded(Entry committed) {
+        if (totalBytes.get() <= maxBytes) {
+            return;
+        }
+        synchronized (evictionLock) {
+            if (totalBytes.get() <= maxBytes) {
+                return;
+            }
+            List<Entry> byAge = new ArrayList<>(index.values());
+            byAge.sort(Comparator.comparingLong(e -> e.lastAccessMillis));
+            for (Entry victim : byAge) {
+                if (totalBytes.get() <= maxBytes) {
+                    break;
+                }
+                if (victim == committed) {
+                    continue;
+                }
+                LOGGER.debug("Evicting cached download. bucket={}, key={}, size={}", victim.bucket, victim.key, victim.size);
+                remove(victim);
+            }
+        }
+    }
+
+    private void touch(Entry entry) {
+        long now = System.currentTimeMillis();
+        entry.lastAccessMillis = now;
+        try {
+            Files.setLastModifiedTime(dataFile(entry), FileTime.fromMillis(now));
+        } catch (IOException e) {
+            // Only the persisted LRU order is affected
+            LOGGER.debug("Could not update access time for {}: {}", entry.key, e.getMessage());
+        }
+    }
+
+    private void load() throws IOException {
+        List<Path> dataFiles = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    // Left behind by a crashed write
+                    Files.deleteIfExists(file);
+                } else if (name.endsWith(META_SUFFIX)) {
+                    loadEntry(name.substring(0, name.length() - META_SUFFIX.length()));
+                } else if (name.endsWith(DATA_SUFFIX)) {
+                    dataFiles.add(file);
+                }
+            }
+        }
+        // Data files without metadata, from a crash during a commit
+        Set<Path> indexed = new HashSet<>();
+        for (Entry entry : index.values()) {
+            indexed.add(dataFile(entry));
+        }
+        for (Path data : dataFiles) {
+            if (!indexed.contains(data)) {
+                Files.deleteIfExists(data);
+            }
+        }
+    }
+
+    private void loadEntry(String file) throws IOException {
+        Properties props = new Properties();
+        try (InputStream is = Files.newInputStream(directory.resolve(file + META_SUFFIX))) {
+            props.load(is);
+        }
+        String bucket = props.getProperty("bucket");
+        String key = props.getProperty("key");
+        long size = Long.parseLong(props.getProperty("size", "-1"));
+        Entry entry = new Entry(bucket == null || key == null ? file : idOf(bucket, key), file, bucket, key,
+                props.getProperty("etag"), size, Long.parseLong(props.getProperty("lastModified", "0")),
+                Long.parseLong(props.getProperty("validatedAt", "0")), 0);
+        Path data = dataFile(entry);
+        if (bucket == null || key == null || !Files.exists(data) || Files.size(data) != size) {
+            LOGGER.warn("Dropping inconsistent download cache entry {}", key);
+            deleteFiles(entry);
+            return;
+        }
+        entry.lastAccessMillis = Files.getLastModifiedTime(data).toMillis();
+        // A crash between a commit and the deletion of the version it replaced leaves two; keep the newer one
+        Entry other = index.get(entry.id);
+        if (other != null && other.validatedAtMillis >= entry.validatedAtMillis) {
+            deleteFiles(entry);
+            return;
+        }
+        index.put(entry.id, entry);
+        totalBytes.addAndGet(size - (other == null ? 0 : other.size));
+        if (other != null) {
+            deleteFiles(other);
+        }
+    }
+
+    private void writeMeta(Entry entry) throws IOException {
+        Properties props = new Properties();
+        props.setProperty("bucket", entry.bucket);
+        props.setProperty("key", entry.key);
+        props.setProperty("etag", entry.eTag == null ? "" : entry.eTag);
+        props.setProperty("size", String.valueOf(entry.size));
+        props.setProperty("lastModified", String.valueOf(entry.lastModifiedMillis));
+        props.setProperty("validatedAt", String.valueOf(entry.validatedAtMillis));
+
+        Path temp = newTempFile();
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                props.store(out, null);
+            }
+            Files.move(temp, metaFile(entry), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void deleteFiles(Entry entry) {
+        try {
+            Files.deleteIfExists(metaFile(entry));
+            Files.deleteIfExists(dataFile(entry));
+        } catch (IOException e) {
+            LOGGER.warn("Could not delete cached download {}: {}", entry.key, e.getMessage());
+        }
+    }
+
+    private Path dataFile(Entry entry) {
+        return directory.resolve(entry.file + DATA_SUFFIX);
+    }
+
+    private Path metaFile(Entry entry) {
+        return directory.resolve(entry.file + META_SUFFIX);
+    }
+
+    private static String idOf(String bucket, String key) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha.digest((bucket + "/" + key).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.S3App;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Progress of an interrupted getAsFile, kept next to the partial file so the next attempt only fetches what is missing.
+ * The sidecar is a small .properties file holding the object's ETag and size and the byte ranges already on disk.
+ * It is rewritten (temp file + rename) after each range is forced to disk, so it never claims bytes that were lost.
+ *
+ * Ranges are half-open [start, end) and kept merged, so a download cut short after many parts still has a short list.
+ */
+final class DownloadCheckpoint {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DownloadCheckpoint.class);
+
+    static final String PARTIAL_SUFFIX = ".part";
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path partial;
+    private final Path file;
+    private final String eTag;
+    private final long size;
+    private final TreeMap<Long, Long> completed = new TreeMap<>(); // start -> end
+
+    private DownloadCheckpoint(Path partial, String eTag, long size) {
+        this.partial = partial;
+        this.file = partial.resolveSibling(partial.getFileName() + CHECKPOINT_SUFFIX);
+        this.eTag = eTag;
+        this.size = size;
+    }
+
+    /**
+     * @return where a download to target is written until it is complete
+     */
+    static Path partialFile(Path target) {
+        return target.resolveSibling(target.getFileName() + PARTIAL_SUFFIX);
+    }
+
+    /**
+     * Starts tracking a new download into partial. Nothing is written until the first range completes.
+     */
+    static DownloadCheckpoint create(Path partial, String eTag, long size) {
+        return new DownloadCheckpoint(partial, eTag, size);
+    }
+
+    /**
+     * @return the checkpoint of an earlier attempt, or null if there is none or it does not fit the partial file
+     */
+    static DownloadCheckpoint load(Path partial) {
+        DownloadCheckpoint empty = new DownloadCheckpoint(partial, null, -1);
+        if (!Files.exists(empty.file)) {
+            return null;
+        }
+        try {
+            Properties props = new Properties();
+            try (InputStream is = Files.newInputStream(empty.file)) {
+                props.load(is);
+            }
+            String eTag = props.getProperty("etag", "");
+            DownloadCheckpoint checkpoint = new DownloadCheckpoint(partial,
+                    eTag.isEmpty() ? null : eTag, Long.parseLong(props.getProperty("size", "-1")));
+            String ranges = props.getProperty("ranges", "");
+            for (String range : ranges.isEmpty() ? new String[0] : ranges.split(",")) {
+                int dash = range.indexOf('-');
+                checkpoint.add(Long.parseLong(range.substring(0, dash)), Long.parseLong(range.substring(dash + 1)));
+            }
+            long highest = checkpoint.completed.isEmpty() ? 0 : checkpoint.completed.lastEntry().getValue();
+            if (checkpoint.size < 0 || highest > checkpoint.size
+                    || !Files.exists(partial) || Files.size(partial) < highest) {
+                LOGGER.warn("Dropping download checkpoint that does not match its partial file: {}", empty.file);
+                checkpoint.discard();
+                return null;
+            }
+            return checkpoint;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Dropping unreadable download checkpoint {}: {}", empty.file, e.getMessage());
+            empty.discard();
+            return null;
+        }
+    }
+
+    String getETag() {
+        return eTag;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    /**
+     * @return true if the checkpoint was taken for this version of the object
+     */
+    boolean matches(String eTag, long size) {
+        return this.size == size && this.eTag != null && this.eTag.equals(eTag);
+    }
+
+    synchronized long completedBytes() {
+        long bytes = 0;
+        for (Map.Entry<Long, Long> range : completed.entrySet()) {
+            bytes += range.getValue() - range.getKey();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the end of the range starting at 0, i.e. where a single sequential stream resumes
+     */
+    synchronized long completedPrefix() {
+        Long end = completed.get(0L);
+        return end == null ? 0 : end;
+    }
+
+    /**
+     * @return the completed [start, end) ranges, in order
+     */
+    synchronized List<long[]> completed() {
+        List<long[]> ranges = new ArrayList<>(completed.size());
+        for (Map.Entry<Long, Long> range : completed.entrySet()) {
+            ranges.add(new long[] {range.getKey(), range.getValue()});
+        }
+        return ranges;
+    }
+
+    /**
+     * @return the byte ranges [start, end) still to fetch, in order
+     */
+    synchronized List<long[]> missing() {
+        List<long[]> gaps = new ArrayList<>();
+        long next = 0;
+        for (Map.Entry<Long, Long> range : completed.entrySet()) {
+            if (range.getKey() > next) {
+                gaps.add(new long[] {next, range.getKey()});
+            }
+            next = Math.max(next, range.getValue());
+        }
+        if (next < size) {
+            gaps.add(new long[] {next, size});
+        }
+        return gaps;
+    }
+
+    /**
+     * Records bytes [start, end) as written and persists the checkpoint. The caller forces them to disk first.
+     */
+    synchronized void complete(long start, long end) throws IOException {
+        add(start, end);
+        save();
+    }
+
+    /**
+     * Deletes the sidecar and the partial file, e.g. when the object changed since the earlier attempt.
+     */
+    void discard() {
+        try {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(partial);
+        } catch (IOException e) {
+            LOGGER.warn("Could not delete interrupted download {}: {}", partial, e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes only the sidecar, once the partial file has been renamed into place.
+     */
+    void finish() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private void add(long start, long end) {
+        if (end <= start) {
+            return;
+        }
+        // Absorb the range ending at or after start, and every range starting within [start, end]
+        Map.Entry<Long, Long> before = completed.floorEntry(start);
+        if (before != null && before.getValue() >= start) {
+            start = before.getKey();
+            end = Math.max(end, before.getValue());
+        }
+        Map.Entry<Long, Long> after;
+        while ((after = completed.ceilingEntry(start)) != null && after.getKey() <= end) {
+            end = Math.max(end, after.getValue());
+            completed.remove(after.getKey());
+        }
+        completed.put(start, end);
+    }
+
+    private void save() throws IOException {
+        StringBuilder ranges = new StringBuilder();
+        for (Map.Entry<Long, Long> range : completed.entrySet()) {
+            if (!ranges.isEmpty()) {
+                ranges.append(',');
+            }
+            ranges.append(range.getKey()).append('-').append(range.getValue());
+        }
+        Properties props = new Properties();
+        props.setProperty("etag", eTag == null ? "" : eTag);
+        props.setProperty("size", String.valueOf(size));
+        props.setProperty("ranges", ranges.toString());
+
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), TEMP_SUFFIX);
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                props.store(out, null);
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.S3App;
+
+import java.time.Duration;
+
+/**
+ * Tuning knobs for {@link S3ResourceService#getAsFile(Resource)} and the service's other reads; uploads and bulk
+ * operations have their own {@link UploadSettings} and {@link BulkSettings}.
+ * Objects at or above the threshold are fetched as concurrent ranged GETs,
+ * smaller ones through a single GetObject stream.
+ * A threshold of 0 disables the parallel mode.
+ * Folder downloads run up to {@code folderConcurrency} object downloads at once,
+ * and batch metadata lookups up to {@code lookupConcurrency} HEAD requests.
+ * Setting a cache directory turns on the ETag-validated {@link DownloadCache}.
+ * Response bodies are copied through {@code bufferPoolSize} reusable direct buffers of {@code bufferSize} bytes.
+ * Channels from openChannel read in {@code channelBlockSize} blocks, caching up to {@code channelCacheBlocks}
+ * per channel and reading up to {@code channelReadAheadBlocks} ahead of sequential reads.
+ * Setting a {@link HedgingPolicy} hedges slow metadata lookups and single-stream GETs and retries throttling.
+ * With {@code verifyChecksums} on, downloads are checked against the object's stored checksum or MD5 ETag while
+ * they are written (see {@link ChecksumVerifier}).
+ */
+public class DownloadSettings {
+
+    public static final long DEFAULT_PARALLEL_THRESHOLD = 64L * 1024 * 1024; // 64 MB
+    public static final long DEFAULT_PART_SIZE = 16L * 1024 * 1024;          // 16 MB
+    public static final int DEFAULT_CONCURRENCY = 8;
+    public static final int DEFAULT_FOLDER_CONCURRENCY = 64;
+    public static final int DEFAULT_LOOKUP_CONCURRENCY = 32;
+    public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;                // 256 KB
+    public static final int DEFAULT_BUFFER_POOL_SIZE = 64;
+    public static final long DEFAULT_CACHE_MAX_BYTES = 10L * 1024 * 1024 * 1024; // 10 GB
+    public static final int DEFAULT_CHANNEL_BLOCK_SIZE = 256 * 1024;         // 256 KB
+    public static final int DEFAULT_CHANNEL_CACHE_BLOCKS = 64;
+    public static final int DEFAULT_CHANNEL_READ_AHEAD_BLOCKS = 16;
+
+    private long parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    private long partSize = DEFAULT_PART_SIZE;
+    private int concurrency = DEFAULT_CONCURRENCY;
+    private int folderConcurrency = DEFAULT_FOLDER_CONCURRENCY;
+    private int lookupConcurrency = DEFAULT_LOOKUP_CONCURRENCY;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private int bufferPoolSize = DEFAULT_BUFFER_POOL_SIZE;
+    private String cacheDirectory;
+    private long cacheMaxBytes = DEFAULT_CACHE_MAX_BYTES;
+    private Duration cacheFreshness = Duration.ZERO;
+    private HedgingPolicy hedging;
+    private int channelBlockSize = DEFAULT_CHANNEL_BLOCK_SIZE;
+    private int channelCacheBlocks = DEFAULT_CHANNEL_CACHE_BLOCKS;
+    private int channelReadAheadBlocks = DEFAULT_CHANNEL_READ_AHEAD_BLOCKS;
+    private boolean verifyChecksums = true;
+
+    public long getParallelThreshold() {
+        return parallelThreshold;
+    }
+    public void setParallelThreshold(long parallelThreshold) {
+        if (parallelThreshold < 0) {
+            throw new IllegalArgumentException("parallelThreshold must be >= 0: " + parallelThreshold);
+        }
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public long getPartSize() {
+        return partSize;
+    }
+    public void setPartSize(long partSize) {
+        if (partSize <= 0) {
+            throw new IllegalArgumentException("partSize must be > 0: " + partSize);
+        }
+        this.partSize = partSize;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+    public void setConcurrency(int concurrency) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency must be > 0: " + concurrency);
+        }
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * @return the maximum number of objects downloaded at once by downloadFolder
+     */
+    public int getFolderConcurrency() {
+        return folderConcurrency;
+    }
+    public void setFolderConcurrency(int folderConcurrency) {
+        if (folderConcurrency <= 0) {
+            throw new IllegalArgumentException("folderConcurrency must be > 0: " + folderConcurrency);
+        }
+        this.folderConcurrency = folderConcurrency;
+    }
+
+    /**
+     * @return the maximum number of HEAD requests getResources has in flight at once
+     */
+    public int getLookupConcurrency() {
+        return lookupConcurrency;
+    }
+    public void setLookupConcurrency(int lookupConcurrency) {
+        if (lookupConcurrency <= 0) {
+            throw new IllegalArgumentException("lookupConcurrency must be > 0: " + lookupConcurrency);
+        }
+        this.lookupConcurrency = lookupConcurrency;
+    }
+
+    /**
+     * @return the size of each direct buffer downloads are copied through (bytes per file write)
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+    public void setBufferSize(int bufferSize) {
+        if (bufferSize < 4096) {
+            throw new IllegalArgumentException("bufferSize must be >= 4096: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * @return how many copy buffers are kept for reuse between downloads
+     */
+    public int getBufferPoolSize() {
+        return bufferPoolSize;
+    }
+    public void setBufferPoolSize(int bufferPoolSize) {
+        if (bufferPoolSize <= 0) {
+            throw new IllegalArgumentException("bufferPoolSize must be > 0: " + bufferPoolSize);
+        }
+        this.bufferPoolSize = bufferPoolSize;
+    }
+
+    /**
+     * @return the directory of the local download cache, or null if getAsFile should not cache
+     */
+    public String getCacheDirectory() {
+        return cacheDirectory;
+    }
+    public void setCacheDirectory(String cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    public long getCacheMaxBytes() {
+        return cacheMaxBytes;
+    }
+    public void setCacheMaxBytes(long cacheMaxBytes) {
+        if (cacheMaxBytes <= 0) {
+            throw new IllegalArgumentException("cacheMaxBytes must be > 0: " + cacheMaxBytes);
+        }
+        this.cacheMaxBytes = cacheMaxBytes;
+    }
+
+    /**
+     * @return how long a cached copy is used without asking S3; zero means every download sends a conditional GET
+     */
+    public Duration getCacheFreshness() {
+        return cacheFreshness;
+    }
+    public void setCacheFreshness(Duration cacheFreshness) {
+        if (cacheFreshness == null || cacheFreshness.isNegative()) {
+            throw new IllegalArgumentException("cacheFreshness must be >= 0: " + cacheFreshness);
+        }
+        this.cacheFreshness = cacheFreshness;
+    }
+
+    /**
+     * @return the hedging and throttling-retry policy for getResource and single-stream getAsFile, or null for none
+     */
+    public HedgingPolicy getHedging() {
+        return hedging;
+    }
+    public void setHedging(HedgingPolicy hedging) {
+        this.hedging = hedging;
+    }
+
+    /**
+     * @return the size of each ranged GET block read by openChannel channels
+     */
+    public int getChannelBlockSize() {
+        return channelBlockSize;
+    }
+    public void setChannelBlockSize(int channelBlockSize) {
+        if (channelBlockSize <= 0) {
+            throw new IllegalArgumentException("channelBlockSize must be > 0: " + channelBlockSize);
+        }
+        this.channelBlockSize = channelBlockSize;
+    }
+
+    /**
+     * @return the number of blocks each channel keeps in its LRU cache
+     */
+    public int getChannelCacheBlocks() {
+        return channelCacheBlocks;
+    }
+    public void setChannelCacheBlocks(int channelCacheBlocks) {
+        if (channelCacheBlocks < 2) {
+            throw new IllegalArgumentException("channelCacheBlocks must be >= 2: " + channelCacheBlocks);
+        }
+        this.channelCacheBlocks = channelCacheBlocks;
+    }
+
+    /**
+     * @return the largest read-ahead window of sequential channel reads, in blocks (at most half the cache); 0 for none
+     */
+    public int getChannelReadAheadBlocks() {
+        return channelReadAheadBlocks;
+    }
+    public void setChannelReadAheadBlocks(int channelReadAheadBlocks) {
+        if (channelReadAheadBlocks < 0) {
+            throw new IllegalArgumentException("channelReadAheadBlocks must be >= 0: " + channelReadAheadBlocks);
+        }
+        this.channelReadAheadBlocks = channelReadAheadBlocks;
+    }
+
+    /**
+     * @return whether getAsFile and folder downloads verify what they write against the object's checksum
+     */
+    public boolean isVerifyChecksums() {
+        return verifyChecksums;
+    }
+    public void setVerifyChecksums(boolean verifyChecksums) {
+        this.verifyChecksums = verifyChecksums;
+    }
+
+    /**
+     * @return true if an object of the given size should be downloaded in ranged parts
+     */
+    public boolean useParallel(long objectSize) {
+        return parallelThreshold > 0 && objectSize >= parallelThreshold && objectSize > partSize;
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.S3App;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Uploads local files: one PutObject below the upload threshold, otherwise a multipart upload.
+ * Each part is a read-only memory mapping of its slice of the file, so no part-sized heap buffer is allocated: the
+ * request reads the mapping through an InputStream into the HTTP client's own small buffers, and a retried attempt
+ * simply re-reads it. Parts are uploaded by a fixed set of workers pulling part numbers, and any failure aborts
+ * the upload so no orphaned parts keep accruing storage.
+ * An upload scheduled by a {@link TransferManager} reads its bodies through the transfer's {@link TransferControl}.
+ */
+final class FileUploader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileUploader.class);
+
+    // S3 rejects multipart uploads with more parts than this
+    static final int MAX_PARTS = 10_000;
+
+    private final S3Client s3Client;
+    private final String bucketName;
+    private final UploadSettings settings;
+
+    FileUploader(S3Client s3Client, String bucketName, UploadSettings settings) {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.settings = settings;
+    }
+
+    Resource upload(Path local, String key) {
+        return upload(local, key, TransferControl.NONE);
+    }
+
+    Resource upload(Path local, String key, TransferControl control) {
+        if (local == null || key == null || key.isEmpty() || key.endsWith("/")) {
+            throw new IllegalArgumentException("putFile: local path and a file key are required: " + local + " -> " + key);
+        }
+        long size;
+        try {
+            size = Files.size(local);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read local file " + local + ": " + e.getMessage(), e);
+        }
+
+        long startNanos = System.nanoTime();
+        control.expect(size);
+        String eTag = size >= settings.getThreshold()
+                ? uploadInParts(local, key, size, control)
+                : putObject(local, key, size, control);
+        long elapsedMillis = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+        LOGGER.info("Uploaded S3 object: {} => key={}, bytes={}, elapsedMs={}, MB/s={}",
+                local, key, size, elapsedMillis, String.format("%.1f", size / 1048.576 / elapsedMillis));
+
+        Resource resource = S3Resources.file(key);
+        resource.setSize(size);
+        resource.setETag(eTag);
+        return resource;
+    }
+
+    private String putObject(Path local, String key, long size, TransferControl control) {
+        try {
+            RequestBody body = control == TransferControl.NONE
+                    ? RequestBody.fromFile(local)
+                    : RequestBody.fromContentProvider(() -> control.wrap(openFile(local)), size, contentTypeOf(local));
+            PutObjectResponse response = s3Client.putObject(PutObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .build(), body);
+            return response.eTag();
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.error("Error reading file to upload. file={}, key={}, msg={}", local, key, e.getMessage());
+            throw new RuntimeException("Failed to upload S3 object: " + key + ": " + e.getMessage(), e);
+        } catch (SdkException e) {
+            LOGGER.error("Error uploading object. key={}, msg={}", key, e.getMessage());
+            throw new RuntimeException("Failed to upload S3 object: " + key + ": " + e.getMessage(), e);
+        }
+    }
+
+    private String uploadInParts(Path local, String key, long size, TransferControl control) {
+        // Grow the parts rather than exceed S3's part count limit
+        long partSize = Math.max(settings.getPartSize(), (size + MAX_PARTS - 1) / MAX_PARTS);
+        int partCount = (int) ((size + partSize - 1) / partSize);
+        int workers = Math.min(settings.getConcurrency(), partCount);
+
+        String uploadId;
+        try {
+            uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .build()).uploadId();
+        } catch (SdkException e) {
+            LOGGER.error("Error starting multipart upload. key={}, msg={}", key, e.getMessage());
+            throw new RuntimeException("Failed to upload S3 object: " + key + ": " + e.getMessage(), e);
+        }
+        LOGGER.debug("Multipart upload. key={}, size={}, parts={}, workers={}, uploadId={}",
+                key, size, partCount, workers, uploadId);
+
+        CompletedPart[] completed = new CompletedPart[partCount];
+        AtomicInteger nextPart = new AtomicInteger();
+        AtomicBoolean failed = new AtomicBoolean();
+        try (FileChannel channel = FileChannel.open(local, StandardOpenOption.READ)) {
+            List<Future<Void>> futures = new ArrayList<>(workers);
+            try (ExecutorService pool = Executors.newFixedThreadPool(workers)) {
+                for (int i = 0; i < workers; i++) {
+                    futures.add(pool.submit(() -> {
+                        int part;
+                        while (!failed.get() && (part = nextPart.getAndIncrement()) < partCount) {
+                            long start = part * partSize;
+                            long length = Math.min(partSize, size - start);
+                            try {
+                                completed[part] = uploadPart(key, uploadId, part + 1,
+                                        channel.map(FileChannel.MapMode.READ_ONLY, start, length), control);
+                            } catch (IOException | RuntimeException e) {
+                                failed.set(true);
+                                throw e;
+                            }
+                        }
+                        return null;
+                    }));
+                }
+            }
+            for (Future<Void> future : futures) {
+                awaitPart(future);
+            }
+
+            CompleteMultipartUploadResponse response = s3Client.completeMultipartUpload(
+                    CompleteMultipartUploadRequest.builder()
+                            .bucket(bucketName)
+                            .key(key)
+                            .uploadId(uploadId)
+                            .multipartUpload(CompletedMultipartUpload.builder().parts(Arrays.asList(completed)).build())
+                            .build());
+            return response.eTag();
+
+        } catch (IOException | RuntimeException e) {
+            abort(key, uploadId);
+            LOGGER.error("Error uploading object in parts. key={}, msg={}", key, e.getMessage());
+            throw new RuntimeException("Failed to upload S3 object: " + key + ": " + e.getMessage(), e);
+        }
+    }
+
+    private CompletedPart uploadPart(String key, String uploadId, int partNumber, MappedByteBuffer data,
+                                     TransferControl control) {
+        int length = data.remaining();
+        UploadPartResponse response = s3Client.uploadPart(UploadPartRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .uploadId(uploadId)
+                .partNumber(partNumber)
+                .contentLength((long) length)
+                .build(), RequestBody.fromContentProvider(() -> control.wrap(new ByteBufferInputStream(data.duplicate())),
+                length, "application/octet-stream"));
+        return CompletedPart.builder().partNumber(partNumber).eTag(response.eTag()).build();
+    }
+
+    private static InputStream openFile(Path local) {
+        try {
+            return Files.newInputStream(local);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // What RequestBody.fromFile would have guessed from the name, roughly
+    private static String contentTypeOf(Path local) throws IOException {
+        String contentType = Files.probeContentType(local);
+        return contentType != null ? contentType : "application/octet-stream";
+    }
+
+    private void abort(String key, String uploadId) {
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build());
+        } catch (SdkException e) {
+            // Left for a bucket lifecycle rule to clean up
+            LOGGER.warn("Could not abort multipart upload. key={}, uploadId={}, msg={}", key, uploadId, e.getMessage());
+        }
+    }
+
+    private static void awaitPart(Future<Void> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for upload parts", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Reads a buffer without copying it to the heap first.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
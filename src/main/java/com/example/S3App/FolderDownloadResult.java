@@ -0,0 +1,42 @@
+package com.example.S3App;
+
+import java.util.Map;
+
+/**
+ * Summary of a {@link S3ResourceServiceInterface#downloadFolder} run.
+ * failures maps each S3 key (or the listed prefix) that could not be downloaded to its error message.
+ */
+public class FolderDownloadResult {
+    private long objectCount;
+    private long bytes;
+    private long elapsedMillis;
+    private Map<String, String> failures;
+
+    public long getObjectCount() {
+        return objectCount;
+    }
+    public void setObjectCount(long objectCount) {
+        this.objectCount = objectCount;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+    public void setBytes(long bytes) {
+        this.bytes = bytes;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public Map<String, String> getFailures() {
+        return failures;
+    }
+    public void setFailures(Map<String, String> failures) {
+        this.failures = failures;
+    }
+}
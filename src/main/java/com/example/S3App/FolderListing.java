@@ -0,0 +1,165 @@
+package com.example.S3App;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazy, page-at-a-time stream over {@link S3ResourceServiceInterface#listFolder(Resource, String, int)}.
+ * As soon as a page arrives, the request for the following page is started in the background, so the
+ * consumer works on page N while page N+1 is on the wire. At most one page is held plus one in flight.
+ *
+ * {@link #walk} lists a whole subtree the same way, one folder level at a time, for services that only
+ * implement listFolder.
+ */
+final class FolderListing {
+
+    // Page fetches are short blocking calls; daemon threads so an abandoned stream never keeps the JVM alive
+    static final ExecutorService PAGE_FETCHER = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "s3-listing-prefetch");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private FolderListing() {
+    }
+
+    static Stream<Resource> stream(S3ResourceServiceInterface service, Resource parent, int maxKeys) {
+        PrefetchingSpliterator spliterator = new PrefetchingSpliterator(service, parent, maxKeys);
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+    }
+
+    /**
+     * Streams every object below folder, at any depth, in key order, by walking listFolder depth-first.
+     * Each level's page is sorted, since a page lists its subfolders before its files; a subfolder's keys all
+     * share its prefix, so descending into it at its place in that order keeps the whole walk in key order.
+     * Folder placeholder objects are not reported: listFolder returns a folder whether or not one exists.
+     */
+    static Stream<Resource> walk(S3ResourceServiceInterface service, Resource folder) {
+        return StreamSupport.stream(new WalkingSpliterator(service, folder), false);
+    }
+
+    private static final class WalkingSpliterator extends Spliterators.AbstractSpliterator<Resource> {
+        private final S3ResourceServiceInterface service;
+        // The folders being listed, innermost first
+        private final Deque<Level> levels = new ArrayDeque<>();
+
+        WalkingSpliterator(S3ResourceServiceInterface service, Resource folder) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.service = service;
+            levels.push(new Level(folder));
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Resource> action) {
+            while (!levels.isEmpty()) {
+                Level level = levels.peek();
+                if (level.page == null || !level.page.hasNext()) {
+                    if (level.page != null && level.cursor == null) {
+                        levels.pop();
+                        continue;
+                    }
+                    ListResult<Resource> page = service.listFolder(level.folder, level.cursor, 0);
+                    List<Resource> entries = new ArrayList<>(page.getResources());
+                    entries.sort(Comparator.comparing(FolderListing::sortKey, ParallelLister::compareKeys));
+                    level.page = entries.iterator();
+                    level.cursor = page.getCursor();
+                    continue;
+                }
+                Resource entry = level.page.next();
+                if (entry.getType() == 1) {
+                    levels.push(new Level(entry));
+                } else {
+                    action.accept(entry);
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class Level {
+        final Resource folder;
+        String cursor;
+        Iterator<Resource> page; // null until the first page is listed
+
+        Level(Resource folder) {
+            this.folder = folder;
+        }
+    }
+
+    private static String sortKey(Resource entry) {
+        return entry.getType() == 1 ? S3Resources.ensureTrailingSlash(entry.getId()) : entry.getId();
+    }
+
+    private static final class PrefetchingSpliterator extends Spliterators.AbstractSpliterator<Resource> {
+        private final S3ResourceServiceInterface service;
+        private final Resource parent;
+        private final int maxKeys;
+
+        private Iterator<Resource> current;
+        private CompletableFuture<ListResult<Resource>> next;
+        private boolean started;
+
+        PrefetchingSpliterator(S3ResourceServiceInterface service, Resource parent, int maxKeys) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.service = service;
+            this.parent = parent;
+            this.maxKeys = maxKeys;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Resource> action) {
+            if (!started) {
+                // Nothing is requested until the stream is actually consumed
+                started = true;
+                next = fetch(null);
+            }
+            while (current == null || !current.hasNext()) {
+                if (next == null) {
+                    return false;
+                }
+                ListResult<Resource> page = await(next);
+                // Start the following page before handing out this one
+                next = page.getCursor() == null ? null : fetch(page.getCursor());
+                current = page.getResources().iterator();
+            }
+            action.accept(current.next());
+            return true;
+        }
+
+        void close() {
+            if (next != null) {
+                next.cancel(false);
+            }
+        }
+
+        private CompletableFuture<ListResult<Resource>> fetch(String cursor) {
+            return CompletableFuture.supplyAsync(() -> service.listFolder(parent, cursor, maxKeys), PAGE_FETCHER);
+        }
+
+        private static ListResult<Resource> await(CompletableFuture<ListResult<Resource>> future) {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                // Surface the service's own RuntimeException, as a direct listFolder call would
+                if (e.getCause() instanceof RuntimeException re) {
+                    throw re;
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.S3App;
+
+import java.util.Map;
+
+/**
+ * Outcome of {@link S3ResourceServiceInterface#computeStats}: object count and total bytes of everything below
+ * a prefix (at any depth), a size histogram, and the same figures for each child prefix down to the requested depth.
+ *
+ * sizeHistogram has 64 buckets: bucket 0 counts empty objects, bucket k counts sizes in [2^(k-1), 2^k).
+ * children maps each child prefix (e.g. "logs/2024/") to its stats; it is empty below the requested depth.
+ * Folder placeholder objects are not counted.
+ */
+public class FolderStats {
+    public static final int HISTOGRAM_BUCKETS = 64;
+
+    private String prefix;
+    private long objectCount;
+    private long totalBytes;
+    private long[] sizeHistogram;
+    private Map<String, FolderStats> children;
+
+    /**
+     * @return the histogram bucket of an object size
+     */
+    public static int bucketOf(long size) {
+        return size <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(size);
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+    public void setPrefix(String prefix) {
+        this.prefix = prefix;
+    }
+
+    public long getObjectCount() {
+        return objectCount;
+    }
+    public void setObjectCount(long objectCount) {
+        this.objectCount = objectCount;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+    public void setTotalBytes(long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+
+    public long[] getSizeHistogram() {
+        return sizeHistogram;
+    }
+    public void setSizeHistogram(long[] sizeHistogram) {
+        this.sizeHistogram = sizeHistogram;
+    }
+
+    public Map<String, FolderStats> getChildren() {
+        return children;
+    }
+    public void setChildren(Map<String, FolderStats> children) {
+        this.children = children;
+    }
+
+    @Override
+    public String toString() {
+        return "FolderStats{prefix=" + prefix + ", objects=" + objectCount + ", bytes=" + totalBytes
+                + ", children=" + (children == null ? 0 : children.size()) + "}";
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.S3App;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Backs {@link S3ResourceServiceInterface#computeStats}: walks a prefix with delimiter listings and aggregates
+ * every sub-prefix as its own fork-join task, so hundreds of top-level prefixes are crawled in parallel and idle
+ * workers steal the sub-prefixes of large ones. Pages are read as {@link KeyBlock}s and folded into primitive
+ * counters right away; no Resource is kept, and stats objects exist only for prefixes within the reported depth.
+ */
+final class FolderStatsCollector {
+
+    static final int PARALLELISM = ParallelLister.DEFAULT_PARALLELISM;
+    private static final int PAGE_SIZE = 1000;
+
+    // Listing calls block; platform daemon workers (a pinned carrier is not a concern here)
+    private static final ForkJoinPool POOL = new ForkJoinPool(PARALLELISM, pool -> {
+        var worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        worker.setName("s3-folder-stats-" + worker.getPoolIndex());
+        worker.setDaemon(true);
+        return worker;
+    }, null, false);
+
+    private final S3ResourceServiceInterface service;
+    private volatile boolean failed;
+
+    private FolderStatsCollector(S3ResourceServiceInterface service) {
+        this.service = service;
+    }
+
+    static FolderStats collect(S3ResourceServiceInterface service, Resource folder, int depth) {
+        if (folder != null && folder.getType() != 1) {
+            throw new IllegalArgumentException("computeStats: not a folder: " + folder.getId());
+        }
+        if (depth < 0) {
+            throw new IllegalArgumentException("computeStats: depth must be >= 0: " + depth);
+        }
+        FolderStatsCollector collector = new FolderStatsCollector(service);
+        String prefix = S3Resources.prefixOf(folder);
+        Totals totals;
+        try {
+            totals = POOL.invoke(collector.new PrefixTask(prefix, depth));
+        } catch (RuntimeException e) {
+            // A task failing on another worker is rethrown as a new exception of the same type around the original
+            Throwable cause = e.getCause();
+            throw cause != null && cause.getClass() == e.getClass() ? (RuntimeException) cause : e;
+        }
+        return totals.toStats(prefix);
+    }
+
+    /**
+     * Primitive accumulators for one prefix, plus the stats of its children when they are reported.
+     */
+    private static final class Totals {
+        long objectCount;
+        long totalBytes;
+        final long[] histogram = new long[FolderStats.HISTOGRAM_BUCKETS];
+        Map<String, FolderStats> children; // null below the reported depth
+
+        void add(Totals other) {
+            objectCount += other.objectCount;
+            totalBytes += other.totalBytes;
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] += other.histogram[i];
+            }
+        }
+
+        FolderStats toStats(String prefix) {
+            FolderStats stats = new FolderStats();
+            stats.setPrefix(prefix);
+            stats.setObjectCount(objectCount);
+            stats.setTotalBytes(totalBytes);
+            stats.setSizeHistogram(histogram);
+            stats.setChildren(children == null ? Map.of() : children);
+            return stats;
+        }
+    }
+
+    private final class PrefixTask extends RecursiveTask<Totals> {
+        private static final long serialVersionUID = 1L;
+
+        private final String prefix;
+        private final int depth; // levels of children still to report
+
+        PrefixTask(String prefix, int depth) {
+            this.prefix = prefix;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Totals compute() {
+            Totals totals = new Totals();
+            List<PrefixTask> subtasks = new ArrayList<>();
+            Resource folder = prefix.isEmpty() ? null : S3Resources.folder(prefix);
+            String cursor = null;
+            try {
+                do {
+                    if (failed) {
+                        return totals; // Another prefix failed; its exception is what the caller gets
+                    }
+                    KeyBlock page = service.listFolderCompact(folder, cursor, PAGE_SIZE);
+                    for (int i = 0; i < page.count(); i++) {
+                        if (page.isFolder(i)) {
+                            // Start each sub-prefix as soon as it is seen, while this prefix keeps paging
+                            PrefixTask subtask = new PrefixTask(page.key(i), depth - 1);
+                            subtask.fork();
+                            subtasks.add(subtask);
+                        } else {
+                            long size = page.objectSize(i);
+                            totals.objectCount++;
+                            totals.totalBytes += size;
+                            totals.histogram[FolderStats.bucketOf(size)]++;
+                        }
+                    }
+                    cursor = page.getCursor();
+                } while (cursor != null);
+            } catch (RuntimeException e) {
+                failed = true;
+                throw e;
+            }
+
+            if (depth > 0) {
+                totals.children = new TreeMap<>();
+            }
+            for (PrefixTask subtask : subtasks) {
+                Totals child = subtask.join();
+                totals.add(child);
+                if (depth > 0) {
+                    totals.children.put(subtask.prefix, child.toStats(subtask.prefix));
+                }
+            }
+            return totals;
+        }
+    }
+}
@@ -0,0 +1,489 @@
+package com.example.S3App;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Backs {@link S3ResourceServiceInterface#syncFolder}: brings a local directory up to date with an S3 prefix,
+ * transferring only new or changed objects.
+ *
+ * The ordered recursive listing, a walk of the local tree and the manifest of the previous run are all read in
+ * S3 key order and merged in one pass, so memory is bounded by the listing buffers and the widest local directory,
+ * not by the number of keys. For each key:
+ *   - only in S3: downloaded
+ *   - in both: kept if the manifest says the local file (same size and mtime as when it was synced) holds the
+ *     object's current ETag, or if its size and mtime match the listed object; downloaded otherwise
+ *   - only local: deleted when orphans are to be deleted (directories are left in place)
+ *
+ * Downloads go to a temp file next to the target, get the object's last-modified time as mtime and are renamed
+ * into place, so an interrupted run leaves either the old or the new file. The manifest is written during the merge
+ * and replaces the previous one only when the listing completed; a record written for a download that then failed
+ * does not match the local file on the next run, so that object is simply fetched again.
+ */
+final class FolderSync {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FolderSync.class);
+
+    static final String MANIFEST_NAME = ".s3sync-manifest";
+    // Temp files (downloads in progress, the new manifest) are never taken for local copies of a key
+    static final String TEMP_SUFFIX = ".s3sync-tmp";
+    private static final int MANIFEST_MAGIC = 0x53334d31; // "S3M1"
+
+    /**
+     * Downloads one object to the given path.
+     */
+    interface Downloader {
+        /**
+         * @return the number of bytes written
+         */
+        long download(String key, Path outputPath, long size, String eTag);
+    }
+
+    private final ParallelLister lister;
+    private final Downloader downloader;
+    private final String bucketName;
+    private final Semaphore permits;
+
+    /**
+     * @param lister Lists the prefix in key order
+     * @param downloader Fetches one object (single stream; the sync's own fan-out fills the connections)
+     * @param bucketName The bucket, recorded in the manifest
+     * @param permits Bounds the downloads in flight, shared with downloadFolder
+     */
+    FolderSync(ParallelLister lister, Downloader downloader, String bucketName, Semaphore permits) {
+        this.lister = lister;
+        this.downloader = downloader;
+        this.bucketName = bucketName;
+        this.permits = permits;
+    }
+
+    SyncResult sync(Resource folder, Path target, boolean deleteOrphans) {
+        if (folder != null && folder.getType() != 1) {
+            throw new IllegalArgumentException("syncFolder: not a folder: " + folder.getId());
+        }
+        if (target == null) {
+            throw new IllegalArgumentException("syncFolder: target directory is null");
+        }
+
+        String prefix = S3Resources.prefixOf(folder);
+        Path root = target.toAbsolutePath().normalize();
+        LOGGER.info("Syncing S3 folder. bucket={}, prefix={}, target={}, deleteOrphans={}",
+                bucketName, prefix, root, deleteOrphans);
+
+        long startNanos = System.nanoTime();
+        Run run = new Run(prefix, root, deleteOrphans);
+        Path manifest = root.resolve(MANIFEST_NAME);
+        Path newManifest = null;
+        boolean complete = false;
+
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            try {
+                Files.createDirectories(root);
+                newManifest = Files.createTempFile(root, MANIFEST_NAME, TEMP_SUFFIX);
+                try (Stream<S3Object> listing = lister.listObjects(folder, true);
+                     ManifestReader previous = ManifestReader.open(manifest, bucketName, prefix);
+                     ManifestWriter next = new ManifestWriter(newManifest, bucketName, prefix)) {
+                    run.merge(listing.iterator(), new LocalTree(root), previous, next, pool);
+                }
+                complete = true;
+            } catch (IOException | RuntimeException e) {
+                // Stop comparing: without the rest of the listing nothing more can be told apart from an orphan
+                LOGGER.error("Error syncing folder. bucket={}, prefix={}, message={}", bucketName, prefix, e.getMessage());
+                run.failures.put(prefix, "Sync stopped: " + e.getMessage());
+            }
+        } // Waits for the downloads still running
+
+        replaceManifest(newManifest, manifest, complete, run.failures);
+
+        SyncResult result = new SyncResult();
+        result.setDownloadedCount(run.downloaded.get());
+        result.setBytes(run.bytes.get());
+        result.setUnchangedCount(run.unchanged);
+        result.setDeletedCount(run.deleted);
+        result.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        result.setFailures(new TreeMap<>(run.failures));
+
+        LOGGER.info("Synced S3 folder. prefix={}, downloaded={}, bytes={}, unchanged={}, deleted={}, elapsedMs={}, failures={}",
+                prefix, result.getDownloadedCount(), result.getBytes(), result.getUnchangedCount(),
+                result.getDeletedCount(), result.getElapsedMillis(), run.failures.size());
+        return result;
+    }
+
+    private static void replaceManifest(Path newManifest, Path manifest, boolean complete, Map<String, String> failures) {
+        if (newManifest == null) {
+            return;
+        }
+        try {
+            if (complete) {
+                Files.move(newManifest, manifest, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.deleteIfExists(newManifest);
+            }
+        } catch (IOException e) {
+            // Only costs the next run some comparisons by size and mtime
+            failures.put(MANIFEST_NAME, "I/O error while saving the sync manifest: " + e.getMessage());
+        }
+    }
+
+    /**
+     * State of one sync call. The counters the merge thread alone updates are plain fields.
+     */
+    private final class Run {
+        final String prefix;
+        final Path root;
+        final boolean deleteOrphans;
+        final AtomicLong downloaded = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+        final Map<String, String> failures = new ConcurrentHashMap<>();
+        long unchanged;
+        long deleted;
+
+        Run(String prefix, Path root, boolean deleteOrphans) {
+            this.prefix = prefix;
+            this.root = root;
+            this.deleteOrphans = deleteOrphans;
+        }
+
+        void merge(Iterator<S3Object> remote, LocalTree local, ManifestReader previous, ManifestWriter next,
+                   ExecutorService pool) throws IOException {
+            S3Object obj = remote.hasNext() ? remote.next() : null;
+            LocalFile file = local.next();
+            String lastKey = null;
+
+            while (obj != null || file != null) {
+                if (file != null && lastKey != null && ParallelLister.compareKeys(file.key(), lastKey) <= 0) {
+                    // Downloaded by this run into a directory the walk had not read yet
+                    file = local.next();
+                    continue;
+                }
+                String key = obj == null ? null : obj.key().substring(prefix.length());
+                int cmp = obj == null ? 1 : file == null ? -1 : ParallelLister.compareKeys(key, file.key());
+                if (cmp > 0) {
+                    if (deleteOrphans) {
+                        deleteOrphan(file);
+                    }
+                    file = local.next();
+                    continue;
+                }
+
+                lastKey = key;
+                LocalFile existing = null;
+                if (cmp == 0) {
+                    existing = file;
+                    file = local.next();
+                }
+                syncObject(obj, key, existing, previous, next, pool);
+                obj = remote.hasNext() ? remote.next() : null;
+            }
+        }
+
+        private void syncObject(S3Object obj, String key, LocalFile existing, ManifestReader previous,
+                                ManifestWriter next, ExecutorService pool) throws IOException {
+            Path outputPath = root.resolve(key).normalize();
+            if (key.isEmpty() || key.endsWith("/")) {
+                // Folder placeholder: keep the (possibly empty) directory, nothing to download
+                if (outputPath.startsWith(root)) {
+                    createDirectory(outputPath, obj.key());
+                }
+                return;
+            }
+            if (!outputPath.startsWith(root) || !keyOf(outputPath).equals(key)) {
+                // Escapes the target, or ".."/"//" segments would make it collide with another key's file
+                failures.put(obj.key(), "Key does not map to its own path below the target directory");
+                return;
+            }
+            if (key.equals(MANIFEST_NAME) || key.endsWith(TEMP_SUFFIX)) {
+                failures.put(obj.key(), "Key collides with a file name reserved for syncing");
+                return;
+            }
+
+            long size = obj.size() == null ? 0 : obj.size();
+            String eTag = obj.eTag();
+            long lastModified = obj.lastModified() == null ? 0 : obj.lastModified().toEpochMilli();
+            ManifestRecord synced = previous.find(key);
+
+            if (existing != null && isCurrent(existing, synced, size, eTag, lastModified)) {
+                unchanged++;
+                next.write(key, size, eTag, existing.mtime());
+                return;
+            }
+
+            // What the download leaves behind; if it fails, the local file won't match this record
+            next.write(key, size, eTag, lastModified);
+            // Blocks the merge once the permits are taken, so pending downloads stay bounded
+            permits.acquireUninterruptibly();
+            pool.submit(() -> {
+                try {
+                    bytes.addAndGet(fetch(obj.key(), outputPath, size, eTag, lastModified));
+                    downloaded.incrementAndGet();
+                } catch (RuntimeException e) {
+                    failures.put(obj.key(), e.getMessage());
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+
+        private void deleteOrphan(LocalFile file) {
+            try {
+                if (Files.deleteIfExists(file.path())) {
+                    deleted++;
+                    LOGGER.debug("Deleted local orphan. path={}", file.path());
+                }
+            } catch (IOException e) {
+                failures.put(prefix + file.key(), "I/O error while deleting local orphan: " + e.getMessage());
+            }
+        }
+
+        private void createDirectory(Path dir, String key) {
+            try {
+                Files.createDirectories(dir);
+            } catch (IOException e) {
+                failures.put(key, "I/O error while creating directory: " + e.getMessage());
+            }
+        }
+
+        private String keyOf(Path path) {
+            StringBuilder key = new StringBuilder();
+            for (Path name : root.relativize(path)) {
+                if (!key.isEmpty()) {
+                    key.append('/');
+                }
+                key.append(name);
+            }
+            return key.toString();
+        }
+    }
+
+    private static boolean isCurrent(LocalFile local, ManifestRecord synced, long size, String eTag, long lastModified) {
+        if (synced != null && synced.size() == size && Objects.equals(synced.eTag(), eTag)
+                && local.size() == size && local.mtime() == synced.localMtime()) {
+            // Unchanged since the last run, which fetched this very object version
+            return true;
+        }
+        return local.size() == size && local.mtime() == lastModified;
+    }
+
+    private long fetch(String key, Path outputPath, long size, String eTag, long lastModified) {
+        Path temp = null;
+        try {
+            Files.createDirectories(outputPath.getParent());
+            temp = Files.createTempFile(outputPath.getParent(), ".", TEMP_SUFFIX);
+            long written = downloader.download(key, temp, size, eTag);
+            Files.setLastModifiedTime(temp, FileTime.fromMillis(lastModified));
+            Files.move(temp, outputPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            LOGGER.debug("Synced S3 object: key={}, bytes={} => {}", key, written, outputPath);
+            return written;
+        } catch (IOException e) {
+            throw new RuntimeException("I/O error while saving synced file: " + e.getMessage(), e);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    LOGGER.warn("Could not delete temp file {}: {}", temp, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * A regular file below the target; key is its path relative to the target with "/" separators.
+     */
+    private record LocalFile(String key, Path path, long size, long mtime) {
+    }
+
+    /**
+     * A manifest entry: the object version (size, ETag) the last run left locally, and the mtime of that file.
+     */
+    private record ManifestRecord(String key, long size, String eTag, long localMtime) {
+    }
+
+    /**
+     * Walks the files below a directory in S3 key order: each directory's entries are sorted with subdirectories
+     * named "name/", and a subdirectory is read only when the walk reaches it. Holds one listing per open level.
+     */
+    private static final class LocalTree {
+        private final Deque<Iterator<Entry>> levels = new ArrayDeque<>();
+
+        private record Entry(String key, Path path, BasicFileAttributes attributes) {
+        }
+
+        LocalTree(Path root) throws IOException {
+            levels.push(read(root, ""));
+        }
+
+        /**
+         * @return the next file, or null when the walk is done
+         */
+        LocalFile next() throws IOException {
+            while (!levels.isEmpty()) {
+                Iterator<Entry> level = levels.peek();
+                if (!level.hasNext()) {
+                    levels.pop();
+                    continue;
+                }
+                Entry entry = level.next();
+                if (entry.attributes().isDirectory()) {
+                    levels.push(read(entry.path(), entry.key()));
+                } else {
+                    return new LocalFile(entry.key(), entry.path(), entry.attributes().size(),
+                            entry.attributes().lastModifiedTime().toMillis());
+                }
+            }
+            return null;
+        }
+
+        private static Iterator<Entry> read(Path dir, String dirKey) throws IOException {
+            List<Entry> entries = new ArrayList<>();
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(dir)) {
+                for (Path child : children) {
+                    String name = child.getFileName().toString();
+                    if (name.endsWith(TEMP_SUFFIX) || (dirKey.isEmpty() && name.equals(MANIFEST_NAME))) {
+                        continue;
+                    }
+                    BasicFileAttributes attributes;
+                    try {
+                        attributes = Files.readAttributes(child, BasicFileAttributes.class);
+                    } catch (NoSuchFileException gone) {
+                        continue;
+                    }
+                    if (attributes.isDirectory()) {
+                        entries.add(new Entry(dirKey + name + "/", child, attributes));
+                    } else if (attributes.isRegularFile()) {
+                        entries.add(new Entry(dirKey + name, child, attributes));
+                    }
+                }
+            } catch (NoSuchFileException gone) {
+                return List.<Entry>of().iterator();
+            }
+            entries.sort((a, b) -> ParallelLister.compareKeys(a.key(), b.key()));
+            return entries.iterator();
+        }
+    }
+
+    /**
+     * Reads the previous run's manifest forward, in step with the merge. A missing, foreign (other bucket or prefix)
+     * or truncated manifest just yields fewer records.
+     */
+    private static final class ManifestReader implements AutoCloseable {
+        private final DataInputStream in;
+        private ManifestRecord current;
+
+        private ManifestReader(DataInputStream in) throws IOException {
+            this.in = in;
+            this.current = read();
+        }
+
+        static ManifestReader open(Path manifest, String bucket, String prefix) throws IOException {
+            if (!Files.exists(manifest)) {
+                return new ManifestReader(null);
+            }
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(manifest)));
+            try {
+                if (in.readInt() == MANIFEST_MAGIC && in.readUTF().equals(bucket) && in.readUTF().equals(prefix)) {
+                    return new ManifestReader(in);
+                }
+                LOGGER.warn("Ignoring sync manifest of another bucket or prefix: {}", manifest);
+            } catch (EOFException e) {
+                LOGGER.warn("Ignoring truncated sync manifest: {}", manifest);
+            }
+            in.close();
+            return new ManifestReader(null);
+        }
+
+        /**
+         * @return the record for key, or null; keys must be asked for in increasing order
+         */
+        ManifestRecord find(String key) throws IOException {
+            while (current != null && ParallelLister.compareKeys(current.key(), key) < 0) {
+                current = read();
+            }
+            return current != null && current.key().equals(key) ? current : null;
+        }
+
+        private ManifestRecord read() throws IOException {
+            if (in == null) {
+                return null;
+            }
+            try {
+                if (!in.readBoolean()) {
+                    return null;
+                }
+                String key = in.readUTF();
+                long size = in.readLong();
+                String eTag = in.readUTF();
+                return new ManifestRecord(key, size, eTag.isEmpty() ? null : eTag, in.readLong());
+            } catch (EOFException e) {
+                LOGGER.warn("Sync manifest ends early; remaining keys are compared by size and mtime");
+                return null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (in != null) {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * Writes the new manifest, one record per key in merge (key) order.
+     */
+    private static final class ManifestWriter implements AutoCloseable {
+        private final DataOutputStream out;
+
+        ManifestWriter(Path file, String bucket, String prefix) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+            out.writeInt(MANIFEST_MAGIC);
+            out.writeUTF(bucket);
+            out.writeUTF(prefix);
+        }
+
+        void write(String key, long size, String eTag, long localMtime) throws IOException {
+            out.writeBoolean(true);
+            out.writeUTF(key);
+            out.writeLong(size);
+            out.writeUTF(eTag == null ? "" : eTag);
+            out.writeLong(localMtime);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (out) {
+                out.writeBoolean(false);
+            }
+        }
+    }
+}
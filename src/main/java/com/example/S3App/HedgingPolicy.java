@@ -0,0 +1,141 @@
+package com.example.S3App;
+
+import java.time.Duration;
+
+/**
+ * Tail-latency settings for idempotent reads (the HEAD of getResource and the single-stream GET of getAsFile),
+ * enabled through {@link DownloadSettings#setHedging(HedgingPolicy)}.
+ *
+ * A request that has not answered after the {@code hedgeQuantile} of recent latencies (clamped to
+ * [minHedgeDelay, maxHedgeDelay]) gets one duplicate; whichever answers first is used and the other is discarded.
+ * Duplicates are capped at {@code hedgeBudget} of all requests, so a slow backend is never hit with twice the load.
+ * Throttling responses (503 SlowDown) are retried up to {@code maxThrottleRetries} times with exponential,
+ * jittered backoff that grows while throttling keeps coming back; no duplicates are sent during that time. The same
+ * loop retries 5xx and I/O errors, since hedged requests go out with the SDK's own retries turned off.
+ * Attempts run on at most {@code maxConcurrentAttempts} threads per request kind; beyond that a request runs on
+ * the caller's thread without a duplicate.
+ */
+public class HedgingPolicy {
+
+    public static final double DEFAULT_HEDGE_QUANTILE = 0.95;
+    public static final double DEFAULT_HEDGE_BUDGET = 0.05;
+    public static final Duration DEFAULT_MIN_HEDGE_DELAY = Duration.ofMillis(5);
+    public static final Duration DEFAULT_MAX_HEDGE_DELAY = Duration.ofSeconds(2);
+    public static final int DEFAULT_MIN_SAMPLES = 20;
+    public static final int DEFAULT_MAX_THROTTLE_RETRIES = 3;
+    public static final Duration DEFAULT_BASE_BACKOFF = Duration.ofMillis(50);
+    public static final Duration DEFAULT_MAX_BACKOFF = Duration.ofSeconds(5);
+    public static final int DEFAULT_MAX_CONCURRENT_ATTEMPTS = 64;
+
+    private double hedgeQuantile = DEFAULT_HEDGE_QUANTILE;
+    private double hedgeBudget = DEFAULT_HEDGE_BUDGET;
+    private Duration minHedgeDelay = DEFAULT_MIN_HEDGE_DELAY;
+    private Duration maxHedgeDelay = DEFAULT_MAX_HEDGE_DELAY;
+    private int minSamples = DEFAULT_MIN_SAMPLES;
+    private int maxThrottleRetries = DEFAULT_MAX_THROTTLE_RETRIES;
+    private Duration baseBackoff = DEFAULT_BASE_BACKOFF;
+    private Duration maxBackoff = DEFAULT_MAX_BACKOFF;
+    private int maxConcurrentAttempts = DEFAULT_MAX_CONCURRENT_ATTEMPTS;
+
+    /**
+     * @return the latency quantile after which a duplicate is sent, e.g. 0.95
+     */
+    public double getHedgeQuantile() {
+        return hedgeQuantile;
+    }
+    public void setHedgeQuantile(double hedgeQuantile) {
+        if (!(hedgeQuantile > 0 && hedgeQuantile < 1)) {
+            throw new IllegalArgumentException("hedgeQuantile must be between 0 and 1: " + hedgeQuantile);
+        }
+        this.hedgeQuantile = hedgeQuantile;
+    }
+
+    /**
+     * @return the largest share of requests that may get a duplicate, e.g. 0.05 for 5%; 0 turns hedging off
+     */
+    public double getHedgeBudget() {
+        return hedgeBudget;
+    }
+    public void setHedgeBudget(double hedgeBudget) {
+        if (!(hedgeBudget >= 0 && hedgeBudget <= 1)) {
+            throw new IllegalArgumentException("hedgeBudget must be between 0 and 1: " + hedgeBudget);
+        }
+        this.hedgeBudget = hedgeBudget;
+    }
+
+    public Duration getMinHedgeDelay() {
+        return minHedgeDelay;
+    }
+    public void setMinHedgeDelay(Duration minHedgeDelay) {
+        if (minHedgeDelay == null || minHedgeDelay.isNegative()) {
+            throw new IllegalArgumentException("minHedgeDelay must be >= 0: " + minHedgeDelay);
+        }
+        this.minHedgeDelay = minHedgeDelay;
+    }
+
+    /**
+     * @return the hedge delay used at most, and until minSamples latencies have been seen
+     */
+    public Duration getMaxHedgeDelay() {
+        return maxHedgeDelay;
+    }
+    public void setMaxHedgeDelay(Duration maxHedgeDelay) {
+        if (maxHedgeDelay == null || maxHedgeDelay.isNegative() || maxHedgeDelay.isZero()) {
+            throw new IllegalArgumentException("maxHedgeDelay must be > 0: " + maxHedgeDelay);
+        }
+        this.maxHedgeDelay = maxHedgeDelay;
+    }
+
+    public int getMinSamples() {
+        return minSamples;
+    }
+    public void setMinSamples(int minSamples) {
+        if (minSamples <= 0) {
+            throw new IllegalArgumentException("minSamples must be > 0: " + minSamples);
+        }
+        this.minSamples = minSamples;
+    }
+
+    public int getMaxThrottleRetries() {
+        return maxThrottleRetries;
+    }
+    public void setMaxThrottleRetries(int maxThrottleRetries) {
+        if (maxThrottleRetries < 0) {
+            throw new IllegalArgumentException("maxThrottleRetries must be >= 0: " + maxThrottleRetries);
+        }
+        this.maxThrottleRetries = maxThrottleRetries;
+    }
+
+    public Duration getBaseBackoff() {
+        return baseBackoff;
+    }
+    public void setBaseBackoff(Duration baseBackoff) {
+        if (baseBackoff == null || baseBackoff.isNegative() || baseBackoff.isZero()) {
+            throw new IllegalArgumentException("baseBackoff must be > 0: " + baseBackoff);
+        }
+        this.baseBackoff = baseBackoff;
+    }
+
+    public Duration getMaxBackoff() {
+        return maxBackoff;
+    }
+    public void setMaxBackoff(Duration maxBackoff) {
+        if (maxBackoff == null || maxBackoff.isNegative() || maxBackoff.isZero()) {
+            throw new IllegalArgumentException("maxBackoff must be > 0: " + maxBackoff);
+        }
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * @return threads that may run attempts of one request kind at once, duplicates included
+     */
+    public int getMaxConcurrentAttempts() {
+        return maxConcurrentAttempts;
+    }
+    public void setMaxConcurrentAttempts(int maxConcurrentAttempts) {
+        if (maxConcurrentAttempts <= 0) {
+            throw new IllegalArgumentException("maxConcurrentAttempts must be > 0: " + maxConcurrentAttempts);
+        }
+        this.maxConcurrentAttempts = maxConcurrentAttempts;
+    }
+}
@@ -0,0 +1,350 @@
+package com.example.S3App;
+
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Immutable, compact form of many listed entries, for listings too large to hold as one {@link Resource} each.
+ *
+ * Entries are stored column by column in primitive arrays, with no object per entry:
+ *   - keys are front-coded: each key keeps only the UTF-8 bytes after the prefix it shares with the previous key,
+ *     so the repeated parent path of a listing is stored about once (every 16th key is stored whole so a single
+ *     key decodes in at most 16 steps)
+ *   - a plain or multipart ETag ("&lt;32 hex&gt;" or "&lt;32 hex&gt;-&lt;parts&gt;") is kept as its 16 digest bytes plus the part count
+ *   - size and last-modified are long columns; type is one flag byte
+ * Resources, keys and names are built on demand. Keys in listing order compress best, but any order works.
+ */
+public final class KeyBlock implements Iterable<Resource> {
+
+    private static final int RESTART_INTERVAL = 16;
+    private static final int DIGEST_BYTES = 16;
+    private static final byte FOLDER = 1;
+    // eTagParts values besides a multipart count
+    private static final int SINGLE_PART = 0;
+    private static final int NO_ETAG = -1;
+    private static final int IRREGULAR_ETAG = -2; // kept as a string in irregularETags
+
+    private final int count;
+    private final byte[] suffixes;
+    private final int[] suffixOffsets; // count + 1 entries
+    private final char[] sharedLengths; // bytes shared with the previous key (S3 keys are at most 1024 bytes)
+    private final byte[] flags;
+    private final long[] sizes;
+    private final long[] lastModified;
+    private final byte[] eTagDigests;
+    private final int[] eTagParts;
+    private final Map<Integer, String> irregularETags;
+    private final String cursor;
+
+    private KeyBlock(Builder b, String cursor) {
+        this.count = b.count;
+        this.suffixes = Arrays.copyOf(b.suffixes, b.suffixLength);
+        this.suffixOffsets = Arrays.copyOf(b.suffixOffsets, b.count + 1);
+        this.sharedLengths = Arrays.copyOf(b.sharedLengths, b.count);
+        this.flags = Arrays.copyOf(b.flags, b.count);
+        this.sizes = Arrays.copyOf(b.sizes, b.count);
+        this.lastModified = Arrays.copyOf(b.lastModified, b.count);
+        this.eTagDigests = Arrays.copyOf(b.eTagDigests, b.count * DIGEST_BYTES);
+        this.eTagParts = Arrays.copyOf(b.eTagParts, b.count);
+        this.irregularETags = b.irregularETags.isEmpty() ? Map.of() : new HashMap<>(b.irregularETags);
+        this.cursor = cursor;
+    }
+
+    /**
+     * Maps a page of resources, e.g. a {@link ListResult} from listFolder.
+     */
+    public static KeyBlock of(List<Resource> resources, String cursor) {
+        Builder builder = new Builder();
+        for (Resource r : resources) {
+            builder.add(r);
+        }
+        return builder.build(cursor);
+    }
+
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @return the continuation token of the listing page this block holds, or null (last page, or not a page)
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    public String key(int index) {
+        checkIndex(index);
+        int shared = sharedLengths[index];
+        int suffixLength = suffixOffsets[index + 1] - suffixOffsets[index];
+        byte[] key = new byte[shared + suffixLength];
+        System.arraycopy(suffixes, suffixOffsets[index], key, shared, suffixLength);
+        // Walk back to the last whole key, taking from each earlier key only the bytes still missing
+        int needed = shared;
+        for (int i = index - 1; needed > 0; i--) {
+            int from = sharedLengths[i];
+            if (from < needed) {
+                System.arraycopy(suffixes, suffixOffsets[i], key, from, needed - from);
+                needed = from;
+            }
+        }
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    public boolean isFolder(int index) {
+        checkIndex(index);
+        return flags[index] == FOLDER;
+    }
+
+    public long objectSize(int index) {
+        checkIndex(index);
+        return sizes[index];
+    }
+
+    /**
+     * @return epoch millis, 0 if unknown
+     */
+    public long lastModified(int index) {
+        checkIndex(index);
+        return lastModified[index];
+    }
+
+    /**
+     * @return the quoted ETag as S3 reports it, or null
+     */
+    public String eTag(int index) {
+        checkIndex(index);
+        int parts = eTagParts[index];
+        if (parts == NO_ETAG) {
+            return null;
+        }
+        if (parts == IRREGULAR_ETAG) {
+            return irregularETags.get(index);
+        }
+        String hex = HexFormat.of().formatHex(eTagDigests, index * DIGEST_BYTES, (index + 1) * DIGEST_BYTES);
+        return parts == SINGLE_PART ? "\"" + hex + "\"" : "\"" + hex + "-" + parts + "\"";
+    }
+
+    public Resource resource(int index) {
+        return resource(index, key(index));
+    }
+
+    private Resource resource(int index, String key) {
+        Resource resource = flags[index] == FOLDER ? S3Resources.folder(key) : S3Resources.file(key);
+        resource.setSize(sizes[index]);
+        resource.setETag(eTag(index));
+        resource.setLastModified(lastModified[index]);
+        return resource;
+    }
+
+    /**
+     * Expands the whole block, e.g. for callers that expect a listFolder page.
+     */
+    public ListResult<Resource> toListResult() {
+        List<Resource> resources = new ArrayList<>(count);
+        forEach(resources::add);
+        ListResult<Resource> result = new ListResult<>();
+        result.setResources(resources);
+        result.setCursor(cursor);
+        return result;
+    }
+
+    /**
+     * Decodes keys incrementally, each from the previous one, so iterating costs one pass over the data.
+     */
+    @Override
+    public Iterator<Resource> iterator() {
+        return new Iterator<>() {
+            private int next;
+            private byte[] key = new byte[64];
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public Resource next() {
+                if (next >= count) {
+                    throw new NoSuchElementException();
+                }
+                int shared = sharedLengths[next];
+                int suffixLength = suffixOffsets[next + 1] - suffixOffsets[next];
+                if (key.length < shared + suffixLength) {
+                    key = Arrays.copyOf(key, Math.max(key.length * 2, shared + suffixLength));
+                }
+                System.arraycopy(suffixes, suffixOffsets[next], key, shared, suffixLength);
+                Resource resource = resource(next, new String(key, 0, shared + suffixLength, StandardCharsets.UTF_8));
+                next++;
+                return resource;
+            }
+        };
+    }
+
+    public Stream<Resource> stream() {
+        return StreamSupport.stream(Spliterators.spliterator(iterator(), count,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.SIZED), false);
+    }
+
+    /**
+     * @return approximate heap bytes held by this block (array payloads plus headers)
+     */
+    public long footprintBytes() {
+        long bytes = 16L * 10; // array headers
+        bytes += suffixes.length + 4L * suffixOffsets.length + 2L * sharedLengths.length + flags.length;
+        bytes += 8L * sizes.length + 8L * lastModified.length + eTagDigests.length + 4L * eTagParts.length;
+        for (String eTag : irregularETags.values()) {
+            bytes += 48 + eTag.length(); // map node, boxed key, string
+        }
+        return bytes;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("index " + index + ", count " + count);
+        }
+    }
+
+    /**
+     * Appends entries one at a time; arrays grow by doubling and are trimmed by build.
+     */
+    public static final class Builder {
+        private int count;
+        private byte[] suffixes = new byte[1024];
+        private int suffixLength;
+        private int[] suffixOffsets = new int[65];
+        private char[] sharedLengths = new char[64];
+        private byte[] flags = new byte[64];
+        private long[] sizes = new long[64];
+        private long[] lastModified = new long[64];
+        private byte[] eTagDigests = new byte[64 * DIGEST_BYTES];
+        private int[] eTagParts = new int[64];
+        private final Map<Integer, String> irregularETags = new HashMap<>();
+        private byte[] previousKey = new byte[0];
+
+        /**
+         * Adds a listed object; a key ending in "/" is a folder placeholder.
+         */
+        public Builder add(S3Object obj) {
+            if (obj.key().endsWith("/")) {
+                return addFolder(obj.key()); // Like S3Resources.fromListing
+            }
+            long modified = obj.lastModified() == null ? 0 : obj.lastModified().toEpochMilli();
+            return add(obj.key(), false, obj.size() == null ? 0 : obj.size(), obj.eTag(), modified);
+        }
+
+        /**
+         * Adds a common prefix or folder placeholder, without metadata.
+         */
+        public Builder addFolder(String prefix) {
+            return add(prefix, true, 0, null, 0);
+        }
+
+        public Builder add(Resource resource) {
+            return add(resource.getId(), resource.getType() == 1, resource.getSize(),
+                    resource.getETag(), resource.getLastModified());
+        }
+
+        public Builder add(String key, boolean folder, long size, String eTag, long lastModifiedMillis) {
+            byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > Character.MAX_VALUE) {
+                throw new IllegalArgumentException("Key too long: " + bytes.length + " bytes");
+            }
+            ensureCapacity(count + 1);
+            int shared = count % RESTART_INTERVAL == 0 ? 0 : Arrays.mismatch(previousKey, bytes);
+            if (shared < 0) {
+                shared = bytes.length; // same key twice
+            }
+            int suffix = bytes.length - shared;
+            if (suffixes.length < suffixLength + suffix) {
+                suffixes = Arrays.copyOf(suffixes, Math.max(suffixes.length * 2, suffixLength + suffix));
+            }
+            System.arraycopy(bytes, shared, suffixes, suffixLength, suffix);
+            suffixLength += suffix;
+            suffixOffsets[count + 1] = suffixLength;
+            sharedLengths[count] = (char) shared;
+            flags[count] = folder ? FOLDER : 0;
+            sizes[count] = size;
+            lastModified[count] = lastModifiedMillis;
+            eTagParts[count] = encodeETag(eTag, count);
+            previousKey = bytes;
+            count++;
+            return this;
+        }
+
+        public KeyBlock build() {
+            return build(null);
+        }
+
+        /**
+         * @param cursor The continuation token to carry, when the block is one listing page
+         */
+        public KeyBlock build(String cursor) {
+            return new KeyBlock(this, cursor);
+        }
+
+        // Stores the digest bytes and returns the eTagParts value
+        private int encodeETag(String eTag, int index) {
+            if (eTag == null) {
+                return NO_ETAG;
+            }
+            int end = eTag.length() - 1;
+            boolean quoted = eTag.length() >= 2 + 2 * DIGEST_BYTES && eTag.charAt(0) == '"' && eTag.charAt(end) == '"';
+            int dash = quoted ? 1 + 2 * DIGEST_BYTES : -1;
+            if (quoted && (dash == end || (eTag.charAt(dash) == '-' && isPartCount(eTag, dash + 1, end)))) {
+                try {
+                    int parts = dash == end ? SINGLE_PART : Integer.parseInt(eTag, dash + 1, end, 10);
+                    byte[] digest = HexFormat.of().parseHex(eTag, 1, dash);
+                    // Only lower-case hex comes back out exactly as it went in
+                    if (HexFormat.of().formatHex(digest).equals(eTag.substring(1, dash))) {
+                        System.arraycopy(digest, 0, eTagDigests, index * DIGEST_BYTES, DIGEST_BYTES);
+                        return parts;
+                    }
+                } catch (IllegalArgumentException e) {
+                    // Not hex, or a part count beyond int: keep it as is below
+                }
+            }
+            irregularETags.put(index, eTag);
+            return IRREGULAR_ETAG;
+        }
+
+        // Digits without a leading zero, so the number prints back the same
+        private static boolean isPartCount(String s, int from, int to) {
+            if (from >= to || s.charAt(from) == '0') {
+                return false;
+            }
+            for (int i = from; i < to; i++) {
+                if (s.charAt(i) < '0' || s.charAt(i) > '9') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void ensureCapacity(int needed) {
+            if (needed <= flags.length) {
+                return;
+            }
+            int capacity = Math.max(needed, flags.length * 2);
+            suffixOffsets = Arrays.copyOf(suffixOffsets, capacity + 1);
+            sharedLengths = Arrays.copyOf(sharedLengths, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+            lastModified = Arrays.copyOf(lastModified, capacity);
+            eTagDigests = Arrays.copyOf(eTagDigests, capacity * DIGEST_BYTES);
+            eTagParts = Arrays.copyOf(eTagParts, capacity);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.S3App;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with log-linear buckets: 16 buckets per power of two (at most 6.25% error)
+ * from about 1 microsecond up to about 19 hours, longer values land in the last bucket.
+ * Recording is one array increment, with no allocation and no lock, so it can sit on every request.
+ * Readers take a {@link #snapshot()}; differences of two snapshots give the distribution of an interval.
+ */
+final class LatencyHistogram {
+
+    private static final int UNIT_SHIFT = 10; // 1 unit = 1024 ns
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 36; // 2^36 units, about 19.5 hours
+
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    void record(long nanos) {
+        counts.incrementAndGet(bucketOf(nanos));
+    }
+
+    long[] snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+        }
+        return copy;
+    }
+
+    static int bucketOf(long nanos) {
+        long units = Math.max(0, nanos) >>> UNIT_SHIFT;
+        if (units < SUB_BUCKETS) {
+            return (int) units;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(units);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (units >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @return the largest value (in nanoseconds) that falls into the bucket
+     */
+    static long upperBoundNanos(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return ((bucket + 1L) << UNIT_SHIFT) - 1;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long width = 1L << (exponent - SUB_BITS);
+        long lower = (SUB_BUCKETS + bucket % SUB_BUCKETS) * width;
+        return ((lower + width) << UNIT_SHIFT) - 1;
+    }
+
+    /**
+     * @param counts a snapshot, or the difference of two
+     * @param quantile between 0 and 1, e.g. 0.99
+     * @return the upper bound of the bucket holding that quantile, in nanoseconds; 0 when empty
+     */
+    static long quantileNanos(long[] counts, double quantile) {
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return upperBoundNanos(i);
+            }
+        }
+        return upperBoundNanos(counts.length - 1);
+    }
+
+    static long[] minus(long[] now, long[] before) {
+        long[] diff = new long[now.length];
+        for (int i = 0; i < now.length; i++) {
+            diff[i] = now[i] - before[i];
+        }
+        return diff;
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.S3App;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cold {@link Flow.Publisher} over the entries of one folder, built on paged listFolder calls.
+ * Every subscriber gets its own walk from the first page.
+ *
+ * Pages are fetched in the background. A fetch starts only while the buffer holds less than the outstanding
+ * demand (capped at maxBufferedPages pages) plus one page of read-ahead, so a slow subscriber keeps at most
+ * a few pages in memory, and a fast one finds the next page already waiting.
+ */
+final class ListingPublisher implements Flow.Publisher<Resource> {
+
+    static final int DEFAULT_MAX_BUFFERED_PAGES = 2;
+    private static final int S3_DEFAULT_PAGE_SIZE = 1000;
+
+    private final S3ResourceServiceInterface service;
+    private final Resource parent;
+    private final int maxKeys;
+    private final int maxBufferedPages;
+
+    ListingPublisher(S3ResourceServiceInterface service, Resource parent, int maxKeys, int maxBufferedPages) {
+        if (maxBufferedPages <= 0) {
+            throw new IllegalArgumentException("maxBufferedPages must be > 0: " + maxBufferedPages);
+        }
+        this.service = service;
+        this.parent = parent;
+        this.maxKeys = maxKeys;
+        this.maxBufferedPages = maxBufferedPages;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Resource> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        subscriber.onSubscribe(new ListingSubscription(subscriber));
+    }
+
+    private final class ListingSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super Resource> subscriber;
+        private final int pageSize = maxKeys > 0 ? maxKeys : S3_DEFAULT_PAGE_SIZE;
+        private final Queue<Resource> buffer = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger buffered = new AtomicInteger(); // ConcurrentLinkedQueue.size() is O(n)
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger(); // serializes drain(), so signals never overlap
+
+        private volatile boolean started;
+        private volatile boolean fetching;
+        private volatile boolean exhausted;
+        private volatile boolean cancelled;
+        private volatile String cursor;
+        private volatile Throwable error;
+
+        ListingSubscription(Flow.Subscriber<? super Resource> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancelled = true;
+                subscriber.onError(new IllegalArgumentException("request must be > 0: " + n));
+                return;
+            }
+            demand.getAndAccumulate(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+            started = true;
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                long requested = demand.get();
+                long emitted = 0;
+                while (emitted != requested && !cancelled) {
+                    Resource next = buffer.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    buffered.decrementAndGet();
+                    subscriber.onNext(next);
+                    emitted++;
+                }
+                if (emitted > 0 && requested != Long.MAX_VALUE) {
+                    demand.addAndGet(-emitted);
+                }
+
+                if (cancelled) {
+                    buffer.clear();
+                    return;
+                }
+                // Read `fetching` first: the fetch callback publishes the page before clearing it
+                if (!fetching && exhausted && buffer.isEmpty()) {
+                    cancelled = true;
+                    if (error != null) {
+                        subscriber.onError(error);
+                    } else {
+                        subscriber.onComplete();
+                    }
+                    return;
+                }
+                maybeFetch();
+
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void maybeFetch() {
+            if (!started || fetching || exhausted) {
+                return;
+            }
+            long wanted = Math.min(demand.get(), (long) maxBufferedPages * pageSize) + pageSize;
+            if (buffered.get() >= wanted) {
+                return;
+            }
+            fetching = true;
+            String pageCursor = cursor;
+            CompletableFuture.supplyAsync(() -> service.listFolder(parent, pageCursor, maxKeys), FolderListing.PAGE_FETCHER)
+                    .whenComplete((page, failure) -> {
+                        if (failure != null) {
+                            error = failure instanceof CompletionException && failure.getCause() != null
+                                    ? failure.getCause() : failure;
+                            exhausted = true;
+                        } else {
+                            List<Resource> items = page.getResources();
+                            buffer.addAll(items);
+                            buffered.addAndGet(items.size());
+                            cursor = page.getCursor();
+                            exhausted = page.getCursor() == null;
+                        }
+                        fetching = false;
+                        drain();
+                    });
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.S3App;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs a one-line summary per active operation at a fixed interval: calls, errors, in-flight, latency
+ * percentiles and MB/s, all for the last interval only (percentiles come from the difference of two
+ * histogram snapshots). Operations without calls in the interval are skipped.
+ */
+public final class MetricsReporter implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetricsReporter.class);
+
+    // Previous totals of one operation
+    private record Totals(long count, long errors, long bytes, long totalNanos, long[] latencies) {
+    }
+
+    private final S3Metrics metrics;
+    private final ScheduledExecutorService scheduler;
+    private final Map<OperationMetrics, Totals> previous = new HashMap<>();
+    private long previousNanos;
+
+    /**
+     * Starts reporting right away.
+     * @param metrics The metrics to report
+     * @param interval Time between two summaries
+     */
+    public MetricsReporter(S3Metrics metrics, Duration interval) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("interval must be > 0: " + interval);
+        }
+        this.metrics = metrics;
+        for (OperationMetrics op : metrics.all()) {
+            previous.put(op, totals(op));
+        }
+        this.previousNanos = System.nanoTime();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "s3-metrics-reporter");
+            t.setDaemon(true);
+            return t;
+        });
+        long millis = interval.toMillis();
+        scheduler.scheduleAtFixedRate(this::report, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Logs the summary of everything since the previous report.
+     */
+    synchronized void report() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1, now - previousNanos) / 1e9;
+        previousNanos = now;
+
+        for (OperationMetrics op : metrics.all()) {
+            Totals current = totals(op);
+            Totals before = previous.put(op, current);
+            long calls = current.count() - before.count();
+            if (calls == 0 && op.getInFlight() == 0) {
+                continue;
+            }
+            long[] interval = LatencyHistogram.minus(current.latencies(), before.latencies());
+            long bytes = current.bytes() - before.bytes();
+            LOGGER.info("S3 metrics {}: calls={}, errors={}, inFlight={}, meanMs={}, p50Ms={}, p99Ms={}, maxMs={}, MB/s={}",
+                    op.getName(), calls, current.errors() - before.errors(), op.getInFlight(),
+                    format(calls == 0 ? 0 : (current.totalNanos() - before.totalNanos()) / 1e6 / calls),
+                    format(LatencyHistogram.quantileNanos(interval, 0.50) / 1e6),
+                    format(LatencyHistogram.quantileNanos(interval, 0.99) / 1e6),
+                    format(LatencyHistogram.quantileNanos(interval, 1.0) / 1e6),
+                    format(bytes / 1048576.0 / seconds));
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private static Totals totals(OperationMetrics op) {
+        return new Totals(op.getCount(), op.getErrorCount(), op.getBytes(), op.totalNanos(), op.latencySnapshot());
+    }
+
+    private static String format(double value) {
+        return String.format("%.1f", value);
+    }
+}
@@ -0,0 +1,327 @@
+package com.example.S3App;
+
+import java.io.File;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Metrics decorator for any {@link S3ResourceServiceInterface}: every call records its latency, outcome
+ * (errors by exception type), bytes transferred and in-flight count in {@link S3Metrics}.
+ *
+ * streamFolder and publishFolder page through listFolder on this service, so each of their pages is
+ * recorded as a listFolder call; listFolderCompact counts as listFolder and listAllCompact as listAll.
+ * A listAll call is recorded when its stream is read to the end, fails while being read, or is closed, whichever
+ * comes first. A stream that is abandoned part-way without being closed stays in flight.
+ * Downloads scheduled on a {@link TransferManager} bypass this decorator; pass their handle to recordDownload to
+ * record them as getAsFile calls.
+ */
+public class MetricsS3ResourceService implements S3ResourceServiceInterface {
+
+    private final S3ResourceServiceInterface delegate;
+    private final S3Metrics metrics;
+    private final OperationMetrics listFolder;
+    private final OperationMetrics listAll;
+    private final OperationMetrics getResource;
+    private final OperationMetrics getResources;
+    private final OperationMetrics getAsFile;
+    private final OperationMetrics putFile;
+    private final OperationMetrics downloadFolder;
+    private final OperationMetrics syncFolder;
+    private final OperationMetrics openChannel;
+    private final OperationMetrics deletePrefix;
+    private final OperationMetrics deleteAll;
+    private final OperationMetrics copyFolder;
+    private final OperationMetrics moveFolder;
+
+    /**
+     * @param delegate The service whose calls are measured
+     */
+    public MetricsS3ResourceService(S3ResourceServiceInterface delegate) {
+        this(delegate, new S3Metrics());
+    }
+
+    /**
+     * @param delegate The service whose calls are measured
+     * @param metrics Where to record, e.g. shared by several services
+     */
+    public MetricsS3ResourceService(S3ResourceServiceInterface delegate, S3Metrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.listFolder = metrics.get(S3Metrics.Operation.LIST_FOLDER);
+        this.listAll = metrics.get(S3Metrics.Operation.LIST_ALL);
+        this.getResource = metrics.get(S3Metrics.Operation.GET_RESOURCE);
+        this.getResources = metrics.get(S3Metrics.Operation.GET_RESOURCES);
+        this.getAsFile = metrics.get(S3Metrics.Operation.GET_AS_FILE);
+        this.putFile = metrics.get(S3Metrics.Operation.PUT_FILE);
+        this.downloadFolder = metrics.get(S3Metrics.Operation.DOWNLOAD_FOLDER);
+        this.syncFolder = metrics.get(S3Metrics.Operation.SYNC_FOLDER);
+        this.openChannel = metrics.get(S3Metrics.Operation.OPEN_CHANNEL);
+        this.deletePrefix = metrics.get(S3Metrics.Operation.DELETE_PREFIX);
+        this.deleteAll = metrics.get(S3Metrics.Operation.DELETE_ALL);
+        this.copyFolder = metrics.get(S3Metrics.Operation.COPY_FOLDER);
+        this.moveFolder = metrics.get(S3Metrics.Operation.MOVE_FOLDER);
+    }
+
+    public S3Metrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public ListResult<Resource> listFolder(Resource parent, String cursor, int maxKeys) {
+        long start = listFolder.start();
+        try {
+            ListResult<Resource> page = delegate.listFolder(parent, cursor, maxKeys);
+            listFolder.success(start, 0);
+            return page;
+        } catch (RuntimeException e) {
+            listFolder.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public KeyBlock listFolderCompact(Resource parent, String cursor, int maxKeys) {
+        long start = listFolder.start();
+        try {
+            KeyBlock page = delegate.listFolderCompact(parent, cursor, maxKeys);
+            listFolder.success(start, 0);
+            return page;
+        } catch (RuntimeException e) {
+            listFolder.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Stream<Resource> listAll(Resource folder, boolean ordered) {
+        long start = listAll.start();
+        Stream<Resource> stream;
+        try {
+            stream = delegate.listAll(folder, ordered);
+        } catch (RuntimeException e) {
+            listAll.failure(start, e);
+            throw e;
+        }
+        Spliterator<Resource> source = stream.spliterator();
+        RecordingIterator recorded = new RecordingIterator(Spliterators.iterator(source), listAll, start);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(recorded, source.characteristics()), stream.isParallel())
+                .onClose(stream::close)
+                .onClose(recorded::succeed);
+    }
+
+    @Override
+    public KeyBlock listAllCompact(Resource folder) {
+        long start = listAll.start();
+        try {
+            KeyBlock all = delegate.listAllCompact(folder);
+            listAll.success(start, 0);
+            return all;
+        } catch (RuntimeException e) {
+            listAll.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Resource getResource(String id) {
+        long start = getResource.start();
+        try {
+            Resource resource = delegate.getResource(id);
+            getResource.success(start, 0);
+            return resource;
+        } catch (RuntimeException e) {
+            getResource.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public BatchLookupResult getResources(Collection<String> keys) {
+        long start = getResources.start();
+        try {
+            BatchLookupResult result = delegate.getResources(keys);
+            getResources.success(start, 0);
+            return result;
+        } catch (RuntimeException e) {
+            getResources.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public File getAsFile(Resource resource) {
+        long start = getAsFile.start();
+        try {
+            File file = delegate.getAsFile(resource);
+            getAsFile.success(start, file.length());
+            return file;
+        } catch (RuntimeException e) {
+            getAsFile.failure(start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Records a download scheduled on a TransferManager as a getAsFile call, from now until the transfer completes,
+     * so the time it waits in the queue is included. A cancelled transfer counts as a failure.
+     * @return the same handle
+     */
+    public TransferHandle<File> recordDownload(TransferHandle<File> download) {
+        long start = getAsFile.start();
+        download.getCompletion().whenComplete((file, e) -> {
+            if (e == null) {
+                getAsFile.success(start, file.length());
+            } else {
+                getAsFile.failure(start, e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+            }
+        });
+        return download;
+    }
+
+    @Override
+    public Resource putFile(Path local, String key) {
+        long start = putFile.start();
+        try {
+            Resource uploaded = delegate.putFile(local, key);
+            putFile.success(start, uploaded.getSize());
+            return uploaded;
+        } catch (RuntimeException e) {
+            putFile.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public FolderDownloadResult downloadFolder(Resource folder, Path target) {
+        long start = downloadFolder.start();
+        try {
+            FolderDownloadResult result = delegate.downloadFolder(folder, target);
+            downloadFolder.success(start, result.getBytes());
+            return result;
+        } catch (RuntimeException e) {
+            downloadFolder.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public SyncResult syncFolder(Resource folder, Path target, boolean deleteOrphans) {
+        long start = syncFolder.start();
+        try {
+            SyncResult result = delegate.syncFolder(folder, target, deleteOrphans);
+            syncFolder.success(start, result.getBytes());
+            return result;
+        } catch (RuntimeException e) {
+            syncFolder.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public SeekableByteChannel openChannel(Resource resource) {
+        long start = openChannel.start();
+        try {
+            SeekableByteChannel channel = delegate.openChannel(resource);
+            openChannel.success(start, 0);
+            return channel;
+        } catch (RuntimeException e) {
+            openChannel.failure(start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public BulkOperationResult deletePrefix(Resource folder) {
+        return measureBulk(deletePrefix, () -> delegate.deletePrefix(folder));
+    }
+
+    @Override
+    public BulkOperationResult deleteAll(Collection<String> keys) {
+        return measureBulk(deleteAll, () -> delegate.deleteAll(keys));
+    }
+
+    @Override
+    public BulkOperationResult copyFolder(Resource folder, String targetPrefix) {
+        return measureBulk(copyFolder, () -> delegate.copyFolder(folder, targetPrefix));
+    }
+
+    @Override
+    public BulkOperationResult moveFolder(Resource folder, String targetPrefix) {
+        return measureBulk(moveFolder, () -> delegate.moveFolder(folder, targetPrefix));
+    }
+
+    /**
+     * Records a listAll call once: as a failure if reading the listing throws, otherwise as a success when the
+     * listing runs out or its stream is closed early.
+     */
+    private static final class RecordingIterator implements Iterator<Resource> {
+        private final Iterator<Resource> source;
+        private final OperationMetrics operation;
+        private final long start;
+        private final AtomicBoolean recorded = new AtomicBoolean();
+
+        RecordingIterator(Iterator<Resource> source, OperationMetrics operation, long start) {
+            this.source = source;
+            this.operation = operation;
+            this.start = start;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                boolean more = source.hasNext();
+                if (!more) {
+                    succeed();
+                }
+                return more;
+            } catch (RuntimeException e) {
+                fail(e);
+                throw e;
+            }
+        }
+
+        @Override
+        public Resource next() {
+            try {
+                return source.next();
+            } catch (RuntimeException e) {
+                fail(e);
+                throw e;
+            }
+        }
+
+        void succeed() {
+            if (recorded.compareAndSet(false, true)) {
+                operation.success(start, 0);
+            }
+        }
+
+        private void fail(RuntimeException e) {
+            if (recorded.compareAndSet(false, true)) {
+                operation.failure(start, e);
+            }
+        }
+    }
+
+    // Bytes are what was copied server-side; deletes record none
+    private static BulkOperationResult measureBulk(OperationMetrics operation, Supplier<BulkOperationResult> call) {
+        long start = operation.start();
+        try {
+            BulkOperationResult result = call.get();
+            operation.success(start, result.getBytes());
+            return result;
+        } catch (RuntimeException e) {
+            operation.failure(start, e);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.S3App;
+
+import software.amazon.awssdk.core.exception.SdkException;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency, bytes, in-flight and error counts of one service operation.
+ *
+ * Recording a call never allocates or locks: {@link #start()} and {@link #success(long, long)} /
+ * {@link #failure(long, Throwable)} only touch LongAdders and the histogram's atomic array. The error
+ * counter for an exception type is created the first time that type is seen, later errors only look it up.
+ */
+public class OperationMetrics implements OperationMetricsMXBean {
+
+    private final String name;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder inFlight = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final ConcurrentHashMap<Class<?>, LongAdder> errorsByType = new ConcurrentHashMap<>();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Marks a call as in flight.
+     * @return the start time to pass to success or failure
+     */
+    long start() {
+        inFlight.increment();
+        return System.nanoTime();
+    }
+
+    void success(long startNanos, long transferredBytes) {
+        finish(startNanos);
+        if (transferredBytes > 0) {
+            bytes.add(transferredBytes);
+        }
+    }
+
+    void failure(long startNanos, Throwable error) {
+        finish(startNanos);
+        errorCount.increment();
+        Class<?> type = errorType(error);
+        LongAdder counter = errorsByType.get(type);
+        if (counter == null) {
+            counter = errorsByType.computeIfAbsent(type, t -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    private void finish(long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        inFlight.decrement();
+        count.increment();
+        totalNanos.add(elapsed);
+        latencies.record(elapsed);
+    }
+
+    // The service wraps SDK errors in RuntimeExceptions; count the SDK type (e.g. NoSuchKeyException)
+    private static Class<?> errorType(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof SdkException) {
+                return t.getClass();
+            }
+        }
+        return error.getClass();
+    }
+
+    long[] latencySnapshot() {
+        return latencies.snapshot();
+    }
+
+    long totalNanos() {
+        return totalNanos.sum();
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    @Override
+    public Map<String, Long> getErrorsByType() {
+        Map<String, Long> errors = new TreeMap<>();
+        errorsByType.forEach((type, counter) -> errors.merge(type.getSimpleName(), counter.sum(), Long::sum));
+        return errors;
+    }
+
+    @Override
+    public long getInFlight() {
+        return inFlight.sum();
+    }
+
+    @Override
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return LatencyHistogram.quantileNanos(latencies.snapshot(), 0.50) / 1e6;
+    }
+
+    @Override
+    public double getP90Millis() {
+        return LatencyHistogram.quantileNanos(latencies.snapshot(), 0.90) / 1e6;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return LatencyHistogram.quantileNanos(latencies.snapshot(), 0.99) / 1e6;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return LatencyHistogram.quantileNanos(latencies.snapshot(), 1.0) / 1e6;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.S3App;
+
+import java.util.Map;
+
+/**
+ * JMX view of one service operation, see {@link S3Metrics#registerMBeans(String)}.
+ * Counters and percentiles cover everything since the service started.
+ */
+public interface OperationMetricsMXBean {
+
+    long getCount();
+
+    long getErrorCount();
+
+    /**
+     * @return error counts keyed by the SDK exception's simple class name (or the exception's own, when no SDK error caused it)
+     */
+    Map<String, Long> getErrorsByType();
+
+    long getInFlight();
+
+    /**
+     * @return bytes downloaded or uploaded by this operation
+     */
+    long getBytes();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP90Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+}
@@ -0,0 +1,439 @@
+package com.example.S3App;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lists every object under a prefix (recursively, no delimiter) by splitting the key space into ranges
+ * and listing the ranges concurrently with StartAfter.
+ *
+ * A range is (after, end]: keys strictly greater than after and at most end (null = end of the prefix).
+ * The initial split points are the common prefixes of the first delimiter page: "a/" sorts before every key
+ * under "a/", so each subfolder becomes its own range. When a worker still has pages ahead of it and another
+ * worker is idle, it splits its remaining range at a key midpoint and hands the upper half over, so one
+ * oversized partition is not left to a single thread.
+ *
+ * Workers are platform threads: the blocking client pins virtual threads while waiting for a pooled connection.
+ */
+public class ParallelLister {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelLister.class);
+
+    public static final int DEFAULT_PARALLELISM = 16;
+    private static final int PAGE_SIZE = 1000;
+    // Objects buffered per range in ordered mode, and per worker in unordered mode
+    private static final int BUFFER_PER_RANGE = 4 * PAGE_SIZE;
+
+    private static final S3Object END = S3Object.builder().build();
+
+    private final S3Client s3Client;
+    private final String bucketName;
+    private final int parallelism;
+
+    /**
+     * @param s3Client The client to list with
+     * @param bucketName The bucket to list
+     * @param parallelism Maximum number of ranges listed at the same time
+     */
+    public ParallelLister(S3Client s3Client, String bucketName, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be > 0: " + parallelism);
+        }
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Streams every object under the folder. Listing starts right away in the background and
+     * stops when the stream is exhausted or closed.
+     * @param folder The folder to list, or null for the whole bucket
+     * @param ordered true to emit objects in key order, false to emit them as the ranges produce them
+     */
+    public Stream<Resource> list(Resource folder, boolean ordered) {
+        return listObjects(folder, ordered).map(S3Resources::fromListing);
+    }
+
+    /**
+     * Like {@link #list(Resource, boolean)}, but hands out the listed S3Objects as they are, for callers
+     * that keep their own compact form (see {@link KeyBlock}) rather than a Resource per key.
+     */
+    public Stream<S3Object> listObjects(Resource folder, boolean ordered) {
+        Listing listing = new Listing(S3Resources.prefixOf(folder), ordered);
+        listing.start();
+        Spliterator<S3Object> spliterator = Spliterators.spliteratorUnknownSize(listing,
+                Spliterator.NONNULL | (ordered ? Spliterator.ORDERED : 0));
+        return StreamSupport.stream(spliterator, false).onClose(listing::close);
+    }
+
+    /**
+     * Compares keys the way S3 sorts them (by UTF-8 bytes, i.e. by code point), not by UTF-16 unit.
+     */
+    static int compareKeys(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            if (ca != cb) {
+                return Integer.compare(ca, cb);
+            }
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+
+    /**
+     * Picks a key strictly between lo and hi, or returns null if there is no usable one.
+     * With hi null (end of the prefix) the split is a guess that assumes mostly-ASCII keys;
+     * repeated splits narrow it down, and a wrong guess only costs one empty page.
+     */
+    static String midpoint(String prefix, String lo, String hi) {
+        int[] l = lo.codePoints().toArray();
+        int i;
+        int b;
+        if (hi == null) {
+            i = prefix.codePointCount(0, prefix.length());
+            b = -1;
+        } else {
+            int[] h = hi.codePoints().toArray();
+            i = 0;
+            while (i < l.length && i < h.length && l[i] == h[i]) {
+                i++;
+            }
+            if (i >= h.length) {
+                return null;
+            }
+            b = h[i];
+        }
+        int a = i < l.length ? l[i] : -1;
+        if (b < 0) {
+            b = a < 0x7E ? 0x7F : Character.MAX_CODE_POINT;
+        }
+
+        StringBuilder mid = new StringBuilder();
+        for (int k = 0; k < i; k++) {
+            mid.appendCodePoint(l[k]);
+        }
+        if (b - a >= 2) {
+            mid.appendCodePoint(encodable((a + b) / 2));
+        } else {
+            // Adjacent code points: keep lo's and split the following position instead
+            int next = i + 1 < l.length ? l[i + 1] : -1;
+            int upper = next < 0x7E ? 0x7F : Character.MAX_CODE_POINT;
+            if (a < 0 || upper - next < 2) {
+                return null;
+            }
+            mid.appendCodePoint(a).appendCodePoint(encodable((next + upper) / 2));
+        }
+        String result = mid.toString();
+        boolean between = compareKeys(lo, result) < 0 && (hi == null || compareKeys(result, hi) < 0);
+        return between ? result : null;
+    }
+
+    // Surrogate code points have no UTF-8 encoding; step past the surrogate block
+    private static int encodable(int cp) {
+        return cp >= Character.MIN_SURROGATE && cp <= Character.MAX_SURROGATE ? Character.MAX_SURROGATE + 1 : cp;
+    }
+
+    /**
+     * One (after, end] slice of the key space. Only the worker listing it shrinks end, when it splits.
+     */
+    private static final class Range {
+        final String after;
+        volatile String end;
+        final BlockingQueue<S3Object> output; // ordered mode only
+        volatile boolean complete;
+
+        Range(String after, String end, BlockingQueue<S3Object> output) {
+            this.after = after;
+            this.end = end;
+            this.output = output;
+        }
+
+        String sortKey() {
+            return after == null ? "" : after;
+        }
+    }
+
+    /**
+     * State of one list() call, and the iterator its stream reads from.
+     */
+    private final class Listing implements Iterator<S3Object> {
+        private final String prefix;
+        private final boolean ordered;
+        private final ThreadPoolExecutor workers;
+        // Ranges submitted but not finished; start() holds one extra count while seeding
+        private final AtomicInteger activeRanges = new AtomicInteger();
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        private final AtomicInteger pages = new AtomicInteger();
+        private final AtomicInteger splits = new AtomicInteger();
+        private final long startNanos = System.nanoTime();
+
+        // Unordered: one queue shared by all ranges. Ordered: ranges by lower bound, read front to back.
+        private final BlockingQueue<S3Object> shared;
+        private final ConcurrentSkipListMap<String, Range> ranges = new ConcurrentSkipListMap<>(ParallelLister::compareKeys);
+
+        private volatile boolean closed;
+        private Range currentRange;
+        private S3Object next;
+        private boolean finished;
+
+        Listing(String prefix, boolean ordered) {
+            this.prefix = prefix;
+            this.ordered = ordered;
+            this.shared = ordered ? null : new ArrayBlockingQueue<>(BUFFER_PER_RANGE * parallelism);
+            // Lowest range first: in ordered mode the range the reader waits on must never queue behind later ones
+            this.workers = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+                    new PriorityBlockingQueue<>(), r -> {
+                        Thread t = new Thread(r, "s3-parallel-list");
+                        t.setDaemon(true);
+                        return t;
+                    });
+        }
+
+        void start() {
+            ListObjectsV2Response level;
+            try {
+                level = s3Client.listObjectsV2(ListObjectsV2Request.builder()
+                        .bucket(bucketName)
+                        .prefix(prefix)
+                        .delimiter("/")
+                        .maxKeys(PAGE_SIZE)
+                        .build());
+            } catch (SdkException e) {
+                workers.shutdown();
+                LOGGER.error("Error sampling key space. bucket={}, prefix={}, message={}", bucketName, prefix, e.getMessage());
+                throw new RuntimeException("Failed to list S3 objects: " + e.getMessage(), e);
+            }
+
+            activeRanges.incrementAndGet();
+            String after = null;
+            for (CommonPrefix cp : level.commonPrefixes()) {
+                submit(newRange(after, cp.prefix()));
+                after = cp.prefix();
+            }
+            submit(newRange(after, null));
+            LOGGER.debug("Parallel listing started. prefix={}, initialRanges={}", prefix, level.commonPrefixes().size() + 1);
+            rangeDone(null);
+        }
+
+        void close() {
+            closed = true;
+            workers.shutdownNow();
+        }
+
+        private Range newRange(String after, String end) {
+            Range range = new Range(after, end, ordered ? new ArrayBlockingQueue<>(BUFFER_PER_RANGE) : null);
+            if (ordered) {
+                ranges.put(range.sortKey(), range);
+            }
+            return range;
+        }
+
+        private void submit(Range range) {
+            activeRanges.incrementAndGet();
+            workers.execute(new RangeTask(range));
+        }
+
+        private final class RangeTask implements Runnable, Comparable<RangeTask> {
+            private final Range range;
+
+            RangeTask(Range range) {
+                this.range = range;
+            }
+
+            @Override
+            public void run() {
+                try {
+                    listRange(range);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                    closed = true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    range.complete = true;
+                    rangeDone(range);
+                }
+            }
+
+            @Override
+            public int compareTo(RangeTask other) {
+                return compareKeys(range.sortKey(), other.range.sortKey());
+            }
+        }
+
+        private void listRange(Range range) throws InterruptedException {
+            String startAfter = range.after;
+            while (!closed) {
+                ListObjectsV2Response page;
+                try {
+                    page = s3Client.listObjectsV2(ListObjectsV2Request.builder()
+                            .bucket(bucketName)
+                            .prefix(prefix)
+                            .startAfter(startAfter)
+                            .maxKeys(PAGE_SIZE)
+                            .build());
+                } catch (SdkException e) {
+                    if (closed) {
+                        return;
+                    }
+                    LOGGER.error("Error listing key range. bucket={}, prefix={}, startAfter={}, message={}",
+                            bucketName, prefix, startAfter, e.getMessage());
+                    throw new RuntimeException("Failed to list S3 objects: " + e.getMessage(), e);
+                }
+                pages.incrementAndGet();
+
+                List<S3Object> contents = page.contents();
+                for (S3Object obj : contents) {
+                    String end = range.end;
+                    if (end != null && compareKeys(obj.key(), end) > 0) {
+                        return; // Reached the next range
+                    }
+                    (ordered ? range.output : shared).put(obj);
+                }
+                if (!Boolean.TRUE.equals(page.isTruncated()) || contents.isEmpty()) {
+                    return;
+                }
+                startAfter = contents.get(contents.size() - 1).key();
+                maybeSplit(range, startAfter);
+            }
+        }
+
+        // More pages ahead and a worker to spare: give away the upper half of what is left
+        private void maybeSplit(Range range, String lastKey) {
+            if (activeRanges.get() >= parallelism) {
+                return;
+            }
+            String mid = midpoint(prefix, lastKey, range.end);
+            if (mid == null) {
+                return;
+            }
+            // Register the upper half before shrinking this one, so an ordered reader always finds a successor
+            Range upper = newRange(mid, range.end);
+            range.end = mid;
+            splits.incrementAndGet();
+            submit(upper);
+        }
+
+        private void rangeDone(Range range) {
+            boolean last = activeRanges.decrementAndGet() == 0;
+            if (last) {
+                LOGGER.debug("Parallel listing finished. prefix={}, pages={}, splits={}, elapsedMs={}",
+                        prefix, pages.get(), splits.get(), (System.nanoTime() - startNanos) / 1_000_000);
+            }
+            if (!last && !closed) {
+                if (ordered && range != null) {
+                    // Wakes the reader if it is blocked on this range; if the queue is full it is not blocked
+                    range.output.offer(END);
+                }
+                return;
+            }
+            if (ordered) {
+                for (Range r : ranges.values()) {
+                    r.output.offer(END);
+                }
+            } else {
+                try {
+                    // Queued behind everything already emitted; the reader drains it or closes (interrupting us)
+                    shared.put(END);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            if (finished) {
+                return false;
+            }
+            try {
+                next = ordered ? takeOrdered() : takeUnordered();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new RuntimeException("Interrupted while listing S3 objects", e);
+            }
+            if (next == null) {
+                finished = true;
+                close();
+                RuntimeException error = failure.get();
+                if (error != null) {
+                    throw error;
+                }
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public S3Object next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            S3Object result = next;
+            next = null;
+            return result;
+        }
+
+        private S3Object takeUnordered() throws InterruptedException {
+            S3Object item = shared.take();
+            return item == END ? null : item;
+        }
+
+        private S3Object takeOrdered() throws InterruptedException {
+            while (failure.get() == null) {
+                if (currentRange == null) {
+                    Map.Entry<String, Range> first = ranges.firstEntry();
+                    if (first == null) {
+                        return null;
+                    }
+                    currentRange = first.getValue();
+                }
+                S3Object item = currentRange.output.poll();
+                if (item == null) {
+                    if (currentRange.complete) {
+                        // Finished and drained: move on to the next range in key order
+                        ranges.remove(currentRange.sortKey(), currentRange);
+                        currentRange = null;
+                        continue;
+                    }
+                    item = currentRange.output.take();
+                }
+                if (item != END) {
+                    return item;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.example.S3App;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.awscore.retry.AwsRetryStrategy;
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.retry.RetryUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs one kind of idempotent request under a {@link HedgingPolicy}: a duplicate is sent when the first attempt is
+ * slower than the policy's quantile of recent latencies, the first successful response wins and the other one is
+ * handed to a discard callback (e.g. to abort a response stream) whenever it arrives. Throttling, 5xx and I/O errors
+ * are retried with backoff here, so requests must carry {@link #NO_SDK_RETRIES}: the SDK's own retries would multiply
+ * the attempts and stack their backoff on this one. One instance per request kind, since a HEAD and the first byte
+ * of a GET have different latencies.
+ *
+ * Attempts run on a pool of at most maxConcurrentAttempts threads. When all are busy, a request runs on the caller's
+ * thread and is not hedged, and no duplicate is sent for a slow one.
+ *
+ * The hedge delay comes from a {@link LatencyHistogram} of every completed attempt (losers included, so the
+ * distribution is not biased towards fast responses), over the last WINDOW to 2 * WINDOW samples.
+ * The budget is a token bucket: each request earns hedgeBudget tokens, a duplicate costs one.
+ */
+final class RequestHedger {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestHedger.class);
+
+    /**
+     * Turns off the client's retries for one request; set on every request run through {@link #execute}.
+     */
+    static final AwsRequestOverrideConfiguration NO_SDK_RETRIES = AwsRequestOverrideConfiguration.builder()
+            .addPlugin(config -> config.overrideConfiguration(o -> o.retryStrategy(AwsRetryStrategy.doNotRetry())))
+            .build();
+
+    private static final long TOKEN = 1_000_000; // budget tokens in millionths
+    private static final long MAX_TOKENS = 10 * TOKEN; // hedges allowed in a burst
+    private static final int RECOMPUTE_EVERY = 8;
+    private static final int WINDOW = 1024;
+    private static final int MAX_THROTTLE_LEVEL = 8;
+
+    private final String operation;
+    private final HedgingPolicy policy;
+    private final long tokensPerRequest;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final AtomicLong samples = new AtomicLong();
+    private final AtomicLong tokens = new AtomicLong(MAX_TOKENS);
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicInteger throttleLevel = new AtomicInteger();
+    // Attempts block on the HTTP client; daemon threads so a losing attempt never keeps the JVM alive
+    private final ThreadPoolExecutor attempts;
+    private volatile long hedgeDelayNanos;
+    private long[] windowStart = new long[LatencyHistogram.BUCKETS]; // guarded by this
+    private long[] nextWindowStart = new long[LatencyHistogram.BUCKETS]; // guarded by this
+
+    RequestHedger(String operation, HedgingPolicy policy) {
+        this.operation = operation;
+        this.policy = policy;
+        this.tokensPerRequest = Math.round(policy.getHedgeBudget() * TOKEN);
+        this.hedgeDelayNanos = policy.getMaxHedgeDelay().toNanos();
+        this.attempts = new ThreadPoolExecutor(0, policy.getMaxConcurrentAttempts(), 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), r -> {
+                    Thread t = new Thread(r, "s3-hedged-read");
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * @param request the idempotent call with {@link #NO_SDK_RETRIES}, run once or twice and possibly again after
+     *                throttling or a transient error
+     * @param discard receives a successful response that lost the race
+     * @return the first successful response
+     * @throws SdkException the attempt's own exception when no attempt succeeded
+     */
+    <T> T execute(Supplier<T> request, Consumer<? super T> discard) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                T result = hedged(request, discard);
+                throttleLevel.updateAndGet(level -> Math.max(0, level - 1));
+                return result;
+            } catch (SdkException e) {
+                boolean throttled = isThrottling(e);
+                if (!(throttled || isTransient(e)) || attempt >= policy.getMaxThrottleRetries()) {
+                    throw e;
+                }
+                int level = throttled
+                        ? throttleLevel.updateAndGet(l -> Math.min(MAX_THROTTLE_LEVEL, l + 1))
+                        : throttleLevel.get();
+                long backoffMillis = backoffMillis(attempt, level);
+                LOGGER.warn("S3 request failed, backing off. operation={}, attempt={}, backoffMs={}, throttled={}, msg={}",
+                        operation, attempt + 1, backoffMillis, throttled, e.getMessage());
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the current hedge delay in milliseconds
+     */
+    long hedgeDelayMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(hedgeDelayNanos);
+    }
+
+    long requestCount() {
+        return requests.get();
+    }
+
+    long hedgeCount() {
+        return hedges.get();
+    }
+
+    private <T> T hedged(Supplier<T> request, Consumer<? super T> discard) {
+        requests.incrementAndGet();
+        tokens.accumulateAndGet(tokensPerRequest, (current, add) -> Math.min(MAX_TOKENS, current + add));
+
+        CompletableFuture<T> primary = attempt(request);
+        if (primary == null) {
+            // Every attempt thread is busy; a duplicate could not run either
+            LOGGER.debug("No free attempt thread, running unhedged. operation={}", operation);
+            return timed(request);
+        }
+        try {
+            return primary.get(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException slow) {
+            // Hedge below, if allowed
+        } catch (InterruptedException e) {
+            throw abandon(primary, discard);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+        // A throttling backend only gets slower with more load
+        if (throttleLevel.get() > 0 || !tryTakeToken()) {
+            return await(primary, discard);
+        }
+        CompletableFuture<T> hedge = attempt(request);
+        if (hedge == null) {
+            tokens.accumulateAndGet(TOKEN, (current, add) -> Math.min(MAX_TOKENS, current + add));
+            return await(primary, discard);
+        }
+        hedges.incrementAndGet();
+        LOGGER.debug("Sent hedged S3 request. operation={}, delayMs={}", operation, hedgeDelayMillis());
+
+        CompletableFuture<T> winner = new CompletableFuture<>();
+        AtomicInteger failed = new AtomicInteger();
+        for (CompletableFuture<T> contender : List.of(primary, hedge)) {
+            contender.whenComplete((result, error) -> {
+                if (error == null) {
+                    if (!winner.complete(result)) {
+                        discard.accept(result);
+                    }
+                } else if (failed.incrementAndGet() == 2) {
+                    winner.completeExceptionally(error);
+                }
+            });
+        }
+        return await(winner, discard);
+    }
+
+    /**
+     * @return the attempt running on the pool, or null when every attempt thread is busy
+     */
+    private <T> CompletableFuture<T> attempt(Supplier<T> request) {
+        try {
+            return CompletableFuture.supplyAsync(() -> timed(request), attempts);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    private <T> T timed(Supplier<T> request) {
+        long start = System.nanoTime();
+        T result = request.get();
+        record(System.nanoTime() - start);
+        return result;
+    }
+
+    private <T> T await(CompletableFuture<T> future, Consumer<? super T> discard) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw abandon(future, discard);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private static <T> AbortedException abandon(CompletableFuture<T> future, Consumer<? super T> discard) {
+        Thread.currentThread().interrupt();
+        future.thenAccept(discard);
+        return AbortedException.create("Interrupted while waiting for S3");
+    }
+
+    private static RuntimeException unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (error instanceof Error fatal) {
+            throw fatal;
+        }
+        return error instanceof RuntimeException runtime ? runtime : new CompletionException(error);
+    }
+
+    private boolean tryTakeToken() {
+        long current;
+        do {
+            current = tokens.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!tokens.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+
+    private void record(long nanos) {
+        latencies.record(nanos);
+        long count = samples.incrementAndGet();
+        if (count >= policy.getMinSamples() && count % RECOMPUTE_EVERY == 0) {
+            recompute(count);
+        }
+    }
+
+    private synchronized void recompute(long count) {
+        long[] now = latencies.snapshot();
+        long quantile = LatencyHistogram.quantileNanos(LatencyHistogram.minus(now, windowStart), policy.getHedgeQuantile());
+        hedgeDelayNanos = Math.max(policy.getMinHedgeDelay().toNanos(), Math.min(policy.getMaxHedgeDelay().toNanos(), quantile));
+        if (count % WINDOW == 0) {
+            windowStart = nextWindowStart;
+            nextWindowStart = now;
+        }
+    }
+
+    /**
+     * Exponential in both the retry count and how persistently the backend has been throttling, with equal jitter.
+     */
+    private long backoffMillis(int attempt, int level) {
+        long cap = policy.getMaxBackoff().toMillis();
+        long exponential = policy.getBaseBackoff().toMillis() << Math.min(30, Math.max(0, attempt + level - 1));
+        long backoff = Math.min(cap, exponential);
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    /**
+     * What the SDK's standard retry strategy retries besides throttling: 5xx responses, clock skew and I/O errors.
+     */
+    static boolean isTransient(SdkException e) {
+        if (e instanceof AwsServiceException service) {
+            return service.statusCode() >= 500 || RetryUtils.isClockSkewException(e);
+        }
+        return !(e instanceof AbortedException)
+                && (e.getCause() instanceof IOException || e.getCause() instanceof UncheckedIOException);
+    }
+
+    static boolean isThrottling(SdkException e) {
+        if (e instanceof AwsServiceException service) {
+            return service.statusCode() == 503 || service.statusCode() == 429 || service.isThrottlingException();
+        }
+        return false;
+    }
+}
@@ -3,11 +3,16 @@ package com.example.S3App;
 /**
  * Represents either a file or folder in S3.
  * type=0 => file, type=1 => folder
+ * size, eTag and lastModified are filled in when S3 returned them (HEAD or a listed object);
+ * folders derived from a common prefix have none.
  */
 public class Resource {
     private String id;   // The S3 key
     private String name; // user-friendly name extracted from key
     private int type;    // 0=file, 1=folder
+    private long size;   // bytes
+    private String eTag;
+    private long lastModified; // epoch millis, 0 if unknown
 
     public String getId() {
         return id;
@@ -29,4 +34,25 @@ public class Resource {
     public void setType(int type) {
         this.type = type;
     }
+
+    public long getSize() {
+        return size;
+    }
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+    public void setETag(String eTag) {
+        this.eTag = eTag;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+    public void setLastModified(long lastModified) {
+        this.lastModified = lastModified;
+    }
 }
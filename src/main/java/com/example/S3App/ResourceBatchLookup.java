@@ -0,0 +1,203 @@
+package com.example.S3App;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Looks up metadata for many keys at once.
+ *
+ * Keys are grouped by parent folder. A folder with at least {@link #SCAN_MIN_KEYS} requested files is answered
+ * from a delimiter listing of that folder (one request per 1000 objects instead of one HEAD per key), as long as
+ * each page still covers enough requested keys to pay for itself; whatever the scan does not reach falls back
+ * to HEAD. All other keys get a HEAD each. Scans and HEADs run on virtual threads, bounded by the permits.
+ */
+final class ResourceBatchLookup {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResourceBatchLookup.class);
+
+    static final int SCAN_MIN_KEYS = 64;
+    // A listing page must cover at least this many requested keys on average to beat HEADs
+    private static final int MIN_KEYS_PER_PAGE = 16;
+
+    private final S3Client s3Client;
+    private final String bucketName;
+    private final Semaphore permits;
+
+    /**
+     * @param permits Shared bound on concurrent requests; also keeps virtual threads within the connection pool
+     */
+    ResourceBatchLookup(S3Client s3Client, String bucketName, Semaphore permits) {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.permits = permits;
+    }
+
+    BatchLookupResult lookup(Collection<String> keys) {
+        if (keys == null) {
+            throw new IllegalArgumentException("getResources: keys cannot be null");
+        }
+        long startNanos = System.nanoTime();
+        Map<String, Resource> found = new ConcurrentHashMap<>();
+        Map<String, RuntimeException> failures = new ConcurrentHashMap<>();
+        Queue<String> leftovers = new ConcurrentLinkedQueue<>();
+
+        // Files grouped by parent folder; folder keys and small groups are HEADed directly
+        Map<String, NavigableSet<String>> byParent = new HashMap<>();
+        List<String> heads = new ArrayList<>();
+        for (String key : new LinkedHashSet<>(keys)) {
+            if (key == null) {
+                throw new IllegalArgumentException("getResources: S3 key cannot be null");
+            }
+            if (key.endsWith("/")) {
+                heads.add(key);
+            } else {
+                byParent.computeIfAbsent(key.substring(0, key.lastIndexOf('/') + 1),
+                        p -> new TreeSet<>(ParallelLister::compareKeys)).add(key);
+            }
+        }
+        List<Map.Entry<String, NavigableSet<String>>> scans = new ArrayList<>();
+        for (Map.Entry<String, NavigableSet<String>> group : byParent.entrySet()) {
+            if (group.getValue().size() >= SCAN_MIN_KEYS) {
+                scans.add(group);
+            } else {
+                heads.addAll(group.getValue());
+            }
+        }
+
+        AtomicInteger headCount = new AtomicInteger();
+        AtomicInteger pageCount = new AtomicInteger();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Map.Entry<String, NavigableSet<String>> group : scans) {
+                submit(pool, () -> scan(group.getKey(), group.getValue(), found, failures, leftovers, pageCount));
+            }
+            for (String key : heads) {
+                submit(pool, () -> head(key, found, failures, headCount));
+            }
+        }
+        // Keys the scans did not get to; only known once the scans are done
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String key : leftovers) {
+                submit(pool, () -> head(key, found, failures, headCount));
+            }
+        }
+
+        LOGGER.info("Batch lookup done. bucket={}, keys={}, found={}, failed={}, heads={}, listPages={}, elapsedMs={}",
+                bucketName, found.size() + failures.size(), found.size(), failures.size(),
+                headCount.get(), pageCount.get(), (System.nanoTime() - startNanos) / 1_000_000);
+
+        BatchLookupResult result = new BatchLookupResult();
+        result.setResources(new TreeMap<>(found));
+        result.setFailures(new TreeMap<>(failures));
+        return result;
+    }
+
+    private void submit(ExecutorService pool, Runnable task) {
+        permits.acquireUninterruptibly();
+        pool.submit(() -> {
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    private void head(String key, Map<String, Resource> found, Map<String, RuntimeException> failures,
+                      AtomicInteger headCount) {
+        headCount.incrementAndGet();
+        try {
+            found.put(key, S3Resources.fromHead(key, s3Client.headObject(HeadObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .build())));
+        } catch (NoSuchKeyException e) {
+            failures.put(key, new RuntimeException("Resource not found: " + key, e));
+        } catch (SdkException e) {
+            LOGGER.warn("Error retrieving resource metadata. key={}, msg={}", key, e.getMessage());
+            failures.put(key, new RuntimeException("Failed to retrieve S3 resource: " + key, e));
+        }
+    }
+
+    /**
+     * Lists one folder (a single level) until the largest wanted key is passed or the page budget runs out.
+     * Wanted keys the listing passed without seeing do not exist; the rest go to the leftovers.
+     */
+    private void scan(String parent, NavigableSet<String> wanted, Map<String, Resource> found,
+                      Map<String, RuntimeException> failures, Queue<String> leftovers, AtomicInteger pageCount) {
+        int budget = Math.max(1, wanted.size() / MIN_KEYS_PER_PAGE);
+        String last = wanted.last();
+        String scannedTo = null; // every key <= scannedTo has been seen
+        String cursor = null;
+        try {
+            for (int page = 0; page < budget; page++) {
+                ListObjectsV2Response response = s3Client.listObjectsV2(ListObjectsV2Request.builder()
+                        .bucket(bucketName)
+                        .prefix(parent)
+                        .delimiter("/")
+                        .continuationToken(cursor)
+                        .build());
+                pageCount.incrementAndGet();
+                for (S3Object obj : response.contents()) {
+                    if (wanted.contains(obj.key())) {
+                        found.put(obj.key(), S3Resources.file(obj));
+                    }
+                }
+                cursor = response.nextContinuationToken();
+                if (cursor == null) {
+                    scannedTo = last;
+                    break;
+                }
+                if (!response.contents().isEmpty()) {
+                    scannedTo = response.contents().get(response.contents().size() - 1).key();
+                    if (ParallelLister.compareKeys(scannedTo, last) >= 0) {
+                        break;
+                    }
+                }
+            }
+        } catch (SdkException e) {
+            LOGGER.warn("Listing scan failed, falling back to HEAD. bucket={}, prefix={}, msg={}",
+                    bucketName, parent, e.getMessage());
+        }
+
+        Set<String> covered = scannedTo == null ? Set.of() : wanted.headSet(scannedTo, true);
+        for (String key : wanted) {
+            if (found.containsKey(key)) {
+                continue;
+            }
+            if (covered.contains(key)) {
+                NoSuchKeyException notFound = NoSuchKeyException.builder()
+                        .message("The specified key does not exist (not in listing of " + parent + ")")
+                        .statusCode(404)
+                        .build();
+                failures.put(key, new RuntimeException("Resource not found: " + key, notFound));
+            } else {
+                leftovers.add(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.S3App;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.SdkHttpService;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out one S3Client per region, shared by every service (and so every bucket) in that region.
+ * Each client has its own tuned HTTP client (see {@link S3ClientSettings}), so a deployment with one
+ * S3ResourceService per bucket keeps one connection pool and one set of warm TLS connections per region
+ * instead of one per bucket:
+ *
+ *   S3ClientRegistry registry = new S3ClientRegistry(credsProvider, new S3ClientSettings());
+ *   S3ResourceService logs = new S3ResourceService(registry.client(region), "logs-bucket", dir, settings);
+ *
+ * The registry owns the clients: services never close them, and {@link #close()} closes them all.
+ */
+public class S3ClientRegistry implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(S3ClientRegistry.class);
+
+    private record Clients(SdkHttpClient httpClient, S3Client s3Client) {
+    }
+
+    private final AwsCredentialsProvider credsProvider;
+    private final S3ClientSettings settings;
+    private final Map<Region, Clients> clients = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    /**
+     * @param credsProvider The AWS credentials for every client (default chain or custom)
+     * @param settings HTTP implementation and connection pool tuning, applied per region
+     */
+    public S3ClientRegistry(AwsCredentialsProvider credsProvider, S3ClientSettings settings) {
+        this.credsProvider = credsProvider;
+        this.settings = settings;
+    }
+
+    /**
+     * @return the shared client for a region, built on first use
+     * @throws IllegalStateException if the registry is closed or the configured HTTP implementation is missing
+     */
+    public S3Client client(Region region) {
+        if (region == null) {
+            throw new IllegalArgumentException("client: region is null");
+        }
+        if (closed) {
+            throw new IllegalStateException("S3ClientRegistry is closed");
+        }
+        return clients.computeIfAbsent(region, this::build).s3Client();
+    }
+
+    /**
+     * @return the number of regions a client was built for
+     */
+    public int size() {
+        return clients.size();
+    }
+
+    /**
+     * Closes every client and its connection pool. Services using them fail afterwards.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Map.Entry<Region, Clients> entry : clients.entrySet()) {
+            // The S3Client does not close an HTTP client it was handed, so both are closed here
+            entry.getValue().s3Client().close();
+            entry.getValue().httpClient().close();
+            LOGGER.info("Closed S3 client. region={}", entry.getKey());
+        }
+        clients.clear();
+    }
+
+    private Clients build(Region region) {
+        SdkHttpClient httpClient = buildHttpClient(settings);
+        S3Client s3Client = S3Client.builder()
+                .region(region)
+                .credentialsProvider(credsProvider)
+                .httpClient(httpClient)
+                .build();
+        LOGGER.info("Created shared S3 client. region={}, http={}, maxConnections={}, connectionTtl={}, maxIdle={}",
+                region, settings.getHttpImplementation(), settings.getMaxConnections(),
+                settings.getConnectionTimeToLive(), settings.getConnectionMaxIdleTime());
+        return new Clients(httpClient, s3Client);
+    }
+
+    /**
+     * Builds an HTTP client of the configured implementation through the SDK's own SdkHttpService lookup,
+     * so implementations that are not on the classpath need no compile-time dependency.
+     */
+    static SdkHttpClient buildHttpClient(S3ClientSettings settings) {
+        S3ClientSettings.HttpImplementation implementation = settings.getHttpImplementation();
+        for (SdkHttpService service : ServiceLoader.load(SdkHttpService.class)) {
+            if (service.getClass().getName().equals(implementation.getServiceClass())) {
+                return service.createHttpClientBuilder().buildWithDefaults(settings.toHttpOptions());
+            }
+        }
+        throw new IllegalStateException("HTTP implementation " + implementation + " is not on the classpath; add "
+                + "software.amazon.awssdk:" + implementation.getArtifactId());
+    }
+}
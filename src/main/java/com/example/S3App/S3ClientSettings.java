@@ -0,0 +1,139 @@
+package com.example.S3App;
+
+import software.amazon.awssdk.http.SdkHttpConfigurationOption;
+import software.amazon.awssdk.utils.AttributeMap;
+
+import java.time.Duration;
+
+/**
+ * HTTP client tuning for the clients handed out by {@link S3ClientRegistry}.
+ * One client (and connection pool) serves every bucket of a region, so maxConnections should cover the services
+ * that are busy at the same time; one S3ResourceService needs about folderConcurrency + lookupConcurrency
+ * + concurrency + upload concurrency + bulk concurrency + 16 listing workers when everything runs at once.
+ *
+ * The Apache client ships with this project. The URL-connection and CRT clients are picked up when their SDK
+ * artifacts (url-connection-client, aws-crt-client) are on the classpath. Options an implementation does not
+ * support are ignored by it: URL-connection has no pool settings, CRT has no connection time-to-live.
+ */
+public class S3ClientSettings {
+
+    /**
+     * The SDK HTTP implementations, by the SdkHttpService each one registers.
+     */
+    public enum HttpImplementation {
+        APACHE("software.amazon.awssdk.http.apache.ApacheSdkHttpService", "apache-client"),
+        URL_CONNECTION("software.amazon.awssdk.http.urlconnection.UrlConnectionSdkHttpService", "url-connection-client"),
+        CRT("software.amazon.awssdk.http.crt.AwsCrtSdkHttpService", "aws-crt-client");
+
+        private final String serviceClass;
+        private final String artifactId;
+
+        HttpImplementation(String serviceClass, String artifactId) {
+            this.serviceClass = serviceClass;
+            this.artifactId = artifactId;
+        }
+
+        public String getServiceClass() {
+            return serviceClass;
+        }
+
+        /**
+         * @return the software.amazon.awssdk artifact that provides this implementation
+         */
+        public String getArtifactId() {
+            return artifactId;
+        }
+    }
+
+    public static final int DEFAULT_MAX_CONNECTIONS = 200;
+    public static final Duration DEFAULT_CONNECTION_MAX_IDLE_TIME = Duration.ofSeconds(60);
+
+    private HttpImplementation httpImplementation = HttpImplementation.APACHE;
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+    private Duration connectionTimeToLive = Duration.ZERO;
+    private Duration connectionMaxIdleTime = DEFAULT_CONNECTION_MAX_IDLE_TIME;
+    private boolean reapIdleConnections = true;
+    private boolean tcpKeepAlive = false;
+
+    public HttpImplementation getHttpImplementation() {
+        return httpImplementation;
+    }
+    public void setHttpImplementation(HttpImplementation httpImplementation) {
+        if (httpImplementation == null) {
+            throw new IllegalArgumentException("httpImplementation cannot be null");
+        }
+        this.httpImplementation = httpImplementation;
+    }
+
+    /**
+     * @return the connection pool size (CRT: maximum concurrent requests)
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+    public void setMaxConnections(int maxConnections) {
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException("maxConnections must be > 0: " + maxConnections);
+        }
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * @return how long a pooled connection is reused at most, so DNS changes are picked up; zero means no limit
+     */
+    public Duration getConnectionTimeToLive() {
+        return connectionTimeToLive;
+    }
+    public void setConnectionTimeToLive(Duration connectionTimeToLive) {
+        if (connectionTimeToLive == null || connectionTimeToLive.isNegative()) {
+            throw new IllegalArgumentException("connectionTimeToLive must be >= 0: " + connectionTimeToLive);
+        }
+        this.connectionTimeToLive = connectionTimeToLive;
+    }
+
+    /**
+     * @return how long a connection may sit idle in the pool before it is closed
+     */
+    public Duration getConnectionMaxIdleTime() {
+        return connectionMaxIdleTime;
+    }
+    public void setConnectionMaxIdleTime(Duration connectionMaxIdleTime) {
+        if (connectionMaxIdleTime == null || connectionMaxIdleTime.isNegative() || connectionMaxIdleTime.isZero()) {
+            throw new IllegalArgumentException("connectionMaxIdleTime must be > 0: " + connectionMaxIdleTime);
+        }
+        this.connectionMaxIdleTime = connectionMaxIdleTime;
+    }
+
+    /**
+     * @return whether a background task closes idle connections, instead of only checking them when leased
+     */
+    public boolean isReapIdleConnections() {
+        return reapIdleConnections;
+    }
+    public void setReapIdleConnections(boolean reapIdleConnections) {
+        this.reapIdleConnections = reapIdleConnections;
+    }
+
+    /**
+     * @return whether TCP keep-alive probes are sent on pooled connections
+     */
+    public boolean isTcpKeepAlive() {
+        return tcpKeepAlive;
+    }
+    public void setTcpKeepAlive(boolean tcpKeepAlive) {
+        this.tcpKeepAlive = tcpKeepAlive;
+    }
+
+    /**
+     * @return the settings as the SDK's implementation-neutral HTTP options
+     */
+    AttributeMap toHttpOptions() {
+        return AttributeMap.builder()
+                .put(SdkHttpConfigurationOption.MAX_CONNECTIONS, maxConnections)
+                .put(SdkHttpConfigurationOption.CONNECTION_TIME_TO_LIVE, connectionTimeToLive)
+                .put(SdkHttpConfigurationOption.CONNECTION_MAX_IDLE_TIMEOUT, connectionMaxIdleTime)
+                .put(SdkHttpConfigurationOption.REAP_IDLE_CONNECTIONS, reapIdleConnections)
+                .put(SdkHttpConfigurationOption.TCP_KEEPALIVE, tcpKeepAlive)
+                .build();
+    }
+}
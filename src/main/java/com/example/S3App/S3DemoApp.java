@@ -19,7 +19,8 @@ import java.util.Scanner;
  *   - Loading config (region, bucket, objectKey, downloadPath) from application.properties
  *   - Switching credential mode: default vs. file-based
  *   - Listing an S3 bucket with pagination
- *   - Retrieving and downloading a file to a specified folder
+ *   - Retrieving and downloading a file to a specified folder, as an interactive transfer of a TransferManager
+ *   - Per-operation metrics via JMX and a periodic log summary
  */
 public class S3DemoApp {
 
@@ -58,10 +59,24 @@ public class S3DemoApp {
             System.exit(1);
         }
 
-        // 5) Build S3 resource service
-        S3ResourceServiceInterface s3Service = new S3ResourceService(
-                credsProvider, region, bucketName, downloadPath
+        // 5) Build S3 resource service on the region's shared client, with per-operation metrics
+        //    (JMX + periodic log summary). Services for further buckets would reuse registry.client(region).
+        DownloadSettings downloadSettings = loadDownloadSettings(appProps);
+        UploadSettings uploadSettings = loadUploadSettings(appProps);
+        BulkSettings bulkSettings = loadBulkSettings(appProps);
+        TransferSettings transferSettings = loadTransferSettings(appProps);
+        S3ClientRegistry registry = new S3ClientRegistry(credsProvider,
+                loadClientSettings(appProps, downloadSettings, uploadSettings, bulkSettings, transferSettings));
+        S3ResourceService bucketService = new S3ResourceService(
+                registry.client(region), bucketName, downloadPath, downloadSettings, uploadSettings, bulkSettings
         );
+        MetricsS3ResourceService s3Service = new MetricsS3ResourceService(bucketService);
+        TransferManager transfers = new TransferManager(transferSettings);
+        s3Service.getMetrics().registerMBeans(bucketName);
+        long reportSeconds = Long.parseLong(appProps.getProperty("aws.s3.metrics.reportSeconds", "60").trim());
+        if (reportSeconds > 0) {
+            new MetricsReporter(s3Service.getMetrics(), java.time.Duration.ofSeconds(reportSeconds));
+        }
         LOGGER.info("=== AWS S3 Demo with pagination (region={}, bucket={}) ===", regionStr, bucketName);
 
         // 6) Wait for user input to list
@@ -77,15 +92,23 @@ public class S3DemoApp {
             Resource res = s3Service.getResource(objectKey);
             System.out.println("Resource found: " + res.getName() + " (type=" + res.getType() + ")");
             if (res.getType() == 0) { // 0 => file
-                File downloadedFile = s3Service.getAsFile(res);
-                System.out.println("Downloaded file to: " + downloadedFile.getAbsolutePath());
+                // The transfer runs on bucketService directly, so hand it to s3Service to count it as getAsFile
+                TransferHandle<File> download = s3Service.recordDownload(
+                        transfers.download(bucketService, res, TransferPriority.INTERACTIVE));
+                File downloadedFile = download.getCompletion().join();
+                System.out.println("Downloaded file to: " + downloadedFile.getAbsolutePath()
+                        + " (" + download.getBytesTransferred() + " bytes)");
             } else {
                 System.out.println("That key is a folder, skipping download...");
             }
+        } catch (java.util.concurrent.CompletionException e) {
+            LOGGER.error("Error downloading resource: {}", e.getCause().getMessage());
         } catch (RuntimeException e) {
             LOGGER.error("Error retrieving/downloading resource: {}", e.getMessage());
         }
 
+        transfers.close();
+        registry.close();
         LOGGER.info("Demo completed.");
     }
 
@@ -130,6 +153,170 @@ public class S3DemoApp {
         return props;
     }
 
+    /**
+     * Reads the optional parallel download tuning from application.properties, falling back to defaults.
+     */
+    private static DownloadSettings loadDownloadSettings(Properties props) {
+        DownloadSettings settings = new DownloadSettings();
+        String threshold = props.getProperty("aws.s3.download.parallelThreshold");
+        String partSize = props.getProperty("aws.s3.download.partSize");
+        String concurrency = props.getProperty("aws.s3.download.concurrency");
+        String folderConcurrency = props.getProperty("aws.s3.download.folderConcurrency");
+        if (threshold != null && !threshold.isBlank()) {
+            settings.setParallelThreshold(Long.parseLong(threshold.trim()));
+        }
+        if (partSize != null && !partSize.isBlank()) {
+            settings.setPartSize(Long.parseLong(partSize.trim()));
+        }
+        if (concurrency != null && !concurrency.isBlank()) {
+            settings.setConcurrency(Integer.parseInt(concurrency.trim()));
+        }
+        if (folderConcurrency != null && !folderConcurrency.isBlank()) {
+            settings.setFolderConcurrency(Integer.parseInt(folderConcurrency.trim()));
+        }
+        String bufferSize = props.getProperty("aws.s3.download.bufferSize");
+        String bufferPoolSize = props.getProperty("aws.s3.download.bufferPoolSize");
+        if (bufferSize != null && !bufferSize.isBlank()) {
+            settings.setBufferSize(Integer.parseInt(bufferSize.trim()));
+        }
+        if (bufferPoolSize != null && !bufferPoolSize.isBlank()) {
+            settings.setBufferPoolSize(Integer.parseInt(bufferPoolSize.trim()));
+        }
+        String verifyChecksums = props.getProperty("aws.s3.download.verifyChecksums");
+        if (verifyChecksums != null && !verifyChecksums.isBlank()) {
+            settings.setVerifyChecksums(Boolean.parseBoolean(verifyChecksums.trim()));
+        }
+        String lookupConcurrency = props.getProperty("aws.s3.lookup.concurrency");
+        if (lookupConcurrency != null && !lookupConcurrency.isBlank()) {
+            settings.setLookupConcurrency(Integer.parseInt(lookupConcurrency.trim()));
+        }
+        String cacheDirectory = props.getProperty("aws.s3.cache.directory");
+        String cacheMaxBytes = props.getProperty("aws.s3.cache.maxBytes");
+        String cacheFreshness = props.getProperty("aws.s3.cache.freshnessSeconds");
+        if (cacheDirectory != null && !cacheDirectory.isBlank()) {
+            settings.setCacheDirectory(cacheDirectory.trim());
+        }
+        if (cacheMaxBytes != null && !cacheMaxBytes.isBlank()) {
+            settings.setCacheMaxBytes(Long.parseLong(cacheMaxBytes.trim()));
+        }
+        if (cacheFreshness != null && !cacheFreshness.isBlank()) {
+            settings.setCacheFreshness(java.time.Duration.ofSeconds(Long.parseLong(cacheFreshness.trim())));
+        }
+        if (Boolean.parseBoolean(props.getProperty("aws.s3.hedge.enabled", "false").trim())) {
+            HedgingPolicy hedging = new HedgingPolicy();
+            String quantile = props.getProperty("aws.s3.hedge.quantile");
+            String budget = props.getProperty("aws.s3.hedge.budget");
+            String throttleRetries = props.getProperty("aws.s3.hedge.maxThrottleRetries");
+            if (quantile != null && !quantile.isBlank()) {
+                hedging.setHedgeQuantile(Double.parseDouble(quantile.trim()));
+            }
+            if (budget != null && !budget.isBlank()) {
+                hedging.setHedgeBudget(Double.parseDouble(budget.trim()));
+            }
+            if (throttleRetries != null && !throttleRetries.isBlank()) {
+                hedging.setMaxThrottleRetries(Integer.parseInt(throttleRetries.trim()));
+            }
+            settings.setHedging(hedging);
+        }
+        return settings;
+    }
+
+    /**
+     * Reads the optional multipart upload tuning from application.properties, falling back to defaults.
+     */
+    private static UploadSettings loadUploadSettings(Properties props) {
+        UploadSettings settings = new UploadSettings();
+        String threshold = props.getProperty("aws.s3.upload.threshold");
+        String partSize = props.getProperty("aws.s3.upload.partSize");
+        String concurrency = props.getProperty("aws.s3.upload.concurrency");
+        if (threshold != null && !threshold.isBlank()) {
+            settings.setThreshold(Long.parseLong(threshold.trim()));
+        }
+        if (partSize != null && !partSize.isBlank()) {
+            settings.setPartSize(Long.parseLong(partSize.trim()));
+        }
+        if (concurrency != null && !concurrency.isBlank()) {
+            settings.setConcurrency(Integer.parseInt(concurrency.trim()));
+        }
+        return settings;
+    }
+
+    /**
+     * Reads the optional bulk delete/copy concurrency from application.properties, falling back to the default.
+     */
+    private static BulkSettings loadBulkSettings(Properties props) {
+        BulkSettings settings = new BulkSettings();
+        String concurrency = props.getProperty("aws.s3.bulk.concurrency");
+        if (concurrency != null && !concurrency.isBlank()) {
+            settings.setConcurrency(Integer.parseInt(concurrency.trim()));
+        }
+        return settings;
+    }
+
+    /**
+     * Reads the optional transfer scheduling limits from application.properties, falling back to defaults.
+     */
+    private static TransferSettings loadTransferSettings(Properties props) {
+        TransferSettings settings = new TransferSettings();
+        String maxConcurrent = props.getProperty("aws.s3.transfer.maxConcurrent");
+        String maxPerBucket = props.getProperty("aws.s3.transfer.maxPerBucket");
+        String interactiveReserve = props.getProperty("aws.s3.transfer.interactiveReserve");
+        String maxBytesPerSecond = props.getProperty("aws.s3.transfer.maxBytesPerSecond");
+        if (maxConcurrent != null && !maxConcurrent.isBlank()) {
+            settings.setMaxConcurrentTransfers(Integer.parseInt(maxConcurrent.trim()));
+        }
+        if (maxPerBucket != null && !maxPerBucket.isBlank()) {
+            settings.setMaxConcurrentPerBucket(Integer.parseInt(maxPerBucket.trim()));
+        }
+        if (interactiveReserve != null && !interactiveReserve.isBlank()) {
+            settings.setInteractiveReserve(Integer.parseInt(interactiveReserve.trim()));
+        }
+        if (maxBytesPerSecond != null && !maxBytesPerSecond.isBlank()) {
+            settings.setMaxBytesPerSecond(Long.parseLong(maxBytesPerSecond.trim()));
+        }
+        return settings;
+    }
+
+    /**
+     * Reads the optional HTTP client tuning from application.properties. Without an explicit pool size,
+     * the pool is sized so this service's downloads, lookups and uploads, plus every scheduled transfer,
+     * never wait for a connection.
+     */
+    private static S3ClientSettings loadClientSettings(Properties props, DownloadSettings downloadSettings,
+                                                       UploadSettings uploadSettings, BulkSettings bulkSettings,
+                                                       TransferSettings transferSettings) {
+        S3ClientSettings settings = new S3ClientSettings();
+        String implementation = props.getProperty("aws.s3.http.implementation");
+        String maxConnections = props.getProperty("aws.s3.http.maxConnections");
+        if (implementation != null && !implementation.isBlank()) {
+            settings.setHttpImplementation(S3ClientSettings.HttpImplementation.valueOf(implementation.trim().toUpperCase()));
+        }
+        if (maxConnections != null && !maxConnections.isBlank()) {
+            settings.setMaxConnections(Integer.parseInt(maxConnections.trim()));
+        } else {
+            settings.setMaxConnections(Math.max(settings.getMaxConnections(),
+                    S3ResourceService.connectionPoolSize(downloadSettings, uploadSettings, bulkSettings)
+                            + TransferManager.connectionsNeeded(transferSettings, downloadSettings, uploadSettings)));
+        }
+        String ttl = props.getProperty("aws.s3.http.connectionTtlSeconds");
+        String maxIdle = props.getProperty("aws.s3.http.connectionMaxIdleSeconds");
+        String reapIdle = props.getProperty("aws.s3.http.reapIdleConnections");
+        String keepAlive = props.getProperty("aws.s3.http.tcpKeepAlive");
+        if (ttl != null && !ttl.isBlank()) {
+            settings.setConnectionTimeToLive(java.time.Duration.ofSeconds(Long.parseLong(ttl.trim())));
+        }
+        if (maxIdle != null && !maxIdle.isBlank()) {
+            settings.setConnectionMaxIdleTime(java.time.Duration.ofSeconds(Long.parseLong(maxIdle.trim())));
+        }
+        if (reapIdle != null && !reapIdle.isBlank()) {
+            settings.setReapIdleConnections(Boolean.parseBoolean(reapIdle.trim()));
+        }
+        if (keepAlive != null && !keepAlive.isBlank()) {
+            settings.setTcpKeepAlive(Boolean.parseBoolean(keepAlive.trim()));
+        }
+        return settings;
+    }
+
     /**
      * Checks if credentials can be resolved. If not, we exit early.
      */
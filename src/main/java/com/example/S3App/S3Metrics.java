@@ -0,0 +1,94 @@
+package com.example.S3App;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The metrics of every {@link S3ResourceServiceInterface} operation, recorded by {@link MetricsS3ResourceService}.
+ * Read them directly, through JMX ({@link #registerMBeans(String)}) or as a periodic log summary ({@link MetricsReporter}).
+ */
+public class S3Metrics {
+
+    public enum Operation {
+        LIST_FOLDER("listFolder"),
+        LIST_ALL("listAll"),
+        GET_RESOURCE("getResource"),
+        GET_RESOURCES("getResources"),
+        GET_AS_FILE("getAsFile"),
+        PUT_FILE("putFile"),
+        DOWNLOAD_FOLDER("downloadFolder"),
+        SYNC_FOLDER("syncFolder"),
+        OPEN_CHANNEL("openChannel"),
+        DELETE_PREFIX("deletePrefix"),
+        DELETE_ALL("deleteAll"),
+        COPY_FOLDER("copyFolder"),
+        MOVE_FOLDER("moveFolder");
+
+        private final String methodName;
+
+        Operation(String methodName) {
+            this.methodName = methodName;
+        }
+
+        public String getMethodName() {
+            return methodName;
+        }
+    }
+
+    private final Map<Operation, OperationMetrics> operations = new EnumMap<>(Operation.class);
+    private final List<ObjectName> registered = new ArrayList<>();
+
+    public S3Metrics() {
+        for (Operation op : Operation.values()) {
+            operations.put(op, new OperationMetrics(op.getMethodName()));
+        }
+    }
+
+    public OperationMetrics get(Operation op) {
+        return operations.get(op);
+    }
+
+    public Collection<OperationMetrics> all() {
+        return Collections.unmodifiableCollection(operations.values());
+    }
+
+    /**
+     * Registers one MXBean per operation with the platform MBean server, named
+     * com.example.S3App:type=S3Metrics,name=&lt;name&gt;,operation=&lt;method&gt;.
+     * @param name Distinguishes services in the same JVM, e.g. the bucket name
+     */
+    public synchronized void registerMBeans(String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (OperationMetrics metrics : operations.values()) {
+                ObjectName objectName = new ObjectName("com.example.S3App:type=S3Metrics,name="
+                        + ObjectName.quote(name) + ",operation=" + metrics.getName());
+                server.registerMBean(metrics, objectName);
+                registered.add(objectName);
+            }
+        } catch (JMException e) {
+            unregisterMBeans();
+            throw new RuntimeException("Failed to register metrics MBeans: " + e.getMessage(), e);
+        }
+    }
+
+    public synchronized void unregisterMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName objectName : registered) {
+            try {
+                server.unregisterMBean(objectName);
+            } catch (JMException e) {
+                // Already gone
+            }
+        }
+        registered.clear();
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.S3App;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Read-only random access to one version of an S3 object, backed by ranged GETs (with If-Match on the ETag it was
+ * opened with, so a replaced object fails instead of mixing versions).
+ *
+ * The object is read in fixed-size blocks kept in an LRU cache of {@code cacheBlocks} blocks:
+ *   - a read that misses fetches all missing blocks it covers, adjacent ones in a single request
+ *   - reads that continue where the previous one ended count as sequential; each one doubles a read-ahead
+ *     window (up to {@code maxReadAheadBlocks}) fetched with the miss, a seek elsewhere resets it
+ * So a footer read costs one small GET, and a full scan costs a few large ones.
+ */
+final class S3ObjectChannel implements SeekableByteChannel {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(S3ObjectChannel.class);
+
+    private final Function<GetObjectRequest, ResponseInputStream<GetObjectResponse>> fetcher;
+    private final String bucketName;
+    private final String key;
+    private final String eTag;
+    private final long size;
+    private final int blockSize;
+    private final int maxReadAheadBlocks;
+    private final int maxBlocksPerRead;
+    private final Map<Long, byte[]> blocks;
+
+    private long position;
+    private long sequentialEnd = -1;
+    private int readAheadBlocks;
+    private boolean open = true;
+    private long requestCount;
+    private long bytesFetched;
+
+    /**
+     * @param fetcher Runs a GET and returns the response stream
+     * @param size The object size from the HEAD the channel was opened with
+     * @param eTag The ETag from the same HEAD
+     */
+    S3ObjectChannel(Function<GetObjectRequest, ResponseInputStream<GetObjectResponse>> fetcher,
+                    String bucketName, String key, long size, String eTag,
+                    int blockSize, int cacheBlocks, int maxReadAheadBlocks) {
+        this.fetcher = fetcher;
+        this.bucketName = bucketName;
+        this.key = key;
+        this.size = size;
+        this.eTag = eTag;
+        this.blockSize = blockSize;
+        // One fetch (blocks read plus read-ahead) never exceeds the cache, so it cannot evict its own first block
+        this.maxReadAheadBlocks = Math.min(maxReadAheadBlocks, cacheBlocks / 2);
+        this.maxBlocksPerRead = cacheBlocks - this.maxReadAheadBlocks;
+        this.blocks = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                return size() > cacheBlocks;
+            }
+        };
+    }
+
+    @Override
+    public synchronized int read(ByteBuffer dst) throws IOException {
+        ensureOpen();
+        if (position >= size) {
+            return -1;
+        }
+        int wanted = (int) Math.min(dst.remaining(), size - position);
+        if (wanted == 0) {
+            return 0;
+        }
+        boolean sequential = position == sequentialEnd;
+        readAheadBlocks = !sequential ? 0
+                : Math.min(maxReadAheadBlocks, readAheadBlocks == 0 ? 1 : readAheadBlocks * 2);
+
+        long first = position / blockSize;
+        long last = (position + wanted - 1) / blockSize;
+        // A read larger than the cache returns fewer bytes, as channels may
+        last = Math.min(last, first + maxBlocksPerRead - 1);
+
+        int copied = 0;
+        for (long block = first; block <= last; block++) {
+            byte[] data = blocks.get(block);
+            if (data == null) {
+                fetch(block, last);
+                data = blocks.get(block);
+            }
+            int offset = (int) (position - block * blockSize);
+            int length = Math.min(data.length - offset, wanted - copied);
+            dst.put(data, offset, length);
+            position += length;
+            copied += length;
+        }
+        sequentialEnd = position;
+        return copied;
+    }
+
+    /**
+     * Fetches block "from" and every following missing block up to "last" plus the read-ahead window,
+     * stopping at the first block that is already cached.
+     */
+    private void fetch(long from, long last) throws IOException {
+        long lastBlock = (size - 1) / blockSize;
+        long end = Math.min(lastBlock, last + readAheadBlocks);
+        long to = from;
+        while (to < end && !blocks.containsKey(to + 1)) {
+            to++;
+        }
+        long start = from * blockSize;
+        long stop = Math.min(size, (to + 1) * blockSize); // exclusive
+        GetObjectRequest request = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .range("bytes=" + start + "-" + (stop - 1))
+                .ifMatch(eTag)
+                .build();
+        LOGGER.debug("Fetching S3 object blocks. key={}, blocks={}-{}, bytes={}", key, from, to, stop - start);
+
+        try (ResponseInputStream<GetObjectResponse> in = fetcher.apply(request)) {
+            requestCount++;
+            for (long block = from; block <= to; block++) {
+                int length = (int) Math.min(blockSize, size - block * blockSize);
+                byte[] data = readFully(in, length);
+                blocks.put(block, data);
+                bytesFetched += length;
+            }
+        } catch (SdkException e) {
+            LOGGER.error("Error reading S3 object range. key={}, range={}-{}, msg={}", key, start, stop - 1, e.getMessage());
+            throw new IOException("Failed to read S3 object range: " + key + " bytes " + start + "-" + (stop - 1), e);
+        }
+    }
+
+    private byte[] readFully(InputStream in, int length) throws IOException {
+        byte[] data = in.readNBytes(length);
+        if (data.length != length) {
+            throw new IOException("Short read for " + key + ": got " + data.length + " of " + length + " bytes");
+        }
+        return data;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public synchronized long position() throws IOException {
+        ensureOpen();
+        return position;
+    }
+
+    @Override
+    public synchronized SeekableByteChannel position(long newPosition) throws IOException {
+        ensureOpen();
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("position must be >= 0: " + newPosition);
+        }
+        position = newPosition;
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return size;
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public synchronized void close() {
+        open = false;
+        blocks.clear();
+    }
+
+    /**
+     * @return the number of ranged GETs sent so far
+     */
+    synchronized long getRequestCount() {
+        return requestCount;
+    }
+
+    synchronized long getBytesFetched() {
+        return bytesFetched;
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+}
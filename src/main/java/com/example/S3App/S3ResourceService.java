@@ -6,38 +6,96 @@ import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.ChecksumMode;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
 import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 import software.amazon.awssdk.services.s3.model.S3Object;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * A concrete S3 service that:
  *   - Lists folders/files in a bucket (paginated)
- *   - Retrieves metadata for a single object
+ *   - Retrieves metadata for a single object, or for many keys at once (see {@link ResourceBatchLookup})
  *   - Downloads file to a user-specified directory, preserving original filename
+ *     (large objects are fetched as concurrent ranged GETs, see {@link DownloadSettings});
+ *     an interrupted download resumes where it stopped (see {@link DownloadCheckpoint})
+ *   - Uploads a local file, in concurrent multipart parts when large (see {@link FileUploader} and {@link UploadSettings})
+ *   - Downloads a whole folder, keeping the key layout, on virtual threads
+ *   - Syncs a folder to a local directory, transferring only new or changed objects (see {@link FolderSync})
+ *   - Lists a whole subtree by listing key ranges in parallel (see {@link ParallelLister})
+ *   - Optionally keeps an ETag-validated local copy of downloads (see {@link DownloadCache})
+ *   - Verifies downloads against the object's checksum while writing them (see {@link ChecksumVerifier})
+ *   - Lets concurrent identical metadata lookups, listing pages and downloads share one request, and writes
+ *     to the same local file take turns (see {@link SingleFlight})
+ *   - Lists what a {@link ChangeFeed} needs to report changes below a prefix: new keys after a watermark and
+ *     occasional parallel full scans
  */
 public class S3ResourceService implements S3ResourceServiceInterface {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(S3ResourceService.class);
 
+    // The Apache client's own default pool size
+    private static final int DEFAULT_MAX_CONNECTIONS = 50;
+
     private final S3Client s3Client;
     private final String bucketName;
     private final String downloadPath;
+    private final DownloadSettings downloadSettings;
+    private final UploadSettings uploadSettings;
+    private final BulkSettings bulkSettings;
+    // Shared by all downloadFolder calls so concurrent folder downloads together stay within the connection pool
+    private final Semaphore folderPermits;
+    private final DownloadCache downloadCache; // null when caching is off
+    private final ParallelLister parallelLister;
+    private final ResourceBatchLookup batchLookup;
+    private final FileUploader uploader;
+    private final BufferPool bufferPool;
+    private final FolderSync folderSync;
+    private final BulkOperations bulk;
+    // Both null when no hedging policy is set
+    private final RequestHedger headHedger;
+    private final RequestHedger getHedger;
+    // Concurrent identical HEADs, listing pages and getAsFile calls share one request
+    private final SingleFlight<String> headFlights = new SingleFlight<>("HEAD");
+    private final SingleFlight<String> listFlights = new SingleFlight<>("LIST");
+    private final SingleFlight<String> downloadFlights = new SingleFlight<>("GET");
+    // getAsFile calls writing the same local file (e.g. two keys with the same name) run one at a time
+    private final SingleFlight<Path> fileWrites = new SingleFlight<>("file");
 
     /**
      * @param credsProvider The AWS credentials (default chain or custom)
@@ -47,26 +105,137 @@ public class S3ResourceService implements S3ResourceServiceInterface {
      */
     public S3ResourceService(AwsCredentialsProvider credsProvider, Region region,
                              String bucketName, String downloadPath) {
-        this.s3Client = S3Client.builder()
+        this(credsProvider, region, bucketName, downloadPath, new DownloadSettings());
+    }
+
+    /**
+     * @param credsProvider The AWS credentials (default chain or custom)
+     * @param region The AWS region
+     * @param bucketName The target S3 bucket name
+     * @param downloadPath Local directory to place downloaded files
+     * @param downloadSettings Part size, concurrency and threshold for parallel ranged downloads
+     */
+    public S3ResourceService(AwsCredentialsProvider credsProvider, Region region,
+                             String bucketName, String downloadPath, DownloadSettings downloadSettings) {
+        this(credsProvider, region, bucketName, downloadPath, downloadSettings, new UploadSettings(), new BulkSettings());
+    }
+
+    /**
+     * @param credsProvider The AWS credentials (default chain or custom)
+     * @param region The AWS region
+     * @param bucketName The target S3 bucket name
+     * @param downloadPath Local directory to place downloaded files
+     * @param downloadSettings Part size, concurrency and threshold for parallel ranged downloads
+     * @param uploadSettings Part size, concurrency and threshold for multipart uploads and copies
+     * @param bulkSettings Concurrency of bulk deletes and folder copies
+     */
+    public S3ResourceService(AwsCredentialsProvider credsProvider, Region region,
+                             String bucketName, String downloadPath, DownloadSettings downloadSettings,
+                             UploadSettings uploadSettings, BulkSettings bulkSettings) {
+        this(null, credsProvider, region, bucketName, downloadPath, downloadSettings, uploadSettings, bulkSettings);
+    }
+
+    /**
+     * Uses an injected client, e.g. a region's shared client from {@link S3ClientRegistry} or one pointed at
+     * a local S3 stand-in for benchmarks. The service never closes it.
+     * @param s3Client The client to use; its connection pool should be at least connectionPoolSize of the settings
+     * @param bucketName The target S3 bucket name
+     * @param downloadPath Local directory to place downloaded files
+     * @param downloadSettings Part size, concurrency and threshold for parallel ranged downloads
+     */
+    public S3ResourceService(S3Client s3Client, String bucketName, String downloadPath, DownloadSettings downloadSettings) {
+        this(s3Client, bucketName, downloadPath, downloadSettings, new UploadSettings(), new BulkSettings());
+    }
+
+    /**
+     * Uses an injected client, like {@link #S3ResourceService(S3Client, String, String, DownloadSettings)}.
+     * @param uploadSettings Part size, concurrency and threshold for multipart uploads and copies
+     * @param bulkSettings Concurrency of bulk deletes and folder copies
+     */
+    public S3ResourceService(S3Client s3Client, String bucketName, String downloadPath, DownloadSettings downloadSettings,
+                             UploadSettings uploadSettings, BulkSettings bulkSettings) {
+        this(s3Client, null, null, bucketName, downloadPath, downloadSettings, uploadSettings, bulkSettings);
+    }
+
+    // Either s3Client is given, or buildS3Client makes one from the credentials and region.
+    // buildS3Client is meant to be overridden and only reads its arguments, so calling it here is safe.
+    @SuppressWarnings("this-escape")
+    private S3ResourceService(S3Client s3Client, AwsCredentialsProvider credsProvider, Region region,
+                              String bucketName, String downloadPath, DownloadSettings downloadSettings,
+                              UploadSettings uploadSettings, BulkSettings bulkSettings) {
+        this.bucketName = bucketName;
+        this.downloadPath = downloadPath;
+        this.downloadSettings = downloadSettings;
+        this.uploadSettings = uploadSettings;
+        this.bulkSettings = bulkSettings;
+        this.s3Client = s3Client != null ? s3Client : buildS3Client(credsProvider, region);
+        this.folderPermits = new Semaphore(downloadSettings.getFolderConcurrency());
+        this.downloadCache = downloadSettings.getCacheDirectory() == null ? null
+                : new DownloadCache(Paths.get(downloadSettings.getCacheDirectory()),
+                        downloadSettings.getCacheMaxBytes(), downloadSettings.getCacheFreshness());
+        this.parallelLister = new ParallelLister(this.s3Client, bucketName, ParallelLister.DEFAULT_PARALLELISM);
+        // Shared by all getResources calls, like folderPermits
+        this.batchLookup = new ResourceBatchLookup(this.s3Client, bucketName,
+                new Semaphore(downloadSettings.getLookupConcurrency()));
+        this.uploader = new FileUploader(this.s3Client, bucketName, uploadSettings);
+        this.bufferPool = new BufferPool(downloadSettings.getBufferSize(), downloadSettings.getBufferPoolSize());
+        // Single stream per object, like downloadFolder, whose permits it shares
+        this.folderSync = new FolderSync(parallelLister,
+                (key, outputPath, size, eTag) -> download(key, outputPath, size, eTag, null, false, TransferControl.NONE),
+                bucketName, folderPermits);
+        this.bulk = new BulkOperations(this.s3Client, bucketName, parallelLister, bulkSettings, uploadSettings);
+        HedgingPolicy hedging = downloadSettings.getHedging();
+        this.headHedger = hedging == null ? null : new RequestHedger("HEAD", hedging);
+        this.getHedger = hedging == null ? null : new RequestHedger("GET", hedging);
+
+        LOGGER.info("S3ResourceService created. Bucket='{}', region='{}', downloadPath='{}', partSize={}, concurrency={}",
+                bucketName, region != null ? region : regionOf(this.s3Client), downloadPath,
+                downloadSettings.getPartSize(), downloadSettings.getConcurrency());
+    }
+
+    /**
+     * Builds the dedicated client of a service created from credentials and a region; runs during construction,
+     * after the settings are set. For many buckets, share clients through {@link S3ClientRegistry} instead.
+     */
+    protected S3Client buildS3Client(AwsCredentialsProvider credsProvider, Region region) {
+        return S3Client.builder()
                 .region(region)
                 .credentialsProvider(credsProvider)
+                .httpClientBuilder(ApacheHttpClient.builder().maxConnections(connectionPoolSize(downloadSettings, uploadSettings, bulkSettings)))
                 .build();
+    }
 
-        this.bucketName = bucketName;
-        this.downloadPath = downloadPath;
+    private static Region regionOf(S3Client client) {
+        var config = client.serviceClientConfiguration();
+        return config == null ? null : config.region();
+    }
 
-        LOGGER.info("S3ResourceService created. Bucket='{}', region='{}', downloadPath='{}'",
-                bucketName, region, downloadPath);
+    /**
+     * Folder downloads and batch lookups run on virtual threads; Apache's pool waits for a free connection inside
+     * a synchronized block, which pins the carrier. Keeping the pool larger than their permits plus every
+     * platform worker (download/upload parts, listing) means a virtual thread never has to wait there.
+     */
+    static int connectionPoolSize(DownloadSettings settings, UploadSettings uploadSettings, BulkSettings bulkSettings) {
+        int needed = settings.getFolderConcurrency() + settings.getLookupConcurrency()
+                + settings.getConcurrency() + uploadSettings.getConcurrency() + ParallelLister.DEFAULT_PARALLELISM
+                + bulkSettings.getConcurrency();
+        return Math.max(DEFAULT_MAX_CONNECTIONS, needed);
     }
 
     @Override
-    public ListResult<Resource> listFolder(Resource parent, String cursor) {
-        String prefix = "";
-        if (parent != null && parent.getType() == 1) {
-            prefix = ensureTrailingSlash(parent.getId());
-        }
+    public ListResult<Resource> listFolder(Resource parent, String cursor, int maxKeys) {
+        String prefix = S3Resources.prefixOf(parent);
+        return S3Resources.toListResult(listPage(prefix, cursor, maxKeys), prefix);
+    }
 
-        LOGGER.debug("Listing S3 folder. bucket={}, prefix={}, cursor={}", bucketName, prefix, cursor);
+    @Override
+    public KeyBlock listFolderCompact(Resource parent, String cursor, int maxKeys) {
+        String prefix = S3Resources.prefixOf(parent);
+        return S3Resources.toKeyBlock(listPage(prefix, cursor, maxKeys), prefix);
+    }
+
+    private ListObjectsV2Response listPage(String prefix, String cursor, int maxKeys) {
+        LOGGER.debug("Listing S3 folder. bucket={}, prefix={}, cursor={}, maxKeys={}", bucketName, prefix, cursor, maxKeys);
 
         try {
             ListObjectsV2Request request = ListObjectsV2Request.builder()
@@ -74,40 +243,10 @@ public class S3ResourceService implements S3ResourceServiceInterface {
                     .prefix(prefix)
                     .delimiter("/")
                     .continuationToken(cursor)
+                    .maxKeys(maxKeys > 0 ? maxKeys : null)
                     .build();
 
-            ListObjectsV2Response response = s3Client.listObjectsV2(request);
-
-            List<Resource> resources = new ArrayList<>();
-
-            // Subfolders
-            for (CommonPrefix cp : response.commonPrefixes()) {
-                String folderKey = cp.prefix(); // e.g., "someFolder/"
-                Resource folder = new Resource();
-                folder.setId(folderKey);
-                folder.setName(extractName(folderKey));
-                folder.setType(1); // 1 => folder
-                resources.add(folder);
-            }
-
-            // Files
-            for (S3Object obj : response.contents()) {
-                String key = obj.key();
-                // Skip the "placeholder" object if it's exactly the prefix
-                if (key.endsWith("/") && key.equals(prefix)) {
-                    continue;
-                }
-                Resource file = new Resource();
-                file.setId(key);
-                file.setName(extractName(key));
-                file.setType(0); // 0 => file
-                resources.add(file);
-            }
-
-            ListResult<Resource> result = new ListResult<>();
-            result.setResources(resources);
-            result.setCursor(response.nextContinuationToken()); // for pagination
-            return result;
+            return listFlights.share(prefix + '\n' + cursor + '\n' + maxKeys, () -> s3Client.listObjectsV2(request));
 
         } catch (SdkException e) {
             LOGGER.error("Error listing objects. bucket={}, prefix={}, message={}",
@@ -128,13 +267,8 @@ public class S3ResourceService implements S3ResourceServiceInterface {
                     .bucket(bucketName)
                     .key(id)
                     .build();
-            s3Client.headObject(headReq);
-
-            Resource resource = new Resource();
-            resource.setId(id);
-            resource.setName(extractName(id));
-            resource.setType(id.endsWith("/") ? 1 : 0);
-            return resource;
+            // Each caller gets its own Resource built from the shared response
+            return S3Resources.fromHead(id, headFlights.share(id, () -> headObject(headReq)));
 
         } catch (NoSuchKeyException ex) {
             LOGGER.warn("S3 object not found: key={}", id);
@@ -145,8 +279,20 @@ public class S3ResourceService implements S3ResourceServiceInterface {
         }
     }
 
+    @Override
+    public BatchLookupResult getResources(Collection<String> keys) {
+        return batchLookup.lookup(keys);
+    }
+
     @Override
     public File getAsFile(Resource resource) {
+        return getAsFile(resource, TransferControl.NONE);
+    }
+
+    /**
+     * getAsFile for a transfer scheduled by a {@link TransferManager}, which paces, tracks and cancels it.
+     */
+    File getAsFile(Resource resource, TransferControl control) {
         if (resource == null || resource.getId() == null) {
             throw new IllegalArgumentException("getAsFile: Resource or ID is null");
         }
@@ -155,35 +301,437 @@ public class S3ResourceService implements S3ResourceServiceInterface {
         }
 
         String key = resource.getId();
-        LOGGER.debug("Downloading S3 object. bucket={}, key={}", bucketName, key);
+        Path outputPath = Paths.get(downloadPath, S3Resources.extractName(key));
+        Path target = outputPath.toAbsolutePath().normalize();
+        if (control != TransferControl.NONE) {
+            // A scheduled transfer has its own progress and cancellation, so it is not shared
+            return fileWrites.exclusive(target, () -> writeFile(key, outputPath, control));
+        }
+        return downloadFlights.share(key, () -> fileWrites.exclusive(target,
+                () -> writeFile(key, outputPath, TransferControl.NONE)));
+    }
+
+    private File writeFile(String key, Path outputPath, TransferControl control) {
+        long bytes = downloadCache != null
+                ? downloadThroughCache(key, outputPath, control)
+                : downloadResumable(key, outputPath, control);
+        LOGGER.info("Downloaded S3 object: key={}, bytes={} => {}", key, bytes, outputPath);
+        return outputPath.toFile();
+    }
+
+    @Override
+    public SeekableByteChannel openChannel(Resource resource) {
+        if (resource == null || resource.getId() == null) {
+            throw new IllegalArgumentException("openChannel: Resource or ID is null");
+        }
+        if (resource.getType() == 1) {
+            throw new IllegalArgumentException("Cannot open a folder as a channel: " + resource.getId());
+        }
 
+        String key = resource.getId();
         try {
-            String fileName = extractName(key);
-            Path outputPath = Paths.get(downloadPath, fileName);
+            HeadObjectResponse head = headObject(HeadObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .build());
+            LOGGER.debug("Opened S3 object channel. key={}, size={}, eTag={}", key, head.contentLength(), head.eTag());
+            return new S3ObjectChannel(this::openObject, bucketName, key, head.contentLength(), head.eTag(),
+                    downloadSettings.getChannelBlockSize(), downloadSettings.getChannelCacheBlocks(),
+                    downloadSettings.getChannelReadAheadBlocks());
+
+        } catch (NoSuchKeyException ex) {
+            LOGGER.warn("S3 object not found: key={}", key);
+            throw new RuntimeException("Resource not found: " + key, ex);
+        } catch (SdkException e) {
+            LOGGER.error("Error opening S3 object channel. key={}, msg={}", key, e.getMessage());
+            throw new RuntimeException("Failed to open S3 object: " + key, e);
+        }
+    }
+
+    @Override
+    public Stream<Resource> listAll(Resource folder, boolean ordered) {
+        if (folder != null && folder.getType() != 1) {
+            throw new IllegalArgumentException("listAll: not a folder: " + folder.getId());
+        }
+        LOGGER.debug("Listing S3 subtree in parallel. bucket={}, prefix={}, ordered={}",
+                bucketName, S3Resources.prefixOf(folder), ordered);
+        return parallelLister.list(folder, ordered);
+    }
+
+    @Override
+    public KeyBlock listAllCompact(Resource folder) {
+        if (folder != null && folder.getType() != 1) {
+            throw new IllegalArgumentException("listAllCompact: not a folder: " + folder.getId());
+        }
+        // Straight from the listed S3Objects: no Resource is created for any key
+        KeyBlock.Builder block = new KeyBlock.Builder();
+        try (Stream<S3Object> objects = parallelLister.listObjects(folder, true)) {
+            objects.forEach(block::add);
+        }
+        return block.build();
+    }
+
+    /**
+     * Lists the whole bucket (in parallel key ranges) into a local {@link BucketIndex} file, replacing any earlier one.
+     * @param file Where to write the index
+     */
+    public BucketIndex buildIndex(Path file) {
+        long start = System.currentTimeMillis();
+        BucketIndex.Writer writer = new BucketIndex.Writer(bucketName, start);
+        try (Stream<S3Object> all = parallelLister.listObjects(null, true)) {
+            all.forEach(writer::add);
+        }
+        try {
+            BucketIndex index = writer.write(file);
+            LOGGER.info("Built bucket index. bucket={}, keys={}, file={}, elapsedMs={}",
+                    bucketName, index.count(), file, System.currentTimeMillis() - start);
+            return index;
+        } catch (IOException e) {
+            LOGGER.error("I/O error writing the bucket index. file={}", file, e);
+            throw new RuntimeException("Failed to write bucket index: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Adds the keys created after the index's watermark (its last key), found with a StartAfter listing, and
+     * rewrites the index file. Keys before the watermark are not revisited; use buildIndex to pick up their changes.
+     * @return the refreshed index, or the given one if nothing was added
+     */
+    public BucketIndex refreshIndex(BucketIndex index) {
+        if (!bucketName.equals(index.getBucketName())) {
+            throw new IllegalArgumentException("Index of bucket " + index.getBucketName() + " cannot be refreshed from " + bucketName);
+        }
+        String watermark = index.watermark();
+        BucketIndex.Writer writer = new BucketIndex.Writer(bucketName, index.getBuiltAt()).addAll(index);
+        try {
+            ListObjectsV2Request request = ListObjectsV2Request.builder()
+                    .bucket(bucketName)
+                    .startAfter(watermark)
+                    .build();
+            for (ListObjectsV2Response page : s3Client.listObjectsV2Paginator(request)) {
+                page.contents().forEach(writer::add);
+            }
+            int added = writer.count() - index.count();
+            if (added == 0) {
+                LOGGER.debug("Bucket index is up to date. bucket={}, watermark={}", bucketName, watermark);
+                return index;
+            }
+            BucketIndex refreshed = writer.write(index.getFile());
+            LOGGER.info("Refreshed bucket index. bucket={}, added={}, keys={}, watermark={}",
+                    bucketName, added, refreshed.count(), refreshed.watermark());
+            return refreshed;
+        } catch (SdkException e) {
+            LOGGER.error("Error listing new keys for the bucket index. bucket={}, startAfter={}, msg={}",
+                    bucketName, watermark, e.getMessage());
+            throw new RuntimeException("Failed to refresh bucket index: " + e.getMessage(), e);
+        } catch (IOException e) {
+            LOGGER.error("I/O error writing the bucket index. file={}", index.getFile(), e);
+            throw new RuntimeException("Failed to write bucket index: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Every object below folder (the whole bucket for null), listed in parallel key ranges and handed out in S3 key
+     * order, for the full scans of a {@link ChangeFeed}. The stream must be closed.
+     */
+    Stream<S3Object> listObjects(Resource folder) {
+        LOGGER.debug("Listing S3 subtree in parallel. bucket={}, prefix={}", bucketName, S3Resources.prefixOf(folder));
+        return parallelLister.listObjects(folder, true);
+    }
+
+    /**
+     * Hands consumer the objects below folder whose keys sort after startAfter (all of them for null), in key order,
+     * from one paginated StartAfter listing.
+     */
+    void listObjectsAfter(Resource folder, String startAfter, Consumer<S3Object> consumer) {
+        String prefix = S3Resources.prefixOf(folder);
+        try {
+            ListObjectsV2Request request = ListObjectsV2Request.builder()
+                    .bucket(bucketName)
+                    .prefix(prefix)
+                    .startAfter(startAfter)
+                    .build();
+            for (ListObjectsV2Response page : s3Client.listObjectsV2Paginator(request)) {
+                page.contents().forEach(consumer);
+            }
+        } catch (SdkException e) {
+            LOGGER.error("Error listing S3 objects after watermark. bucket={}, prefix={}, startAfter={}, msg={}",
+                    bucketName, prefix, startAfter, e.getMessage());
+            throw new RuntimeException("Failed to list S3 objects: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Resource putFile(Path local, String key) {
+        return uploader.upload(local, key);
+    }
+
+    /**
+     * putFile for a transfer scheduled by a {@link TransferManager}, which paces, tracks and cancels it.
+     */
+    Resource putFile(Path local, String key, TransferControl control) {
+        return uploader.upload(local, key, control);
+    }
+
+    /**
+     * @return the bucket this service reads and writes
+     */
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    @Override
+    public FolderDownloadResult downloadFolder(Resource folder, Path target) {
+        if (folder != null && folder.getType() != 1) {
+            throw new IllegalArgumentException("downloadFolder: not a folder: " + folder.getId());
+        }
+        if (target == null) {
+            throw new IllegalArgumentException("downloadFolder: target directory is null");
+        }
+
+        String prefix = S3Resources.prefixOf(folder);
+        Path root = target.toAbsolutePath().normalize();
+        int concurrency = downloadSettings.getFolderConcurrency();
+        LOGGER.info("Downloading S3 folder. bucket={}, prefix={}, target={}, concurrency={}",
+                bucketName, prefix, root, concurrency);
+
+        long startNanos = System.nanoTime();
+        AtomicLong objectCount = new AtomicLong();
+        AtomicLong byteCount = new AtomicLong();
+        Map<String, String> failures = new ConcurrentHashMap<>();
+
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            String cursor = null;
+            do {
+                // A flat listing (no delimiter) walks every level of the prefix in 1000-key pages
+                ListObjectsV2Response page;
+                try {
+                    page = s3Client.listObjectsV2(ListObjectsV2Request.builder()
+                            .bucket(bucketName)
+                            .prefix(prefix)
+                            .continuationToken(cursor)
+                            .build());
+                } catch (SdkException e) {
+                    LOGGER.error("Error listing objects. bucket={}, prefix={}, message={}",
+                            bucketName, prefix, e.getMessage());
+                    failures.put(prefix, "Failed to list S3 objects: " + e.getMessage());
+                    break;
+                }
+
+                for (S3Object obj : page.contents()) {
+                    String key = obj.key();
+                    Path outputPath = root.resolve(key.substring(prefix.length())).normalize();
+                    if (!outputPath.startsWith(root)) {
+                        failures.put(key, "Key resolves outside the target directory");
+                        continue;
+                    }
+                    if (key.endsWith("/")) {
+                        // Folder placeholder: keep the (possibly empty) directory, nothing to download
+                        createDirectory(outputPath, key, failures);
+                        continue;
+                    }
+
+                    // Blocks the lister once `concurrency` downloads are running, so pending work stays bounded
+                    folderPermits.acquireUninterruptibly();
+                    pool.submit(() -> {
+                        try {
+                            // Single stream per object: the folder's own fan-out already fills the connections
+                            byteCount.addAndGet(download(key, outputPath, obj.size(), obj.eTag(), null, false,
+                                    TransferControl.NONE));
+                            objectCount.incrementAndGet();
+                        } catch (RuntimeException e) {
+                            failures.put(key, e.getMessage());
+                        } finally {
+                            folderPermits.release();
+                        }
+                    });
+                }
+                cursor = page.nextContinuationToken();
+            } while (cursor != null);
+        }
+
+        FolderDownloadResult result = new FolderDownloadResult();
+        result.setObjectCount(objectCount.get());
+        result.setBytes(byteCount.get());
+        result.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        result.setFailures(new TreeMap<>(failures));
+
+        LOGGER.info("Downloaded S3 folder. prefix={}, objects={}, bytes={}, elapsedMs={}, failures={}",
+                prefix, result.getObjectCount(), result.getBytes(), result.getElapsedMillis(), failures.size());
+        return result;
+    }
+
+    @Override
+    public SyncResult syncFolder(Resource folder, Path target, boolean deleteOrphans) {
+        return folderSync.sync(folder, target, deleteOrphans);
+    }
+
+    @Override
+    public BulkOperationResult deletePrefix(Resource folder) {
+        requireFolder("deletePrefix", folder);
+        return bulk.deletePrefix(folder);
+    }
+
+    @Override
+    public BulkOperationResult deleteAll(Collection<String> keys) {
+        return bulk.deleteAll(keys);
+    }
+
+    @Override
+    public BulkOperationResult copyFolder(Resource folder, String targetPrefix) {
+        requireFolder("copyFolder", folder);
+        return bulk.copyFolder(folder, targetPrefix, false);
+    }
+
+    @Override
+    public BulkOperationResult moveFolder(Resource folder, String targetPrefix) {
+        requireFolder("moveFolder", folder);
+        return bulk.copyFolder(folder, targetPrefix, true);
+    }
+
+    private static void requireFolder(String operation, Resource folder) {
+        if (folder == null || folder.getType() != 1) {
+            throw new IllegalArgumentException(operation + ": not a folder: " + (folder == null ? null : folder.getId()));
+        }
+    }
+
+    /**
+     * Downloads one object to the given path.
+     * @param size The object size if already known from a listing, or -1 to HEAD it when needed
+     * @param eTag The object's ETag if already known, used to pin ranged GETs to one version
+     * @param verifier The checksum from a HEAD of that ETag, or null to use what the object's own HEAD or GET returns
+     * @param allowParts Whether large objects may be split into concurrent ranged GETs
+     * @param control Progress, pacing and cancellation of a scheduled transfer, or {@link TransferControl#NONE}
+     * @return The number of bytes written
+     */
+    private long download(String key, Path outputPath, long size, String eTag, ChecksumVerifier verifier,
+                          boolean allowParts, TransferControl control) {
+        LOGGER.debug("Downloading S3 object. bucket={}, key={}", bucketName, key);
 
+        try {
             // Ensure the parent directory exists
             java.nio.file.Files.createDirectories(outputPath.getParent());
 
-            GetObjectRequest getReq = GetObjectRequest.builder()
+            // Only pay for the extra HEAD when a parallel download is possible at all
+            if (allowParts && size < 0 && downloadSettings.getParallelThreshold() > 0) {
+                HeadObjectResponse head = headObject(headRequest(key));
+                size = head.contentLength();
+                eTag = head.eTag();
+                verifier = verifierOf(key, head);
+            }
+            if (allowParts && size >= 0 && downloadSettings.useParallel(size)) {
+                downloadInParts(key, eTag, size, outputPath, null, verifier, control);
+                LOGGER.debug("Downloaded S3 object in parts: key={}, size={} => {}", key, size, outputPath);
+                return size;
+            }
+
+            GetObjectRequest.Builder getReq = GetObjectRequest.builder()
                     .bucket(bucketName)
-                    .key(key)
-                    .build();
+                    .key(key);
+            if (verifier != null && eTag != null) {
+                getReq.ifMatch(eTag); // the checksum is that version's
+            }
 
             // Stream-based download to avoid loading entire file in memory
+            long written;
             try (ResponseInputStream<GetObjectResponse> s3Stream =
-                         s3Client.getObject(getReq, ResponseTransformer.toInputStream());
-                 FileOutputStream fos = new FileOutputStream(outputPath.toFile())) {
+                         s3Client.getObject(getReq.build(), ResponseTransformer.toInputStream())) {
+                written = writeBody(key, s3Stream, outputPath, verifier, control);
+            }
+
+            LOGGER.debug("Downloaded S3 object: key={} => {}", key, outputPath);
+            return written;
+
+        } catch (ChecksumVerifier.MismatchException e) {
+            LOGGER.error("S3 download failed verification. key={}, msg={}", key, e.getMessage());
+            throw new RuntimeException("Failed to verify S3 download: " + e.getMessage(), e);
+        } catch (IOException e) {
+            LOGGER.error("I/O error writing the S3 download. key={}", key, e);
+            throw new RuntimeException("I/O error while saving downloaded file: " + e.getMessage(), e);
+        } catch (SdkException e) {
+            LOGGER.error("AWS SDK error downloading file. key={}, msg={}", key, e.getMessage());
+            throw new RuntimeException("Failed to download S3 file: " + key, e);
+        }
+    }
+
+    /**
+     * Writes a GET response body to outputPath through a pooled buffer, reporting progress to control and checking
+     * the bytes against verifier (or the checksum the response carries) as they are written.
+     * A body that fails verification is deleted.
+     * @return The number of bytes written
+     */
+    private long writeBody(String key, ResponseInputStream<GetObjectResponse> s3Stream, Path outputPath,
+                           ChecksumVerifier verifier, TransferControl control) throws IOException {
+        try (FileChannel channel = FileChannel.open(outputPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ChecksumVerifier expected = verifier != null ? verifier : verifierOf(key, s3Stream.response());
+            control.expect(s3Stream.response().contentLength());
+            try (ChecksumVerifier.Digest digest = expected == null ? null : expected.newDigest()) {
+                long written = bufferPool.transfer(s3Stream, channel, 0, Long.MAX_VALUE, digest, control);
+                verify(key, expected, digest);
+                return written;
+            }
+        } catch (ChecksumVerifier.MismatchException e) {
+            java.nio.file.Files.deleteIfExists(outputPath);
+            throw e;
+        }
+    }
+
+    /**
+     * Downloads into a partial file next to outputPath and renames it into place once complete.
+     * Progress is checkpointed per range, so after a crash or dropped connection the next call
+     * fetches only the missing ranges, provided the object still has the same ETag and size.
+     * @return the object size
+     */
+    private long downloadResumable(String key, Path outputPath, TransferControl control) {
+        LOGGER.debug("Downloading S3 object. bucket={}, key={}", bucketName, key);
+
+        try {
+            java.nio.file.Files.createDirectories(outputPath.toAbsolutePath().getParent());
+            Path partial = DownloadCheckpoint.partialFile(outputPath);
+            DownloadCheckpoint checkpoint = DownloadCheckpoint.load(partial);
 
-                byte[] buffer = new byte[16_384];
-                int bytesRead;
-                while ((bytesRead = s3Stream.read(buffer)) != -1) {
-                    fos.write(buffer, 0, bytesRead);
+            // A checkpoint has to be checked against the current object; otherwise HEAD only when parts are possible
+            long size = -1;
+            String eTag = null;
+            ChecksumVerifier verifier = null;
+            if (checkpoint != null || downloadSettings.getParallelThreshold() > 0) {
+                HeadObjectResponse head = headObject(headRequest(key));
+                size = head.contentLength();
+                eTag = head.eTag();
+                verifier = verifierOf(key, head);
+            }
+            if (checkpoint != null && !checkpoint.matches(eTag, size)) {
+                LOGGER.info("S3 object changed since the interrupted download, starting over. key={}, oldETag={}, newETag={}",
+                        key, checkpoint.getETag(), eTag);
+                checkpoint.discard();
+                checkpoint = null;
+            }
+            if (checkpoint == null) {
+                // Bytes without a checkpoint may be from any version
+                java.nio.file.Files.deleteIfExists(partial);
+            } else {
+                LOGGER.info("Resuming S3 download. key={}, completedBytes={}, size={}",
+                        key, checkpoint.completedBytes(), size);
+            }
+
+            if (size >= 0 && downloadSettings.useParallel(size)) {
+                if (checkpoint == null) {
+                    checkpoint = DownloadCheckpoint.create(partial, eTag, size);
                 }
+                downloadInParts(key, eTag, size, partial, checkpoint, verifier, control);
+            } else {
+                checkpoint = downloadStream(key, partial, checkpoint, verifier, control);
             }
 
-            LOGGER.info("Downloaded S3 object: key={} => {}", key, outputPath);
-            return outputPath.toFile();
+            java.nio.file.Files.move(partial, outputPath,
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            checkpoint.finish();
+            return checkpoint.getSize();
 
+        } catch (ChecksumVerifier.MismatchException e) {
+            LOGGER.error("S3 download failed verification, discarded it. key={}, msg={}", key, e.getMessage());
+            throw new RuntimeException("Failed to verify S3 download: " + e.getMessage(), e);
         } catch (IOException e) {
             LOGGER.error("I/O error writing the S3 download. key={}", key, e);
             throw new RuntimeException("I/O error while saving downloaded file: " + e.getMessage(), e);
@@ -193,21 +741,378 @@ public class S3ResourceService implements S3ResourceServiceInterface {
         }
     }
 
-    // Utility to ensure trailing slash for "folder" keys
-    private String ensureTrailingSlash(String key) {
-        return key.endsWith("/") ? key : key + "/";
+    /**
+     * Single GET into the partial file, continuing after the checkpoint's completed prefix if there is one.
+     * Progress is checkpointed every part size; without a checkpoint, the response's ETag and length start one.
+     * The checksum covers the whole object, so a resumed stream first reads back the prefix already on disk;
+     * on a mismatch the partial file and its checkpoint are discarded.
+     * @param verifier The checksum from the HEAD, or null to use what the GET response carries
+     * @return the checkpoint covering the whole object
+     */
+    private DownloadCheckpoint downloadStream(String key, Path partial, DownloadCheckpoint checkpoint,
+                                              ChecksumVerifier verifier, TransferControl control) throws IOException {
+        long from = checkpoint == null ? 0 : checkpoint.completedPrefix();
+        if (checkpoint != null) {
+            control.expect(checkpoint.getSize());
+            control.skipped(from);
+            if (from >= checkpoint.getSize()) {
+                return checkpoint; // Complete, only the rename was missing
+            }
+        }
+        GetObjectRequest.Builder getReq = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key);
+        if (checkpoint != null) {
+            getReq.ifMatch(checkpoint.getETag());
+            if (from > 0) {
+                getReq.range("bytes=" + from + "-");
+            }
+        }
+
+        try (ResponseInputStream<GetObjectResponse> s3Stream = openObject(getReq.build());
+             FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                     StandardOpenOption.WRITE)) {
+            if (checkpoint == null) {
+                GetObjectResponse response = s3Stream.response();
+                checkpoint = DownloadCheckpoint.create(partial, response.eTag(), response.contentLength());
+                control.expect(response.contentLength());
+            }
+            ChecksumVerifier expected = verifier != null ? verifier : verifierOf(key, s3Stream.response());
+            try (ChecksumVerifier.Digest digest = expected == null ? null : expected.newDigest()) {
+                if (digest != null && from > 0) {
+                    digest.update(channel, 0, from);
+                }
+                long position = from;
+                long written;
+                while ((written = bufferPool.transfer(s3Stream, channel, position, downloadSettings.getPartSize(),
+                        digest, control)) > 0) {
+                    channel.force(false);
+                    checkpoint.complete(position, position + written);
+                    position += written;
+                }
+                if (position != checkpoint.getSize()) {
+                    throw new IOException("Short read for " + key + ": got " + position + " of " + checkpoint.getSize() + " bytes");
+                }
+                verify(key, expected, digest);
+            }
+            return checkpoint;
+        } catch (ChecksumVerifier.MismatchException e) {
+            // Resuming would keep the bad bytes
+            checkpoint.discard();
+            throw e;
+        }
+    }
+
+    /**
+     * HEAD request for a download, asking for the stored checksums when downloads are verified.
+     */
+    private HeadObjectRequest headRequest(String key) {
+        HeadObjectRequest.Builder headReq = HeadObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key);
+        if (downloadSettings.isVerifyChecksums()) {
+            headReq.checksumMode(ChecksumMode.ENABLED);
+        }
+        return headReq.build();
+    }
+
+    private ChecksumVerifier verifierOf(String key, HeadObjectResponse head) {
+        return downloadSettings.isVerifyChecksums() ? ChecksumVerifier.of(key, head) : null;
+    }
+
+    private ChecksumVerifier verifierOf(String key, GetObjectResponse response) {
+        return downloadSettings.isVerifyChecksums() ? ChecksumVerifier.of(key, response) : null;
     }
 
-    // Utility to extract the final name from a key. e.g. "folder/sub/file.txt" => "file.txt"
-    private String extractName(String key) {
-        if (key == null || key.isEmpty()) {
-            return key;
+    private static void verify(String key, ChecksumVerifier expected, ChecksumVerifier.Digest digest)
+            throws IOException {
+        if (expected == null) {
+            LOGGER.debug("S3 download not verified, no usable checksum. key={}", key);
+            return;
         }
-        String noSlash = key.endsWith("/") ? key.substring(0, key.length() - 1) : key;
-        int lastSlash = noSlash.lastIndexOf('/');
-        if (lastSlash == -1) {
-            return noSlash;
+        expected.verify(digest);
+        LOGGER.debug("Verified S3 download. key={}, algorithm={}", key, expected.getAlgorithm());
+    }
+
+    /**
+     * HEAD, hedged when a policy is set.
+     */
+    private HeadObjectResponse headObject(HeadObjectRequest headReq) {
+        if (headHedger == null) {
+            return s3Client.headObject(headReq);
+        }
+        HeadObjectRequest hedgedReq = headReq.toBuilder().overrideConfiguration(RequestHedger.NO_SDK_RETRIES).build();
+        return headHedger.execute(() -> s3Client.headObject(hedgedReq), response -> { });
+    }
+
+    /**
+     * GET as a stream, hedged on the time to the response headers when a policy is set; a losing stream is aborted.
+     */
+    private ResponseInputStream<GetObjectResponse> openObject(GetObjectRequest getReq) {
+        if (getHedger == null) {
+            return s3Client.getObject(getReq, ResponseTransformer.toInputStream());
+        }
+        GetObjectRequest hedgedReq = getReq.toBuilder().overrideConfiguration(RequestHedger.NO_SDK_RETRIES).build();
+        return getHedger.execute(() -> s3Client.getObject(hedgedReq, ResponseTransformer.toInputStream()),
+                ResponseInputStream::abort);
+    }
+
+    /**
+     * Serves getAsFile from the local download cache:
+     *   - fresh entry: no request at all
+     *   - stale entry: GET with If-None-Match, a 304 means the cached copy is still current,
+     *     a 200 body is written and verified like any single-stream download and replaces it
+     *   - no entry: regular (possibly parallel) download into the cache
+     * An object larger than the cache quota is written to outputPath without being cached.
+     */
+    private long downloadThroughCache(String key, Path outputPath, TransferControl control) {
+        try {
+            java.nio.file.Files.createDirectories(outputPath.toAbsolutePath().getParent());
+
+            DownloadCache.Entry entry = downloadCache.lookup(bucketName, key);
+            if (entry != null) {
+                if (downloadCache.isFresh(entry)) {
+                    LOGGER.debug("Download served from cache without revalidation. key={}", key);
+                } else {
+                    long replaced = revalidate(key, entry, outputPath, control);
+                    if (replaced >= 0) {
+                        return replaced;
+                    }
+                    entry = downloadCache.markValidated(entry);
+                }
+                try {
+                    long bytes = downloadCache.copyTo(entry, outputPath);
+                    control.expect(bytes);
+                    control.skipped(bytes);
+                    return bytes;
+                } catch (java.nio.file.NoSuchFileException evicted) {
+                    // Evicted between lookup and copy; fetch it again below
+                    downloadCache.remove(entry);
+                }
+            }
+
+            HeadObjectResponse head = headObject(headRequest(key));
+            Path temp = downloadCache.newTempFile();
+            try {
+                download(key, temp, head.contentLength(), head.eTag(), verifierOf(key, head), true, control);
+                return commitAndCopy(key, head.eTag(), head.lastModified(), temp, outputPath, control);
+            } finally {
+                java.nio.file.Files.deleteIfExists(temp);
+            }
+
+        } catch (ChecksumVerifier.MismatchException e) {
+            LOGGER.error("S3 download failed verification. key={}, msg={}", key, e.getMessage());
+            throw new RuntimeException("Failed to verify S3 download: " + e.getMessage(), e);
+        } catch (IOException e) {
+            LOGGER.error("I/O error writing the S3 download. key={}", key, e);
+            throw new RuntimeException("I/O error while saving downloaded file: " + e.getMessage(), e);
+        } catch (SdkException e) {
+            LOGGER.error("AWS SDK error downloading file. key={}, msg={}", key, e.getMessage());
+            throw new RuntimeException("Failed to download S3 file: " + key, e);
+        }
+    }
+
+    /**
+     * Conditional GET. On a 200 the body goes to a cache temp file through writeBody, like any single-stream
+     * download, is committed in place of the old entry and copied to outputPath.
+     * @return the bytes written to outputPath, or -1 on a 304: the cached copy is still current
+     */
+    private long revalidate(String key, DownloadCache.Entry entry, Path outputPath, TransferControl control)
+            throws IOException {
+        GetObjectRequest getReq = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .ifNoneMatch(entry.getETag())
+                .build();
+        try (ResponseInputStream<GetObjectResponse> s3Stream =
+                     s3Client.getObject(getReq, ResponseTransformer.toInputStream())) {
+            GetObjectResponse response = s3Stream.response();
+            LOGGER.debug("Cached download is stale, replacing. key={}, oldETag={}, newETag={}",
+                    key, entry.getETag(), response.eTag());
+            Path temp = downloadCache.newTempFile();
+            try {
+                writeBody(key, s3Stream, temp, null, control);
+                return commitAndCopy(key, response.eTag(), response.lastModified(), temp, outputPath, control);
+            } finally {
+                java.nio.file.Files.deleteIfExists(temp);
+            }
+        } catch (S3Exception e) {
+            if (e.statusCode() != 304) {
+                throw e;
+            }
+            LOGGER.debug("Cached download still current (304). key={}", key);
+            return -1;
+        }
+    }
+
+    /**
+     * Commits a downloaded cache temp file and copies it to outputPath. A file larger than the cache quota is
+     * copied straight from temp; one evicted or replaced by a concurrent download before the copy is downloaded
+     * again without the cache.
+     */
+    private long commitAndCopy(String key, String eTag, java.time.Instant lastModified, Path temp, Path outputPath,
+                               TransferControl control) throws IOException {
+        DownloadCache.Entry entry = downloadCache.commit(bucketName, key, eTag, epochMillis(lastModified), temp);
+        if (entry == null) {
+            return DownloadCache.copyFile(temp, outputPath);
+        }
+        try {
+            return downloadCache.copyTo(entry, outputPath);
+        } catch (java.nio.file.NoSuchFileException evicted) {
+            LOGGER.debug("Cached download gone before it was copied, downloading without the cache. key={}", key);
+            return downloadResumable(key, outputPath, control);
+        }
+    }
+
+    private static long epochMillis(java.time.Instant instant) {
+        return instant == null ? 0 : instant.toEpochMilli();
+    }
+
+    private static void createDirectory(Path dir, String key, Map<String, String> failures) {
+        try {
+            java.nio.file.Files.createDirectories(dir);
+        } catch (IOException e) {
+            failures.put(key, "I/O error while creating directory: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Splits the object into byte ranges and fetches them with concurrent ranged GETs.
+     * Each part is written at its own offset in a preallocated file, so parts can finish in any order.
+     * Every GET carries If-Match with the HEAD ETag, so an object replaced mid-download fails instead of mixing versions.
+     * With a checkpoint, only its missing ranges are fetched, each finished part is recorded in it, and the file is
+     * kept on failure for the next attempt; without one, a failed download deletes the file.
+     * With a CRC verifier, each part's CRC is computed as it is written (ranges from an earlier attempt are read back)
+     * and the combined CRC is checked at the end; a mismatch deletes the file and the checkpoint.
+     */
+    private void downloadInParts(String key, String eTag, long size, Path outputPath, DownloadCheckpoint checkpoint,
+                                 ChecksumVerifier verifier, TransferControl control) throws IOException {
+        long partSize = downloadSettings.getPartSize();
+        List<long[]> parts = new ArrayList<>();
+        for (long[] gap : checkpoint != null ? checkpoint.missing() : List.of(new long[] {0, size})) {
+            for (long start = gap[0]; start < gap[1]; start += partSize) {
+                parts.add(new long[] {start, Math.min(start + partSize, gap[1])});
+            }
+        }
+        int partCount = parts.size();
+        control.expect(size);
+        control.skipped(size - parts.stream().mapToLong(part -> part[1] - part[0]).sum());
+        int workers = Math.max(1, Math.min(downloadSettings.getConcurrency(), partCount));
+        LOGGER.debug("Parallel download. key={}, size={}, parts={}, workers={}", key, size, partCount, workers);
+
+        AtomicInteger nextPart = new AtomicInteger();
+        AtomicBoolean failed = new AtomicBoolean();
+        boolean completed = false;
+        // SHA-256 and MD5 cannot be assembled from parts
+        ChecksumVerifier.Parts checksums = verifier != null && verifier.isCombinable() ? verifier.newParts() : null;
+        if (verifier != null && checksums == null) {
+            LOGGER.debug("Parallel download not verified, {} cannot be combined from parts. key={}",
+                    verifier.getAlgorithm(), key);
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(outputPath.toFile(), "rw")) {
+            if (raf.length() != size) {
+                raf.setLength(size);
+            }
+            FileChannel channel = raf.getChannel();
+            if (checksums != null && checkpoint != null) {
+                for (long[] done : checkpoint.completed()) {
+                    try (ChecksumVerifier.Digest digest = verifier.newDigest()) {
+                        digest.update(channel, done[0], done[1]);
+                        checksums.add(done[0], done[1], digest.crc());
+                    }
+                }
+            }
+
+            List<Future<Void>> futures = new ArrayList<>(workers);
+            try (ExecutorService pool = Executors.newFixedThreadPool(workers)) {
+                for (int i = 0; i < workers; i++) {
+                    futures.add(pool.submit(() -> {
+                        int part;
+                        // Workers pull the next part index, so fast connections pick up more parts
+                        while (!failed.get() && (part = nextPart.getAndIncrement()) < partCount) {
+                            long start = parts.get(part)[0];
+                            long end = parts.get(part)[1];
+                            try {
+                                try (ChecksumVerifier.Digest digest = checksums == null ? null : verifier.newDigest()) {
+                                    downloadRange(key, eTag, start, end - 1, channel, digest, control);
+                                    if (digest != null) {
+                                        checksums.add(start, end, digest.crc());
+                                    }
+                                }
+                                if (checkpoint != null) {
+                                    // On disk before the checkpoint says so
+                                    channel.force(false);
+                                    checkpoint.complete(start, end);
+                                }
+                            } catch (IOException | RuntimeException e) {
+                                failed.set(true);
+                                throw e;
+                            }
+                        }
+                        return null;
+                    }));
+                }
+            }
+
+            for (Future<Void> future : futures) {
+                awaitPart(future);
+            }
+            if (checksums != null) {
+                checksums.verify(size);
+                LOGGER.debug("Verified S3 download. key={}, algorithm={}, parts={}", key, verifier.getAlgorithm(), partCount);
+            }
+            completed = true;
+        } catch (ChecksumVerifier.MismatchException e) {
+            if (checkpoint != null) {
+                // Resuming would keep the bad bytes
+                checkpoint.discard();
+            }
+            throw e;
+        } finally {
+            if (!completed && checkpoint == null) {
+                // Don't leave a preallocated file full of holes behind
+                java.nio.file.Files.deleteIfExists(outputPath);
+            }
+        }
+    }
+
+    // Fetches bytes [start, end] and writes them through a pooled buffer with positional writes at the same offset.
+    private void downloadRange(String key, String eTag, long start, long end, FileChannel channel,
+                               ChecksumVerifier.Digest digest, TransferControl control) throws IOException {
+        GetObjectRequest rangeReq = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .range("bytes=" + start + "-" + end)
+                .ifMatch(eTag)
+                .build();
+
+        try (ResponseInputStream<GetObjectResponse> s3Stream =
+                     s3Client.getObject(rangeReq, ResponseTransformer.toInputStream())) {
+            long written = bufferPool.transfer(s3Stream, channel, start, Long.MAX_VALUE, digest, control);
+            if (written != end - start + 1) {
+                throw new IOException("Short read for range " + start + "-" + end + " of " + key
+                        + ": got " + written + " bytes");
+            }
+        }
+    }
+
+    // Unwraps a part's failure back into the exception types getAsFile already handles
+    private static void awaitPart(Future<Void> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for download parts", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException("Download part failed: " + cause, cause);
         }
-        return noSlash.substring(lastSlash + 1);
     }
 }
@@ -1,9 +1,26 @@
 package com.example.S3App;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 /**
  * Defines operations for interacting with AWS S3 resources.
+ *
+ * Only listFolder, getResource and getAsFile must be implemented. Reads that can be built from those have defaults,
+ * which make one request at a time; the write, bulk, sync and random-access operations throw
+ * UnsupportedOperationException unless overridden.
  */
 public interface S3ResourceServiceInterface {
 
@@ -13,7 +30,99 @@ public interface S3ResourceServiceInterface {
      * @param cursor A continuation token from a previous call, or null for the first page.
      * @return A ListResult containing discovered resources plus possibly a next cursor.
      */
-    ListResult<Resource> listFolder(Resource parent, String cursor);
+    default ListResult<Resource> listFolder(Resource parent, String cursor) {
+        return listFolder(parent, cursor, 0);
+    }
+
+    /**
+     * Lists one page of a parent folder with an explicit page size.
+     * @param parent The parent resource (folder), or null for the bucket root.
+     * @param cursor A continuation token from a previous call, or null for the first page.
+     * @param maxKeys Maximum entries per page (S3 caps it at 1000), or 0 for the S3 default.
+     * @return A ListResult containing discovered resources plus possibly a next cursor.
+     */
+    ListResult<Resource> listFolder(Resource parent, String cursor, int maxKeys);
+
+    /**
+     * Lists one page of a parent folder like listFolder, as a compact {@link KeyBlock} instead of a Resource per entry.
+     * @param parent The parent resource (folder), or null for the bucket root.
+     * @param cursor A continuation token from a previous call, or null for the first page.
+     * @param maxKeys Maximum entries per page (S3 caps it at 1000), or 0 for the S3 default.
+     * @return The page's entries, with the next cursor in {@link KeyBlock#getCursor()}
+     */
+    default KeyBlock listFolderCompact(Resource parent, String cursor, int maxKeys) {
+        ListResult<Resource> page = listFolder(parent, cursor, maxKeys);
+        return KeyBlock.of(page.getResources(), page.getCursor());
+    }
+
+    /**
+     * Lazily streams every entry of a folder (one level, like listFolder), page by page.
+     * The next page is requested in the background while the current one is consumed.
+     * @param parent The parent resource (folder), or null for the bucket root.
+     * @param maxKeys Page size, or 0 for the S3 default.
+     */
+    default Stream<Resource> streamFolder(Resource parent, int maxKeys) {
+        return FolderListing.stream(this, parent, maxKeys);
+    }
+
+    /**
+     * Publishes every entry of a folder (one level, like listFolder) with backpressure.
+     * Pages are fetched only as subscriber demand requires, plus one page of read-ahead,
+     * so memory stays bounded however large the folder is.
+     * @param parent The parent resource (folder), or null for the bucket root.
+     * @param maxKeys Page size, or 0 for the S3 default.
+     */
+    default Flow.Publisher<Resource> publishFolder(Resource parent, int maxKeys) {
+        return new ListingPublisher(this, parent, maxKeys, ListingPublisher.DEFAULT_MAX_BUFFERED_PAGES);
+    }
+
+    /**
+     * Streams every object below a folder, at any depth (no delimiter), listing key ranges concurrently.
+     * Folder placeholder objects are included as folders. Close the stream to stop an unfinished listing.
+     * @param folder The folder to list, or null for the whole bucket.
+     * This default walks the folder level by level through listFolder, in key order either way, and does not
+     * report folder placeholders.
+     * @param folder The folder to list, or null for the whole bucket.
+     * @param ordered true for key order; false lets objects arrive as soon as any range produces them.
+     */
+    default Stream<Resource> listAll(Resource folder, boolean ordered) {
+        if (folder != null && folder.getType() != 1) {
+            throw new IllegalArgumentException("listAll: not a folder: " + folder.getId());
+        }
+        return FolderListing.walk(this, folder);
+    }
+
+    /**
+     * Lists every object below a folder, like listAll in key order, into one compact {@link KeyBlock}.
+     * Meant for enumerations of millions of keys that have to be held in memory at once.
+     * @param folder The folder to list, or null for the whole bucket.
+     */
+    default KeyBlock listAllCompact(Resource folder) {
+        KeyBlock.Builder block = new KeyBlock.Builder();
+        try (Stream<Resource> all = listAll(folder, true)) {
+            all.forEach(block::add);
+        }
+        return block.build();
+    }
+
+    /**
+     * Object count, total bytes and size histogram of everything below a folder, with the immediate child prefixes
+     * broken down the same way. See {@link #computeStats(Resource, int)}.
+     * @param folder The folder to measure, or null for the whole bucket.
+     */
+    default FolderStats computeStats(Resource folder) {
+        return computeStats(folder, 1);
+    }
+
+    /**
+     * Object count, total bytes and size histogram of everything below a folder ("du"). Sub-prefixes are listed
+     * and aggregated in parallel; only counters are kept, never the listed entries.
+     * @param folder The folder to measure, or null for the whole bucket.
+     * @param depth Levels of child prefixes to break down: 0 for none, 1 for the immediate children, and so on.
+     */
+    default FolderStats computeStats(Resource folder, int depth) {
+        return FolderStatsCollector.collect(this, folder, depth);
+    }
 
     /**
      * Retrieves an S3 object's metadata by key. Throws an exception if it doesn't exist.
@@ -22,10 +131,170 @@ public interface S3ResourceServiceInterface {
      */
     Resource getResource(String id);
 
+    /**
+     * Retrieves metadata for many keys at once, with requests running concurrently.
+     * A missing or failing key does not stop the others; it is reported in the failures map instead.
+     * This default looks the keys up one at a time through getResource.
+     * @param keys The S3 keys; duplicates are looked up once
+     * @return Found resources (with size, ETag, last-modified) and per-key failures
+     */
+    default BatchLookupResult getResources(Collection<String> keys) {
+        if (keys == null) {
+            throw new IllegalArgumentException("getResources: keys cannot be null");
+        }
+        Map<String, Resource> found = new TreeMap<>();
+        Map<String, RuntimeException> failures = new TreeMap<>();
+        for (String key : new LinkedHashSet<>(keys)) {
+            if (key == null) {
+                throw new IllegalArgumentException("getResources: S3 key cannot be null");
+            }
+            try {
+                found.put(key, getResource(key));
+            } catch (RuntimeException e) {
+                failures.put(key, e);
+            }
+        }
+        BatchLookupResult result = new BatchLookupResult();
+        result.setResources(found);
+        result.setFailures(failures);
+        return result;
+    }
+
     /**
      * Downloads the specified file resource to a local directory, preserving file name.
      * @param resource Must be type=0 (file).
      * @return A File reference to the downloaded content
      */
     File getAsFile(Resource resource);
+
+    /**
+     * Opens a file resource for random access without downloading it. Reads are served by ranged GETs of
+     * fixed-size blocks with an LRU block cache and read-ahead for sequential reads, so reading a footer or
+     * a header transfers only the blocks it touches. The channel reads the version that existed when it was opened;
+     * if the object is replaced, later reads fail.
+     * @param resource Must be type=0 (file).
+     * @return A read-only channel; close it to release its block cache
+     */
+    default SeekableByteChannel openChannel(Resource resource) {
+        throw unsupported("openChannel");
+    }
+
+    /**
+     * Uploads a local file to the given key, replacing any existing object.
+     * Large files are sent as a multipart upload with concurrent parts; a failed upload is aborted.
+     * @param local The file to upload
+     * @param key The target S3 key (not a folder key)
+     * @return The uploaded resource with its size and ETag
+     */
+    default Resource putFile(Path local, String key) {
+        throw unsupported("putFile");
+    }
+
+    /**
+     * Downloads every object under a folder, recreating the relative key layout below the target directory.
+     * Downloads start while later listing pages are still being fetched. A failed object does not stop the others.
+     * This default downloads one object at a time: listAll, then getAsFile for each object, moved into place.
+     * @param folder Must be type=1 (folder), or null for the bucket root.
+     * @param target Local directory to download into
+     * @return Object count, bytes, elapsed time and per-key failures
+     */
+    default FolderDownloadResult downloadFolder(Resource folder, Path target) {
+        if (target == null) {
+            throw new IllegalArgumentException("downloadFolder: target directory is null");
+        }
+        String prefix = S3Resources.prefixOf(folder);
+        Path root = target.toAbsolutePath().normalize();
+        long startNanos = System.nanoTime();
+        long objectCount = 0;
+        long bytes = 0;
+        Map<String, String> failures = new TreeMap<>();
+        try (Stream<Resource> objects = listAll(folder, true)) {
+            Iterator<Resource> it = objects.iterator();
+            while (it.hasNext()) {
+                Resource object = it.next();
+                Path outputPath = root.resolve(object.getId().substring(prefix.length())).normalize();
+                if (!outputPath.startsWith(root)) {
+                    failures.put(object.getId(), "Key resolves outside the target directory");
+                    continue;
+                }
+                try {
+                    File downloaded = getAsFile(object);
+                    Files.createDirectories(outputPath.getParent());
+                    Files.move(downloaded.toPath(), outputPath, StandardCopyOption.REPLACE_EXISTING);
+                    bytes += Files.size(outputPath);
+                    objectCount++;
+                } catch (IOException e) {
+                    failures.put(object.getId(), "I/O error while saving downloaded file: " + e.getMessage());
+                } catch (RuntimeException e) {
+                    failures.put(object.getId(), e.getMessage());
+                }
+            }
+        } catch (RuntimeException e) {
+            failures.put(prefix, "Failed to list S3 objects: " + e.getMessage());
+        }
+        FolderDownloadResult result = new FolderDownloadResult();
+        result.setObjectCount(objectCount);
+        result.setBytes(bytes);
+        result.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        result.setFailures(failures);
+        return result;
+    }
+
+    /**
+     * Brings a local directory up to date with a folder: downloads only new or changed objects (by size, ETag and
+     * last-modified, plus a manifest the previous run left in the target), in parallel, keeping the key layout.
+     * Both sides are compared in key order as they are read, so memory does not grow with the number of keys.
+     * @param folder Must be type=1 (folder), or null for the bucket root.
+     * @param target Local directory to sync into
+     * @param deleteOrphans Whether to delete local files whose object no longer exists
+     * @return Downloaded, unchanged and deleted counts, bytes, elapsed time and per-key failures
+     */
+    default SyncResult syncFolder(Resource folder, Path target, boolean deleteOrphans) {
+        throw unsupported("syncFolder");
+    }
+
+    /**
+     * Deletes every object below a folder, at any depth, in DeleteObjects batches of up to 1000 keys sent
+     * concurrently while the listing continues. A key S3 refuses to delete does not stop the others.
+     * @param folder Must be type=1 (folder); the bucket root is rejected.
+     * @return Deleted count, elapsed time and per-key failures
+     */
+    default BulkOperationResult deletePrefix(Resource folder) {
+        throw unsupported("deletePrefix");
+    }
+
+    /**
+     * Deletes the given keys in concurrent DeleteObjects batches of up to 1000 keys.
+     * @param keys The S3 keys; duplicates are deleted once
+     * @return Deleted count, elapsed time and per-key failures
+     */
+    default BulkOperationResult deleteAll(Collection<String> keys) {
+        throw unsupported("deleteAll");
+    }
+
+    /**
+     * Copies every object below a folder to the same relative keys below a target prefix, server-side: no bytes
+     * pass through this host. Large objects are copied as concurrent UploadPartCopy ranges.
+     * @param folder Must be type=1 (folder)
+     * @param targetPrefix The prefix to copy into, or "" for the bucket root; must not lie inside the folder
+     * @return Copied count, bytes, elapsed time and per-key failures
+     */
+    default BulkOperationResult copyFolder(Resource folder, String targetPrefix) {
+        throw unsupported("copyFolder");
+    }
+
+    /**
+     * Moves a folder like copyFolder, then deletes the sources that were copied; an object whose copy failed
+     * stays where it was.
+     * @param folder Must be type=1 (folder)
+     * @param targetPrefix The prefix to move into, or "" for the bucket root; must not lie inside the folder
+     * @return Moved count, bytes, elapsed time and per-key failures
+     */
+    default BulkOperationResult moveFolder(Resource folder, String targetPrefix) {
+        throw unsupported("moveFolder");
+    }
+
+    private UnsupportedOperationException unsupported(String operation) {
+        return new UnsupportedOperationException(operation + " is not supported by " + getClass().getName());
+    }
 }
@@ -0,0 +1,148 @@
+package com.example.S3App;
+
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Key helpers and response-to-Resource mapping shared by the sync and async services.
+ */
+final class S3Resources {
+
+    private S3Resources() {
+    }
+
+    /**
+     * @return the listing prefix for a parent resource: "" for the bucket root, otherwise the folder key with a trailing slash
+     */
+    static String prefixOf(Resource parent) {
+        if (parent != null && parent.getType() == 1) {
+            return ensureTrailingSlash(parent.getId());
+        }
+        return "";
+    }
+
+    static Resource folder(String key) {
+        Resource folder = new Resource();
+        folder.setId(key);
+        folder.setName(extractName(key));
+        folder.setType(1); // 1 => folder
+        return folder;
+    }
+
+    static Resource file(String key) {
+        Resource file = new Resource();
+        file.setId(key);
+        file.setName(extractName(key));
+        file.setType(0); // 0 => file
+        return file;
+    }
+
+    /**
+     * A listed object with its size, ETag and last-modified time.
+     */
+    static Resource file(S3Object obj) {
+        Resource file = file(obj.key());
+        setMetadata(file, obj.size(), obj.eTag(), obj.lastModified());
+        return file;
+    }
+
+    /**
+     * An object from a recursive listing: a folder placeholder ("a/b/") becomes a folder, anything else a file.
+     */
+    static Resource fromListing(S3Object obj) {
+        return obj.key().endsWith("/") ? folder(obj.key()) : file(obj);
+    }
+
+    /**
+     * The resource a successful HEAD describes; a key ending in "/" is a folder placeholder.
+     */
+    static Resource fromHead(String key, HeadObjectResponse head) {
+        Resource resource = key.endsWith("/") ? folder(key) : file(key);
+        setMetadata(resource, head.contentLength(), head.eTag(), head.lastModified());
+        return resource;
+    }
+
+    static Resource copyOf(Resource resource) {
+        Resource copy = new Resource();
+        copy.setId(resource.getId());
+        copy.setName(resource.getName());
+        copy.setType(resource.getType());
+        copy.setSize(resource.getSize());
+        copy.setETag(resource.getETag());
+        copy.setLastModified(resource.getLastModified());
+        return copy;
+    }
+
+    private static void setMetadata(Resource resource, Long size, String eTag, Instant lastModified) {
+        resource.setSize(size == null ? 0 : size);
+        resource.setETag(eTag);
+        resource.setLastModified(lastModified == null ? 0 : lastModified.toEpochMilli());
+    }
+
+    /**
+     * Maps one ListObjectsV2 page: subfolders first, then files, skipping the folder's own placeholder object.
+     */
+    static ListResult<Resource> toListResult(ListObjectsV2Response response, String prefix) {
+        List<Resource> resources = new ArrayList<>(response.commonPrefixes().size() + response.contents().size());
+
+        // Subfolders
+        for (CommonPrefix cp : response.commonPrefixes()) {
+            resources.add(folder(cp.prefix())); // e.g., "someFolder/"
+        }
+
+        // Files
+        for (S3Object obj : response.contents()) {
+            String key = obj.key();
+            // Skip the "placeholder" object if it's exactly the prefix
+            if (key.endsWith("/") && key.equals(prefix)) {
+                continue;
+            }
+            resources.add(file(obj));
+        }
+
+        ListResult<Resource> result = new ListResult<>();
+        result.setResources(resources);
+        result.setCursor(response.nextContinuationToken()); // for pagination
+        return result;
+    }
+
+    /**
+     * Maps one ListObjectsV2 page like toListResult, but into a KeyBlock without a Resource per entry.
+     */
+    static KeyBlock toKeyBlock(ListObjectsV2Response response, String prefix) {
+        KeyBlock.Builder block = new KeyBlock.Builder();
+        for (CommonPrefix cp : response.commonPrefixes()) {
+            block.addFolder(cp.prefix());
+        }
+        for (S3Object obj : response.contents()) {
+            if (!(obj.key().endsWith("/") && obj.key().equals(prefix))) {
+                block.add(obj);
+            }
+        }
+        return block.build(response.nextContinuationToken());
+    }
+
+    // Utility to ensure trailing slash for "folder" keys
+    static String ensureTrailingSlash(String key) {
+        return key.endsWith("/") ? key : key + "/";
+    }
+
+    // Utility to extract the final name from a key. e.g. "folder/sub/file.txt" => "file.txt"
+    static String extractName(String key) {
+        if (key == null || key.isEmpty()) {
+            return key;
+        }
+        String noSlash = key.endsWith("/") ? key.substring(0, key.length() - 1) : key;
+        int lastSlash = noSlash.lastIndexOf('/');
+        if (lastSlash == -1) {
+            return noSlash;
+        }
+        return noSlash.substring(lastSlash + 1);
+    }
+}
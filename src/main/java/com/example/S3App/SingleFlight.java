@@ -0,0 +1,146 @@
+package com.example.S3App;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Coordinates concurrent calls by key, in one of two ways (an instance is used for one of them only):
+ *   - share: a call for a key that already has one in flight waits for that call and gets its result or exception,
+ *     so a hot key costs one request however many threads ask for it at once
+ *   - exclusive: calls for the same key run one after another in arrival order, e.g. writes to the same file
+ * Nothing is cached: a call that arrives after the in-flight one has finished runs again.
+ * Both have a blocking and a CompletableFuture form; the futures handed out are dependents, so a caller
+ * cancelling its own future does not cancel the call the others are waiting for.
+ */
+final class SingleFlight<K> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SingleFlight.class);
+
+    private final String name;
+    private final ConcurrentMap<K, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param name What is coordinated, for the debug log
+     */
+    SingleFlight(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Runs call, or waits for the one already in flight for key and returns its result.
+     * @throws RuntimeException the call's own exception, rethrown to every caller that shared it
+     */
+    <V> V share(K key, Supplier<V> call) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<?> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            LOGGER.debug("Joined in-flight call. name={}, key={}", name, key);
+            @SuppressWarnings("unchecked")
+            V shared = (V) await(existing);
+            return shared;
+        }
+        try {
+            V result = call.get();
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Starts call, or returns a future of the one already in flight for key.
+     */
+    <V> CompletableFuture<V> shareAsync(K key, Supplier<CompletableFuture<V>> call) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<?> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            LOGGER.debug("Joined in-flight call. name={}, key={}", name, key);
+            @SuppressWarnings("unchecked")
+            CompletableFuture<V> shared = (CompletableFuture<V>) existing;
+            return shared.thenApply(result -> result);
+        }
+        CompletableFuture<V> started;
+        try {
+            started = call.get();
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        started.whenComplete((result, e) -> {
+            inFlight.remove(key, mine);
+            if (e != null) {
+                mine.completeExceptionally(e);
+            } else {
+                mine.complete(result);
+            }
+        });
+        return mine.thenApply(result -> result);
+    }
+
+    /**
+     * Runs call once every earlier call for key has finished.
+     */
+    <V> V exclusive(K key, Supplier<V> call) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        CompletableFuture<?> previous = inFlight.put(key, done);
+        try {
+            if (previous != null) {
+                LOGGER.debug("Waiting for earlier call. name={}, key={}", name, key);
+                previous.handle((result, e) -> null).join();
+            }
+            return call.get();
+        } finally {
+            inFlight.remove(key, done);
+            done.complete(null);
+        }
+    }
+
+    /**
+     * Starts call once every earlier call for key has finished.
+     */
+    <V> CompletableFuture<V> exclusiveAsync(K key, Supplier<CompletableFuture<V>> call) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        CompletableFuture<?> previous = inFlight.put(key, done);
+        CompletableFuture<V> result = (previous == null
+                ? CompletableFuture.completedFuture(null)
+                : previous.handle((r, e) -> null))
+                .thenCompose(ignored -> call.get());
+        result.whenComplete((r, e) -> {
+            inFlight.remove(key, done);
+            done.complete(null);
+        });
+        return result.thenApply(r -> r);
+    }
+
+    /**
+     * @return keys with a call in flight (or, for exclusive calls, queued)
+     */
+    int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private static Object await(CompletableFuture<?> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.S3App;
+
+import java.util.Map;
+
+/**
+ * Summary of a {@link S3ResourceServiceInterface#syncFolder} run.
+ * downloaded counts new or changed objects transferred, unchanged those already current locally,
+ * deleted the local files removed because their object no longer exists (only when orphans are deleted).
+ * failures maps each S3 key, local path or the listed prefix that could not be synced to its error message.
+ */
+public class SyncResult {
+    private long downloadedCount;
+    private long bytes;
+    private long unchangedCount;
+    private long deletedCount;
+    private long elapsedMillis;
+    private Map<String, String> failures;
+
+    public long getDownloadedCount() {
+        return downloadedCount;
+    }
+    public void setDownloadedCount(long downloadedCount) {
+        this.downloadedCount = downloadedCount;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+    public void setBytes(long bytes) {
+        this.bytes = bytes;
+    }
+
+    public long getUnchangedCount() {
+        return unchangedCount;
+    }
+    public void setUnchangedCount(long unchangedCount) {
+        this.unchangedCount = unchangedCount;
+    }
+
+    public long getDeletedCount() {
+        return deletedCount;
+    }
+    public void setDeletedCount(long deletedCount) {
+        this.deletedCount = deletedCount;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public Map<String, String> getFailures() {
+        return failures;
+    }
+    public void setFailures(Map<String, String> failures) {
+        this.failures = failures;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.S3App;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What a transfer scheduled by a {@link TransferManager} hands to the copy loops: every chunk copied is counted as
+ * progress, paced by the shared {@link BandwidthLimiter} and checked for cancellation, so a cancelled transfer stops
+ * within one chunk. {@link #NONE} is used for transfers outside a manager and does nothing.
+ */
+final class TransferControl {
+
+    static final TransferControl NONE = new TransferControl(null);
+
+    private final BandwidthLimiter limiter; // null for no cap
+    private final AtomicLong bytes = new AtomicLong();
+    private volatile long totalBytes = -1;
+    private volatile boolean cancelled;
+
+    TransferControl(BandwidthLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    /**
+     * Sets the size of the whole transfer once it is known.
+     */
+    void expect(long totalBytes) {
+        if (this != NONE) {
+            this.totalBytes = totalBytes;
+        }
+    }
+
+    /**
+     * Counts bytes that did not have to be transferred (a cache hit, or ranges an interrupted attempt already wrote).
+     */
+    void skipped(long count) {
+        if (this != NONE) {
+            bytes.addAndGet(count);
+        }
+    }
+
+    /**
+     * Called after each chunk is copied; blocks while the bandwidth cap is exceeded.
+     * @throws InterruptedIOException if the transfer was cancelled
+     */
+    void transferred(int count) throws InterruptedIOException {
+        if (this == NONE) {
+            return;
+        }
+        if (cancelled) {
+            throw new InterruptedIOException("Transfer cancelled");
+        }
+        if (limiter != null) {
+            limiter.acquire(count);
+        }
+        bytes.addAndGet(count);
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * @return the transfer's size, or -1 until it is known
+     */
+    long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Wraps a request body so every read goes through {@link #transferred(int)}. A retried request re-reads its body,
+     * so the progress of an upload counts retried bytes again.
+     */
+    InputStream wrap(InputStream in) {
+        if (this == NONE) {
+            return in;
+        }
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    transferred(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    transferred(n);
+                }
+                return n;
+            }
+        };
+    }
+}
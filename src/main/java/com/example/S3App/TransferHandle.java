@@ -0,0 +1,110 @@
+package com.example.S3App;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A transfer submitted to a {@link TransferManager}: its state and progress while it waits and runs, a way to
+ * cancel it, and a future completed with its result (the downloaded File or the uploaded Resource).
+ * @param <T> The transfer's result type
+ */
+public final class TransferHandle<T> {
+
+    public enum State {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED
+    }
+
+    private final TransferManager manager;
+    private final String bucketName;
+    private final String key;
+    private final TransferPriority priority;
+    private final TransferControl control;
+    private final CompletableFuture<T> completion = new CompletableFuture<>();
+    private volatile State state = State.QUEUED;
+
+    TransferHandle(TransferManager manager, String bucketName, String key, TransferPriority priority,
+                   TransferControl control) {
+        this.manager = manager;
+        this.bucketName = bucketName;
+        this.key = key;
+        this.priority = priority;
+        this.control = control;
+        // Cancelling the future cancels the transfer
+        completion.whenComplete((result, e) -> {
+            if (e instanceof CancellationException) {
+                cancel();
+            }
+        });
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public TransferPriority getPriority() {
+        return priority;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return bytes transferred so far, including what a resumed download or a cache hit did not have to transfer
+     */
+    public long getBytesTransferred() {
+        return control.getBytes();
+    }
+
+    /**
+     * @return the object or file size, or -1 until the transfer has found it out
+     */
+    public long getTotalBytes() {
+        return control.getTotalBytes();
+    }
+
+    /**
+     * @return the completed share between 0 and 1, or -1 while the size is unknown
+     */
+    public double getProgress() {
+        long total = control.getTotalBytes();
+        if (total < 0) {
+            return -1;
+        }
+        return total == 0 ? 1 : Math.min(1.0, (double) control.getBytes() / total);
+    }
+
+    /**
+     * @return completed with the result, exceptionally with the transfer's RuntimeException, or cancelled
+     */
+    public CompletableFuture<T> getCompletion() {
+        return completion;
+    }
+
+    /**
+     * Cancels the transfer: a queued one never starts and its future is cancelled at once. A running one stops within
+     * one copied chunk and fails its download (keeping a resumable partial file) or aborts its multipart upload; its
+     * future is cancelled once it has stopped. A running transfer already past its last chunk finishes normally.
+     * @return false if the transfer had already finished or was already being cancelled
+     */
+    public boolean cancel() {
+        return manager.cancel(this);
+    }
+
+    TransferControl control() {
+        return control;
+    }
+
+    void setState(State state) {
+        this.state = state;
+    }
+
+    @Override
+    public String toString() {
+        return "TransferHandle{bucket=" + bucketName + ", key=" + key + ", priority=" + priority + ", state=" + state + "}";
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.S3App;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Schedules downloads and uploads of one or more {@link S3ResourceService}s under shared limits
+ * (see {@link TransferSettings}):
+ *   - at most maxConcurrentTransfers run at once, and at most maxConcurrentPerBucket per bucket
+ *   - waiting transfers are queued by {@link TransferPriority}; the next free slot goes to the highest class,
+ *     so an interactive download overtakes queued bulk work but never runs above the limits
+ *   - within a class, the bucket with the fewest running transfers goes first (oldest transfer on a tie),
+ *     so one bucket's backlog does not hold up the others
+ *   - an optional token bucket caps the combined rate of every transfer's copy loop
+ * Each submission returns a {@link TransferHandle} with progress, cancellation and a completion future.
+ * Running transfers are never preempted; interactiveReserve keeps slots free for interactive ones instead.
+ */
+public class TransferManager implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransferManager.class);
+
+    private final TransferSettings settings;
+    private final BandwidthLimiter limiter; // null when the rate is not capped
+    // Transfers block on the HTTP client and the file system; at most maxConcurrentTransfers threads are busy
+    private final ExecutorService workers = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "s3-transfer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Object lock = new Object();
+    // Per priority, a FIFO queue per bucket, all guarded by lock
+    private final Map<TransferPriority, Map<String, ArrayDeque<Job<?>>>> queued = new EnumMap<>(TransferPriority.class);
+    private final Map<String, Integer> runningPerBucket = new HashMap<>();
+    private final List<Job<?>> running = new ArrayList<>();
+    private int queuedCount;
+    private long sequence;
+    private boolean closed;
+
+    private static final class Job<T> {
+        final TransferHandle<T> handle;
+        final Supplier<T> work;
+        final long sequence;
+
+        Job(TransferHandle<T> handle, Supplier<T> work, long sequence) {
+            this.handle = handle;
+            this.work = work;
+            this.sequence = sequence;
+        }
+    }
+
+    public TransferManager(TransferSettings settings) {
+        if (settings.getInteractiveReserve() >= settings.getMaxConcurrentTransfers()) {
+            throw new IllegalArgumentException("interactiveReserve must be less than maxConcurrentTransfers: "
+                    + settings.getInteractiveReserve() + " >= " + settings.getMaxConcurrentTransfers());
+        }
+        this.settings = settings;
+        this.limiter = settings.getMaxBytesPerSecond() > 0
+                ? new BandwidthLimiter(settings.getMaxBytesPerSecond(), settings.getBurstBytes())
+                : null;
+        for (TransferPriority priority : TransferPriority.values()) {
+            queued.put(priority, new LinkedHashMap<>());
+        }
+    }
+
+    /**
+     * Connections this manager's transfers may hold at once against services using downloadSettings and
+     * uploadSettings: every slot running a ranged download or multipart upload at full concurrency. Add it to the
+     * client's pool size so a scheduled transfer never waits for a connection.
+     */
+    public static int connectionsNeeded(TransferSettings settings, DownloadSettings downloadSettings,
+                                        UploadSettings uploadSettings) {
+        return settings.getMaxConcurrentTransfers()
+                * Math.max(downloadSettings.getConcurrency(), uploadSettings.getConcurrency());
+    }
+
+    /**
+     * Queues {@link S3ResourceService#getAsFile(Resource)} of a file resource.
+     */
+    public TransferHandle<File> download(S3ResourceService service, Resource resource, TransferPriority priority) {
+        if (resource == null || resource.getId() == null || resource.getType() == 1) {
+            throw new IllegalArgumentException("download: not a file resource: " + (resource == null ? null : resource.getId()));
+        }
+        TransferControl control = new TransferControl(limiter);
+        return submit(new TransferHandle<>(this, service.getBucketName(), resource.getId(), priority, control),
+                () -> service.getAsFile(resource, control));
+    }
+
+    /**
+     * Queues {@link S3ResourceService#putFile(Path, String)} of a local file.
+     */
+    public TransferHandle<Resource> upload(S3ResourceService service, Path local, String key, TransferPriority priority) {
+        if (local == null || key == null || key.isEmpty() || key.endsWith("/")) {
+            throw new IllegalArgumentException("upload: local path and a file key are required: " + local + " -> " + key);
+        }
+        TransferControl control = new TransferControl(limiter);
+        return submit(new TransferHandle<>(this, service.getBucketName(), key, priority, control),
+                () -> service.putFile(local, key, control));
+    }
+
+    /**
+     * @return transfers waiting for a slot
+     */
+    public int getQueuedCount() {
+        synchronized (lock) {
+            return queuedCount;
+        }
+    }
+
+    /**
+     * @return transfers holding a slot
+     */
+    public int getRunningCount() {
+        synchronized (lock) {
+            return running.size();
+        }
+    }
+
+    /**
+     * Cancels every queued and running transfer and stops accepting new ones. Does not wait for running transfers
+     * to stop.
+     */
+    @Override
+    public void close() {
+        List<TransferHandle<?>> toCancel = new ArrayList<>();
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (Map<String, ArrayDeque<Job<?>>> buckets : queued.values()) {
+                buckets.values().forEach(queue -> queue.forEach(job -> toCancel.add(job.handle)));
+            }
+            running.forEach(job -> toCancel.add(job.handle));
+        }
+        toCancel.forEach(TransferHandle::cancel);
+        workers.shutdown();
+        LOGGER.info("Closed transfer manager. cancelled={}", toCancel.size());
+    }
+
+    private <T> TransferHandle<T> submit(TransferHandle<T> handle, Supplier<T> work) {
+        if (handle.getPriority() == null) {
+            throw new IllegalArgumentException("Transfer priority is null: " + handle.getKey());
+        }
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("TransferManager is closed");
+            }
+            queued.get(handle.getPriority())
+                    .computeIfAbsent(handle.getBucketName(), bucket -> new ArrayDeque<>())
+                    .add(new Job<>(handle, work, sequence++));
+            queuedCount++;
+            LOGGER.debug("Queued transfer. bucket={}, key={}, priority={}, queued={}, running={}",
+                    handle.getBucketName(), handle.getKey(), handle.getPriority(), queuedCount, running.size());
+            dispatch();
+        }
+        return handle;
+    }
+
+    boolean cancel(TransferHandle<?> handle) {
+        synchronized (lock) {
+            ArrayDeque<Job<?>> queue = queued.get(handle.getPriority()).get(handle.getBucketName());
+            if (queue != null && queue.removeIf(job -> job.handle == handle)) {
+                if (queue.isEmpty()) {
+                    queued.get(handle.getPriority()).remove(handle.getBucketName());
+                }
+                queuedCount--;
+                handle.setState(TransferHandle.State.CANCELLED);
+                LOGGER.info("Cancelled queued transfer. bucket={}, key={}", handle.getBucketName(), handle.getKey());
+            } else if (handle.getState() == TransferHandle.State.RUNNING && !handle.control().isCancelled()) {
+                // The copy loop notices within one chunk; run() settles the state and completes the future, since
+                // only the transfer knows whether it stopped or had already got past its last chunk
+                handle.control().cancel();
+                LOGGER.info("Cancelling running transfer. bucket={}, key={}", handle.getBucketName(), handle.getKey());
+                return true;
+            } else {
+                return false;
+            }
+        }
+        handle.getCompletion().cancel(false);
+        return true;
+    }
+
+    // Starts queued transfers while slots are free. Caller holds lock.
+    private void dispatch() {
+        Job<?> job;
+        while (running.size() < settings.getMaxConcurrentTransfers() && (job = next()) != null) {
+            start(job);
+        }
+    }
+
+    // Removes and returns the transfer that should take the next slot, or null if none may start now
+    private Job<?> next() {
+        int sharedSlots = settings.getMaxConcurrentTransfers() - settings.getInteractiveReserve();
+        for (TransferPriority priority : TransferPriority.values()) {
+            if (priority != TransferPriority.INTERACTIVE && running.size() >= sharedSlots) {
+                return null;
+            }
+            ArrayDeque<Job<?>> best = null;
+            int bestBusy = 0;
+            for (ArrayDeque<Job<?>> queue : queued.get(priority).values()) {
+                int busy = runningPerBucket.getOrDefault(queue.peekFirst().handle.getBucketName(), 0);
+                if (busy >= settings.getMaxConcurrentPerBucket()) {
+                    continue;
+                }
+                if (best == null || busy < bestBusy
+                        || (busy == bestBusy && queue.peekFirst().sequence < best.peekFirst().sequence)) {
+                    best = queue;
+                    bestBusy = busy;
+                }
+            }
+            if (best != null) {
+                Job<?> job = best.pollFirst();
+                if (best.isEmpty()) {
+                    queued.get(priority).remove(job.handle.getBucketName());
+                }
+                queuedCount--;
+                return job;
+            }
+        }
+        return null;
+    }
+
+    private void start(Job<?> job) {
+        running.add(job);
+        runningPerBucket.merge(job.handle.getBucketName(), 1, Integer::sum);
+        job.handle.setState(TransferHandle.State.RUNNING);
+        LOGGER.debug("Starting transfer. bucket={}, key={}, priority={}, running={}, queued={}",
+                job.handle.getBucketName(), job.handle.getKey(), job.handle.getPriority(), running.size(), queuedCount);
+        workers.execute(() -> run(job));
+    }
+
+    private <T> void run(Job<T> job) {
+        TransferHandle<T> handle = job.handle;
+        T result = null;
+        RuntimeException failure = null;
+        try {
+            result = job.work.get();
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+
+        // Free the slot before completing, so a follow-up submitted from the future sees it
+        synchronized (lock) {
+            running.remove(job);
+            runningPerBucket.computeIfPresent(handle.getBucketName(), (bucket, busy) -> busy == 1 ? null : busy - 1);
+            if (!closed) {
+                dispatch();
+            }
+        }
+
+        if (failure != null && handle.control().isCancelled()) {
+            handle.setState(TransferHandle.State.CANCELLED);
+            handle.getCompletion().completeExceptionally(new CancellationException("Transfer cancelled: " + handle.getKey()));
+        } else if (failure != null) {
+            handle.setState(TransferHandle.State.FAILED);
+            LOGGER.warn("Transfer failed. bucket={}, key={}, msg={}", handle.getBucketName(), handle.getKey(), failure.getMessage());
+            handle.getCompletion().completeExceptionally(failure);
+        } else {
+            if (handle.control().isCancelled()) {
+                LOGGER.debug("Cancelled transfer finished anyway. bucket={}, key={}", handle.getBucketName(), handle.getKey());
+            }
+            handle.setState(TransferHandle.State.SUCCEEDED);
+            handle.getCompletion().complete(result);
+        }
+    }
+}
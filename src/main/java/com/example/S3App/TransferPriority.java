@@ -0,0 +1,14 @@
+package com.example.S3App;
+
+/**
+ * Priority class of a transfer queued in a {@link TransferManager}, highest first. A queued transfer always starts
+ * before any queued transfer of a lower class; within a class, transfers start in submission order.
+ */
+public enum TransferPriority {
+    /** A user is waiting for it; may also use the slots reserved by {@link TransferSettings#getInteractiveReserve()} */
+    INTERACTIVE,
+    /** Regular application work */
+    NORMAL,
+    /** Backfills, migrations and other work that only has to finish eventually */
+    BULK
+}
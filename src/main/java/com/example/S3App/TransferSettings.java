@@ -0,0 +1,82 @@
+package com.example.S3App;
+
+/**
+ * Limits for a {@link TransferManager}.
+ * At most {@code maxConcurrentTransfers} transfers run at once, and at most {@code maxConcurrentPerBucket} of them
+ * against the same bucket; the rest wait in their priority queue. {@code interactiveReserve} of the slots are kept
+ * for {@link TransferPriority#INTERACTIVE} transfers, so a queue full of long bulk transfers cannot take every slot.
+ * Each running transfer opens as many connections as its service's settings allow (the {@link DownloadSettings}
+ * concurrency for ranged downloads, the {@link UploadSettings} one for multipart uploads, otherwise one), so the manager never
+ * has more than maxConcurrentTransfers times that in use.
+ * A {@code maxBytesPerSecond} above 0 caps the combined rate of all transfers, allowing bursts of up to
+ * {@code burstBytes} after an idle period.
+ */
+public class TransferSettings {
+
+    public static final int DEFAULT_MAX_CONCURRENT_TRANSFERS = 8;
+    public static final int DEFAULT_MAX_CONCURRENT_PER_BUCKET = 4;
+    public static final int DEFAULT_INTERACTIVE_RESERVE = 1;
+    public static final long DEFAULT_BURST_BYTES = 1024 * 1024;             // 1 MB
+
+    private int maxConcurrentTransfers = DEFAULT_MAX_CONCURRENT_TRANSFERS;
+    private int maxConcurrentPerBucket = DEFAULT_MAX_CONCURRENT_PER_BUCKET;
+    private int interactiveReserve = DEFAULT_INTERACTIVE_RESERVE;
+    private long maxBytesPerSecond;
+    private long burstBytes = DEFAULT_BURST_BYTES;
+
+    public int getMaxConcurrentTransfers() {
+        return maxConcurrentTransfers;
+    }
+    public void setMaxConcurrentTransfers(int maxConcurrentTransfers) {
+        if (maxConcurrentTransfers <= 0) {
+            throw new IllegalArgumentException("maxConcurrentTransfers must be > 0: " + maxConcurrentTransfers);
+        }
+        this.maxConcurrentTransfers = maxConcurrentTransfers;
+    }
+
+    public int getMaxConcurrentPerBucket() {
+        return maxConcurrentPerBucket;
+    }
+    public void setMaxConcurrentPerBucket(int maxConcurrentPerBucket) {
+        if (maxConcurrentPerBucket <= 0) {
+            throw new IllegalArgumentException("maxConcurrentPerBucket must be > 0: " + maxConcurrentPerBucket);
+        }
+        this.maxConcurrentPerBucket = maxConcurrentPerBucket;
+    }
+
+    /**
+     * @return the slots only INTERACTIVE transfers may use; must be less than maxConcurrentTransfers
+     */
+    public int getInteractiveReserve() {
+        return interactiveReserve;
+    }
+    public void setInteractiveReserve(int interactiveReserve) {
+        if (interactiveReserve < 0) {
+            throw new IllegalArgumentException("interactiveReserve must be >= 0: " + interactiveReserve);
+        }
+        this.interactiveReserve = interactiveReserve;
+    }
+
+    /**
+     * @return the combined transfer rate cap in bytes per second, or 0 for none
+     */
+    public long getMaxBytesPerSecond() {
+        return maxBytesPerSecond;
+    }
+    public void setMaxBytesPerSecond(long maxBytesPerSecond) {
+        if (maxBytesPerSecond < 0) {
+            throw new IllegalArgumentException("maxBytesPerSecond must be >= 0: " + maxBytesPerSecond);
+        }
+        this.maxBytesPerSecond = maxBytesPerSecond;
+    }
+
+    public long getBurstBytes() {
+        return burstBytes;
+    }
+    public void setBurstBytes(long burstBytes) {
+        if (burstBytes <= 0) {
+            throw new IllegalArgumentException("burstBytes must be > 0: " + burstBytes);
+        }
+        this.burstBytes = burstBytes;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.S3App;
+
+import java.nio.file.Path;
+
+/**
+ * Tuning knobs for {@link S3ResourceService#putFile(Path, String)} and for the multipart copies of
+ * {@link S3ResourceService#copyFolder(Resource, String)} and moveFolder.
+ * Files (or copied objects) at or above {@code threshold} are sent as a multipart upload (or UploadPartCopy ranges)
+ * of {@code partSize} bytes, with {@code concurrency} parts in flight; smaller ones as one PutObject (or CopyObject).
+ */
+public class UploadSettings {
+
+    public static final long DEFAULT_THRESHOLD = 16L * 1024 * 1024;   // 16 MB
+    public static final long DEFAULT_PART_SIZE = 8L * 1024 * 1024;    // 8 MB
+    public static final int DEFAULT_CONCURRENCY = 8;
+    // S3's lower limit for every part but the last
+    public static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+    private long threshold = DEFAULT_THRESHOLD;
+    private long partSize = DEFAULT_PART_SIZE;
+    private int concurrency = DEFAULT_CONCURRENCY;
+
+    /**
+     * @return the file size from which putFile switches from one PutObject to multipart upload
+     */
+    public long getThreshold() {
+        return threshold;
+    }
+    public void setThreshold(long threshold) {
+        if (threshold < MIN_PART_SIZE) {
+            throw new IllegalArgumentException("threshold must be >= " + MIN_PART_SIZE + ": " + threshold);
+        }
+        this.threshold = threshold;
+    }
+
+    public long getPartSize() {
+        return partSize;
+    }
+    public void setPartSize(long partSize) {
+        if (partSize < MIN_PART_SIZE) {
+            throw new IllegalArgumentException("partSize must be >= " + MIN_PART_SIZE + ": " + partSize);
+        }
+        this.partSize = partSize;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+    public void setConcurrency(int concurrency) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency must be > 0: " + concurrency);
+        }
+        this.concurrency = concurrency;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.S3App;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests AsyncS3ResourceService against the in-process FakeS3Server.
+ */
+public class AsyncS3ResourceServiceTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @ClassRule
+    public static final FakeS3Server fakeS3 = new FakeS3Server();
+    // Shared across tests: closing an async client waits out the event loop's quiet period
+    private static S3AsyncClient client;
+
+    private AsyncS3ResourceService service;
+
+    @BeforeClass
+    public static void createClient() {
+        client = fakeS3.asyncClient();
+    }
+
+    @AfterClass
+    public static void closeClient() {
+        client.close();
+    }
+
+    @Before
+    public void setUp() {
+        fakeS3.reset();
+        service = new AsyncS3ResourceService(client, "test-bucket", tmp.getRoot().getAbsolutePath());
+    }
+
+    @Test
+    public void testListFolder_shouldReturnFoldersThenFiles() throws Exception {
+        fakeS3.put("docs/", new byte[0]);
+        fakeS3.put("docs/a.txt", "a".getBytes(StandardCharsets.UTF_8));
+        fakeS3.put("docs/sub/b.txt", "b".getBytes(StandardCharsets.UTF_8));
+
+        Resource docs = service.getResource("docs/").get();
+        ListResult<Resource> page = service.listFolder(docs, null).get();
+
+        assertEquals(2, page.getResources().size());
+        assertEquals("docs/sub/", page.getResources().get(0).getId());
+        assertEquals(1, page.getResources().get(0).getType());
+        assertEquals("a.txt", page.getResources().get(1).getName());
+        assertNull(page.getCursor());
+    }
+
+    @Test
+    public void testGetResource_givenNoSuchKey_shouldFailFuture() throws Exception {
+        try {
+            service.getResource("missing-file.txt").get();
+            fail("expected failure");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause().getMessage().contains("Resource not found"));
+            assertTrue(e.getCause().getCause() instanceof NoSuchKeyException);
+        }
+    }
+
+    @Test
+    public void testGetAsFile_manyInFlight_shouldWriteAllFiles() throws Exception {
+        List<CompletableFuture<Path>> downloads = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            fakeS3.put("data/file-" + i + ".txt", ("content-" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        for (int i = 0; i < 50; i++) {
+            Resource file = service.getResource("data/file-" + i + ".txt").join();
+            downloads.add(service.getAsFile(file));
+        }
+        CompletableFuture.allOf(downloads.toArray(new CompletableFuture<?>[0])).get();
+
+        for (int i = 0; i < 50; i++) {
+            Path path = downloads.get(i).get();
+            assertEquals("file-" + i + ".txt", path.getFileName().toString());
+            assertEquals("content-" + i, Files.readString(path));
+        }
+    }
+
+    @Test
+    public void testGetAsFile_givenUnwritableDownloadPath_shouldFailFutureAsIoError() throws Exception {
+        fakeS3.put("docs/a.txt", "a".getBytes(StandardCharsets.UTF_8));
+        Path notADirectory = tmp.newFile("downloads").toPath();
+        AsyncS3ResourceService blocked = new AsyncS3ResourceService(client, "test-bucket", notADirectory.toString());
+
+        CompletableFuture<Path> download = blocked.getAsFile(S3Resources.file("docs/a.txt"));
+
+        try {
+            download.get();
+            fail("expected failure");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause().getMessage(), e.getCause().getMessage().startsWith("I/O error while saving"));
+            assertTrue(e.getCause().getCause() instanceof IOException);
+        }
+        assertEquals(0, fakeS3.requestCount("GET"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetAsFile_givenFolder_shouldThrow() {
+        service.getAsFile(S3Resources.folder("someFolder/"));
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.S3App;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests BucketIndex building, lookups and listing pages against the in-process FakeS3Server.
+ */
+public class BucketIndexTest {
+
+    @ClassRule
+    public static final FakeS3Server fakeS3 = new FakeS3Server();
+    private static S3Client client;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private S3ResourceService service;
+    private Path indexFile;
+
+    @BeforeClass
+    public static void createClient() {
+        client = fakeS3.syncClient();
+    }
+
+    @AfterClass
+    public static void closeClient() {
+        client.close();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        fakeS3.reset();
+        for (String key : List.of("docs/", "docs/a.txt", "docs/b.txt", "docs/img/x.png", "docs/img/y.png",
+                "docs/z.md", "logs/2024-05-01/app.gz", "logs/2024-05-02/app.gz", "logs/2024-06-01/app.gz",
+                "readme.md", "é-accented.txt")) {
+            fakeS3.put(key, key.getBytes());
+        }
+        service = new S3ResourceService(client, "test-bucket", tmp.newFolder("downloads").toString(), new DownloadSettings());
+        indexFile = tmp.getRoot().toPath().resolve("index/test-bucket.s3index");
+    }
+
+    @Test
+    public void testOpen_shouldMapBuiltIndexWithoutRequests() throws Exception {
+        service.buildIndex(indexFile);
+        fakeS3.resetCounters();
+
+        BucketIndex index = BucketIndex.open(indexFile);
+
+        assertEquals("test-bucket", index.getBucketName());
+        assertEquals(11, index.count());
+        assertEquals("é-accented.txt", index.watermark()); // UTF-8 order, like S3
+        Resource a = index.get("docs/a.txt");
+        assertEquals(10, a.getSize());
+        assertEquals(fakeS3.get("docs/a.txt").eTag(), a.getETag());
+        assertNull(index.get("docs/missing.txt"));
+        assertEquals(1, index.get("docs/").getType());
+        assertEquals(0, fakeS3.requestCount("LIST"));
+    }
+
+    @Test
+    public void testQueries_shouldFindByPrefixGlobAndRegex() {
+        BucketIndex index = service.buildIndex(indexFile);
+
+        assertEquals(List.of("docs/img/x.png", "docs/img/y.png"), ids(index.withPrefix("docs/img/").toList()));
+        assertEquals(List.of("logs/2024-05-01/app.gz", "logs/2024-05-02/app.gz"),
+                ids(index.glob("logs/2024-05-*/*.gz").toList()));
+        assertEquals(List.of("docs/a.txt", "docs/b.txt"), ids(index.glob("docs/*.txt").toList()));
+        assertEquals(List.of("docs/img/x.png", "docs/img/y.png"), ids(index.glob("**/[xy].png").toList()));
+        assertEquals(List.of("docs/z.md", "readme.md"), ids(index.search(Pattern.compile("\\.md$")).toList()));
+    }
+
+    @Test
+    public void testListFolder_shouldPageLikeS3() {
+        BucketIndex index = service.buildIndex(indexFile);
+
+        for (Resource folder : new Resource[] {null, S3Resources.folder("docs"), S3Resources.folder("logs/")}) {
+            assertEquals(ids(allPages(service, folder)), ids(allPages(index, folder)));
+        }
+        ListResult<Resource> first = index.listFolder(S3Resources.folder("docs/"), null, 3);
+        assertEquals(List.of("docs/img/", "docs/a.txt", "docs/b.txt"),
+                first.getResources().stream().map(Resource::getId).toList()); // subfolders first, like S3
+        assertNotNull(first.getCursor());
+    }
+
+    @Test
+    public void testRefresh_shouldListOnlyAfterWatermark() throws Exception {
+        BucketIndex index = service.buildIndex(indexFile);
+        fakeS3.put("ü-new.txt", new byte[3]);
+        fakeS3.resetCounters();
+
+        BucketIndex refreshed = service.refreshIndex(index);
+
+        assertEquals(12, refreshed.count());
+        assertEquals("ü-new.txt", refreshed.watermark());
+        assertEquals(1, fakeS3.requestCount("LIST"));
+        assertEquals(12, BucketIndex.open(indexFile).count());
+        assertSame(refreshed, service.refreshIndex(refreshed));
+        assertEquals(1, Files.list(indexFile.getParent()).count()); // no temp files left
+    }
+
+    @Test
+    public void testWriter_fileSizeShouldMatchWrittenFile() throws Exception {
+        BucketIndex.Writer writer = new BucketIndex.Writer("test-bucket", 0)
+                .add("a", 1, "\"e1\"", 0)
+                .add("bé", 2, null, 0);
+
+        writer.write(indexFile);
+
+        // 11 bucket bytes, keys "a" + "bé" in UTF-8, one quoted ETag
+        assertEquals(Files.size(indexFile), BucketIndex.Writer.fileSize(11, 2, 4, 4));
+    }
+
+    private static List<Resource> allPages(BucketIndex index, Resource folder) {
+        List<Resource> all = new ArrayList<>();
+        String cursor = null;
+        do {
+            ListResult<Resource> page = index.listFolder(folder, cursor, 2);
+            all.addAll(page.getResources());
+            cursor = page.getCursor();
+        } while (cursor != null);
+        return all;
+    }
+
+    private static List<Resource> allPages(S3ResourceService service, Resource folder) {
+        List<Resource> all = new ArrayList<>();
+        String cursor = null;
+        do {
+            ListResult<Resource> page = service.listFolder(folder, cursor, 2);
+            all.addAll(page.getResources());
+            cursor = page.getCursor();
+        } while (cursor != null);
+        return all;
+    }
+
+    private static List<String> ids(List<Resource> resources) {
+        return resources.stream().map(Resource::getId).sorted(ParallelLister::compareKeys).collect(Collectors.toList());
+    }
+}
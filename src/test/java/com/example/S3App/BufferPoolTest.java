@@ -0,0 +1,100 @@
+package com.example.S3App;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static com.example.S3App.FakeS3Server.randomBytes;
+import static org.junit.Assert.*;
+
+/**
+ * Tests BufferPool.
+ */
+public class BufferPoolTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testTransfer_shouldWriteAllBytesAtPosition() throws Exception {
+        byte[] data = randomBytes(1_000_003);
+        Path file = tmp.newFile().toPath();
+        BufferPool pool = new BufferPool(64 * 1024, 2);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            assertEquals(data.length, pool.transfer(new TrickleInputStream(data), channel, 10));
+        }
+
+        byte[] written = Files.readAllBytes(file);
+        assertEquals(10 + data.length, written.length);
+        assertArrayEquals(data, Arrays.copyOfRange(written, 10, written.length));
+    }
+
+    @Test
+    public void testAcquire_shouldReuseReleasedBuffersUpToPoolSize() {
+        BufferPool pool = new BufferPool(4096, 2);
+
+        BufferPool.Buffer a = pool.acquire();
+        BufferPool.Buffer b = pool.acquire();
+        BufferPool.Buffer c = pool.acquire();
+        pool.release(a);
+        pool.release(b);
+        pool.release(c); // Beyond the pool size: dropped
+        assertEquals(3, pool.allocationCount());
+
+        assertSame(a, pool.acquire());
+        assertSame(b, pool.acquire());
+        pool.acquire();
+        assertEquals(4, pool.allocationCount());
+    }
+
+    @Test
+    public void testTransfer_givenSequentialTransfers_shouldReuseOneBuffer() throws Exception {
+        byte[] data = randomBytes(1024 * 1024 + 7);
+        Path file = tmp.newFile().toPath();
+        BufferPool pool = new BufferPool(64 * 1024, 4);
+
+        for (int i = 0; i < 8; i++) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                assertEquals(data.length, pool.transfer(new ByteArrayInputStream(data), channel, 0));
+            }
+            assertArrayEquals(data, Files.readAllBytes(file));
+        }
+        assertEquals(1, pool.allocationCount());
+    }
+
+    // Hands out data in small, uneven reads, like a network stream
+    private static final class TrickleInputStream extends InputStream {
+        private final byte[] data;
+        private int position;
+
+        TrickleInputStream(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public int read() {
+            return position < data.length ? data[position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (position >= data.length) {
+                return -1;
+            }
+            int n = Math.min(Math.min(len, 1 + position % 7919), data.length - position);
+            System.arraycopy(data, position, b, off, n);
+            position += n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.S3App;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests deletePrefix/deleteAll and server-side copyFolder/moveFolder against the in-process FakeS3Server.
+ */
+public class BulkOperationsTest {
+
+    private static final int MB = 1024 * 1024;
+
+    @ClassRule
+    public static final FakeS3Server fakeS3 = new FakeS3Server();
+    private static S3Client client;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private S3ResourceService service;
+
+    @BeforeClass
+    public static void createClient() {
+        client = fakeS3.syncClient();
+    }
+
+    @AfterClass
+    public static void closeClient() {
+        client.close();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        fakeS3.reset();
+        UploadSettings uploadSettings = new UploadSettings();
+        uploadSettings.setThreshold(5L * MB);
+        uploadSettings.setPartSize(5L * MB);
+        service = new S3ResourceService(client, "test-bucket", tmp.newFolder("downloads").toString(), new DownloadSettings(),
+                uploadSettings, new BulkSettings());
+    }
+
+    @Test
+    public void testDeletePrefix_givenManyKeys_shouldDeleteInBatchesOf1000() {
+        for (int i = 0; i < 2500; i++) {
+            fakeS3.put(String.format("logs/%02d/%05d.gz", i % 7, i), new byte[1]);
+        }
+        fakeS3.put("logs-other/keep.txt", new byte[1]);
+        fakeS3.resetCounters();
+
+        BulkOperationResult result = service.deletePrefix(S3Resources.folder("logs"));
+
+        assertEquals(2500, result.getObjectCount());
+        assertTrue(result.getFailures().isEmpty());
+        assertEquals(3, fakeS3.requestCount("DELETE_OBJECTS"));
+        assertEquals(List.of("logs-other/keep.txt"), new ArrayList<>(fakeS3.objects().keySet()));
+    }
+
+    @Test
+    public void testDeleteAll_givenRefusedKeys_shouldReportThemAndDeleteTheRest() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            keys.add("data/" + i + ".bin");
+            fakeS3.put("data/" + i + ".bin", new byte[1]);
+        }
+        keys.add("data/0.bin"); // duplicate
+        fakeS3.setUndeletable(key -> key.endsWith("3.bin") || key.endsWith("7.bin"));
+
+        BulkOperationResult result = service.deleteAll(keys);
+
+        assertEquals(8, result.getObjectCount());
+        assertEquals(List.of("data/3.bin", "data/7.bin"), new ArrayList<>(result.getFailures().keySet()));
+        assertTrue(result.getFailures().get("data/3.bin").startsWith("AccessDenied"));
+        assertEquals(List.of("data/3.bin", "data/7.bin"), new ArrayList<>(fakeS3.objects().keySet()));
+    }
+
+    @Test
+    public void testCopyFolder_shouldCopyServerSideWithMultipartForLargeObjects() {
+        byte[] large = new byte[12 * MB + 17];
+        new Random(7).nextBytes(large);
+        fakeS3.put("src/big.bin", large);
+        fakeS3.put("src/a/small.txt", "small".getBytes());
+        fakeS3.put("src/b.txt", "b".getBytes());
+        fakeS3.resetCounters();
+
+        BulkOperationResult result = service.copyFolder(S3Resources.folder("src"), "dst");
+
+        assertEquals(3, result.getObjectCount());
+        assertEquals(large.length + 6L, result.getBytes());
+        assertTrue(result.getFailures().isEmpty());
+        assertArrayEquals(large, fakeS3.get("dst/big.bin").data());
+        assertArrayEquals("small".getBytes(), fakeS3.get("dst/a/small.txt").data());
+        assertArrayEquals("b".getBytes(), fakeS3.get("dst/b.txt").data());
+        assertEquals(2, fakeS3.requestCount("COPY"));
+        assertEquals(3, fakeS3.requestCount("UPLOAD_PART")); // 5 + 5 + 2 MB ranges
+        assertEquals(0, fakeS3.requestCount("GET"));
+        assertEquals(0, fakeS3.bytesServed());
+        assertNotNull(fakeS3.get("src/big.bin"));
+    }
+
+    @Test
+    public void testMoveFolder_shouldDeleteOnlyCopiedSources() {
+        fakeS3.put("in/1.txt", "1".getBytes());
+        fakeS3.put("in/2.txt", "2".getBytes());
+        fakeS3.put("in/sub/3.txt", "3".getBytes());
+        fakeS3.setUndeletable(key -> key.equals("in/2.txt"));
+
+        BulkOperationResult result = service.moveFolder(S3Resources.folder("in"), "archive/2024/");
+
+        assertEquals(2, result.getObjectCount());
+        assertEquals(List.of("in/2.txt"), new ArrayList<>(result.getFailures().keySet()));
+        assertEquals(List.of("archive/2024/1.txt", "archive/2024/2.txt", "archive/2024/sub/3.txt", "in/2.txt"),
+                new ArrayList<>(fakeS3.objects().keySet()));
+    }
+
+    @Test
+    public void testMoveFolder_givenManyKeys_shouldDeleteSourcesWhileStillCopying() {
+        for (int i = 0; i < 2500; i++) {
+            fakeS3.put(String.format("in/%05d.txt", i), new byte[1]);
+        }
+        fakeS3.resetCounters();
+        AtomicInteger copiesAfterFirstDelete = new AtomicInteger();
+        fakeS3.setLatency(op -> {
+            if (op.equals("COPY") && fakeS3.requestCount("DELETE_OBJECTS") > 0) {
+                copiesAfterFirstDelete.incrementAndGet();
+            }
+            return 0;
+        });
+
+        BulkOperationResult result = service.moveFolder(S3Resources.folder("in"), "out");
+
+        assertEquals(2500, result.getObjectCount());
+        assertTrue(result.getFailures().isEmpty());
+        assertEquals(3, fakeS3.requestCount("DELETE_OBJECTS"));
+        assertTrue(copiesAfterFirstDelete.get() > 0);
+        assertEquals(2500, fakeS3.objects().size());
+        assertTrue(fakeS3.objects().keySet().stream().allMatch(key -> key.startsWith("out/")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCopyFolder_givenTargetInsideSource_shouldBeRejected() {
+        service.copyFolder(S3Resources.folder("src"), "src/backup");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDeletePrefix_givenBucketRoot_shouldBeRejected() {
+        service.deletePrefix(null);
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.S3App;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for CachingS3ResourceService using a mock delegate and a fake clock.
+ */
+@RunWith(org.mockito.junit.MockitoJUnitRunner.class)
+public class CachingS3ResourceServiceTest {
+
+    @Mock
+    private S3ResourceServiceInterface mockDelegate;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private CachingS3ResourceService service;
+
+    @Before
+    public void setUp() {
+        service = new CachingS3ResourceService(mockDelegate, 4,
+                Duration.ofSeconds(10), Duration.ofSeconds(1), clock::get);
+    }
+
+    @Test
+    public void testGetResource_secondCall_shouldHitCache() {
+        when(mockDelegate.getResource("a.txt")).thenReturn(S3Resources.file("a.txt"));
+
+        assertEquals("a.txt", service.getResource("a.txt").getName());
+        assertEquals("a.txt", service.getResource("a.txt").getName());
+
+        verify(mockDelegate, times(1)).getResource("a.txt");
+        assertEquals(1, service.getStats().getHitCount());
+        assertEquals(1, service.getStats().getMissCount());
+    }
+
+    @Test
+    public void testGetResource_afterTtl_shouldReload() {
+        when(mockDelegate.getResource("a.txt")).thenReturn(S3Resources.file("a.txt"));
+
+        service.getResource("a.txt");
+        clock.addAndGet(Duration.ofSeconds(11).toNanos());
+        service.getResource("a.txt");
+
+        verify(mockDelegate, times(2)).getResource("a.txt");
+        assertEquals(1, service.getStats().getExpirationCount());
+    }
+
+    @Test
+    public void testGetResource_givenNoSuchKey_shouldCacheNegativeResult() {
+        when(mockDelegate.getResource("missing.txt")).thenThrow(new RuntimeException("Resource not found: missing.txt",
+                NoSuchKeyException.builder().message("Not found").build()));
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                service.getResource("missing.txt");
+                fail("expected RuntimeException");
+            } catch (RuntimeException e) {
+                assertTrue(e.getCause() instanceof NoSuchKeyException);
+            }
+        }
+        verify(mockDelegate, times(1)).getResource("missing.txt");
+        assertEquals(2, service.getStats().getNegativeHitCount());
+
+        // Negative entries expire on their own, shorter TTL
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+        try {
+            service.getResource("missing.txt");
+            fail("expected RuntimeException");
+        } catch (RuntimeException expected) {
+            verify(mockDelegate, times(2)).getResource("missing.txt");
+        }
+    }
+
+    @Test
+    public void testListFolder_shouldCachePerPrefixAndCursor() {
+        Resource docs = S3Resources.folder("docs/");
+        ListResult<Resource> first = page("next", S3Resources.file("docs/a.txt"));
+        ListResult<Resource> second = page(null, S3Resources.file("docs/b.txt"));
+        when(mockDelegate.listFolder(any(Resource.class), isNull(), anyInt())).thenReturn(first);
+        when(mockDelegate.listFolder(any(Resource.class), eq("next"), anyInt())).thenReturn(second);
+
+        service.listFolder(docs, null);
+        service.listFolder(docs, "next");
+        ListResult<Resource> cached = service.listFolder(docs, null);
+        service.listFolder(docs, "next");
+
+        assertEquals("next", cached.getCursor());
+        assertEquals("docs/a.txt", cached.getResources().get(0).getId());
+        verify(mockDelegate, times(1)).listFolder(docs, null, 0);
+        verify(mockDelegate, times(1)).listFolder(docs, "next", 0);
+    }
+
+    @Test
+    public void testInvalidate_shouldDropKeyAndAncestorListings() {
+        Resource docs = S3Resources.folder("docs/");
+        when(mockDelegate.listFolder(any(Resource.class), isNull(), anyInt())).thenReturn(page(null));
+        when(mockDelegate.getResource("docs/a.txt")).thenReturn(S3Resources.file("docs/a.txt"));
+
+        service.listFolder(docs, null);
+        service.getResource("docs/a.txt");
+        service.invalidate("docs/a.txt");
+        service.listFolder(docs, null);
+        service.getResource("docs/a.txt");
+
+        verify(mockDelegate, times(2)).listFolder(docs, null, 0);
+        verify(mockDelegate, times(2)).getResource("docs/a.txt");
+    }
+
+    @Test
+    public void testInvalidate_duringLookup_shouldNotCacheItsAnswer() {
+        Resource docs = S3Resources.folder("docs/");
+        // The delegate answers with what it read before another thread wrote docs/a.txt and invalidated it
+        when(mockDelegate.listFolder(any(Resource.class), isNull(), anyInt())).thenAnswer(invocation -> {
+            service.invalidate("docs/a.txt");
+            return page(null);
+        });
+        when(mockDelegate.getResource("docs/a.txt")).thenAnswer(invocation -> {
+            service.invalidate("docs/a.txt");
+            throw new RuntimeException("Resource not found: docs/a.txt",
+                    NoSuchKeyException.builder().message("Not found").build());
+        });
+
+        for (int i = 0; i < 2; i++) {
+            service.listFolder(docs, null);
+            assertThrows(RuntimeException.class, () -> service.getResource("docs/a.txt"));
+        }
+
+        verify(mockDelegate, times(2)).listFolder(docs, null, 0);
+        verify(mockDelegate, times(2)).getResource("docs/a.txt");
+        assertEquals(0, service.getStats().getSize());
+        assertEquals(0, service.getStats().getNegativeHitCount());
+    }
+
+    @Test
+    public void testCachedResource_mutatedByCaller_shouldNotCorruptCache() {
+        when(mockDelegate.getResource("a.txt")).thenReturn(S3Resources.file("a.txt"));
+
+        service.getResource("a.txt").setName("changed");
+
+        assertEquals("a.txt", service.getResource("a.txt").getName());
+    }
+
+    @Test
+    public void testCapacity_shouldEvictLeastRecentlyUsed() {
+        for (int i = 0; i < 10; i++) {
+            when(mockDelegate.getResource("k" + i)).thenReturn(S3Resources.file("k" + i));
+            service.getResource("k" + i);
+        }
+
+        assertTrue(service.getStats().getSize() <= 4);
+        assertEquals(6, service.getStats().getEvictionCount());
+    }
+
+    private static ListResult<Resource> page(String cursor, Resource... items) {
+        ListResult<Resource> result = new ListResult<>();
+        result.setResources(List.of(items));
+        result.setCursor(cursor);
+        return result;
+    }
+
+    @Test
+    public void testGetResources_shouldOnlyAskDelegateForUncachedKeys() {
+        // Roomier than the shared fixture, whose 4 entries sit in single-entry segments
+        service = new CachingS3ResourceService(mockDelegate, 100, Duration.ofSeconds(10), Duration.ofSeconds(1), clock::get);
+        when(mockDelegate.getResource("a.txt")).thenReturn(S3Resources.file("a.txt"));
+        service.getResource("a.txt");
+
+        BatchLookupResult fetched = new BatchLookupResult();
+        fetched.setResources(new java.util.TreeMap<>(java.util.Map.of("b.txt", S3Resources.file("b.txt"))));
+        fetched.setFailures(new java.util.TreeMap<>(java.util.Map.of("missing.txt", new RuntimeException(
+                "Resource not found: missing.txt", NoSuchKeyException.builder().message("Not found").build()))));
+        when(mockDelegate.getResources(List.of("b.txt", "missing.txt"))).thenReturn(fetched);
+
+        BatchLookupResult first = service.getResources(List.of("a.txt", "b.txt", "missing.txt"));
+        BatchLookupResult second = service.getResources(List.of("a.txt", "b.txt", "missing.txt"));
+
+        verify(mockDelegate, times(1)).getResources(any());
+        for (BatchLookupResult result : List.of(first, second)) {
+            assertEquals(List.of("a.txt", "b.txt"), List.copyOf(result.getResources().keySet()));
+            assertTrue(result.getFailures().get("missing.txt").getCause() instanceof NoSuchKeyException);
+        }
+        assertEquals(1, service.getStats().getNegativeHitCount());
+    }
+
+    @Test
+    public void testPutFile_shouldInvalidateWrittenKey() {
+        when(mockDelegate.getResource("a.txt")).thenReturn(S3Resources.file("a.txt"));
+        when(mockDelegate.putFile(any(), eq("a.txt"))).thenReturn(S3Resources.file("a.txt"));
+
+        service.getResource("a.txt");
+        service.putFile(java.nio.file.Paths.get("a.txt"), "a.txt");
+        service.getResource("a.txt");
+
+        verify(mockDelegate, times(2)).getResource("a.txt");
+    }
+}
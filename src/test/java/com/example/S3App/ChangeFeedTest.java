@@ -0,0 +1,224 @@
+package com.example.S3App;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests ChangeFeed watermark polls, full scans, its snapshot file and publishing against the in-process FakeS3Server.
+ */
+public class ChangeFeedTest {
+
+    @ClassRule
+    public static final FakeS3Server fakeS3 = new FakeS3Server();
+    private static S3Client client;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private S3ResourceService service;
+    private Path snapshotFile;
+    private ChangeFeedSettings settings;
+
+    @BeforeClass
+    public static void createClient() {
+        client = fakeS3.syncClient();
+    }
+
+    @AfterClass
+    public static void closeClient() {
+        client.close();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        fakeS3.reset();
+        for (String key : List.of("in/2024-05-01.csv", "in/2024-05-02.csv", "in/2024-05-03.csv", "other/x.csv")) {
+            fakeS3.put(key, key.getBytes());
+        }
+        service = new S3ResourceService(client, "test-bucket", tmp.newFolder("downloads").toString(), new DownloadSettings());
+        snapshotFile = tmp.getRoot().toPath().resolve("feeds/in.s3changes");
+        settings = new ChangeFeedSettings();
+    }
+
+    @Test
+    public void testPoll_givenNewKeysAfterWatermark_shouldReportThemFromOneListRequest() throws Exception {
+        try (ChangeFeed feed = newFeed()) {
+            assertTrue(feed.poll().isEmpty()); // first poll records the current state
+            assertEquals(3, feed.getKeyCount());
+            assertEquals("in/2024-05-03.csv", feed.getWatermark());
+
+            fakeS3.put("in/2024-05-04.csv", new byte[10]);
+            fakeS3.put("in/2024-05-05.csv", new byte[20]);
+            fakeS3.resetCounters();
+            List<ChangeEvent> events = feed.poll();
+
+            assertEquals("[ADDED in/2024-05-04.csv, ADDED in/2024-05-05.csv]", events.toString());
+            assertEquals(20, events.get(1).getSize());
+            assertEquals(fakeS3.get("in/2024-05-05.csv").eTag(), events.get(1).getETag());
+            assertEquals(1, fakeS3.requestCount("LIST"));
+            assertEquals("in/2024-05-05.csv", feed.getWatermark());
+            assertTrue(feed.poll().isEmpty());
+        }
+    }
+
+    @Test
+    public void testPoll_givenReopenedFeed_shouldContinueFromSnapshotFile() throws Exception {
+        try (ChangeFeed feed = newFeed()) {
+            feed.poll();
+        }
+        fakeS3.put("in/2024-05-04.csv", new byte[1]);
+
+        try (ChangeFeed reopened = newFeed()) {
+            assertEquals(3, reopened.getKeyCount());
+            assertEquals("[ADDED in/2024-05-04.csv]", reopened.poll().toString());
+        }
+        try (ChangeFeed again = newFeed()) {
+            assertEquals(4, again.getKeyCount());
+            assertTrue(again.poll().isEmpty());
+        }
+    }
+
+    @Test
+    public void testPoll_givenFullScanDue_shouldReportAddedChangedAndRemovedInKeyOrder() throws Exception {
+        settings.setFullScanInterval(Duration.ZERO);
+        try (ChangeFeed feed = newFeed()) {
+            feed.poll();
+            fakeS3.objects().remove("in/2024-05-01.csv");
+            fakeS3.put("in/2024-05-02.csv", "rewritten".getBytes());
+            fakeS3.put("in/2024-05-02b.csv", new byte[1]);
+            fakeS3.put("in/2024-06-01.csv", new byte[1]);
+
+            List<ChangeEvent> events = feed.poll();
+
+            assertEquals("[REMOVED in/2024-05-01.csv, CHANGED in/2024-05-02.csv, ADDED in/2024-05-02b.csv, "
+                    + "ADDED in/2024-06-01.csv]", events.toString());
+            assertEquals(-1, events.get(0).getSize());
+            assertEquals("rewritten".length(), events.get(1).getSize());
+            assertEquals(4, feed.getKeyCount());
+            assertTrue(feed.poll().isEmpty());
+        }
+    }
+
+    @Test
+    public void testRescan_givenKeyAddedBeforeWatermark_shouldFindWhatWatermarkPollsMiss() throws Exception {
+        try (ChangeFeed feed = newFeed()) {
+            feed.poll();
+            fakeS3.put("in/2024-04-30.csv", new byte[1]); // sorts before the watermark
+
+            assertTrue(feed.poll().isEmpty());
+            List<ChangeEvent> events = new ArrayList<>();
+            assertEquals(1, feed.rescan(events::add));
+            assertEquals("[ADDED in/2024-04-30.csv]", events.toString());
+            assertEquals(4, feed.getKeyCount());
+        }
+    }
+
+    @Test
+    public void testPoll_givenFailingConsumer_shouldReportTheSameEventsAgain() throws Exception {
+        try (ChangeFeed feed = newFeed()) {
+            feed.poll();
+            fakeS3.put("in/2024-05-04.csv", new byte[1]);
+            try {
+                feed.poll(event -> {
+                    throw new IllegalStateException("consumer down");
+                });
+                fail("expected the consumer's exception");
+            } catch (IllegalStateException expected) {
+            }
+            assertEquals("in/2024-05-03.csv", feed.getWatermark());
+            assertEquals("[ADDED in/2024-05-04.csv]", feed.poll().toString());
+        }
+    }
+
+    @Test
+    public void testStart_shouldPublishEventsToSubscribers() throws Exception {
+        settings.setPollInterval(Duration.ofMillis(50));
+        List<ChangeEvent> received = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<Void> subscription;
+        try (ChangeFeed feed = newFeed()) {
+            subscription = feed.subscribe(received::add);
+            feed.start();
+            while (feed.getKeyCount() == 0) {
+                Thread.sleep(10);
+            }
+            fakeS3.put("in/2024-05-04.csv", new byte[1]);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (received.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        }
+        subscription.get(5, TimeUnit.SECONDS); // completed by close
+        assertEquals("[ADDED in/2024-05-04.csv]", received.toString());
+    }
+
+    @Test
+    public void testConstructor_givenSnapshotOfOtherPrefix_shouldStartAfresh() throws Exception {
+        try (ChangeFeed feed = new ChangeFeed(service, S3Resources.folder("other"), snapshotFile, settings)) {
+            feed.poll();
+            assertEquals(1, feed.getKeyCount());
+        }
+        try (ChangeFeed feed = newFeed()) {
+            assertEquals(0, feed.getKeyCount());
+            assertTrue(feed.poll().isEmpty());
+            assertEquals(3, feed.getKeyCount());
+        }
+
+        Files.write(snapshotFile, new byte[] {0x53, 0x33}); // truncated
+        try (ChangeFeed feed = newFeed()) {
+            assertEquals(0, feed.getKeyCount());
+        }
+    }
+
+    @Test
+    public void testSnapshot_shouldRoundTripFrontCodedEntries() throws Exception {
+        ChangeSnapshot.Writer writer = new ChangeSnapshot.Writer("test-bucket", "logs/", 42);
+        for (int i = 0; i < 1000; i++) {
+            writer.add(String.format("logs/2024/05/01/app-%05d.log.gz", i), i);
+        }
+        writer.add("logs/é-last", -1L);
+        ChangeSnapshot written = writer.build();
+        written.write(snapshotFile);
+        assertTrue(written.footprintBytes() < 1001 * 20); // vs. 32-byte keys
+
+        ChangeSnapshot loaded = ChangeSnapshot.load(snapshotFile);
+        assertEquals(1001, loaded.count());
+        assertEquals(42, loaded.getFullScanAt());
+        assertEquals("logs/é-last", loaded.watermark());
+        ChangeSnapshot.Reader reader = loaded.reader();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(reader.next());
+            assertEquals(String.format("logs/2024/05/01/app-%05d.log.gz", i), reader.key());
+            assertEquals(i, reader.fingerprint());
+        }
+        assertTrue(reader.next());
+        assertEquals(-1L, reader.fingerprint());
+        assertFalse(reader.next());
+        assertNull(ChangeSnapshot.load(tmp.getRoot().toPath().resolve("missing")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSnapshotWriter_givenKeysOutOfOrder_shouldBeRejected() {
+        new ChangeSnapshot.Writer("test-bucket", "", 0).add("b", 1).add("a", 2);
+    }
+
+    private ChangeFeed newFeed() {
+        return new ChangeFeed(service, S3Resources.folder("in"), snapshotFile, settings);
+    }
+}
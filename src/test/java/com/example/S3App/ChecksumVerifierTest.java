@@ -0,0 +1,185 @@
+package com.example.S3App;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+
+import static com.example.S3App.FakeS3Server.randomBytes;
+import static org.junit.Assert.*;
+
+/**
+ * Tests download checksum verification (single stream, ranged parts, resumed) against the in-process FakeS3Server.
+ */
+public class ChecksumVerifierTest {
+
+    private static final int PART_SIZE = 256 * 1024;
+
+    @ClassRule
+    public static final FakeS3Server fakeS3 = new FakeS3Server();
+    private static S3Client client;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private Path downloads;
+    private DownloadSettings settings;
+
+    @BeforeClass
+    public static void createClient() {
+        client = fakeS3.syncClient();
+    }
+
+    @AfterClass
+    public static void closeClient() {
+        client.close();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        fakeS3.reset();
+        downloads = tmp.newFolder("downloads").toPath();
+        settings = new DownloadSettings();
+        settings.setParallelThreshold(1024 * 1024);
+        settings.setPartSize(PART_SIZE);
+    }
+
+    @Test
+    public void testCombine_shouldEqualCrcOfConcatenation() {
+        byte[] data = randomBytes(100_003);
+        for (boolean castagnoli : new boolean[] {true, false}) {
+            int polynomial = castagnoli ? 0x82F63B78 : 0xEDB88320;
+            long whole = crc(castagnoli, data, 0, data.length);
+            for (int split : new int[] {0, 1, 4096, 65_537, data.length}) {
+                long combined = ChecksumVerifier.combine(crc(castagnoli, data, 0, split),
+                        crc(castagnoli, data, split, data.length), data.length - split, polynomial);
+                assertEquals("split " + split, whole, combined);
+            }
+        }
+    }
+
+    @Test
+    public void testGetAsFile_givenCorruptedParts_shouldFailAndDiscardFile() throws Exception {
+        byte[] data = randomBytes(10 * PART_SIZE);
+        fakeS3.put("big.bin", data);
+        fakeS3.setCorruption(key -> true);
+        S3ResourceService service = newService();
+
+        try {
+            service.getAsFile(S3Resources.file("big.bin"));
+            fail("expected RuntimeException");
+        } catch (RuntimeException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("CRC32C"));
+        }
+        assertEquals(10, fakeS3.requestCount("GET"));
+        assertFalse(Files.exists(downloads.resolve("big.bin")));
+        assertFalse(Files.exists(downloads.resolve("big.bin.part")));
+        assertFalse(Files.exists(downloads.resolve("big.bin.part.checkpoint")));
+
+        fakeS3.setCorruption(key -> false);
+        service.getAsFile(S3Resources.file("big.bin"));
+        assertArrayEquals(data, Files.readAllBytes(downloads.resolve("big.bin")));
+    }
+
+    @Test
+    public void testGetAsFile_givenSingleStreamWithoutHead_shouldVerifyMd5ETag() throws Exception {
+        byte[] data = randomBytes(3 * 1024 * 1024 + 5); // past the inline part, so hashed on the pipeline thread
+        fakeS3.put("small.bin", randomBytes(100_000));
+        fakeS3.put("large.bin", data);
+        fakeS3.setCorruption(key -> key.equals("small.bin"));
+        settings.setParallelThreshold(0);
+        S3ResourceService service = newService();
+
+        try {
+            service.getAsFile(S3Resources.file("small.bin"));
+            fail("expected RuntimeException");
+        } catch (RuntimeException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("MD5"));
+        }
+        assertFalse(Files.exists(downloads.resolve("small.bin.part")));
+
+        service.getAsFile(S3Resources.file("large.bin"));
+        assertArrayEquals(data, Files.readAllBytes(downloads.resolve("large.bin")));
+
+        fakeS3.setCorruption(key -> true);
+        try {
+            service.getAsFile(S3Resources.file("large.bin"));
+            fail("expected RuntimeException");
+        } catch (RuntimeException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("MD5"));
+        }
+        assertEquals(0, fakeS3.requestCount("HEAD"));
+    }
+
+    @Test
+    public void testGetAsFile_givenCorruptedPartialFile_shouldDetectItOnResume() throws Exception {
+        byte[] data = randomBytes(10 * PART_SIZE);
+        fakeS3.put("big.bin", data);
+        Path partial = DownloadCheckpoint.partialFile(downloads.resolve("big.bin"));
+        byte[] bad = Arrays.copyOf(data, 4 * PART_SIZE);
+        bad[PART_SIZE] ^= 1; // flipped on disk since the interrupted attempt
+        Files.write(partial, bad);
+        DownloadCheckpoint.create(partial, fakeS3.get("big.bin").eTag(), data.length).complete(0, 4L * PART_SIZE);
+        S3ResourceService service = newService();
+
+        try {
+            service.getAsFile(S3Resources.file("big.bin"));
+            fail("expected RuntimeException");
+        } catch (RuntimeException expected) {
+        }
+        assertEquals(6L * PART_SIZE, fakeS3.bytesServed()); // only the missing parts were fetched
+        assertFalse(Files.exists(partial));
+
+        service.getAsFile(S3Resources.file("big.bin"));
+        assertArrayEquals(data, Files.readAllBytes(downloads.resolve("big.bin")));
+    }
+
+    @Test
+    public void testDownloadFolder_givenCorruptedObject_shouldReportItAndDeleteFile() throws Exception {
+        fakeS3.put("dir/good.txt", "good".getBytes());
+        fakeS3.put("dir/bad.txt", "bad!".getBytes());
+        fakeS3.setCorruption(key -> key.equals("dir/bad.txt"));
+        Path target = tmp.newFolder("target").toPath();
+
+        FolderDownloadResult result = newService().downloadFolder(S3Resources.folder("dir"), target);
+
+        assertEquals(1, result.getObjectCount());
+        assertTrue(result.getFailures().containsKey("dir/bad.txt"));
+        assertTrue(Files.exists(target.resolve("good.txt")));
+        assertFalse(Files.exists(target.resolve("bad.txt")));
+    }
+
+    @Test
+    public void testGetAsFile_givenVerificationOff_shouldKeepCorruptedBytes() throws Exception {
+        byte[] data = randomBytes(10 * PART_SIZE);
+        fakeS3.put("big.bin", data);
+        fakeS3.setCorruption(key -> true);
+        settings.setVerifyChecksums(false);
+
+        Path file = newService().getAsFile(S3Resources.file("big.bin")).toPath();
+
+        assertEquals(data.length, Files.size(file));
+        assertFalse(Arrays.equals(data, Files.readAllBytes(file)));
+    }
+
+    private S3ResourceService newService() {
+        return new S3ResourceService(client, "test-bucket", downloads.toString(), settings);
+    }
+
+    private static long crc(boolean castagnoli, byte[] data, int from, int to) {
+        Checksum checksum = castagnoli ? new CRC32C() : new CRC32();
+        checksum.update(data, from, to - from);
+        return checksum.getValue();
+    }
+}
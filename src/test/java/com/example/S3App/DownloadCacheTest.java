@@ -0,0 +1,236 @@
+package com.example.S3App;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import static com.example.S3App.FakeS3Server.randomBytes;
+import static org.junit.Assert.*;
+
+/**
+ * Tests DownloadCache on its own and getAsFile through it against the in-process FakeS3Server.
+ */
+public class DownloadCacheTest {
+
+    @ClassRule
+    public static final FakeS3Server fakeS3 = new FakeS3Server();
+    private static S3Client client;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @BeforeClass
+    public static void createClient() {
+        client = fakeS3.syncClient();
+    }
+
+    @AfterClass
+    public static void closeClient() {
+        client.close();
+    }
+
+    @Test
+    public void testStoreAndReopen_shouldKeepEntry() throws IOException {
+        Path dir = tmp.newFolder("cache").toPath();
+        DownloadCache cache = new DownloadCache(dir, 1_000, Duration.ZERO);
+        cache.store("bucket", "a/b.txt", "\"etag-1\"", 42L, stream("hello"));
+
+        DownloadCache reopened = new DownloadCache(dir, 1_000, Duration.ZERO);
+        DownloadCache.Entry entry = reopened.lookup("bucket", "a/b.txt");
+
+        assertNotNull(entry);
+        assertEquals("\"etag-1\"", entry.getETag());
+        assertEquals(5, entry.getSize());
+        assertEquals(42L, entry.getLastModifiedMillis());
+        Path target = tmp.getRoot().toPath().resolve("b.txt");
+        reopened.copyTo(entry, target);
+        assertEquals("hello", Files.readString(target));
+    }
+
+    @Test
+    public void testQuota_shouldEvictLeastRecentlyUsed() throws IOException {
+        DownloadCache cache = new DownloadCache(tmp.newFolder("cache").toPath(), 10, Duration.ZERO);
+        cache.store("bucket", "old", "\"1\"", 0L, stream("aaaa"));
+        cache.store("bucket", "used", "\"2\"", 0L, stream("bbbb"));
+        sleepPastClockTick();
+        cache.lookup("bucket", "used");
+        cache.store("bucket", "new", "\"3\"", 0L, stream("cccc"));
+
+        assertNull(cache.lookup("bucket", "old"));
+        assertNotNull(cache.lookup("bucket", "used"));
+        assertNotNull(cache.lookup("bucket", "new"));
+        assertEquals(8, cache.getTotalBytes());
+    }
+
+    @Test
+    public void testQuota_givenEntryLargerThanOthersTogether_shouldKeepTheCommittedEntry() throws IOException {
+        DownloadCache cache = new DownloadCache(tmp.newFolder("cache").toPath(), 10, Duration.ZERO);
+        cache.store("bucket", "a", "\"1\"", 0L, stream("aa"));
+        cache.store("bucket", "b", "\"2\"", 0L, stream("bb"));
+
+        DownloadCache.Entry big = cache.store("bucket", "big", "\"3\"", 0L, stream("cccccccccc"));
+
+        assertSame(big, cache.lookup("bucket", "big"));
+        assertEquals(1, cache.getEntryCount());
+        Path target = tmp.getRoot().toPath().resolve("big");
+        cache.copyTo(big, target);
+        assertEquals("cccccccccc", Files.readString(target));
+    }
+
+    @Test
+    public void testCommit_givenFileLargerThanQuota_shouldNotCacheItAndDropOlderVersion() throws IOException {
+        Path dir = tmp.newFolder("cache").toPath();
+        DownloadCache cache = new DownloadCache(dir, 10, Duration.ZERO);
+        cache.store("bucket", "k", "\"1\"", 0L, stream("small"));
+        Path temp = cache.newTempFile();
+        Files.writeString(temp, "larger than ten bytes");
+
+        assertNull(cache.commit("bucket", "k", "\"2\"", 0L, temp));
+        assertTrue(Files.exists(temp)); // left for the caller
+        assertNull(cache.lookup("bucket", "k"));
+        assertEquals(0, cache.getTotalBytes());
+        Files.delete(temp);
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void testCommit_givenNewVersion_shouldDeleteOnlyTheReplacedEntrysFiles() throws IOException {
+        Path dir = tmp.newFolder("cache").toPath();
+        DownloadCache cache = new DownloadCache(dir, 1_000, Duration.ZERO);
+        DownloadCache.Entry first = cache.store("bucket", "k", "\"1\"", 0L, stream("one"));
+        DownloadCache.Entry second = cache.store("bucket", "k", "\"2\"", 0L, stream("two!"));
+
+        cache.remove(first); // a late remove of the replaced version must not touch the new one
+        Path target = tmp.getRoot().toPath().resolve("k");
+        cache.copyTo(second, target);
+        assertEquals("two!", Files.readString(target));
+        assertEquals(4, cache.getTotalBytes());
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(2, files.count()); // data and meta of the second version
+        }
+        assertThrows(NoSuchFileException.class, () -> cache.copyTo(first, target));
+        assertEquals("\"2\"", new DownloadCache(dir, 1_000, Duration.ZERO).lookup("bucket", "k").getETag());
+    }
+
+    @Test
+    public void testIsFresh_shouldHonourFreshnessWindow() throws IOException {
+        DownloadCache alwaysRevalidate = new DownloadCache(tmp.newFolder("c1").toPath(), 1_000, Duration.ZERO);
+        DownloadCache oneHour = new DownloadCache(tmp.newFolder("c2").toPath(), 1_000, Duration.ofHours(1));
+
+        assertFalse(alwaysRevalidate.isFresh(alwaysRevalidate.store("b", "k", "\"1\"", 0L, stream("x"))));
+        assertTrue(oneHour.isFresh(oneHour.store("b", "k", "\"1\"", 0L, stream("x"))));
+    }
+
+    @Test
+    public void testOpen_shouldDropLeftoverTempFiles() throws IOException {
+        Path dir = tmp.newFolder("cache").toPath();
+        Files.writeString(dir.resolve("download-123.tmp"), "partial");
+
+        new DownloadCache(dir, 1_000, Duration.ZERO);
+
+        assertFalse(Files.exists(dir.resolve("download-123.tmp")));
+    }
+
+    @Test
+    public void testGetAsFile_givenStaleEntryNotModified_shouldServeCachedCopyWithoutBody() throws Exception {
+        S3ResourceService service = newCachingService();
+        byte[] data = randomBytes(10_000);
+        fakeS3.put("docs/a.bin", data);
+        service.getAsFile(S3Resources.file("docs/a.bin"));
+        fakeS3.resetCounters();
+
+        File file = service.getAsFile(S3Resources.file("docs/a.bin"));
+
+        assertArrayEquals(data, Files.readAllBytes(file.toPath()));
+        assertEquals(1, fakeS3.requestCount("GET"));
+        assertEquals(0, fakeS3.bytesServed()); // 304
+        assertEquals(0, fakeS3.requestCount("HEAD"));
+    }
+
+    @Test
+    public void testGetAsFile_givenStaleEntryReplacedByCorruptBody_shouldFailAndKeepOldEntry() throws Exception {
+        S3ResourceService service = newCachingService();
+        byte[] original = randomBytes(10_000);
+        byte[] replacement = randomBytes(20_000);
+        fakeS3.put("docs/a.bin", original);
+        service.getAsFile(S3Resources.file("docs/a.bin"));
+        fakeS3.put("docs/a.bin", replacement);
+        fakeS3.setCorruption(key -> true);
+
+        try {
+            service.getAsFile(S3Resources.file("docs/a.bin"));
+            fail("expected RuntimeException");
+        } catch (RuntimeException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("MD5"));
+        } finally {
+            fakeS3.setCorruption(key -> false);
+        }
+        DownloadCache reopened = new DownloadCache(tmp.getRoot().toPath().resolve("cache"), 1 << 20, Duration.ZERO);
+        assertEquals(1, reopened.getEntryCount());
+        assertNotEquals(fakeS3.get("docs/a.bin").eTag(), reopened.lookup("test-bucket", "docs/a.bin").getETag());
+
+        // The refill is a regular download: progress is reported like any other
+        TransferControl control = new TransferControl(null);
+        File file = service.getAsFile(S3Resources.file("docs/a.bin"), control);
+        assertArrayEquals(replacement, Files.readAllBytes(file.toPath()));
+        assertEquals(replacement.length, control.getTotalBytes());
+        assertEquals(replacement.length, control.getBytes());
+    }
+
+    @Test
+    public void testGetAsFile_givenObjectLargerThanCache_shouldDownloadWithoutCachingIt() throws Exception {
+        S3ResourceService service = newCachingService(1 << 20);
+        byte[] data = randomBytes(2 << 20);
+        fakeS3.put("docs/big.bin", data);
+
+        for (int i = 0; i < 2; i++) {
+            File file = service.getAsFile(S3Resources.file("docs/big.bin"));
+            assertArrayEquals(data, Files.readAllBytes(file.toPath()));
+        }
+        assertEquals(2L * data.length, fakeS3.bytesServed());
+        DownloadCache reopened = new DownloadCache(tmp.getRoot().toPath().resolve("cache"), 1 << 20, Duration.ZERO);
+        assertEquals(0, reopened.getEntryCount());
+    }
+
+    private S3ResourceService newCachingService() throws IOException {
+        return newCachingService(1 << 20);
+    }
+
+    private S3ResourceService newCachingService(long cacheMaxBytes) throws IOException {
+        fakeS3.reset();
+        DownloadSettings settings = new DownloadSettings();
+        settings.setCacheDirectory(tmp.getRoot().toPath().resolve("cache").toString());
+        settings.setCacheMaxBytes(cacheMaxBytes);
+        settings.setCacheFreshness(Duration.ZERO);
+        return new S3ResourceService(client, "test-bucket", tmp.newFolder("downloads").toString(), settings);
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // File times have millisecond resolution; make sure the next access is strictly later
+    private static void sleepPastClockTick() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.S3App;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.example.S3App.FakeS3Server.randomBytes;
+import static org.junit.Assert.*;
+
+/**
+ * Tests DownloadCheckpoint and resumable getAsFile against the in-process FakeS3Server.
+ */
+public class DownloadCheckpointTest {
+
+    private static final int PART_SIZE = 256 * 1024;
+
+    @ClassRule
+    public static final FakeS3Server fakeS3 = new FakeS3Server();
+    private static S3Client client;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private Path downloads;
+    private S3ResourceService service;
+
+    @BeforeClass
+    public static void createClient() {
+        client = fakeS3.syncClient();
+    }
+
+    @AfterClass
+    public static void closeClient() {
+        client.close();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        fakeS3.reset();
+        downloads = tmp.newFolder("downloads").toPath();
+        DownloadSettings settings = new DownloadSettings();
+        settings.setParallelThreshold(1024 * 1024);
+        settings.setPartSize(PART_SIZE);
+        settings.setConcurrency(1); // Parts complete in order, so the failure point is predictable
+        service = new S3ResourceService(client, "test-bucket", downloads.toString(), settings);
+    }
+
+    @Test
+    public void testComplete_shouldMergeRangesAndReportGaps() throws Exception {
+        Path partial = tmp.newFile("x.part").toPath();
+        Files.write(partial, new byte[100]);
+        DownloadCheckpoint checkpoint = DownloadCheckpoint.create(partial, "\"e\"", 100);
+        checkpoint.complete(0, 10);
+        checkpoint.complete(30, 40);
+        checkpoint.complete(10, 20);
+        checkpoint.complete(35, 60);
+
+        DownloadCheckpoint loaded = DownloadCheckpoint.load(partial);
+
+        assertNotNull(loaded);
+        assertTrue(loaded.matches("\"e\"", 100));
+        assertEquals(20, loaded.completedPrefix());
+        assertEquals(50, loaded.completedBytes());
+        List<long[]> missing = loaded.missing();
+        assertEquals(2, missing.size());
+        assertArrayEquals(new long[] {20, 30}, missing.get(0));
+        assertArrayEquals(new long[] {60, 100}, missing.get(1));
+    }
+
+    @Test
+    public void testGetAsFile_givenInterruptedPartDownload_shouldFetchOnlyMissingParts() throws Exception {
+        byte[] data = randomBytes(10 * PART_SIZE);
+        fakeS3.put("big.bin", data);
+        AtomicInteger gets = new AtomicInteger();
+        fakeS3.setFailure(op -> op.equals("GET") && gets.incrementAndGet() > 4);
+
+        try {
+            service.getAsFile(S3Resources.file("big.bin"));
+            fail("expected RuntimeException");
+        } catch (RuntimeException expected) {
+            // Connection "dropped" after four parts
+        }
+        assertFalse(Files.exists(downloads.resolve("big.bin")));
+        assertTrue(Files.exists(downloads.resolve("big.bin.part")));
+
+        fakeS3.setFailure(op -> false);
+        fakeS3.resetCounters();
+        service.getAsFile(S3Resources.file("big.bin"));
+
+        assertEquals(6, fakeS3.requestCount("GET"));
+        assertEquals(6L * PART_SIZE, fakeS3.bytesServed());
+        assertArrayEquals(data, Files.readAllBytes(downloads.resolve("big.bin")));
+        assertFalse(Files.exists(downloads.resolve("big.bin.part")));
+        assertFalse(Files.exists(downloads.resolve("big.bin.part.checkpoint")));
+    }
+
+    @Test
+    public void testGetAsFile_givenObjectChangedSinceInterruption_shouldStartOver() throws Exception {
+        fakeS3.put("big.bin", randomBytes(10 * PART_SIZE));
+        AtomicInteger gets = new AtomicInteger();
+        fakeS3.setFailure(op -> op.equals("GET") && gets.incrementAndGet() > 4);
+        try {
+            service.getAsFile(S3Resources.file("big.bin"));
+            fail("expected RuntimeException");
+        } catch (RuntimeException expected) {
+        }
+
+        byte[] replaced = randomBytes(10 * PART_SIZE + 1);
+        fakeS3.put("big.bin", replaced);
+        fakeS3.setFailure(op -> false);
+        fakeS3.resetCounters();
+        service.getAsFile(S3Resources.file("big.bin"));
+
+        assertEquals(replaced.length, fakeS3.bytesServed());
+        assertArrayEquals(replaced, Files.readAllBytes(downloads.resolve("big.bin")));
+    }
+
+    @Test
+    public void testGetAsFile_givenPartialSingleStream_shouldResumeFromCompletedPrefix() throws Exception {
+        byte[] data = randomBytes(300_000); // below the parallel threshold
+        fakeS3.put("small.bin", data);
+        Path partial = DownloadCheckpoint.partialFile(downloads.resolve("small.bin"));
+        Files.write(partial, Arrays.copyOf(data, 100_000));
+        DownloadCheckpoint.create(partial, fakeS3.get("small.bin").eTag(), data.length).complete(0, 100_000);
+
+        service.getAsFile(S3Resources.file("small.bin"));
+
+        assertEquals(200_000, fakeS3.bytesServed());
+        assertArrayEquals(data, Files.readAllBytes(downloads.resolve("small.bin")));
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.S3App;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests downloadFolder against the in-process FakeS3Server.
+ */
+public class DownloadFolderTest {
+
+    @ClassRule
+    public static final FakeS3Server fakeS3 = new FakeS3Server();
+    private static S3Client client;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private Path target;
+    private S3ResourceService service;
+
+    @BeforeClass
+    public static void createClient() {
+        client = fakeS3.syncClient();
+    }
+
+    @AfterClass
+    public static void closeClient() {
+        client.close();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        fakeS3.reset();
+        target = tmp.newFolder("target").toPath();
+        service = new S3ResourceService(client, "test-bucket", tmp.newFolder("downloads").toString(), new DownloadSettings());
+    }
+
+    @Test
+    public void testDownloadFolder_shouldKeepNestedKeyLayout() throws Exception {
+        for (String key : List.of("site/index.html", "site/css/main.css", "site/img/logo/small.png", "other/x.txt")) {
+            fakeS3.put(key, key.getBytes(StandardCharsets.UTF_8));
+        }
+
+        FolderDownloadResult result = service.downloadFolder(S3Resources.folder("site"), target);
+
+        assertEquals(3, result.getObjectCount());
+        assertEquals("site/index.htmlsite/css/main.csssite/img/logo/small.png".length(), result.getBytes());
+        assertTrue(result.getFailures().isEmpty());
+        for (String relative : List.of("index.html", "css/main.css", "img/logo/small.png")) {
+            assertEquals("site/" + relative, Files.readString(target.resolve(relative)));
+        }
+        assertFalse(Files.exists(target.resolve("x.txt")));
+        assertFalse(Files.exists(target.resolve("other")));
+    }
+
+    @Test
+    public void testDefaults_givenOnlyRequiredMethods_shouldListInKeyOrderAndDownloadTheFolder() throws Exception {
+        for (String key : List.of("site/a/b/c.txt", "site/a.txt", "site/a-b.txt", "site/b/z.txt", "other/x.txt")) {
+            fakeS3.put(key, key.getBytes(StandardCharsets.UTF_8));
+        }
+        S3ResourceServiceInterface minimal = new S3ResourceServiceInterface() {
+            @Override
+            public ListResult<Resource> listFolder(Resource parent, String cursor, int maxKeys) {
+                return service.listFolder(parent, cursor, maxKeys);
+            }
+
+            @Override
+            public Resource getResource(String id) {
+                return service.getResource(id);
+            }
+
+            @Override
+            public java.io.File getAsFile(Resource resource) {
+                return service.getAsFile(resource);
+            }
+        };
+
+        List<String> listed;
+        try (Stream<Resource> all = minimal.listAll(S3Resources.folder("site"), false)) {
+            listed = all.map(Resource::getId).toList();
+        }
+        assertEquals(List.of("site/a-b.txt", "site/a.txt", "site/a/b/c.txt", "site/b/z.txt"), listed);
+
+        FolderDownloadResult result = minimal.downloadFolder(S3Resources.folder("site"), target);
+
+        assertEquals(4, result.getObjectCount());
+        assertTrue(result.getFailures().isEmpty());
+        for (String relative : List.of("a-b.txt", "a.txt", "a/b/c.txt", "b/z.txt")) {
+            assertEquals("site/" + relative, Files.readString(target.resolve(relative)));
+        }
+    }
+
+    @Test
+    public void testDownloadFolder_givenFolderPlaceholders_shouldCreateDirectoriesWithoutDownloading() throws Exception {
+        fakeS3.put("site/", new byte[0]);
+        fakeS3.put("site/empty/", new byte[0]);
+        fakeS3.put("site/a.txt", "a".getBytes(StandardCharsets.UTF_8));
+
+        FolderDownloadResult result = service.downloadFolder(S3Resources.folder("site"), target);
+
+        assertEquals(1, result.getObjectCount());
+        assertTrue(result.getFailures().isEmpty());
+        assertTrue(Files.isDirectory(target.resolve("empty")));
+        assertEquals("a", Files.readString(target.resolve("a.txt")));
+        assertEquals(1, fakeS3.requestCount("GET"));
+    }
+
+    @Test
+    public void testDownloadFolder_givenKeyWithDotDot_shouldRejectItInsteadOfWritingOutsideTarget() throws Exception {
+        fakeS3.put("site/a.txt", "a".getBytes(StandardCharsets.UTF_8));
+        fakeS3.put("site/../../escaped.txt", "escaped".getBytes(StandardCharsets.UTF_8));
+
+        FolderDownloadResult result = service.downloadFolder(S3Resources.folder("site"), target);
+
+        assertEquals(1, result.getObjectCount());
+        assertEquals(Set.of("site/../../escaped.txt"), result.getFailures().keySet());
+        assertEquals("Key resolves outside the target directory", result.getFailures().get("site/../../escaped.txt"));
+        assertFalse(Files.exists(tmp.getRoot().toPath().resolve("escaped.txt")));
+        assertFalse(Files.exists(tmp.getRoot().toPath().getParent().resolve("escaped.txt")));
+        assertEquals(1, fakeS3.requestCount("GET"));
+    }
+
+    @Test
+    public void testDownloadFolder_givenFailingObject_shouldReportItAndCompleteTheOthers() throws Exception {
+        for (String key : List.of("site/a.txt", "site/blocked.txt", "site/c.txt")) {
+            fakeS3.put(key, key.getBytes(StandardCharsets.UTF_8));
+        }
+        Files.createDirectories(target.resolve("blocked.txt")); // the file cannot be written there
+
+        FolderDownloadResult result = service.downloadFolder(S3Resources.folder("site"), target);
+
+        assertEquals(2, result.getObjectCount());
+        assertEquals(Set.of("site/blocked.txt"), result.getFailures().keySet());
+        assertTrue(result.getFailures().get("site/blocked.txt"), result.getFailures().get("site/blocked.txt")
+                .startsWith("I/O error while saving downloaded file"));
+        assertEquals("site/a.txt", Files.readString(target.resolve("a.txt")));
+        assertEquals("site/c.txt", Files.readString(target.resolve("c.txt")));
+    }
+}
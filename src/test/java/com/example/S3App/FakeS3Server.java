@@ -0,0 +1,716 @@
+package com.example.S3App;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.rules.ExternalResource;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.checksums.RequestChecksumCalculation;
+import software.amazon.awssdk.core.checksums.ResponseChecksumValidation;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+/**
+ * Minimal in-process S3 stand-in for tests (path-style addressing, single bucket namespace).
+ * Supports ListObjectsV2, HEAD (full-object CRC32C with checksum mode), GET (Range, If-Match, If-None-Match), PUT,
+ * server-side copy, DeleteObject(s) and multipart upload. Not a full S3 emulation, only what the service uses.
+ * Tests hold one per class as a {@code @ClassRule}, which starts it, resets it and stops it after the class; call
+ * {@link #reset()} from {@code @Before} to start each test from an empty bucket. Outside JUnit, call {@link #start()}
+ * and {@link #close()}.
+ */
+public final class FakeS3Server extends ExternalResource implements AutoCloseable {
+
+    /** A stored object. */
+    public record StoredObject(byte[] data, String eTag, Instant lastModified) {
+    }
+
+    /** An object GET as received, with its Range and If-Match headers (null when absent). */
+    public record RecordedGet(String key, String range, String ifMatch) {
+    }
+
+    static {
+        // Without TCP_NODELAY every response pays a ~40 ms delayed-ACK stall between headers and body
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+    public static final AwsCredentialsProvider CREDENTIALS =
+            StaticCredentialsProvider.create(AwsBasicCredentials.create("test-key", "test-secret"));
+
+    private volatile HttpServer server;
+    private final NavigableMap<String, StoredObject> objects = new ConcurrentSkipListMap<>();
+    private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+    private final AtomicInteger uploadIds = new AtomicInteger();
+    private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+    private final AtomicLong bytesServed = new AtomicLong();
+    private final Queue<RecordedGet> gets = new ConcurrentLinkedQueue<>();
+    private volatile ToLongFunction<String> latencyMillis = operation -> 0;
+    private volatile Predicate<String> failing = operation -> false;
+    private volatile Predicate<String> throttling = operation -> false;
+    private volatile Predicate<String> undeletable = key -> false;
+    private volatile Predicate<String> corrupted = key -> false;
+
+    /** Binds to an ephemeral port on 127.0.0.1; does nothing if already started. */
+    public synchronized FakeS3Server start() throws IOException {
+        if (server == null) {
+            HttpServer started = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            started.setExecutor(Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "fake-s3");
+                t.setDaemon(true);
+                return t;
+            }));
+            started.createContext("/", this::handle);
+            started.start();
+            server = started;
+        }
+        return this;
+    }
+
+    /** Drops all objects and open uploads, zeroes the counters and clears every injected latency and failure. */
+    public void reset() {
+        objects.clear();
+        uploads.clear();
+        resetCounters();
+        latencyMillis = operation -> 0;
+        failing = operation -> false;
+        throttling = operation -> false;
+        undeletable = key -> false;
+        corrupted = key -> false;
+    }
+
+    /** Deterministic pseudo-random content of the given size, seeded by the size. */
+    public static byte[] randomBytes(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+
+    public URI endpoint() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    /** A blocking client wired to this endpoint with dummy credentials. */
+    public S3Client syncClient() {
+        return S3Client.builder()
+                .httpClientBuilder(ApacheHttpClient.builder().maxConnections(256))
+                .region(Region.US_EAST_1)
+                .credentialsProvider(CREDENTIALS)
+                .endpointOverride(endpoint())
+                .forcePathStyle(true)
+                .requestChecksumCalculation(RequestChecksumCalculation.WHEN_REQUIRED)
+                .responseChecksumValidation(ResponseChecksumValidation.WHEN_REQUIRED)
+                .build();
+    }
+
+    /** An async client wired to this endpoint with dummy credentials. */
+    public S3AsyncClient asyncClient() {
+        return S3AsyncClient.builder()
+                .region(Region.US_EAST_1)
+                .credentialsProvider(CREDENTIALS)
+                .endpointOverride(endpoint())
+                .forcePathStyle(true)
+                .requestChecksumCalculation(RequestChecksumCalculation.WHEN_REQUIRED)
+                .responseChecksumValidation(ResponseChecksumValidation.WHEN_REQUIRED)
+                .build();
+    }
+
+    public void put(String key, byte[] data) {
+        objects.put(key, new StoredObject(data, eTagOf(data), Instant.now()));
+    }
+
+    public StoredObject get(String key) {
+        return objects.get(key);
+    }
+
+    public NavigableMap<String, StoredObject> objects() {
+        return objects;
+    }
+
+    /** Number of requests seen for an operation name such as "HEAD", "GET", "LIST", "PUT". */
+    public int requestCount(String operation) {
+        AtomicInteger count = requestCounts.get(operation);
+        return count == null ? 0 : count.get();
+    }
+
+    public long bytesServed() {
+        return bytesServed.get();
+    }
+
+    /** Object GETs received since the last resetCounters, in arrival order. */
+    public List<RecordedGet> gets() {
+        return List.copyOf(gets);
+    }
+
+    public void resetCounters() {
+        requestCounts.clear();
+        bytesServed.set(0);
+        gets.clear();
+    }
+
+    /** Injects an artificial delay per request, keyed by operation name. */
+    public void setLatency(ToLongFunction<String> latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /** Makes every request for a matching operation name fail with 500 InternalError. */
+    public void setFailure(Predicate<String> failing) {
+        this.failing = failing;
+    }
+
+    /** Makes every request for a matching operation name fail with 503 SlowDown. */
+    public void setThrottling(Predicate<String> throttling) {
+        this.throttling = throttling;
+    }
+
+    /** Makes DeleteObjects report AccessDenied for matching keys, which are kept. */
+    public void setUndeletable(Predicate<String> undeletable) {
+        this.undeletable = undeletable;
+    }
+
+    /** Makes GETs of matching keys serve the object with its middle byte flipped; HEAD and ETag are unchanged. */
+    public void setCorruption(Predicate<String> corrupted) {
+        this.corrupted = corrupted;
+    }
+
+    @Override
+    protected void before() throws IOException {
+        start();
+        reset();
+    }
+
+    @Override
+    protected void after() {
+        close();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    // ---------------------------------------------------------------- dispatch
+
+    private void handle(HttpExchange ex) throws IOException {
+        try {
+            String path = ex.getRequestURI().getRawPath();
+            Map<String, String> query = parseQuery(ex.getRequestURI().getRawQuery());
+            String withoutSlash = path.substring(1);
+            int slash = withoutSlash.indexOf('/');
+            String key = slash < 0 ? "" : URLDecoder.decode(withoutSlash.substring(slash + 1), StandardCharsets.UTF_8);
+            String method = ex.getRequestMethod();
+
+            if (key.isEmpty()) {
+                if ("GET".equals(method)) {
+                    delay("LIST");
+                    list(ex, query);
+                } else if ("POST".equals(method) && query.containsKey("delete")) {
+                    delay("DELETE_OBJECTS");
+                    deleteObjects(ex);
+                } else {
+                    send(ex, 405, new byte[0]);
+                }
+                return;
+            }
+
+            switch (method) {
+                case "HEAD" -> {
+                    delay("HEAD");
+                    head(ex, key);
+                }
+                case "GET" -> {
+                    gets.add(new RecordedGet(key, ex.getRequestHeaders().getFirst("Range"),
+                            ex.getRequestHeaders().getFirst("If-Match")));
+                    delay("GET");
+                    getObject(ex, key);
+                }
+                case "PUT" -> {
+                    if (query.containsKey("partNumber")) {
+                        delay("UPLOAD_PART");
+                        uploadPart(ex, query);
+                    } else if (ex.getRequestHeaders().getFirst("x-amz-copy-source") != null) {
+                        delay("COPY");
+                        copy(ex, key);
+                    } else {
+                        delay("PUT");
+                        putObject(ex, key);
+                    }
+                }
+                case "POST" -> {
+                    if (query.containsKey("uploads")) {
+                        delay("CREATE_MULTIPART");
+                        createMultipart(ex, key);
+                    } else if (query.containsKey("uploadId")) {
+                        delay("COMPLETE_MULTIPART");
+                        completeMultipart(ex, key, query.get("uploadId"));
+                    } else {
+                        send(ex, 405, new byte[0]);
+                    }
+                }
+                case "DELETE" -> {
+                    if (query.containsKey("uploadId")) {
+                        delay("ABORT_MULTIPART");
+                        uploads.remove(query.get("uploadId"));
+                    } else {
+                        delay("DELETE");
+                        objects.remove(key);
+                    }
+                    send(ex, 204, null);
+                }
+                default -> send(ex, 405, new byte[0]);
+            }
+        } catch (ThrottledException e) {
+            send(ex, 503, error("SlowDown", "Please reduce your request rate."));
+        } catch (RuntimeException e) {
+            send(ex, 500, error("InternalError", String.valueOf(e)));
+        } finally {
+            ex.close();
+        }
+    }
+
+    private static final class ThrottledException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    private void delay(String operation) {
+        requestCounts.computeIfAbsent(operation, k -> new AtomicInteger()).incrementAndGet();
+        if (failing.test(operation)) {
+            throw new IllegalStateException("injected failure for " + operation);
+        }
+        if (throttling.test(operation)) {
+            throw new ThrottledException();
+        }
+        long millis = latencyMillis.applyAsLong(operation);
+        if (millis > 0) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------- operations
+
+    private void list(HttpExchange ex, Map<String, String> query) throws IOException {
+        String prefix = query.getOrDefault("prefix", "");
+        String delimiter = query.get("delimiter");
+        String token = query.get("continuation-token");
+        String startAfter = query.get("start-after");
+        int maxKeys = Integer.parseInt(query.getOrDefault("max-keys", "1000"));
+
+        String from = token != null ? decodeToken(token) : (startAfter != null ? startAfter : null);
+        NavigableMap<String, StoredObject> view = from == null
+                ? objects.tailMap(prefix, true)
+                : objects.tailMap(from.compareTo(prefix) < 0 ? prefix : from, from.compareTo(prefix) < 0);
+
+        List<String> contents = new ArrayList<>();
+        TreeSet<String> commonPrefixes = new TreeSet<>();
+        String lastReturned = null;
+        boolean truncated = false;
+        for (Map.Entry<String, StoredObject> entry : view.entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            if (contents.size() + commonPrefixes.size() >= maxKeys) {
+                truncated = true;
+                break;
+            }
+            if (delimiter != null) {
+                int idx = key.indexOf(delimiter, prefix.length());
+                if (idx >= 0) {
+                    String common = key.substring(0, idx + delimiter.length());
+                    if (commonPrefixes.add(common)) {
+                        lastReturned = common;
+                    }
+                    continue;
+                }
+            }
+            contents.add(key);
+            lastReturned = key;
+        }
+        // A common prefix swallows all keys under it; continue after the whole group
+        String nextToken = null;
+        if (truncated && lastReturned != null) {
+            nextToken = lastReturned.endsWith(delimiter == null ? "\u0000" : delimiter)
+                    ? lastReturned + Character.MAX_VALUE : lastReturned;
+        }
+
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                .append("<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">")
+                .append("<Prefix>").append(escape(prefix)).append("</Prefix>")
+                .append("<KeyCount>").append(contents.size() + commonPrefixes.size()).append("</KeyCount>")
+                .append("<MaxKeys>").append(maxKeys).append("</MaxKeys>")
+                .append("<IsTruncated>").append(truncated).append("</IsTruncated>");
+        if (nextToken != null) {
+            xml.append("<NextContinuationToken>").append(encodeToken(nextToken)).append("</NextContinuationToken>");
+        }
+        for (String key : contents) {
+            StoredObject obj = objects.get(key);
+            if (obj == null) {
+                continue;
+            }
+            xml.append("<Contents><Key>").append(escape(key)).append("</Key>")
+                    .append("<LastModified>").append(obj.lastModified()).append("</LastModified>")
+                    .append("<ETag>").append(escape(obj.eTag())).append("</ETag>")
+                    .append("<Size>").append(obj.data().length).append("</Size>")
+                    .append("<StorageClass>STANDARD</StorageClass></Contents>");
+        }
+        for (String common : commonPrefixes) {
+            xml.append("<CommonPrefixes><Prefix>").append(escape(common)).append("</Prefix></CommonPrefixes>");
+        }
+        xml.append("</ListBucketResult>");
+        ex.getResponseHeaders().add("Content-Type", "application/xml");
+        send(ex, 200, xml.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void head(HttpExchange ex, String key) throws IOException {
+        StoredObject obj = objects.get(key);
+        if (obj == null) {
+            ex.sendResponseHeaders(404, -1);
+            return;
+        }
+        addObjectHeaders(ex.getResponseHeaders(), obj);
+        if ("ENABLED".equals(ex.getRequestHeaders().getFirst("x-amz-checksum-mode"))) {
+            CRC32C crc = new CRC32C();
+            crc.update(obj.data());
+            long value = crc.getValue();
+            ex.getResponseHeaders().add("x-amz-checksum-crc32c", Base64.getEncoder().encodeToString(
+                    new byte[] {(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value}));
+            ex.getResponseHeaders().add("x-amz-checksum-type", "FULL_OBJECT");
+        }
+        ex.getResponseHeaders().add("Content-Length", String.valueOf(obj.data().length));
+        ex.sendResponseHeaders(200, -1);
+    }
+
+    private void getObject(HttpExchange ex, String key) throws IOException {
+        StoredObject obj = objects.get(key);
+        if (obj == null) {
+            ex.getResponseHeaders().add("Content-Type", "application/xml");
+            send(ex, 404, error("NoSuchKey", "The specified key does not exist."));
+            return;
+        }
+        Headers req = ex.getRequestHeaders();
+        String ifMatch = req.getFirst("If-Match");
+        if (ifMatch != null && !ifMatch.equals(obj.eTag())) {
+            ex.getResponseHeaders().add("Content-Type", "application/xml");
+            send(ex, 412, error("PreconditionFailed", "At least one of the pre-conditions you specified did not hold"));
+            return;
+        }
+        String ifNoneMatch = req.getFirst("If-None-Match");
+        if (ifNoneMatch != null && ifNoneMatch.equals(obj.eTag())) {
+            addObjectHeaders(ex.getResponseHeaders(), obj);
+            ex.sendResponseHeaders(304, -1);
+            return;
+        }
+
+        byte[] data = obj.data();
+        if (corrupted.test(key) && data.length > 0) {
+            data = data.clone();
+            data[data.length / 2] ^= 1;
+        }
+        addObjectHeaders(ex.getResponseHeaders(), obj);
+        String range = req.getFirst("Range");
+        if (range != null) {
+            Matcher m = RANGE.matcher(range);
+            if (!m.matches()) {
+                send(ex, 416, error("InvalidRange", range));
+                return;
+            }
+            long start = Long.parseLong(m.group(1));
+            long end = m.group(2).isEmpty() ? data.length - 1 : Math.min(Long.parseLong(m.group(2)), data.length - 1);
+            if (start >= data.length) {
+                send(ex, 416, error("InvalidRange", range));
+                return;
+            }
+            ex.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + data.length);
+            writeBody(ex, 206, data, (int) start, (int) (end - start + 1));
+            return;
+        }
+        writeBody(ex, 200, data, 0, data.length);
+    }
+
+    private void putObject(HttpExchange ex, String key) throws IOException {
+        byte[] body = readBody(ex);
+        put(key, body);
+        ex.getResponseHeaders().add("ETag", objects.get(key).eTag());
+        send(ex, 200, null);
+    }
+
+    private void copy(HttpExchange ex, String key) throws IOException {
+        StoredObject src = copySource(ex);
+        if (src == null) {
+            return;
+        }
+        put(key, src.data());
+        String xml = "<CopyObjectResult><ETag>" + escape(objects.get(key).eTag()) + "</ETag><LastModified>"
+                + objects.get(key).lastModified() + "</LastModified></CopyObjectResult>";
+        send(ex, 200, xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void createMultipart(HttpExchange ex, String key) throws IOException {
+        String uploadId = "upload-" + uploadIds.incrementAndGet();
+        uploads.put(uploadId, new ConcurrentSkipListMap<>());
+        String xml = "<InitiateMultipartUploadResult><Bucket>b</Bucket><Key>" + escape(key)
+                + "</Key><UploadId>" + uploadId + "</UploadId></InitiateMultipartUploadResult>";
+        send(ex, 200, xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void uploadPart(HttpExchange ex, Map<String, String> query) throws IOException {
+        Map<Integer, byte[]> parts = uploads.get(query.get("uploadId"));
+        if (parts == null) {
+            send(ex, 404, error("NoSuchUpload", "The specified upload does not exist."));
+            return;
+        }
+        if (ex.getRequestHeaders().getFirst("x-amz-copy-source") != null) {
+            uploadPartCopy(ex, parts, Integer.parseInt(query.get("partNumber")));
+            return;
+        }
+        byte[] body = readBody(ex);
+        parts.put(Integer.parseInt(query.get("partNumber")), body);
+        ex.getResponseHeaders().add("ETag", eTagOf(body));
+        send(ex, 200, null);
+    }
+
+    /**
+     * @return the object named by x-amz-copy-source, or null after sending 404, or 412 when
+     * x-amz-copy-source-if-match does not hold
+     */
+    private StoredObject copySource(HttpExchange ex) throws IOException {
+        Headers req = ex.getRequestHeaders();
+        String source = URLDecoder.decode(req.getFirst("x-amz-copy-source"), StandardCharsets.UTF_8);
+        String sourceKey = source.startsWith("/") ? source.substring(1) : source;
+        sourceKey = sourceKey.substring(sourceKey.indexOf('/') + 1);
+        StoredObject src = objects.get(sourceKey);
+        ex.getResponseHeaders().add("Content-Type", "application/xml");
+        if (src == null) {
+            send(ex, 404, error("NoSuchKey", "The specified key does not exist."));
+            return null;
+        }
+        String ifMatch = req.getFirst("x-amz-copy-source-if-match");
+        if (ifMatch != null && !ifMatch.equals(src.eTag())) {
+            send(ex, 412, error("PreconditionFailed", "At least one of the pre-conditions you specified did not hold"));
+            return null;
+        }
+        return src;
+    }
+
+    private void uploadPartCopy(HttpExchange ex, Map<Integer, byte[]> parts, int partNumber) throws IOException {
+        StoredObject src = copySource(ex);
+        if (src == null) {
+            return;
+        }
+        byte[] part = src.data();
+        String range = ex.getRequestHeaders().getFirst("x-amz-copy-source-range");
+        Matcher m = range == null ? null : RANGE.matcher(range);
+        if (m != null && m.matches()) {
+            int start = Integer.parseInt(m.group(1));
+            int end = Integer.parseInt(m.group(2));
+            part = Arrays.copyOfRange(part, start, end + 1);
+        }
+        parts.put(partNumber, part);
+        String xml = "<CopyPartResult><ETag>" + escape(eTagOf(part)) + "</ETag><LastModified>"
+                + Instant.now() + "</LastModified></CopyPartResult>";
+        send(ex, 200, xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void completeMultipart(HttpExchange ex, String key, String uploadId) throws IOException {
+        readBody(ex);
+        Map<Integer, byte[]> parts = uploads.remove(uploadId);
+        if (parts == null) {
+            send(ex, 404, error("NoSuchUpload", "The specified upload does not exist."));
+            return;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts.values()) {
+            out.write(part);
+        }
+        byte[] data = out.toByteArray();
+        String eTag = "\"" + eTagOf(data).replace("\"", "") + "-" + parts.size() + "\"";
+        objects.put(key, new StoredObject(data, eTag, Instant.now()));
+        String xml = "<CompleteMultipartUploadResult><Key>" + escape(key) + "</Key><ETag>" + escape(eTag)
+                + "</ETag></CompleteMultipartUploadResult>";
+        send(ex, 200, xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public int openUploads() {
+        return uploads.size();
+    }
+
+    private void deleteObjects(HttpExchange ex) throws IOException {
+        String body = new String(readBody(ex), StandardCharsets.UTF_8);
+        Matcher m = Pattern.compile("<Key>(.*?)</Key>").matcher(body);
+        StringBuilder xml = new StringBuilder("<DeleteResult>");
+        while (m.find()) {
+            String key = unescape(m.group(1));
+            if (undeletable.test(key)) {
+                xml.append("<Error><Key>").append(escape(key)).append("</Key><Code>AccessDenied</Code>")
+                        .append("<Message>Access Denied</Message></Error>");
+                continue;
+            }
+            objects.remove(key);
+            xml.append("<Deleted><Key>").append(escape(key)).append("</Key></Deleted>");
+        }
+        xml.append("</DeleteResult>");
+        send(ex, 200, xml.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // ---------------------------------------------------------------- helpers
+
+    private static void addObjectHeaders(Headers headers, StoredObject obj) {
+        headers.add("ETag", obj.eTag());
+        headers.add("Last-Modified", HTTP_DATE.format(obj.lastModified()));
+        headers.add("Accept-Ranges", "bytes");
+    }
+
+    private void writeBody(HttpExchange ex, int status, byte[] data, int offset, int length) throws IOException {
+        ex.sendResponseHeaders(status, length == 0 ? -1 : length);
+        if (length > 0) {
+            try (OutputStream os = ex.getResponseBody()) {
+                os.write(data, offset, length);
+            }
+            bytesServed.addAndGet(length);
+        }
+    }
+
+    // Opaque like S3's tokens; "\uFFFF" (after a common prefix) is not allowed in XML
+    private static String encodeToken(String from) {
+        return java.util.Base64.getUrlEncoder().encodeToString(from.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeToken(String token) {
+        return new String(java.util.Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+    }
+
+    private static void send(HttpExchange ex, int status, byte[] body) throws IOException {
+        if (body == null || body.length == 0) {
+            ex.sendResponseHeaders(status, -1);
+            return;
+        }
+        ex.sendResponseHeaders(status, body.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private static byte[] error(String code, String message) {
+        return ("<?xml version=\"1.0\" encoding=\"UTF-8\"?><Error><Code>" + code + "</Code><Message>"
+                + escape(message) + "</Message></Error>").getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Handles both plain bodies and the SDK's aws-chunked encoding (with or without trailers)
+    private static byte[] readBody(HttpExchange ex) throws IOException {
+        byte[] raw;
+        try (InputStream in = ex.getRequestBody()) {
+            raw = in.readAllBytes();
+        }
+        String encoding = ex.getRequestHeaders().getFirst("Content-Encoding");
+        String sha = ex.getRequestHeaders().getFirst("x-amz-content-sha256");
+        boolean chunked = (encoding != null && encoding.contains("aws-chunked"))
+                || (sha != null && sha.startsWith("STREAMING"));
+        return chunked ? decodeAwsChunked(raw) : raw;
+    }
+
+    private static byte[] decodeAwsChunked(byte[] raw) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int pos = 0;
+        while (pos < raw.length) {
+            int lineEnd = indexOfCrlf(raw, pos);
+            String header = new String(raw, pos, lineEnd - pos, StandardCharsets.US_ASCII);
+            int semi = header.indexOf(';');
+            int size = Integer.parseInt((semi < 0 ? header : header.substring(0, semi)).trim(), 16);
+            pos = lineEnd + 2;
+            if (size == 0) {
+                break;
+            }
+            out.write(raw, pos, size);
+            pos += size + 2;
+        }
+        return out.toByteArray();
+    }
+
+    private static int indexOfCrlf(byte[] raw, int from) {
+        for (int i = from; i < raw.length - 1; i++) {
+            if (raw[i] == '\r' && raw[i + 1] == '\n') {
+                return i;
+            }
+        }
+        return raw.length;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            query.put(name, value);
+        }
+        return query;
+    }
+
+    static String eTagOf(byte[] data) {
+        try {
+            return "\"" + HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(data)) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String escape(String s) {
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static String unescape(String s) {
+        return s.replace("&quot;", "\"").replace("&lt;", "<").replace("&gt;", ">").replace("&amp;", "&");
+    }
+}
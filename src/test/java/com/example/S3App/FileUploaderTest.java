@@ -0,0 +1,110 @@
+package com.example.S3App;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.example.S3App.FakeS3Server.randomBytes;
+import static org.junit.Assert.*;
+
+/**
+ * Tests FileUploader (putFile) against the in-process FakeS3Server.
+ */
+public class FileUploaderTest {
+
+    private static final long MB = 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @ClassRule
+    public static final FakeS3Server fakeS3 = new FakeS3Server();
+    private static S3Client client;
+
+    private UploadSettings settings;
+
+    @BeforeClass
+    public static void createClient() {
+        client = fakeS3.syncClient();
+    }
+
+    @AfterClass
+    public static void closeClient() {
+        client.close();
+    }
+
+    @Before
+    public void setUp() {
+        fakeS3.reset();
+        settings = new UploadSettings();
+        settings.setThreshold(8 * MB);
+        settings.setPartSize(5 * MB);
+        settings.setConcurrency(4);
+    }
+
+    @Test
+    public void testUpload_givenSmallFile_shouldUseSinglePut() throws Exception {
+        byte[] data = randomBytes(100_000);
+        Path file = write("small.bin", data);
+
+        Resource uploaded = new FileUploader(client, "test-bucket", settings).upload(file, "out/small.bin");
+
+        assertArrayEquals(data, fakeS3.get("out/small.bin").data());
+        assertEquals("small.bin", uploaded.getName());
+        assertEquals(data.length, uploaded.getSize());
+        assertEquals(fakeS3.get("out/small.bin").eTag(), uploaded.getETag());
+        assertEquals(1, fakeS3.requestCount("PUT"));
+        assertEquals(0, fakeS3.requestCount("CREATE_MULTIPART"));
+    }
+
+    @Test
+    public void testUpload_givenLargeFile_shouldUploadPartsAndReassembleInOrder() throws Exception {
+        byte[] data = randomBytes((int) (22 * MB + 12345));
+        Path file = write("large.bin", data);
+
+        Resource uploaded = new FileUploader(client, "test-bucket", settings).upload(file, "out/large.bin");
+
+        assertArrayEquals(data, fakeS3.get("out/large.bin").data());
+        assertTrue(uploaded.getETag().endsWith("-5\""));
+        assertEquals(1, fakeS3.requestCount("CREATE_MULTIPART"));
+        assertEquals(5, fakeS3.requestCount("UPLOAD_PART"));
+        assertEquals(1, fakeS3.requestCount("COMPLETE_MULTIPART"));
+        assertEquals(0, fakeS3.requestCount("PUT"));
+    }
+
+    @Test
+    public void testUpload_givenPartFailure_shouldAbortUpload() throws Exception {
+        Path file = write("large.bin", randomBytes((int) (12 * MB)));
+        fakeS3.setFailure(op -> op.equals("UPLOAD_PART"));
+
+        try {
+            new FileUploader(client, "test-bucket", settings).upload(file, "out/large.bin");
+            fail("expected RuntimeException");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().startsWith("Failed to upload S3 object: out/large.bin"));
+        }
+
+        assertEquals(1, fakeS3.requestCount("ABORT_MULTIPART"));
+        assertEquals(0, fakeS3.openUploads());
+        assertNull(fakeS3.get("out/large.bin"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUpload_givenFolderKey_shouldThrow() throws Exception {
+        new FileUploader(client, "test-bucket", settings).upload(write("a.txt", new byte[1]), "folder/");
+    }
+
+    private Path write(String name, byte[] data) throws Exception {
+        Path file = tmp.getRoot().toPath().resolve(name);
+        Files.write(file, data);
+        return file;
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.S3App;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests computeStats (FolderStatsCollector) against the in-process FakeS3Server.
+ */
+public class FolderStatsCollectorTest {
+
+    @ClassRule
+    public static final FakeS3Server fakeS3 = new FakeS3Server();
+    private static S3Client client;
+
+    private S3ResourceService service;
+
+    @BeforeClass
+    public static void createClient() {
+        client = fakeS3.syncClient();
+    }
+
+    @AfterClass
+    public static void closeClient() {
+        client.close();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        fakeS3.reset();
+        service = new S3ResourceService(client, "test-bucket",
+                Files.createTempDirectory("stats").toString(), new DownloadSettings());
+    }
+
+    @Test
+    public void testComputeStats_shouldAggregateAllLevelsAndBreakDownToDepth() {
+        fakeS3.put("data/", new byte[0]); // placeholder, not counted
+        fakeS3.put("data/top.bin", new byte[100]);
+        for (int i = 0; i < 1200; i++) { // more than one listing page
+            fakeS3.put(String.format("data/a/x/f-%04d", i), new byte[i % 3]);
+        }
+        fakeS3.put("data/a/y/deep/one.bin", new byte[4096]);
+        fakeS3.put("data/b/one.bin", new byte[1]);
+        fakeS3.put("other/ignored.bin", new byte[10]);
+
+        FolderStats stats = service.computeStats(S3Resources.folder("data"), 1);
+
+        assertEquals("data/", stats.getPrefix());
+        assertEquals(1203, stats.getObjectCount());
+        assertEquals(100 + 1200 + 4096 + 1, stats.getTotalBytes());
+        assertEquals(400, stats.getSizeHistogram()[0]);                        // empty
+        assertEquals(401, stats.getSizeHistogram()[FolderStats.bucketOf(1)]);  // 1 byte
+        assertEquals(400, stats.getSizeHistogram()[FolderStats.bucketOf(2)]);  // 2 bytes
+        assertEquals(1, stats.getSizeHistogram()[FolderStats.bucketOf(100)]);  // [64, 128)
+        assertEquals(1, stats.getSizeHistogram()[FolderStats.bucketOf(4096)]); // [4096, 8192)
+
+        Map<String, FolderStats> children = stats.getChildren();
+        assertEquals(2, children.size());
+        FolderStats a = children.get("data/a/");
+        assertEquals(1201, a.getObjectCount());
+        assertEquals(1200 + 4096, a.getTotalBytes());
+        assertTrue(a.getChildren().isEmpty()); // below depth 1
+        assertEquals(1, children.get("data/b/").getObjectCount());
+    }
+
+    @Test
+    public void testComputeStats_givenDeeperDepth_shouldBreakDownGrandchildren() {
+        fakeS3.put("r/a/x/1", new byte[5]);
+        fakeS3.put("r/a/y/1", new byte[7]);
+        fakeS3.put("r/b/1", new byte[3]);
+
+        FolderStats stats = service.computeStats(S3Resources.folder("r/"), 2);
+
+        FolderStats a = stats.getChildren().get("r/a/");
+        assertEquals(2, a.getChildren().size());
+        assertEquals(7, a.getChildren().get("r/a/y/").getTotalBytes());
+        assertEquals(15, stats.getTotalBytes());
+        assertTrue(service.computeStats(S3Resources.folder("r/"), 0).getChildren().isEmpty());
+    }
+
+    @Test
+    public void testComputeStats_givenListingFailure_shouldThrowListingError() {
+        fakeS3.put("f/a/1", new byte[1]);
+        fakeS3.put("f/b/1", new byte[1]);
+        fakeS3.setFailure(op -> op.equals("LIST"));
+
+        try {
+            service.computeStats(S3Resources.folder("f/"));
+            fail("expected RuntimeException");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Failed to list S3 objects"));
+        }
+    }
+
+    @Test
+    public void testComputeStats_shouldListPrefixesInParallel() {
+        for (int p = 0; p < 32; p++) {
+            fakeS3.put(String.format("wide/p%02d/obj", p), new byte[10]);
+        }
+        // After the top-level listing, each LIST waits until a second one is in flight
+        AtomicInteger lists = new AtomicInteger();
+        CountDownLatch overlap = new CountDownLatch(2);
+        AtomicBoolean overlapped = new AtomicBoolean();
+        fakeS3.setLatency(op -> {
+            if (op.equals("LIST") && lists.incrementAndGet() > 1) {
+                overlap.countDown();
+                try {
+                    if (overlap.await(5, TimeUnit.SECONDS)) {
+                        overlapped.set(true);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return 0;
+        });
+
+        FolderStats stats = service.computeStats(S3Resources.folder("wide/"));
+
+        assertEquals(32, stats.getObjectCount());
+        assertEquals(32, stats.getChildren().size());
+        assertEquals(33, fakeS3.requestCount("LIST"));
+        assertTrue("no two prefixes were listed at the same time", overlapped.get());
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.S3App;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests syncFolder (FolderSync) against the in-process FakeS3Server.
+ */
+public class FolderSyncTest {
+
+    @ClassRule
+    public static final FakeS3Server fakeS3 = new FakeS3Server();
+    private static S3Client client;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private S3ResourceService service;
+    private Path target;
+
+    @BeforeClass
+    public static void createClient() {
+        client = fakeS3.syncClient();
+    }
+
+    @AfterClass
+    public static void closeClient() {
+        client.close();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        fakeS3.reset();
+        service = new S3ResourceService(client, "test-bucket", tmp.newFolder("downloads").toString(), new DownloadSettings());
+        target = tmp.newFolder("mirror").toPath();
+    }
+
+    @Test
+    public void testSyncFolder_shouldTransferOnlyNewAndChangedObjects() throws Exception {
+        for (int i = 0; i < 1100; i++) { // more than one listing page
+            put(String.format("data/bulk/f-%04d", i), "v1-" + i);
+        }
+        put("data/a.txt", "alpha");
+        put("data/a/b.txt", "nested");
+        put("data/empty/", "");
+        put("other/ignored.txt", "x");
+
+        SyncResult first = service.syncFolder(S3Resources.folder("data"), target, false);
+
+        assertTrue(first.getFailures().toString(), first.getFailures().isEmpty());
+        assertEquals(1102, first.getDownloadedCount());
+        assertEquals("nested", Files.readString(target.resolve("a/b.txt")));
+        assertTrue(Files.isDirectory(target.resolve("empty")));
+        assertFalse(Files.exists(target.resolve("ignored.txt")));
+
+        fakeS3.resetCounters();
+        SyncResult second = service.syncFolder(S3Resources.folder("data"), target, false);
+        assertEquals(0, second.getDownloadedCount());
+        assertEquals(1102, second.getUnchangedCount());
+        assertEquals(0, fakeS3.requestCount("GET"));
+
+        put("data/a.txt", "alpha, changed");
+        put("data/bulk/new", "new");
+        fakeS3.resetCounters();
+        SyncResult third = service.syncFolder(S3Resources.folder("data"), target, false);
+        assertEquals(2, third.getDownloadedCount());
+        assertEquals(1101, third.getUnchangedCount());
+        assertEquals(2, fakeS3.requestCount("GET"));
+        assertEquals("alpha, changed", Files.readString(target.resolve("a.txt")));
+        assertEquals("new", Files.readString(target.resolve("bulk/new")));
+    }
+
+    @Test
+    public void testSyncFolder_givenLocalEdit_shouldDownloadAgain() throws Exception {
+        put("s/one.txt", "abc");
+        service.syncFolder(S3Resources.folder("s"), target, false);
+
+        Path local = target.resolve("one.txt");
+        Files.writeString(local, "xyz"); // same size, new mtime
+        Files.setLastModifiedTime(local, FileTime.fromMillis(Files.getLastModifiedTime(local).toMillis() + 5_000));
+
+        SyncResult result = service.syncFolder(S3Resources.folder("s"), target, false);
+
+        assertEquals(1, result.getDownloadedCount());
+        assertEquals("abc", Files.readString(local));
+    }
+
+    @Test
+    public void testSyncFolder_givenSameETagNewTimestamp_shouldKeepLocalCopyFromManifest() throws Exception {
+        put("m/same.bin", "unchanged content");
+        service.syncFolder(S3Resources.folder("m"), target, false);
+
+        Thread.sleep(5);
+        put("m/same.bin", "unchanged content"); // rewritten: same ETag, later last-modified
+        fakeS3.resetCounters();
+        SyncResult result = service.syncFolder(S3Resources.folder("m"), target, false);
+
+        assertEquals(0, result.getDownloadedCount());
+        assertEquals(1, result.getUnchangedCount());
+        assertEquals(0, fakeS3.requestCount("GET"));
+    }
+
+    @Test
+    public void testSyncFolder_givenDeleteOrphans_shouldRemoveLocalFilesWithoutObject() throws Exception {
+        put("o/keep.txt", "keep");
+        Files.createDirectories(target.resolve("sub"));
+        Files.writeString(target.resolve("sub/stale.txt"), "stale");
+        Files.writeString(target.resolve("zzz.txt"), "stale");
+
+        SyncResult kept = service.syncFolder(S3Resources.folder("o"), target, false);
+        assertEquals(0, kept.getDeletedCount());
+        assertTrue(Files.exists(target.resolve("zzz.txt")));
+
+        SyncResult deleted = service.syncFolder(S3Resources.folder("o"), target, true);
+        assertEquals(2, deleted.getDeletedCount());
+        assertFalse(Files.exists(target.resolve("sub/stale.txt")));
+        assertFalse(Files.exists(target.resolve("zzz.txt")));
+        assertEquals("keep", Files.readString(target.resolve("keep.txt")));
+    }
+
+    @Test
+    public void testSyncFolder_givenListingFailure_shouldReportAndDeleteNothing() throws Exception {
+        put("f/a.txt", "a");
+        Files.writeString(target.resolve("local-only.txt"), "mine");
+        fakeS3.setFailure(op -> op.equals("LIST"));
+
+        SyncResult result = service.syncFolder(S3Resources.folder("f"), target, true);
+
+        assertTrue(result.getFailures().containsKey("f/"));
+        assertEquals(0, result.getDeletedCount());
+        assertTrue(Files.exists(target.resolve("local-only.txt")));
+        assertFalse(Files.exists(target.resolve(FolderSync.MANIFEST_NAME)));
+    }
+
+    private static void put(String key, String content) {
+        fakeS3.put(key, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.S3App;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests KeyBlock encoding, the compact listing paths against the in-process FakeS3Server.
+ */
+public class KeyBlockTest {
+
+    @ClassRule
+    public static final FakeS3Server fakeS3 = new FakeS3Server();
+    private static S3Client client;
+
+    @BeforeClass
+    public static void createClient() {
+        client = fakeS3.syncClient();
+    }
+
+    @AfterClass
+    public static void closeClient() {
+        client.close();
+    }
+
+    @Test
+    public void testBlock_shouldRoundTripKeysAndMetadata() {
+        List<Resource> expected = new ArrayList<>();
+        expected.add(S3Resources.folder("logs/2024/"));
+        for (int i = 0; i < 40; i++) { // crosses two restart points
+            Resource r = S3Resources.file(String.format("logs/2024/10/17/part-%05d.gz", i));
+            r.setSize(i * 1000L);
+            r.setETag(i % 2 == 0 ? "\"" + "0123456789abcdef0123456789abcdef".substring(i % 16) + "0123456789abcdef".substring(0, i % 16) + "\""
+                    : "\"0123456789abcdef0123456789abcdef-" + i + "\"");
+            r.setLastModified(1_700_000_000_000L + i);
+            expected.add(r);
+        }
+        expected.add(withETag(S3Resources.file("logs/2024/zz/été-😀.txt"), "\"ABCDEF0123456789ABCDEF0123456789\""));
+        expected.add(withETag(S3Resources.file("logs/2024/zz/été-😀.txt"), "\"0123456789abcdef0123456789abcdef-007\""));
+        expected.add(withETag(S3Resources.file("logs/short"), "\"plain\""));
+        expected.add(S3Resources.file("a"));
+
+        KeyBlock block = KeyBlock.of(expected, "next-token");
+
+        assertEquals(expected.size(), block.count());
+        assertEquals("next-token", block.getCursor());
+        List<Resource> iterated = block.stream().collect(Collectors.toList());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameResource(expected.get(i), block.resource(i));
+            assertSameResource(expected.get(i), iterated.get(i));
+            assertEquals(expected.get(i).getId(), block.key(i));
+        }
+        assertTrue(block.isFolder(0));
+        assertNull(block.eTag(expected.size() - 1));
+    }
+
+    @Test
+    public void testToKeyBlock_shouldMatchToListResult() {
+        ListObjectsV2Response page = ListObjectsV2Response.builder()
+                .commonPrefixes(CommonPrefix.builder().prefix("data/sub/").build())
+                .contents(S3Object.builder().key("data/").size(0L).build(),
+                        S3Object.builder().key("data/a.txt").size(5L).eTag("\"900150983cd24fb0d6963f7d28e17f72\"")
+                                .lastModified(Instant.ofEpochMilli(1234)).build())
+                .nextContinuationToken("more")
+                .build();
+
+        KeyBlock block = S3Resources.toKeyBlock(page, "data/");
+        ListResult<Resource> expected = S3Resources.toListResult(page, "data/");
+
+        assertEquals("more", block.getCursor());
+        assertEquals(expected.getResources().size(), block.count());
+        for (int i = 0; i < block.count(); i++) {
+            assertSameResource(expected.getResources().get(i), block.resource(i));
+        }
+    }
+
+    @Test
+    public void testListCompact_shouldMatchResourceListings() throws Exception {
+        for (int i = 0; i < 1500; i++) {
+            fakeS3.put(String.format("tree/%02d/obj-%04d", i % 7, i), new byte[i % 50]);
+        }
+        fakeS3.put("tree/03/", new byte[0]);
+        fakeS3.put("tree/top.txt", new byte[3]);
+        S3ResourceService service = new S3ResourceService(client, "test-bucket",
+                Files.createTempDirectory("keyblock").toString(), new DownloadSettings());
+        Resource tree = S3Resources.folder("tree/");
+
+        KeyBlock page = service.listFolderCompact(tree, null, 0);
+        ListResult<Resource> expectedPage = service.listFolder(tree, null, 0);
+        assertEquals(expectedPage.getResources().size(), page.count());
+        for (int i = 0; i < page.count(); i++) {
+            assertSameResource(expectedPage.getResources().get(i), page.resource(i));
+        }
+
+        KeyBlock all = service.listAllCompact(tree);
+        List<Resource> expectedAll;
+        try (Stream<Resource> stream = service.listAll(tree, true)) {
+            expectedAll = stream.collect(Collectors.toList());
+        }
+        assertEquals(1502, all.count());
+        for (int i = 0; i < all.count(); i++) {
+            assertSameResource(expectedAll.get(i), all.resource(i));
+        }
+    }
+
+    @Test
+    public void testFootprint_givenPartitionedKeys_shouldStayCompact() {
+        int n = 20_000;
+        KeyBlock block = buildBlock(n);
+
+        assertEquals(n, block.count());
+        assertTrue("KeyBlock estimate " + block.footprintBytes() / n + " B/key", block.footprintBytes() < 80L * n);
+        for (int i = 0; i < n; i += 997) {
+            assertSameResource(listedFile(i), block.resource(i));
+        }
+    }
+
+    // What a listing of a typical partitioned data set produces
+    static Resource listedFile(int i) {
+        Resource r = S3Resources.file(String.format("warehouse/events/dt=2024-10-%02d/hour=%02d/part-%05d-c000.snappy.parquet",
+                1 + i / 100_000 % 28, i / 4_000 % 24, i % 4_000));
+        r.setSize(64L * 1024 * 1024 + i);
+        r.setETag(FakeS3Server.eTagOf(Integer.toString(i).getBytes()));
+        r.setLastModified(1_700_000_000_000L + i * 1000L);
+        return r;
+    }
+
+    private static KeyBlock buildBlock(int n) {
+        KeyBlock.Builder builder = new KeyBlock.Builder();
+        for (int i = 0; i < n; i++) {
+            builder.add(listedFile(i));
+        }
+        return builder.build();
+    }
+
+    private static Resource withETag(Resource r, String eTag) {
+        r.setETag(eTag);
+        return r;
+    }
+
+    private static void assertSameResource(Resource expected, Resource actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getSize(), actual.getSize());
+        assertEquals(expected.getETag(), actual.getETag());
+        assertEquals(expected.getLastModified(), actual.getLastModified());
+    }
+}
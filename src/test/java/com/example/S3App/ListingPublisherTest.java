@@ -0,0 +1,208 @@
+package com.example.S3App;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests streamFolder and publishFolder against an in-memory paged service.
+ */
+public class ListingPublisherTest {
+
+    @Test
+    public void testStreamFolder_shouldReturnAllPagesInOrder() {
+        PagedService service = new PagedService(5, 4);
+
+        List<String> ids = service.streamFolder(null, 4).map(Resource::getId).collect(Collectors.toList());
+
+        assertEquals(20, ids.size());
+        assertEquals("key-00", ids.get(0));
+        assertEquals("key-19", ids.get(19));
+    }
+
+    @Test
+    public void testStreamFolder_shouldNotListUntilConsumed() {
+        PagedService service = new PagedService(5, 4);
+
+        service.streamFolder(null, 4);
+
+        assertEquals(0, service.calls.get());
+    }
+
+    @Test
+    public void testStreamFolder_shouldPrefetchNextPageWhileConsuming() throws Exception {
+        PagedService service = new PagedService(3, 2);
+
+        service.streamFolder(null, 2).limit(1).forEach(r -> {
+            // While the first item is processed, page 2 is already being fetched
+            waitFor(() -> service.calls.get() >= 2);
+        });
+
+        assertEquals(2, service.calls.get());
+    }
+
+    @Test
+    public void testPublishFolder_shouldRespectDemand() throws Exception {
+        PagedService service = new PagedService(50, 10);
+        List<Resource> received = Collections.synchronizedList(new ArrayList<>());
+        AtomicReference<Flow.Subscription> subscription = new AtomicReference<>();
+
+        service.publishFolder(null, 10).subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                subscription.set(s);
+                s.request(3);
+            }
+            @Override
+            public void onNext(Resource item) {
+                received.add(item);
+            }
+            @Override
+            public void onError(Throwable throwable) {
+            }
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        waitFor(() -> received.size() == 3);
+        Thread.sleep(100);
+        // Demand of 3 needs page 1; at most one page of read-ahead on top of that
+        assertEquals(3, received.size());
+        assertTrue("calls=" + service.calls.get(), service.calls.get() <= 2);
+        subscription.get().cancel();
+    }
+
+    @Test
+    public void testPublishFolder_unboundedDemand_shouldCompleteWithEverything() throws Exception {
+        PagedService service = new PagedService(7, 3);
+        List<Resource> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1);
+
+        service.publishFolder(null, 3).subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                s.request(Long.MAX_VALUE);
+            }
+            @Override
+            public void onNext(Resource item) {
+                received.add(item);
+            }
+            @Override
+            public void onError(Throwable throwable) {
+            }
+            @Override
+            public void onComplete() {
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(21, received.size());
+        assertEquals("key-20", received.get(20).getId());
+    }
+
+    @Test
+    public void testPublishFolder_listingFailure_shouldSignalError() throws Exception {
+        PagedService service = new PagedService(3, 2);
+        service.failOnPage = 1;
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        service.publishFolder(null, 2).subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                s.request(Long.MAX_VALUE);
+            }
+            @Override
+            public void onNext(Resource item) {
+            }
+            @Override
+            public void onError(Throwable throwable) {
+                error.set(throwable);
+                done.countDown();
+            }
+            @Override
+            public void onComplete() {
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertNotNull(error.get());
+        assertTrue(error.get().getMessage().contains("Failed to list"));
+    }
+
+    @Test
+    public void testDefaults_givenOnlyRequiredMethods_shouldLookUpKeysOneByOneAndRejectTheRest() {
+        PagedService service = new PagedService(1, 1);
+
+        BatchLookupResult lookup = service.getResources(List.of("b", "a", "b"));
+        assertTrue(lookup.getResources().isEmpty());
+        assertEquals(List.of("a", "b"), new ArrayList<>(lookup.getFailures().keySet()));
+
+        UnsupportedOperationException e = assertThrows(UnsupportedOperationException.class,
+                () -> service.deletePrefix(S3Resources.folder("logs")));
+        assertEquals("deletePrefix is not supported by " + PagedService.class.getName(), e.getMessage());
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("condition not met in time");
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    // Serves `pages` pages of `pageSize` files; the cursor is the next page number
+    private static class PagedService implements S3ResourceServiceInterface {
+        final int pages;
+        final int pageSize;
+        final AtomicInteger calls = new AtomicInteger();
+        volatile int failOnPage = -1;
+
+        PagedService(int pages, int pageSize) {
+            this.pages = pages;
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public ListResult<Resource> listFolder(Resource parent, String cursor, int maxKeys) {
+            calls.incrementAndGet();
+            int page = cursor == null ? 0 : Integer.parseInt(cursor);
+            if (page == failOnPage) {
+                throw new RuntimeException("Failed to list S3 objects: boom");
+            }
+            List<Resource> items = new ArrayList<>();
+            for (int i = 0; i < pageSize; i++) {
+                items.add(S3Resources.file(String.format("key-%02d", page * pageSize + i)));
+            }
+            ListResult<Resource> result = new ListResult<>();
+            result.setResources(items);
+            result.setCursor(page + 1 < pages ? String.valueOf(page + 1) : null);
+            return result;
+        }
+
+        @Override
+        public Resource getResource(String id) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public java.io.File getAsFile(Resource resource) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.S3App;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for MetricsS3ResourceService, OperationMetrics and LatencyHistogram using a mock delegate.
+ */
+@RunWith(org.mockito.junit.MockitoJUnitRunner.class)
+public class MetricsS3ResourceServiceTest {
+
+    @Mock
+    private S3ResourceServiceInterface mockDelegate;
+
+    private MetricsS3ResourceService service;
+
+    @Before
+    public void setUp() {
+        service = new MetricsS3ResourceService(mockDelegate);
+    }
+
+    @Test
+    public void testGetResource_shouldRecordCallsAndErrorsBySdkType() {
+        when(mockDelegate.getResource("a.txt")).thenReturn(S3Resources.file("a.txt"));
+        when(mockDelegate.getResource("missing.txt")).thenThrow(new RuntimeException("Resource not found: missing.txt",
+                NoSuchKeyException.builder().message("Not found").build()));
+
+        service.getResource("a.txt");
+        service.getResource("a.txt");
+        try {
+            service.getResource("missing.txt");
+            fail("expected RuntimeException");
+        } catch (RuntimeException e) {
+            assertEquals("Resource not found: missing.txt", e.getMessage());
+        }
+
+        OperationMetrics head = service.getMetrics().get(S3Metrics.Operation.GET_RESOURCE);
+        assertEquals(3, head.getCount());
+        assertEquals(1, head.getErrorCount());
+        assertEquals(Long.valueOf(1), head.getErrorsByType().get("NoSuchKeyException"));
+        assertEquals(0, head.getInFlight());
+        assertTrue(head.getMaxMillis() > 0);
+        assertEquals(0, service.getMetrics().get(S3Metrics.Operation.LIST_FOLDER).getCount());
+    }
+
+    @Test
+    public void testGetAsFile_shouldRecordBytes() throws Exception {
+        File file = File.createTempFile("metrics", ".bin");
+        file.deleteOnExit();
+        Files.write(file.toPath(), new byte[1234]);
+        when(mockDelegate.getAsFile(any())).thenReturn(file);
+
+        service.getAsFile(S3Resources.file("a.bin"));
+        service.getAsFile(S3Resources.file("a.bin"));
+
+        assertEquals(2468, service.getMetrics().get(S3Metrics.Operation.GET_AS_FILE).getBytes());
+    }
+
+    @Test
+    public void testRecordDownload_shouldRecordScheduledTransfersAsGetAsFile() throws Exception {
+        File file = File.createTempFile("metrics", ".bin");
+        file.deleteOnExit();
+        Files.write(file.toPath(), new byte[1234]);
+        TransferHandle<File> done = new TransferHandle<>(null, "bucket", "a.bin", TransferPriority.INTERACTIVE,
+                TransferControl.NONE);
+        TransferHandle<File> failed = new TransferHandle<>(null, "bucket", "b.bin", TransferPriority.INTERACTIVE,
+                TransferControl.NONE);
+
+        assertSame(done, service.recordDownload(done));
+        service.recordDownload(failed);
+        OperationMetrics getAsFile = service.getMetrics().get(S3Metrics.Operation.GET_AS_FILE);
+        assertEquals(2, getAsFile.getInFlight());
+        done.getCompletion().complete(file);
+        failed.getCompletion().completeExceptionally(new RuntimeException("Failed to download S3 file: b.bin",
+                NoSuchKeyException.builder().message("Not found").build()));
+
+        assertEquals(0, getAsFile.getInFlight());
+        assertEquals(2, getAsFile.getCount());
+        assertEquals(1, getAsFile.getErrorCount());
+        assertEquals(Long.valueOf(1), getAsFile.getErrorsByType().get("NoSuchKeyException"));
+        assertEquals(1234, getAsFile.getBytes());
+        verifyNoInteractions(mockDelegate);
+    }
+
+    @Test
+    public void testListAll_givenFailureWhileReading_shouldRecordItAsFailure() {
+        when(mockDelegate.listAll(null, false)).thenReturn(Stream.of("a.txt", "b.txt").map(key -> {
+            if (key.equals("b.txt")) {
+                throw new IllegalStateException("Failed to list S3 objects: connection reset");
+            }
+            return S3Resources.file(key);
+        }));
+
+        try (Stream<Resource> all = service.listAll(null, false)) {
+            assertThrows(IllegalStateException.class, () -> all.forEach(resource -> { }));
+        }
+
+        OperationMetrics listAll = service.getMetrics().get(S3Metrics.Operation.LIST_ALL);
+        assertEquals(1, listAll.getCount());
+        assertEquals(1, listAll.getErrorCount());
+        assertEquals(Long.valueOf(1), listAll.getErrorsByType().get("IllegalStateException"));
+        assertEquals(0, listAll.getInFlight());
+    }
+
+    @Test
+    public void testListAll_givenStreamReadToTheEndOrClosedEarly_shouldRecordOneSuccessEach() {
+        when(mockDelegate.listAll(null, true)).thenAnswer(inv -> Stream.of(S3Resources.file("a.txt"), S3Resources.file("b.txt")));
+
+        assertEquals(2, service.listAll(null, true).count()); // never closed
+        try (Stream<Resource> all = service.listAll(null, true)) {
+            assertEquals("a.txt", all.findFirst().orElseThrow().getId());
+        }
+
+        OperationMetrics listAll = service.getMetrics().get(S3Metrics.Operation.LIST_ALL);
+        assertEquals(2, listAll.getCount());
+        assertEquals(0, listAll.getErrorCount());
+        assertEquals(0, listAll.getInFlight());
+    }
+
+    @Test
+    public void testInFlight_shouldCountRunningCalls() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(mockDelegate.getResource("slow.txt")).thenAnswer(inv -> {
+            entered.countDown();
+            release.await();
+            return S3Resources.file("slow.txt");
+        });
+
+        CompletableFuture<Resource> call = CompletableFuture.supplyAsync(() -> service.getResource("slow.txt"));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        OperationMetrics head = service.getMetrics().get(S3Metrics.Operation.GET_RESOURCE);
+        assertEquals(1, head.getInFlight());
+
+        release.countDown();
+        call.get(5, TimeUnit.SECONDS);
+        assertEquals(0, head.getInFlight());
+        assertEquals(1, head.getCount());
+    }
+
+    @Test
+    public void testRecording_shouldNotAllocate() {
+        OperationMetrics metrics = new OperationMetrics("test");
+        RuntimeException error = new RuntimeException("Resource not found: x", NoSuchKeyException.builder().build());
+        // Warm up: JIT, LongAdder cells and the error counter for this type
+        for (int i = 0; i < 200_000; i++) {
+            metrics.success(metrics.start(), i);
+            metrics.failure(metrics.start(), error);
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 100_000; i++) {
+            metrics.success(metrics.start(), i);
+            metrics.failure(metrics.start(), error);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        // Leaves room for the measurement itself, far below one object per call
+        assertTrue("recording allocated " + allocated + " bytes", allocated < 1024);
+        assertEquals(600_000, metrics.getCount());
+    }
+
+    @Test
+    public void testHistogram_quantilesShouldBeWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int ms = 1; ms <= 1000; ms++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(ms));
+        }
+        long[] counts = histogram.snapshot();
+
+        assertEquals(500e6, LatencyHistogram.quantileNanos(counts, 0.50), 500e6 * 0.0625);
+        assertEquals(990e6, LatencyHistogram.quantileNanos(counts, 0.99), 990e6 * 0.0625);
+        assertEquals(1000e6, LatencyHistogram.quantileNanos(counts, 1.0), 1000e6 * 0.0625);
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+        assertEquals(0, LatencyHistogram.bucketOf(-5));
+    }
+
+    @Test
+    public void testReporter_shouldHandleActiveAndIdleIntervals() {
+        when(mockDelegate.getResource("a.txt")).thenReturn(S3Resources.file("a.txt"));
+        try (MetricsReporter reporter = new MetricsReporter(service.getMetrics(), java.time.Duration.ofHours(1))) {
+            service.getResource("a.txt");
+            reporter.report();
+            reporter.report(); // Nothing new: getResource is skipped
+        }
+        assertEquals(1, service.getMetrics().get(S3Metrics.Operation.GET_RESOURCE).getCount());
+    }
+
+    @Test
+    public void testRegisterMBeans_shouldExposeOperationsThroughJmx() throws Exception {
+        when(mockDelegate.getResource("a.txt")).thenReturn(S3Resources.file("a.txt"));
+        service.getResource("a.txt");
+        service.getMetrics().registerMBeans("test-bucket");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(
+                    "com.example.S3App:type=S3Metrics,name=\"test-bucket\",operation=getResource");
+            assertEquals(1L, server.getAttribute(name, "Count"));
+            assertTrue(server.getAttribute(name, "ErrorsByType") instanceof TabularData);
+        } finally {
+            service.getMetrics().unregisterMBeans();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.S3App;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static com.example.S3App.FakeS3Server.randomBytes;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the parallel ranged download of getAsFile against the in-process FakeS3Server.
+ */
+public class ParallelDownloadTest {
+
+    private static final int PART_SIZE = 256 * 1024;
+
+    @ClassRule
+    public static final FakeS3Server fakeS3 = new FakeS3Server();
+    private static S3Client client;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private Path downloads;
+    private S3ResourceService service;
+
+    @BeforeClass
+    public static void createClient() {
+        client = fakeS3.syncClient();
+    }
+
+    @AfterClass
+    public static void closeClient() {
+        client.close();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        fakeS3.reset();
+        downloads = tmp.newFolder("downloads").toPath();
+        DownloadSettings settings = new DownloadSettings();
+        settings.setPartSize(PART_SIZE);
+        settings.setParallelThreshold(PART_SIZE);
+        settings.setConcurrency(4);
+        service = new S3ResourceService(client, "test-bucket", downloads.toString(), settings);
+    }
+
+    @Test
+    public void testGetAsFile_givenObjectOfSeveralParts_shouldFetchEachRangeOncePinnedToTheETag() throws Exception {
+        byte[] data = randomBytes(5 * PART_SIZE + 1000); // short last part
+        fakeS3.put("big/data.bin", data);
+        String eTag = fakeS3.get("big/data.bin").eTag();
+
+        File file = service.getAsFile(S3Resources.file("big/data.bin"));
+
+        assertArrayEquals(data, Files.readAllBytes(file.toPath()));
+        List<FakeS3Server.RecordedGet> gets = fakeS3.gets();
+        List<String> ranges = gets.stream().map(FakeS3Server.RecordedGet::range).sorted().collect(Collectors.toList());
+        assertEquals(List.of(
+                "bytes=0-262143",
+                "bytes=1048576-1310719",
+                "bytes=1310720-1311719",
+                "bytes=262144-524287",
+                "bytes=524288-786431",
+                "bytes=786432-1048575"), ranges);
+        for (FakeS3Server.RecordedGet get : gets) {
+            assertEquals(get.range(), eTag, get.ifMatch());
+        }
+        assertEquals(data.length, fakeS3.bytesServed());
+    }
+
+    @Test
+    public void testGetAsFile_givenObjectReplacedMidDownload_shouldFailInsteadOfMixingVersions() throws Exception {
+        byte[] original = randomBytes(6 * PART_SIZE);
+        byte[] replacement = randomBytes(6 * PART_SIZE + 1);
+        fakeS3.put("big/data.bin", original);
+        // The object is overwritten as the second part is requested
+        AtomicInteger gets = new AtomicInteger();
+        fakeS3.setLatency(operation -> {
+            if (operation.equals("GET") && gets.incrementAndGet() == 2) {
+                fakeS3.put("big/data.bin", replacement);
+            }
+            return 0;
+        });
+
+        try {
+            service.getAsFile(S3Resources.file("big/data.bin"));
+            fail("expected the download to fail");
+        } catch (RuntimeException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().startsWith("Failed to download S3 file"));
+        }
+        assertFalse(Files.exists(downloads.resolve("data.bin")));
+
+        // The next attempt sees the new ETag and starts over rather than resuming the old version's parts
+        fakeS3.setLatency(operation -> 0);
+        File file = service.getAsFile(S3Resources.file("big/data.bin"));
+        assertArrayEquals(replacement, Files.readAllBytes(file.toPath()));
+    }
+}
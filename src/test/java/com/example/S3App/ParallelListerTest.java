@@ -0,0 +1,186 @@
+package com.example.S3App;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests ParallelLister against the in-process FakeS3Server.
+ */
+public class ParallelListerTest {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    @ClassRule
+    public static final FakeS3Server fakeS3 = new FakeS3Server();
+    private static S3Client client;
+
+    @BeforeClass
+    public static void createClient() {
+        client = fakeS3.syncClient();
+    }
+
+    @AfterClass
+    public static void closeClient() {
+        client.close();
+    }
+
+    @Before
+    public void setUp() {
+        fakeS3.reset();
+    }
+
+    @Test
+    public void testList_givenNestedFolders_shouldReturnEveryObjectOnce() {
+        List<String> expected = seedNested("data/", 12, 150);
+        fakeS3.put("other/outside.txt", EMPTY);
+
+        List<String> keys = list(new ParallelLister(client, "test-bucket", 4), folder("data/"), false);
+
+        assertEquals(expected.size(), keys.size());
+        assertEquals(new HashSet<>(expected), new HashSet<>(keys));
+    }
+
+    @Test
+    public void testList_givenOrdered_shouldReturnKeysInS3Order() {
+        List<String> expected = seedNested("data/", 6, 400);
+
+        List<String> keys = list(new ParallelLister(client, "test-bucket", 4), null, true);
+
+        assertEquals(expected, keys);
+    }
+
+    @Test
+    public void testList_givenOneLargeFlatFolder_shouldSplitAndStillReturnEveryKeyInOrder() {
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            String key = String.format("flat/file-%05d.log", i);
+            fakeS3.put(key, EMPTY);
+            expected.add(key);
+        }
+
+        List<String> keys = list(new ParallelLister(client, "test-bucket", 8), folder("flat/"), true);
+
+        assertEquals(expected, keys);
+        // 1 sampling request + 5 pages if nothing split; splitting adds (cheap) boundary requests
+        assertTrue("expected the range to be split", fakeS3.requestCount("LIST") > 6);
+    }
+
+    @Test
+    public void testList_givenPlaceholders_shouldReturnThemAsFolders() {
+        fakeS3.put("docs/", EMPTY);
+        fakeS3.put("docs/a.txt", EMPTY);
+
+        List<Resource> resources;
+        try (Stream<Resource> stream = new ParallelLister(client, "test-bucket", 2).list(null, true)) {
+            resources = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(2, resources.size());
+        assertEquals("docs/", resources.get(0).getId());
+        assertEquals(1, resources.get(0).getType());
+        assertEquals("a.txt", resources.get(1).getName());
+        assertEquals(0, resources.get(1).getType());
+    }
+
+    @Test
+    public void testList_givenStreamClosedEarly_shouldStopWithoutError() {
+        seedNested("data/", 20, 500);
+
+        try (Stream<Resource> stream = new ParallelLister(client, "test-bucket", 4).list(null, false)) {
+            assertEquals(10, stream.limit(10).count());
+        }
+    }
+
+    @Test
+    public void testMidpoint_shouldFallStrictlyBetweenBounds() {
+        String[][] cases = {
+                {"", "a", "z"},
+                {"", "a", "b"},
+                {"", "abc", "abd"},
+                {"p/", "p/file-00999", null},
+                {"p/", "p/~", null},
+                {"", "퟿", "￿"},
+        };
+        for (String[] c : cases) {
+            String mid = ParallelLister.midpoint(c[0], c[1], c[2]);
+            assertNotNull("no midpoint for " + c[1] + ".." + c[2], mid);
+            assertTrue(ParallelLister.compareKeys(c[1], mid) < 0);
+            if (c[2] != null) {
+                assertTrue(ParallelLister.compareKeys(mid, c[2]) < 0);
+            } else {
+                assertTrue(mid.startsWith(c[0]));
+            }
+        }
+        assertNull(ParallelLister.midpoint("", "abc", "ab"));
+        assertNull(ParallelLister.midpoint("", "a", "a\u0000"));
+    }
+
+    @Test
+    public void testCompareKeys_shouldOrderByCodePointLikeS3() {
+        // U+E000 sorts below U+1F600 in UTF-8, although its UTF-16 unit is larger than the surrogate's
+        assertTrue(ParallelLister.compareKeys("", "😀") < 0);
+        assertTrue("".compareTo("😀") > 0);
+        assertTrue(ParallelLister.compareKeys("a", "ab") < 0);
+        assertEquals(0, ParallelLister.compareKeys("same", "same"));
+    }
+
+    @Test
+    public void testList_givenNestedAndFlatRanges_shouldMatchSequentialListing() {
+        seedNested("mixed/", 10, 500);
+        for (int i = 0; i < 3000; i++) {
+            fakeS3.put(String.format("mixed/zz-flat/%06d", i), EMPTY);
+        }
+
+        Set<String> sequential = new HashSet<>();
+        for (ListObjectsV2Response page : client.listObjectsV2Paginator(ListObjectsV2Request.builder()
+                .bucket("test-bucket").prefix("mixed/").build())) {
+            page.contents().forEach(object -> sequential.add(object.key()));
+        }
+        List<String> parallel = list(new ParallelLister(client, "test-bucket", 16), folder("mixed/"), false);
+
+        assertEquals(8001, sequential.size());
+        assertEquals(sequential.size(), parallel.size());
+        assertEquals(sequential, new HashSet<>(parallel));
+    }
+
+    private static List<String> seedNested(String root, int folders, int perFolder) {
+        List<String> keys = new ArrayList<>();
+        for (int f = 0; f < folders; f++) {
+            for (int i = 0; i < perFolder; i++) {
+                String key = String.format("%sdir-%03d/obj-%05d", root, f, i);
+                fakeS3.put(key, EMPTY);
+                keys.add(key);
+            }
+        }
+        String loose = root + "loose.txt";
+        fakeS3.put(loose, EMPTY);
+        keys.add(loose);
+        keys.sort(ParallelLister::compareKeys);
+        return keys;
+    }
+
+    private static List<String> list(ParallelLister lister, Resource folder, boolean ordered) {
+        try (Stream<Resource> stream = lister.list(folder, ordered)) {
+            return stream.map(Resource::getId).collect(Collectors.toList());
+        }
+    }
+
+    private static Resource folder(String key) {
+        return S3Resources.folder(key);
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.S3App;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests hedged reads and throttling retries against the in-process FakeS3Server with injected latency.
+ */
+public class RequestHedgerTest {
+
+    @ClassRule
+    public static final FakeS3Server fakeS3 = new FakeS3Server();
+    private static S3Client client;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private Path downloads;
+
+    @BeforeClass
+    public static void createClient() {
+        // With the SDK's default retries, which hedged requests must turn off
+        client = fakeS3.syncClient();
+    }
+
+    @AfterClass
+    public static void closeClient() {
+        client.close();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        fakeS3.reset();
+        downloads = tmp.newFolder("downloads").toPath();
+        fakeS3.put("docs/a.txt", "hello".getBytes());
+    }
+
+    @Test
+    public void testGetResource_givenSlowTail_shouldHedgeWithinBudget() {
+        // Every 25th HEAD stalls, so hedges are sent for some requests but the budget bounds them
+        AtomicInteger heads = new AtomicInteger();
+        fakeS3.setLatency(op -> op.equals("HEAD") && heads.incrementAndGet() % 25 == 0 ? 300 : 0);
+        HedgingPolicy policy = new HedgingPolicy();
+        policy.setHedgeQuantile(0.9);
+        policy.setHedgeBudget(0.1);
+        S3ResourceService hedged = service(policy);
+
+        for (int i = 0; i < 140; i++) {
+            assertEquals(5, hedged.getResource("docs/a.txt").getSize());
+        }
+
+        int extraHeads = fakeS3.requestCount("HEAD") - 140;
+        assertTrue("extra HEADs " + extraHeads, extraHeads > 0);
+        // Budget: 10% of 140 requests plus the initial burst of 10
+        assertTrue("extra HEADs " + extraHeads, extraHeads <= 24);
+    }
+
+    @Test
+    public void testGetAsFile_givenSlowFirstGet_shouldUseHedgeAndAbortLoser() throws Exception {
+        byte[] data = new byte[100_000];
+        Arrays.fill(data, (byte) 7);
+        fakeS3.put("small.bin", data);
+        AtomicInteger gets = new AtomicInteger();
+        fakeS3.setLatency(op -> op.equals("GET") && gets.incrementAndGet() == 1 ? 1000 : 0);
+        HedgingPolicy policy = new HedgingPolicy();
+        policy.setMaxHedgeDelay(Duration.ofMillis(50)); // no samples yet, so this is the delay
+
+        service(policy).getAsFile(S3Resources.file("small.bin"));
+
+        assertEquals(2, fakeS3.requestCount("GET"));
+        assertArrayEquals(data, Files.readAllBytes(downloads.resolve("small.bin")));
+    }
+
+    @Test
+    public void testGetResource_givenThrottling_shouldBackOffAndRetry() {
+        AtomicInteger heads = new AtomicInteger();
+        fakeS3.setThrottling(op -> op.equals("HEAD") && heads.incrementAndGet() <= 2);
+        HedgingPolicy policy = new HedgingPolicy();
+        policy.setBaseBackoff(Duration.ofMillis(10));
+
+        Resource resource = service(policy).getResource("docs/a.txt");
+
+        assertEquals(5, resource.getSize());
+        assertEquals(3, fakeS3.requestCount("HEAD"));
+    }
+
+    @Test
+    public void testGetResource_givenPersistentThrottling_shouldGiveUpAfterMaxRetries() {
+        fakeS3.setThrottling(op -> op.equals("HEAD"));
+        HedgingPolicy policy = new HedgingPolicy();
+        policy.setBaseBackoff(Duration.ofMillis(5));
+        policy.setMaxThrottleRetries(2);
+
+        try {
+            service(policy).getResource("docs/a.txt");
+            fail("expected RuntimeException");
+        } catch (RuntimeException e) {
+            assertEquals(503, ((S3Exception) e.getCause()).statusCode());
+        }
+        assertEquals(3, fakeS3.requestCount("HEAD"));
+    }
+
+    @Test
+    public void testGetResource_givenServerError_shouldRetryOnceWithoutSdkRetries() {
+        AtomicInteger heads = new AtomicInteger();
+        fakeS3.setFailure(op -> op.equals("HEAD") && heads.incrementAndGet() == 1);
+        HedgingPolicy policy = new HedgingPolicy();
+        policy.setBaseBackoff(Duration.ofMillis(5));
+
+        assertEquals(5, service(policy).getResource("docs/a.txt").getSize());
+        assertEquals(2, fakeS3.requestCount("HEAD"));
+    }
+
+    @Test
+    public void testGetAsFile_givenNoFreeAttemptThread_shouldNotHedge() throws Exception {
+        fakeS3.setLatency(op -> op.equals("GET") ? 300 : 0);
+        HedgingPolicy policy = new HedgingPolicy();
+        policy.setMaxHedgeDelay(Duration.ofMillis(20));
+        policy.setMaxConcurrentAttempts(1); // taken by the primary
+
+        service(policy).getAsFile(S3Resources.file("docs/a.txt"));
+
+        assertEquals(1, fakeS3.requestCount("GET"));
+        assertArrayEquals("hello".getBytes(), Files.readAllBytes(downloads.resolve("a.txt")));
+    }
+
+    @Test
+    public void testGetResource_givenMoreCallersThanAttemptThreads_shouldRunTheRestOnTheirOwnThreads() throws Exception {
+        fakeS3.setLatency(op -> op.equals("HEAD") ? 100 : 0);
+        HedgingPolicy policy = new HedgingPolicy();
+        policy.setMaxConcurrentAttempts(1);
+        policy.setHedgeBudget(0);
+        S3ResourceService service = service(policy);
+
+        List<CompletableFuture<Resource>> calls = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            String key = "docs/" + i + ".txt"; // distinct keys, so the HEADs are not shared
+            fakeS3.put(key, "hello".getBytes());
+            calls.add(CompletableFuture.supplyAsync(() -> service.getResource(key)));
+        }
+        for (CompletableFuture<Resource> call : calls) {
+            assertEquals(5, call.get(10, TimeUnit.SECONDS).getSize());
+        }
+        assertEquals(4, fakeS3.requestCount("HEAD"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetMaxConcurrentAttempts_givenZero_shouldThrow() {
+        new HedgingPolicy().setMaxConcurrentAttempts(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetHedgeQuantile_givenOne_shouldThrow() {
+        new HedgingPolicy().setHedgeQuantile(1.0);
+    }
+
+    private S3ResourceService service(HedgingPolicy policy) {
+        DownloadSettings settings = new DownloadSettings();
+        settings.setParallelThreshold(0); // single GET, no HEAD
+        settings.setHedging(policy);
+        return new S3ResourceService(client, "test-bucket", downloads.toString(), settings);
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.S3App;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests ResourceBatchLookup (getResources) against the in-process FakeS3Server.
+ */
+public class ResourceBatchLookupTest {
+
+    @ClassRule
+    public static final FakeS3Server fakeS3 = new FakeS3Server();
+    private static S3Client client;
+
+    private ResourceBatchLookup lookup;
+
+    @BeforeClass
+    public static void createClient() {
+        client = fakeS3.syncClient();
+    }
+
+    @AfterClass
+    public static void closeClient() {
+        client.close();
+    }
+
+    @Before
+    public void setUp() {
+        fakeS3.reset();
+        lookup = new ResourceBatchLookup(client, "test-bucket", new Semaphore(8));
+    }
+
+    @Test
+    public void testLookup_givenFewKeys_shouldHeadEachAndReportMissingSeparately() {
+        fakeS3.put("a/one.txt", "hello".getBytes(StandardCharsets.UTF_8));
+        fakeS3.put("b/", new byte[0]);
+
+        BatchLookupResult result = lookup.lookup(List.of("a/one.txt", "b/", "a/missing.txt", "a/one.txt"));
+
+        assertEquals(2, result.getResources().size());
+        Resource one = result.getResources().get("a/one.txt");
+        assertEquals(5, one.getSize());
+        assertEquals(fakeS3.get("a/one.txt").eTag(), one.getETag());
+        assertTrue(one.getLastModified() > 0);
+        assertEquals(1, result.getResources().get("b/").getType());
+
+        RuntimeException missing = result.getFailures().get("a/missing.txt");
+        assertEquals("Resource not found: a/missing.txt", missing.getMessage());
+        assertTrue(missing.getCause() instanceof NoSuchKeyException);
+        assertEquals(3, fakeS3.requestCount("HEAD"));
+        assertEquals(0, fakeS3.requestCount("LIST"));
+    }
+
+    @Test
+    public void testLookup_givenManyKeysInOneFolder_shouldAnswerFromListing() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            String key = String.format("logs/part-%04d", i);
+            fakeS3.put(key, new byte[i]);
+            keys.add(key);
+        }
+        fakeS3.put("logs/nested/other", new byte[1]);
+        keys.add("logs/part-9999");
+
+        BatchLookupResult result = lookup.lookup(keys);
+
+        assertEquals(300, result.getResources().size());
+        assertEquals(42, result.getResources().get("logs/part-0042").getSize());
+        assertEquals(fakeS3.get("logs/part-0042").eTag(), result.getResources().get("logs/part-0042").getETag());
+        assertTrue(result.getFailures().get("logs/part-9999").getCause() instanceof NoSuchKeyException);
+        assertEquals(0, fakeS3.requestCount("HEAD"));
+        assertEquals(1, fakeS3.requestCount("LIST"));
+    }
+
+    @Test
+    public void testLookup_givenSparseKeysInHugeFolder_shouldFallBackToHeadPastBudget() {
+        // 64 wanted keys allow a 4-page scan; spreading them over 8000 objects leaves the tail to HEAD
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 8000; i++) {
+            String key = String.format("big/obj-%05d", i);
+            fakeS3.put(key, new byte[0]);
+            if (i % 125 == 0) {
+                keys.add(key);
+            }
+        }
+
+        BatchLookupResult result = lookup.lookup(keys);
+
+        assertEquals(keys.size(), result.getResources().size());
+        assertTrue(result.getFailures().isEmpty());
+        assertEquals(4, fakeS3.requestCount("LIST"));
+        assertEquals(32, fakeS3.requestCount("HEAD"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLookup_givenNullKey_shouldThrow() {
+        lookup.lookup(java.util.Arrays.asList("a.txt", null));
+    }
+}
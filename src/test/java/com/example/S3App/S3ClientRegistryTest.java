@@ -0,0 +1,73 @@
+package com.example.S3App;
+
+import org.junit.Test;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.time.Duration;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests S3ClientRegistry client sharing and S3ClientSettings.
+ */
+public class S3ClientRegistryTest {
+
+    @Test
+    public void testClient_shouldShareOneClientPerRegion() {
+        try (S3ClientRegistry registry = new S3ClientRegistry(FakeS3Server.CREDENTIALS, new S3ClientSettings())) {
+            S3Client east = registry.client(Region.US_EAST_1);
+
+            assertSame(east, registry.client(Region.US_EAST_1));
+            assertNotSame(east, registry.client(Region.EU_WEST_1));
+            assertEquals(2, registry.size());
+            assertEquals(Region.EU_WEST_1, registry.client(Region.EU_WEST_1).serviceClientConfiguration().region());
+        }
+    }
+
+    @Test
+    public void testClient_givenClosedRegistry_shouldThrow() {
+        S3ClientRegistry registry = new S3ClientRegistry(FakeS3Server.CREDENTIALS, new S3ClientSettings());
+        registry.client(Region.US_EAST_1);
+        registry.close();
+
+        assertEquals(0, registry.size());
+        try {
+            registry.client(Region.US_EAST_1);
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+            // closed
+        }
+    }
+
+    @Test
+    public void testBuildHttpClient_shouldApplySettingsToApacheClient() {
+        S3ClientSettings settings = new S3ClientSettings();
+        settings.setMaxConnections(7);
+        settings.setConnectionTimeToLive(Duration.ofMinutes(5));
+        settings.setTcpKeepAlive(true);
+
+        try (SdkHttpClient httpClient = S3ClientRegistry.buildHttpClient(settings)) {
+            assertEquals("Apache", httpClient.clientName());
+        }
+    }
+
+    @Test
+    public void testBuildHttpClient_givenImplementationNotOnClasspath_shouldNameArtifact() {
+        S3ClientSettings settings = new S3ClientSettings();
+        settings.setHttpImplementation(S3ClientSettings.HttpImplementation.CRT);
+
+        try {
+            S3ClientRegistry.buildHttpClient(settings).close();
+            // aws-crt-client happens to be on the classpath; nothing to check
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("aws-crt-client"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetMaxConnections_givenZero_shouldThrow() {
+        new S3ClientSettings().setMaxConnections(0);
+    }
+}
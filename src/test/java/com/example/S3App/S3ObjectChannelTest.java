@@ -0,0 +1,156 @@
+package com.example.S3App;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests openChannel / S3ObjectChannel against the in-process FakeS3Server.
+ */
+public class S3ObjectChannelTest {
+
+    private static final int BLOCK = 64 * 1024;
+
+    @ClassRule
+    public static final FakeS3Server fakeS3 = new FakeS3Server();
+    private static S3Client client;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private S3ResourceService service;
+    private byte[] data;
+
+    @BeforeClass
+    public static void createClient() {
+        client = fakeS3.syncClient();
+    }
+
+    @AfterClass
+    public static void closeClient() {
+        client.close();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        fakeS3.reset();
+        DownloadSettings settings = new DownloadSettings();
+        settings.setChannelBlockSize(BLOCK);
+        settings.setChannelCacheBlocks(8);
+        settings.setChannelReadAheadBlocks(4);
+        service = new S3ResourceService(client, "test-bucket", tmp.newFolder("downloads").toString(), settings);
+        data = new byte[128 * BLOCK + 123]; // 8 MB and a partial last block
+        new Random(42).nextBytes(data);
+        fakeS3.put("data/big.parquet", data);
+    }
+
+    @Test
+    public void testRead_givenFooterAccess_shouldFetchOnlyTouchedBlocks() throws Exception {
+        try (SeekableByteChannel channel = service.openChannel(S3Resources.file("data/big.parquet"))) {
+            assertEquals(data.length, channel.size());
+
+            // Parquet-style: 8-byte tail, then the footer it points at
+            byte[] tail = read(channel, data.length - 8, 8);
+            byte[] footer = read(channel, data.length - 100_000, 100_000 - 8);
+
+            assertArrayEquals(Arrays.copyOfRange(data, data.length - 8, data.length), tail);
+            assertArrayEquals(Arrays.copyOfRange(data, data.length - 100_000, data.length - 8), footer);
+        }
+        assertEquals(1, fakeS3.requestCount("HEAD"));
+        assertEquals(2, fakeS3.requestCount("GET"));
+        // The last (partial) block, then the two blocks before it in one request
+        assertEquals(2L * BLOCK + 123, fakeS3.bytesServed());
+    }
+
+    @Test
+    public void testRead_givenSequentialScan_shouldReadAheadInFewRequests() throws Exception {
+        byte[] copy = new byte[data.length];
+        try (SeekableByteChannel channel = service.openChannel(S3Resources.file("data/big.parquet"))) {
+            ByteBuffer buffer = ByteBuffer.allocate(8 * 1024);
+            int offset = 0;
+            int n;
+            while ((n = channel.read(buffer.clear())) > 0) {
+                buffer.flip().get(copy, offset, n);
+                offset += n;
+            }
+            assertEquals(data.length, offset);
+        }
+
+        assertArrayEquals(data, copy);
+        assertEquals(data.length, fakeS3.bytesServed());
+        // 129 blocks: one, then windows of 1 + 4 read-ahead blocks
+        int gets = fakeS3.requestCount("GET");
+        assertTrue("GETs " + gets, gets <= 30);
+    }
+
+    @Test
+    public void testRead_givenCachedBlockInRange_shouldCoalesceMissesAroundIt() throws Exception {
+        try (SeekableByteChannel channel = service.openChannel(S3Resources.file("data/big.parquet"))) {
+            read(channel, 5L * BLOCK, 10);            // block 5
+            byte[] range = read(channel, 3L * BLOCK, 4 * BLOCK); // blocks 3-6: 3-4 and 6 are missing
+
+            assertArrayEquals(Arrays.copyOfRange(data, 3 * BLOCK, 7 * BLOCK), range);
+        }
+        assertEquals(3, fakeS3.requestCount("GET"));
+        assertEquals(4L * BLOCK, fakeS3.bytesServed());
+    }
+
+    @Test
+    public void testRead_givenCacheFull_shouldEvictLeastRecentlyUsedBlock() throws Exception {
+        try (SeekableByteChannel channel = service.openChannel(S3Resources.file("data/big.parquet"))) {
+            for (int block = 0; block < 20; block += 2) { // non-sequential, so no read-ahead
+                read(channel, (long) block * BLOCK, 1);
+            }
+            fakeS3.resetCounters();
+            read(channel, 18L * BLOCK, 1); // still cached
+            read(channel, 0, 1);          // evicted
+
+            assertEquals(1, fakeS3.requestCount("GET"));
+        }
+    }
+
+    @Test
+    public void testRead_givenObjectReplaced_shouldFailInsteadOfMixingVersions() throws Exception {
+        try (SeekableByteChannel channel = service.openChannel(S3Resources.file("data/big.parquet"))) {
+            read(channel, 0, 10);
+            fakeS3.put("data/big.parquet", new byte[data.length]);
+
+            try {
+                read(channel, 50L * BLOCK, 10);
+                fail("expected IOException");
+            } catch (IOException expected) {
+                // 412 Precondition Failed on If-Match
+            }
+        }
+    }
+
+    @Test(expected = NonWritableChannelException.class)
+    public void testWrite_shouldBeRejected() throws Exception {
+        try (SeekableByteChannel channel = service.openChannel(S3Resources.file("data/big.parquet"))) {
+            channel.write(ByteBuffer.allocate(1));
+        }
+    }
+
+    private static byte[] read(SeekableByteChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        channel.position(position);
+        while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+            // keep reading
+        }
+        return buffer.array();
+    }
+}
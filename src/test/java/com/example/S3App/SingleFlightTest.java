@@ -0,0 +1,250 @@
+package com.example.S3App;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.example.S3App.FakeS3Server.randomBytes;
+import static org.junit.Assert.*;
+
+/**
+ * Tests coalescing of concurrent identical calls and serialized writes to the same file, on its own and in the
+ * services against the in-process FakeS3Server.
+ */
+public class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    @ClassRule
+    public static final FakeS3Server fakeS3 = new FakeS3Server();
+    private static S3Client client;
+    private static S3AsyncClient asyncClient;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private Path downloads;
+    private S3ResourceService service;
+
+    @BeforeClass
+    public static void createClients() {
+        client = fakeS3.syncClient();
+        asyncClient = fakeS3.asyncClient();
+    }
+
+    @AfterClass
+    public static void closeClients() {
+        client.close();
+        asyncClient.close();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        fakeS3.reset();
+        downloads = tmp.newFolder("downloads").toPath();
+        service = new S3ResourceService(client, "test-bucket", downloads.toString(), new DownloadSettings());
+    }
+
+    @Test
+    public void testShare_givenConcurrentCallers_shouldRunOnceAndShareResult() throws Exception {
+        SingleFlight<String> flights = new SingleFlight<>("test");
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<Integer>> results = runConcurrently(() -> flights.share("key", () -> {
+            calls.incrementAndGet();
+            await(release);
+            return 42;
+        }), release);
+
+        for (Future<Integer> result : results) {
+            assertEquals(Integer.valueOf(42), result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+        assertEquals(0, flights.inFlightCount());
+        assertEquals(Integer.valueOf(7), flights.share("key", () -> 7)); // finished calls are not cached
+    }
+
+    @Test
+    public void testExclusive_givenConcurrentCallers_shouldRunOneAtATime() throws Exception {
+        SingleFlight<String> writes = new SingleFlight<>("test");
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        List<Future<Integer>> results = runConcurrently(() -> writes.exclusive("file", () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep(10);
+            return running.decrementAndGet();
+        }), null);
+
+        for (Future<Integer> result : results) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(1, maxRunning.get());
+        assertEquals(0, writes.inFlightCount());
+    }
+
+    @Test
+    public void testGetResource_givenConcurrentCallers_shouldSendOneHead() throws Exception {
+        fakeS3.put("hot.txt", "hot".getBytes());
+        fakeS3.setLatency(operation -> operation.equals("HEAD") ? 300 : 0);
+
+        List<Future<Resource>> results = runConcurrently(() -> service.getResource("hot.txt"), null);
+
+        List<Resource> resources = new ArrayList<>();
+        for (Future<Resource> result : results) {
+            resources.add(result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, fakeS3.requestCount("HEAD"));
+        assertEquals(3, resources.get(0).getSize());
+        assertNotSame(resources.get(0), resources.get(1)); // each caller may modify its own copy
+    }
+
+    @Test
+    public void testGetResource_givenFailingHead_shouldFailEveryCaller() throws Exception {
+        fakeS3.put("hot.txt", "hot".getBytes());
+        fakeS3.setLatency(operation -> operation.equals("HEAD") ? 300 : 0);
+        fakeS3.setFailure(operation -> operation.equals("HEAD"));
+
+        for (Future<Resource> result : runConcurrently(() -> service.getResource("hot.txt"), null)) {
+            try {
+                result.get(10, TimeUnit.SECONDS);
+                fail("expected failure");
+            } catch (ExecutionException expected) {
+                assertTrue(expected.getCause().getMessage().startsWith("Failed to retrieve S3 resource"));
+            }
+        }
+        assertTrue(fakeS3.requestCount("HEAD") < CALLERS); // one caller's attempts, SDK retries included
+    }
+
+    @Test
+    public void testGetAsFile_givenConcurrentCallers_shouldDownloadOnce() throws Exception {
+        byte[] data = randomBytes(512 * 1024);
+        fakeS3.put("dir/hot.bin", data);
+        fakeS3.setLatency(operation -> operation.equals("GET") ? 300 : 0);
+
+        for (Future<File> result : runConcurrently(() -> service.getAsFile(S3Resources.file("dir/hot.bin")), null)) {
+            assertEquals(downloads.resolve("hot.bin").toFile(), result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, fakeS3.requestCount("GET"));
+        assertEquals(data.length, fakeS3.bytesServed());
+        assertArrayEquals(data, Files.readAllBytes(downloads.resolve("hot.bin")));
+    }
+
+    @Test
+    public void testGetAsFile_givenKeysWithSameName_shouldWriteTheFileInTurn() throws Exception {
+        byte[] first = randomBytes(2 * 1024 * 1024);
+        byte[] second = randomBytes(2 * 1024 * 1024 + 1);
+        fakeS3.put("a/same.bin", first);
+        fakeS3.put("b/same.bin", second);
+        fakeS3.setLatency(operation -> operation.equals("GET") ? 100 : 0);
+        DownloadSettings settings = new DownloadSettings();
+        settings.setParallelThreshold(0);
+        S3ResourceService singleStream = new S3ResourceService(client, "test-bucket", downloads.toString(), settings);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<File> a = pool.submit(() -> singleStream.getAsFile(S3Resources.file("a/same.bin")));
+            Future<File> b = pool.submit(() -> singleStream.getAsFile(S3Resources.file("b/same.bin")));
+            a.get(10, TimeUnit.SECONDS);
+            b.get(10, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdown();
+        }
+
+        // Whichever ran last, the file is one whole object, not a mix of both
+        byte[] written = Files.readAllBytes(downloads.resolve("same.bin"));
+        assertTrue(Arrays.equals(first, written) || Arrays.equals(second, written));
+        assertEquals(2, fakeS3.requestCount("GET"));
+        assertFalse(Files.exists(DownloadCheckpoint.partialFile(downloads.resolve("same.bin"))));
+    }
+
+    @Test
+    public void testListFolder_givenConcurrentCallers_shouldSendOneListRequest() throws Exception {
+        fakeS3.put("logs/1.txt", new byte[1]);
+        fakeS3.put("logs/2.txt", new byte[1]);
+        fakeS3.setLatency(operation -> operation.equals("LIST") ? 300 : 0);
+
+        for (Future<ListResult<Resource>> result : runConcurrently(
+                () -> service.listFolder(S3Resources.folder("logs"), null), null)) {
+            assertEquals(2, result.get(5, TimeUnit.SECONDS).getResources().size());
+        }
+        assertEquals(1, fakeS3.requestCount("LIST"));
+    }
+
+    @Test
+    public void testAsyncGetResource_givenConcurrentCallers_shouldSendOneHead() throws Exception {
+        fakeS3.put("hot.txt", "hot".getBytes());
+        fakeS3.setLatency(operation -> operation.equals("HEAD") ? 300 : 0);
+        try (AsyncS3ResourceService async = new AsyncS3ResourceService(asyncClient, "test-bucket", downloads.toString())) {
+            List<CompletableFuture<Resource>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(async.getResource("hot.txt"));
+            }
+            results.get(0).cancel(false); // does not cancel the shared request
+            for (CompletableFuture<Resource> result : results.subList(1, CALLERS)) {
+                assertEquals(3, result.get(5, TimeUnit.SECONDS).getSize());
+            }
+        }
+        assertEquals(1, fakeS3.requestCount("HEAD"));
+    }
+
+    // Starts CALLERS threads together; opens release, if given, once all of them are past the start line
+    private static <T> List<Future<T>> runConcurrently(Callable<T> call, CountDownLatch release) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+        CountDownLatch ready = new CountDownLatch(CALLERS);
+        List<Future<T>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(pool.submit(() -> {
+                ready.countDown();
+                ready.await();
+                return call.call();
+            }));
+        }
+        ready.await();
+        if (release != null) {
+            Thread.sleep(100); // let the callers reach the in-flight call
+            release.countDown();
+        }
+        pool.shutdown();
+        return results;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
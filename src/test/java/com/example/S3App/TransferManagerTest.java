@@ -0,0 +1,277 @@
+package com.example.S3App;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.example.S3App.FakeS3Server.randomBytes;
+import static org.junit.Assert.*;
+
+/**
+ * Tests TransferManager scheduling, bandwidth cap, progress and cancellation against the in-process FakeS3Server.
+ */
+public class TransferManagerTest {
+
+    private static final int PART_SIZE = 256 * 1024;
+
+    @ClassRule
+    public static final FakeS3Server fakeS3 = new FakeS3Server();
+    private static S3Client client;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private Path downloads;
+    private DownloadSettings downloadSettings;
+    private UploadSettings uploadSettings;
+    private TransferSettings settings;
+    private final List<String> completed = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeClass
+    public static void createClient() {
+        client = fakeS3.syncClient();
+    }
+
+    @AfterClass
+    public static void closeClient() {
+        client.close();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        fakeS3.reset();
+        downloads = tmp.newFolder("downloads").toPath();
+        downloadSettings = new DownloadSettings();
+        downloadSettings.setParallelThreshold(1024 * 1024);
+        downloadSettings.setPartSize(PART_SIZE);
+        uploadSettings = new UploadSettings();
+        settings = new TransferSettings();
+    }
+
+    @Test
+    public void testDownload_givenQueuedBulkWork_shouldStartInteractiveNext() throws Exception {
+        for (String key : List.of("bulk-1", "bulk-2", "bulk-3", "interactive")) {
+            fakeS3.put(key, key.getBytes());
+        }
+        fakeS3.setLatency(operation -> operation.equals("GET") ? 100 : 0);
+        settings.setMaxConcurrentTransfers(1);
+        settings.setInteractiveReserve(0);
+        S3ResourceService service = newService("test-bucket");
+
+        List<TransferHandle<File>> handles = new ArrayList<>();
+        try (TransferManager manager = new TransferManager(settings)) {
+            for (String key : List.of("bulk-1", "bulk-2", "bulk-3")) {
+                handles.add(track(manager.download(service, S3Resources.file(key), TransferPriority.BULK)));
+            }
+            assertEquals(1, manager.getRunningCount());
+            assertEquals(2, manager.getQueuedCount());
+            handles.add(track(manager.download(service, S3Resources.file("interactive"), TransferPriority.INTERACTIVE)));
+
+            for (TransferHandle<File> handle : handles) {
+                handle.getCompletion().get(10, TimeUnit.SECONDS);
+                assertEquals(TransferHandle.State.SUCCEEDED, handle.getState());
+            }
+        }
+        assertEquals(List.of("bulk-1", "interactive", "bulk-2", "bulk-3"), completed);
+        assertArrayEquals("interactive".getBytes(), Files.readAllBytes(downloads.resolve("interactive")));
+    }
+
+    @Test
+    public void testDownload_givenBusyBucket_shouldGiveFreeSlotToOtherBucket() throws Exception {
+        for (String key : List.of("a-1", "a-2", "a-3", "b-1")) {
+            fakeS3.put(key, key.getBytes());
+        }
+        fakeS3.setLatency(operation -> operation.equals("GET") ? 150 : 0);
+        settings.setMaxConcurrentTransfers(2);
+        settings.setMaxConcurrentPerBucket(1);
+        settings.setInteractiveReserve(0);
+        S3ResourceService bucketA = newService("bucket-a");
+        S3ResourceService bucketB = newService("bucket-b");
+
+        try (TransferManager manager = new TransferManager(settings)) {
+            List<TransferHandle<File>> handles = new ArrayList<>();
+            for (String key : List.of("a-1", "a-2", "a-3")) {
+                handles.add(track(manager.download(bucketA, S3Resources.file(key), TransferPriority.NORMAL)));
+            }
+            assertEquals(1, manager.getRunningCount()); // the second slot stays free rather than exceed bucket-a's limit
+            handles.add(track(manager.download(bucketB, S3Resources.file("b-1"), TransferPriority.NORMAL)));
+            assertEquals(2, manager.getRunningCount());
+
+            for (TransferHandle<File> handle : handles) {
+                handle.getCompletion().get(10, TimeUnit.SECONDS);
+            }
+        }
+        assertTrue(completed.toString(), completed.indexOf("b-1") < completed.indexOf("a-2"));
+        assertEquals(List.of("a-1", "a-2", "a-3"), completed.stream().filter(key -> key.startsWith("a-")).toList());
+    }
+
+    @Test
+    public void testDownload_givenBandwidthCap_shouldPaceCopyAndReportProgress() throws Exception {
+        byte[] data = randomBytes(6 * PART_SIZE); // 1.5 MB in parallel parts
+        fakeS3.put("big.bin", data);
+        settings.setMaxBytesPerSecond(2 * 1024 * 1024);
+        settings.setBurstBytes(64 * 1024);
+
+        long start = System.nanoTime();
+        TransferHandle<File> handle;
+        try (TransferManager manager = new TransferManager(settings)) {
+            handle = manager.download(newService("test-bucket"), S3Resources.file("big.bin"), TransferPriority.NORMAL);
+            File file = handle.getCompletion().get(10, TimeUnit.SECONDS);
+            assertArrayEquals(data, Files.readAllBytes(file.toPath()));
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue("elapsedMs=" + elapsedMillis, elapsedMillis >= 650); // (1.5 MB - 64 KB) at 2 MB/s
+        assertEquals(data.length, handle.getTotalBytes());
+        assertEquals(data.length, handle.getBytesTransferred());
+        assertEquals(1.0, handle.getProgress(), 0.0);
+    }
+
+    @Test
+    public void testCancel_givenQueuedTransfer_shouldNeverStartIt() throws Exception {
+        fakeS3.put("first", "first".getBytes());
+        fakeS3.put("second", "second".getBytes());
+        fakeS3.setLatency(operation -> operation.equals("GET") ? 200 : 0);
+        settings.setMaxConcurrentTransfers(1);
+        settings.setInteractiveReserve(0);
+        S3ResourceService service = newService("test-bucket");
+
+        try (TransferManager manager = new TransferManager(settings)) {
+            TransferHandle<File> first = manager.download(service, S3Resources.file("first"), TransferPriority.NORMAL);
+            TransferHandle<File> second = manager.download(service, S3Resources.file("second"), TransferPriority.NORMAL);
+            assertTrue(second.getCompletion().cancel(false));
+
+            assertEquals(TransferHandle.State.CANCELLED, second.getState());
+            assertEquals(0, manager.getQueuedCount());
+            first.getCompletion().get(10, TimeUnit.SECONDS);
+            assertFalse(first.cancel());
+        }
+        assertEquals(1, fakeS3.requestCount("GET"));
+        assertFalse(Files.exists(downloads.resolve("second")));
+    }
+
+    @Test
+    public void testCancel_givenRunningDownload_shouldStopAndKeepItResumable() throws Exception {
+        byte[] data = randomBytes(8 * PART_SIZE);
+        fakeS3.put("big.bin", data);
+        downloadSettings.setConcurrency(2);
+        settings.setMaxBytesPerSecond(1024 * 1024);
+        settings.setBurstBytes(64 * 1024);
+        S3ResourceService service = newService("test-bucket");
+
+        try (TransferManager manager = new TransferManager(settings)) {
+            TransferHandle<File> handle = manager.download(service, S3Resources.file("big.bin"), TransferPriority.BULK);
+            while (handle.getBytesTransferred() < 3 * PART_SIZE) { // at least one part finished
+                Thread.sleep(10);
+            }
+            assertTrue(handle.cancel());
+            try {
+                handle.getCompletion().join();
+                fail("expected CancellationException");
+            } catch (CancellationException expected) {
+            }
+            while (manager.getRunningCount() > 0) {
+                Thread.sleep(10);
+            }
+            assertEquals(TransferHandle.State.CANCELLED, handle.getState());
+            assertTrue(handle.getBytesTransferred() < data.length);
+        }
+        assertFalse(Files.exists(downloads.resolve("big.bin")));
+        assertTrue(Files.exists(DownloadCheckpoint.partialFile(downloads.resolve("big.bin"))));
+
+        fakeS3.resetCounters();
+        service.getAsFile(S3Resources.file("big.bin"));
+        assertArrayEquals(data, Files.readAllBytes(downloads.resolve("big.bin")));
+        assertTrue(fakeS3.bytesServed() < data.length);
+    }
+
+    @Test
+    public void testCancel_givenTransferPastItsLastChunk_shouldLetItSucceed() throws Exception {
+        uploadSettings.setThreshold(UploadSettings.MIN_PART_SIZE);
+        uploadSettings.setPartSize(UploadSettings.MIN_PART_SIZE);
+        byte[] data = randomBytes(6 * 1024 * 1024);
+        Path local = tmp.newFile("upload.bin").toPath();
+        Files.write(local, data);
+        AtomicReference<TransferHandle<Resource>> running = new AtomicReference<>();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        // Every part is uploaded by the time the upload is completed
+        fakeS3.setLatency(operation -> {
+            if (operation.equals("COMPLETE_MULTIPART")) {
+                cancelled.set(running.get().cancel());
+            }
+            return 0;
+        });
+
+        try (TransferManager manager = new TransferManager(settings)) {
+            running.set(manager.upload(newService("test-bucket"), local, "up/upload.bin", TransferPriority.NORMAL));
+            Resource uploaded = running.get().getCompletion().get(10, TimeUnit.SECONDS);
+
+            assertTrue(cancelled.get());
+            assertEquals(data.length, uploaded.getSize());
+            assertEquals(TransferHandle.State.SUCCEEDED, running.get().getState());
+            assertFalse(running.get().cancel());
+        }
+        assertArrayEquals(data, fakeS3.get("up/upload.bin").data());
+    }
+
+    @Test
+    public void testUpload_shouldReportProgressOfMultipartUpload() throws Exception {
+        uploadSettings.setThreshold(UploadSettings.MIN_PART_SIZE);
+        uploadSettings.setPartSize(UploadSettings.MIN_PART_SIZE);
+        byte[] data = randomBytes(11 * 1024 * 1024);
+        Path local = tmp.newFile("upload.bin").toPath();
+        Files.write(local, data);
+
+        try (TransferManager manager = new TransferManager(settings)) {
+            TransferHandle<Resource> handle = manager.upload(newService("test-bucket"), local, "up/upload.bin",
+                    TransferPriority.INTERACTIVE);
+            Resource uploaded = handle.getCompletion().get(10, TimeUnit.SECONDS);
+
+            assertEquals(data.length, uploaded.getSize());
+            assertEquals(data.length, handle.getTotalBytes());
+            assertTrue(handle.getBytesTransferred() >= data.length);
+        }
+        assertArrayEquals(data, fakeS3.get("up/upload.bin").data());
+        assertEquals(3, fakeS3.requestCount("UPLOAD_PART"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_givenReserveOfEverySlot_shouldBeRejected() {
+        settings.setMaxConcurrentTransfers(2);
+        settings.setInteractiveReserve(2);
+        new TransferManager(settings);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDownload_givenClosedManager_shouldBeRejected() {
+        TransferManager manager = new TransferManager(settings);
+        manager.close();
+        manager.download(newService("test-bucket"), S3Resources.file("any"), TransferPriority.NORMAL);
+    }
+
+    private <T> TransferHandle<T> track(TransferHandle<T> handle) {
+        handle.getCompletion().thenRun(() -> completed.add(handle.getKey()));
+        return handle;
+    }
+
+    private S3ResourceService newService(String bucketName) {
+        return new S3ResourceService(client, bucketName, downloads.toString(), downloadSettings, uploadSettings,
+                new BulkSettings());
+    }
+}